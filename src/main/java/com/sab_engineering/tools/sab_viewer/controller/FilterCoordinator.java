@@ -0,0 +1,216 @@
+package com.sab_engineering.tools.sab_viewer.controller;
+
+import com.sab_engineering.tools.sab_viewer.io.FileAccess;
+import com.sab_engineering.tools.sab_viewer.io.FilteredLines;
+import com.sab_engineering.tools.sab_viewer.io.LinePositions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.Charset;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Finds the lines containing a term or matching a regular expression, for ViewerController, which then only displays them. The lines scanned so far
+// are filtered in the background, then those scanned meanwhile, until the scan ended
+class FilterCoordinator {
+    private static final long MINIMAL_TIME_BETWEEN_FILTER_STATE_UPDATES_IN_MS = 200;
+
+    private final Charset charset;
+    private final LinePositions linePositions; // only changed by scannerThread. This uses its snapshots
+    private final Supplier<FileAccess> fileAccessSupplier; // the file is opened by scannerThread, and replaced when a followed file is replaced
+    private final BooleanSupplier scanEndedSupplier;
+    private final IntConsumer filteredLineListener;
+    private final BiConsumer<Integer, Integer> filteredLinesListener;
+    private final Consumer<FilterState> filterStateConsumer;
+    private final BiFunction<IOException, String, UncheckedIOException> exceptionReporter;
+
+    private final Semaphore filterLock;
+    private Thread filterThread_toBeAccessedLocked;
+    private volatile LineFilter lineFilter; // null while all lines are displayed. Otherwise displayed line indices are indices of the filtered lines
+    private final Semaphore filterSignal; // the filter thread waits/blocks on 'acquire' until lines were scanned, which it may filter
+
+    // filteredLineListener is told the index of each line that passed the filter, filteredLinesListener the number of filtered lines before and after
+    // filtering the lines scanned meanwhile
+    FilterCoordinator(Charset charset, LinePositions linePositions, Supplier<FileAccess> fileAccessSupplier, BooleanSupplier scanEndedSupplier, IntConsumer filteredLineListener, BiConsumer<Integer, Integer> filteredLinesListener, Consumer<FilterState> filterStateConsumer, BiFunction<IOException, String, UncheckedIOException> exceptionReporter) {
+        this.charset = charset;
+        this.linePositions = linePositions;
+        this.fileAccessSupplier = fileAccessSupplier;
+        this.scanEndedSupplier = scanEndedSupplier;
+        this.filteredLineListener = filteredLineListener;
+        this.filteredLinesListener = filteredLinesListener;
+        this.filterStateConsumer = filterStateConsumer;
+        this.exceptionReporter = exceptionReporter;
+
+        filterLock = new Semaphore(1); // used by scannerThread when a followed file is replaced
+        filterThread_toBeAccessedLocked = null;
+        lineFilter = null;
+        filterSignal = new Semaphore(1);
+        filterSignal.acquireUninterruptibly();
+    }
+
+    // the thread is joined by awaitThread
+    void interruptThread() throws InterruptedException {
+        filterLock.acquire();
+        try {
+            if (filterThread_toBeAccessedLocked != null) {
+                filterThread_toBeAccessedLocked.interrupt();
+            }
+        } finally {
+            filterLock.release();
+        }
+    }
+
+    void awaitThread() throws InterruptedException {
+        Thread filterThread;
+        filterLock.acquire();
+        try {
+            filterThread = filterThread_toBeAccessedLocked;
+        } finally {
+            filterLock.release();
+        }
+        if (filterThread != null) {
+            filterThread.join();
+        }
+    }
+
+    // the lines which passed the filter so far, or null while all lines are displayed
+    FilteredLines getFilteredLines() {
+        LineFilter currentLineFilter = lineFilter;
+        return currentLineFilter == null ? null : currentLineFilter.filteredLines;
+    }
+
+    // the index of the given line of the file among the displayed ones, or of the next displayed line, if it did not pass the filter
+    int getDisplayedLineIndex(int lineIndexInFile) {
+        FilteredLines filteredLines = getFilteredLines();
+        return filteredLines == null ? lineIndexInFile : filteredLines.countLinesBefore(lineIndexInFile);
+    }
+
+    // The lines of an island which pass the filter whose lines of the file are given, or null if that filter was replaced. They are filtered right away in
+    // the calling thread, as an island is small
+    FilteredLines filterIsland(FilteredLines filteredLinesOfFile, FileAccess fileAccessOfIsland, LinePositions.LinePositionsView islandPositions) throws IOException, InterruptedException {
+        LineFilter currentLineFilter = lineFilter;
+        if (currentLineFilter == null || currentLineFilter.filteredLines != filteredLinesOfFile) {
+            return null;
+        }
+        FilteredLines filteredLinesOfIsland = new FilteredLines();
+        ViewerSettings viewerSettingsOfFirstPosition = new ViewerSettings(1, 1, 0, -1);
+        SearchCoordinator.searchLines(charset, currentLineFilter.searchTerm, currentLineFilter.pattern, fileAccessOfIsland, islandPositions, viewerSettingsOfFirstPosition, (lineIndex, columnIndex) -> filteredLinesOfIsland.add(lineIndex), false);
+        return filteredLinesOfIsland;
+    }
+
+    // supposed to be called by scannerThread, when lines were scanned, or when the scan ended
+    void linesScanned() {
+        filterSignal.release();
+    }
+
+    // Replaces the filter, or removes it when searchTerm is null. The displayed lines depend on the filter, so filterReplacer has to run the given
+    // replacement of the filter together with the change of the displayed position
+    void filterLines(String searchTerm, Pattern pattern, Consumer<Runnable> filterReplacer) {
+        try {
+            filterLock.acquire();
+            try {
+                if (filterThread_toBeAccessedLocked != null) {
+                    if (filterThread_toBeAccessedLocked.isAlive()) {
+                        filterThread_toBeAccessedLocked.interrupt();
+                    }
+                    filterThread_toBeAccessedLocked = null;
+                }
+                LineFilter newLineFilter = searchTerm == null ? null : new LineFilter(searchTerm, pattern);
+                filterReplacer.accept(() -> lineFilter = newLineFilter);
+                if (newLineFilter != null) {
+                    filterThread_toBeAccessedLocked = new Thread(() -> filterAllLines(newLineFilter), "Filter");
+                    filterThread_toBeAccessedLocked.start();
+                }
+            } finally {
+                filterLock.release();
+            }
+        } catch (InterruptedException e) {
+            // stop waiting for filterLock
+        }
+    }
+
+    // supposed to be called by scannerThread when a followed file is replaced, as the filtered lines are those of the replaced file
+    void filterLinesAgain(Consumer<Runnable> filterReplacer) {
+        LineFilter lineFilterOfReplacedFile = lineFilter;
+        if (lineFilterOfReplacedFile != null) {
+            filterLines(lineFilterOfReplacedFile.searchTerm, lineFilterOfReplacedFile.pattern, filterReplacer);
+        }
+    }
+
+    // supposed to be run in filter thread. Filters the lines scanned so far, then those scanned meanwhile, until the scan ended. The last line is only
+    // filtered then, as it may still grow
+    private void filterAllLines(LineFilter lineFilterToFill) {
+        BiConsumer<Integer, Long> resultListener = (lineIndex, columnIndex) -> addFilteredLine(lineFilterToFill, lineIndex);
+        int numberOfFilteredLinesInFile = 0;
+        try {
+            while (true) {
+                boolean scanEnded = scanEndedSupplier.getAsBoolean(); // read before the snapshot, which then contains all lines
+                LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+                int numberOfCompleteLines = scanEnded ? linePositionsSnapshot.getNumberOfContainedLines() : Math.max(0, linePositionsSnapshot.getNumberOfContainedLines() - 1);
+                FileAccess fileAccessOfFilter = fileAccessSupplier.get();
+                if (numberOfCompleteLines > numberOfFilteredLinesInFile && fileAccessOfFilter != null) {
+                    int previousNumberOfLines = lineFilterToFill.filteredLines.getNumberOfLines();
+                    ViewerSettings viewerSettingsOfFirstPosition = new ViewerSettings(1, 1, numberOfFilteredLinesInFile, -1);
+                    SearchCoordinator.searchLines(charset, lineFilterToFill.searchTerm, lineFilterToFill.pattern, fileAccessOfFilter, linePositionsSnapshot.subPositions(0, numberOfCompleteLines), viewerSettingsOfFirstPosition, resultListener, false);
+                    numberOfFilteredLinesInFile = numberOfCompleteLines;
+                    filteredLinesListener.accept(previousNumberOfLines, lineFilterToFill.filteredLines.getNumberOfLines());
+                }
+                publishFilterState(lineFilterToFill, scanEnded);
+                if (scanEnded) {
+                    return;
+                }
+                filterSignal.acquire();
+                filterSignal.drainPermits(); // all lines scanned so far are filtered next
+            }
+        } catch (InterruptedException|ClosedByInterruptException interruptedException) {
+            // filterThread should end. Nothing more to do.
+        } catch (IOException ioException) {
+            if (lineFilter != lineFilterToFill) {
+                return; // the filter was replaced, e.g. with the file
+            }
+            throw exceptionReporter.apply(ioException, "filter");
+        }
+    }
+
+    private void addFilteredLine(LineFilter lineFilterToFill, int lineIndex) {
+        FilteredLines filteredLines = lineFilterToFill.filteredLines;
+        int numberOfLines = filteredLines.getNumberOfLines();
+        filteredLines.add(lineIndex);
+        if (filteredLines.getNumberOfLines() == numberOfLines) {
+            return; // a further match in the same line
+        }
+        filteredLineListener.accept(numberOfLines);
+        publishFilterState(lineFilterToFill, false);
+    }
+
+    private void publishFilterState(LineFilter lineFilterToPublish, boolean finished) {
+        long currentTimeInMillis = System.currentTimeMillis();
+        if (lineFilter == lineFilterToPublish && (finished || currentTimeInMillis - lineFilterToPublish.lastPublishedFilterStateInMillis >= MINIMAL_TIME_BETWEEN_FILTER_STATE_UPDATES_IN_MS)) {
+            lineFilterToPublish.lastPublishedFilterStateInMillis = currentTimeInMillis;
+            filterStateConsumer.accept(new FilterState(lineFilterToPublish.searchTerm, lineFilterToPublish.filteredLines.getNumberOfLines(), finished));
+        }
+    }
+
+    // a filter and the lines which passed it so far
+    private static class LineFilter {
+        private final String searchTerm;
+        private final Pattern pattern; // null when searchTerm is literal
+        private final FilteredLines filteredLines;
+
+        private long lastPublishedFilterStateInMillis; // only accessed by filterThread
+
+        private LineFilter(String searchTerm, Pattern pattern) {
+            this.searchTerm = searchTerm;
+            this.pattern = pattern;
+            this.filteredLines = new FilteredLines();
+            this.lastPublishedFilterStateInMillis = 0;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.sab_engineering.tools.sab_viewer.controller;
+
+public class FilterState {
+    private final String searchTerm;
+    private final int numberOfLines;
+    private final boolean finished;
+
+    public FilterState(String searchTerm, int numberOfLines, boolean finished) {
+        this.searchTerm = searchTerm;
+        this.numberOfLines = numberOfLines;
+        this.finished = finished;
+    }
+
+    public String getSearchTerm() {
+        return searchTerm;
+    }
+
+    public int getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,447 @@
+package com.sab_engineering.tools.sab_viewer.controller;
+
+import com.sab_engineering.tools.sab_viewer.io.FileAccess;
+import com.sab_engineering.tools.sab_viewer.io.FilteredLines;
+import com.sab_engineering.tools.sab_viewer.io.IndexIsland;
+import com.sab_engineering.tools.sab_viewer.io.IoConstants;
+import com.sab_engineering.tools.sab_viewer.io.LinePositions;
+import com.sab_engineering.tools.sab_viewer.io.TailScanner;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.Charset;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Displays lines the scan did not reach yet, for ViewerController. They are either the lines of the tail, which is scanned backwards while the forward
+// scan runs, or the lines around a position, which are scanned on their own (see IndexIsland). The island is displayed until the scan reaches it. While
+// lines are filtered, only the lines of an island which pass the filter are displayed
+class IslandCoordinator {
+    private final Charset charset;
+    private final LinePositions linePositions; // only changed by scannerThread. This uses its snapshots
+    private final ViewerSettings currentViewerSettings_toBeAccessedSynchronized; // the displayed position, which is shared with the controller
+    private final FilterCoordinator filterCoordinator;
+    private final Supplier<FileAccess> fileAccessSupplier; // the file is opened by scannerThread, and replaced when a followed file is replaced
+    private final Runnable updateRequester;
+    private final Consumer<MessageInfo> messageConsumer;
+    private final BiFunction<IOException, String, UncheckedIOException> exceptionReporter;
+
+    private final Semaphore islandLock;
+    private Thread islandScannerThread_toBeAccessedLocked;
+    private volatile Island island; // null unless lines the scan did not reach yet are displayed. Only changed together with the displayed position
+    private volatile TailScanner tailScanner; // null unless the end of the file is scanned backwards, until its lines are appended to the scanned ones
+
+    IslandCoordinator(Charset charset, LinePositions linePositions, ViewerSettings currentViewerSettings_toBeAccessedSynchronized, FilterCoordinator filterCoordinator, Supplier<FileAccess> fileAccessSupplier, Runnable updateRequester, Consumer<MessageInfo> messageConsumer, BiFunction<IOException, String, UncheckedIOException> exceptionReporter) {
+        this.charset = charset;
+        this.linePositions = linePositions;
+        this.currentViewerSettings_toBeAccessedSynchronized = currentViewerSettings_toBeAccessedSynchronized;
+        this.filterCoordinator = filterCoordinator;
+        this.fileAccessSupplier = fileAccessSupplier;
+        this.updateRequester = updateRequester;
+        this.messageConsumer = messageConsumer;
+        this.exceptionReporter = exceptionReporter;
+
+        islandLock = new Semaphore(1);
+        islandScannerThread_toBeAccessedLocked = null;
+        island = null;
+        tailScanner = null;
+    }
+
+    // the thread is joined by awaitThread
+    void interruptThread() throws InterruptedException {
+        islandLock.acquire();
+        try {
+            if (islandScannerThread_toBeAccessedLocked != null) {
+                islandScannerThread_toBeAccessedLocked.interrupt();
+            }
+        } finally {
+            islandLock.release();
+        }
+    }
+
+    void awaitThread() throws InterruptedException {
+        Thread islandScannerThread;
+        islandLock.acquire();
+        try {
+            islandScannerThread = islandScannerThread_toBeAccessedLocked;
+        } finally {
+            islandLock.release();
+        }
+        if (islandScannerThread != null) {
+            islandScannerThread.join();
+        }
+    }
+
+    // the displayed island, or null. To know the displayed position in it, this is supposed to be called while synchronized on the viewer settings
+    Island getIsland() {
+        return island;
+    }
+
+    // supposed to be called while synchronized on the viewer settings, when the displayed position is changed to one of the scanned lines
+    void leaveIsland() {
+        island = null;
+    }
+
+    // supposed to be called by scannerThread, while the tail is scanned, or with null, once its lines were appended to the scanned ones
+    void setTailScanner(TailScanner tailScannerOfFile) {
+        tailScanner = tailScannerOfFile;
+    }
+
+    // Displays the line containing the given position, or the last page, which the scan did not reach yet. The displayed island is used, if it contains
+    // them. Otherwise the lines of the tail are displayed, if they contain them. Otherwise the lines around the position are scanned in the background
+    // as an island. The tail is scanned backwards, so its lines can not be filtered while they are scanned. With a filter, an island is scanned instead
+    void showPositionInBytes(FileAccess fileAccessOfIsland, long positionInBytes, boolean showLastPage) {
+        TailScanner currentTailScanner = filterCoordinator.getFilteredLines() == null ? tailScanner : null;
+        LinePositions.LinePositionsView tailLinePositions = currentTailScanner == null ? null : currentTailScanner.getSnapshot();
+        boolean tailContainsPosition = tailLinePositions != null && !tailLinePositions.isEmpty() && positionInBytes >= tailLinePositions.getCharacterPositionInBytes(0, 0);
+        try {
+            islandLock.acquire();
+            try {
+                stopIslandScanner();
+                Island currentIsland = island;
+                if (currentIsland != null && currentIsland.containsPosition(positionInBytes, showLastPage)) {
+                    showIsland(currentIsland, showLastPage ? -1 : currentIsland.findDisplayedLineIndex(positionInBytes));
+                    return;
+                }
+                if (tailContainsPosition) {
+                    showIsland(Island.ofTail(currentTailScanner, tailLinePositions), showLastPage ? -1 : tailLinePositions.findLineIndex(positionInBytes));
+                    return;
+                }
+                islandScannerThread_toBeAccessedLocked = new Thread(() -> scanIsland(fileAccessOfIsland, positionInBytes, showLastPage), "Island Scanner");
+                islandScannerThread_toBeAccessedLocked.start();
+            } finally {
+                islandLock.release();
+            }
+        } catch (InterruptedException e) {
+            // stop waiting for islandLock
+        }
+    }
+
+    // Supposed to be called when the user scrolls past the first or last line of the displayed island. The lines before or after it are scanned in the
+    // background, together with some of its lines, and then displayed instead of it, without moving the displayed lines. The tail grows upwards by itself
+    void extendIsland(Island islandToExtend, boolean upwards) {
+        if (islandToExtend.tailScanner != null || (upwards ? islandToExtend.startPositionInBytes == 0 : islandToExtend.containsEndOfFile)) {
+            return;
+        }
+        FileAccess fileAccessOfIsland = fileAccessSupplier.get();
+        try {
+            islandLock.acquire();
+            try {
+                if (island != islandToExtend || (islandScannerThread_toBeAccessedLocked != null && islandScannerThread_toBeAccessedLocked.isAlive())) {
+                    return; // the island is extended already, or another position was requested
+                }
+                islandScannerThread_toBeAccessedLocked = new Thread(() -> scanExtensionOfIsland(fileAccessOfIsland, islandToExtend, upwards), "Island Scanner");
+                islandScannerThread_toBeAccessedLocked.start();
+            } finally {
+                islandLock.release();
+            }
+        } catch (InterruptedException e) {
+            // stop waiting for islandLock
+        }
+    }
+
+    // supposed to be run in island scanner thread
+    private void scanIsland(FileAccess fileAccessOfIsland, long positionInBytes, boolean showLastPage) {
+        try {
+            IndexIsland indexIsland = new IndexIsland(fileAccessOfIsland, charset, positionInBytes);
+            indexIsland.scan();
+            FilteredLines filteredLinesOfFile = filterCoordinator.getFilteredLines();
+            Island newIsland = createIsland(fileAccessOfIsland, indexIsland, filteredLinesOfFile, island);
+            if (newIsland == null) {
+                if (filteredLinesOfFile != null && !indexIsland.getSnapshot().isEmpty() && filteredLinesOfFile == filterCoordinator.getFilteredLines()) {
+                    messageConsumer.accept(new MessageInfo("Unable to go to position", "None of the lines around the position passes the filter", JOptionPane.INFORMATION_MESSAGE));
+                }
+                return;
+            }
+
+            islandLock.acquire();
+            try {
+                if (islandScannerThread_toBeAccessedLocked != Thread.currentThread()) {
+                    return; // another position was requested meanwhile
+                }
+                showIsland(newIsland, showLastPage ? -1 : newIsland.getDisplayedLineIndex(indexIsland.getLineIndexOfTarget()));
+            } finally {
+                islandLock.release();
+            }
+        } catch (InterruptedException|ClosedByInterruptException interruptedException) {
+            // islandScannerThread should end. Nothing more to do.
+        } catch (IOException ioException) {
+            if (fileAccessSupplier.get() != fileAccessOfIsland) {
+                return; // the file was replaced meanwhile
+            }
+            throw exceptionReporter.apply(ioException, "read");
+        }
+    }
+
+    // Supposed to be run in island scanner thread. The extension overlaps the island by the number of bytes an island has before its target, so its
+    // line numbers continue those of the island
+    private void scanExtensionOfIsland(FileAccess fileAccessOfIsland, Island islandToExtend, boolean upwards) {
+        try {
+            IndexIsland indexIsland;
+            if (upwards) {
+                indexIsland = new IndexIsland(fileAccessOfIsland, charset, islandToExtend.startPositionInBytes, IoConstants.NUMBER_OF_BYTES_PER_INDEX_ISLAND_AFTER_TARGET, IoConstants.NUMBER_OF_BYTES_PER_INDEX_ISLAND_BEFORE_TARGET);
+            } else {
+                indexIsland = new IndexIsland(fileAccessOfIsland, charset, islandToExtend.endPositionInBytes);
+            }
+            indexIsland.scan();
+            Island extendedIsland = createIsland(fileAccessOfIsland, indexIsland, islandToExtend.filteredLinesOfFile, islandToExtend);
+            if (extendedIsland == null) {
+                return;
+            }
+
+            islandLock.acquire();
+            try {
+                if (islandScannerThread_toBeAccessedLocked != Thread.currentThread()) {
+                    return; // another position was requested meanwhile
+                }
+                showExtendedIsland(islandToExtend, extendedIsland);
+            } finally {
+                islandLock.release();
+            }
+        } catch (InterruptedException|ClosedByInterruptException interruptedException) {
+            // islandScannerThread should end. Nothing more to do.
+        } catch (IOException ioException) {
+            if (fileAccessSupplier.get() != fileAccessOfIsland) {
+                return; // the file was replaced meanwhile
+            }
+            throw exceptionReporter.apply(ioException, "read");
+        }
+    }
+
+    // Returns null, if the island is empty, or if none of its lines passes the filter, or if the filter was replaced meanwhile. The numbers of its lines
+    // continue those of the given island, if they overlap. Otherwise they are estimated
+    private Island createIsland(FileAccess fileAccessOfIsland, IndexIsland indexIsland, FilteredLines filteredLinesOfFile, Island overlappingIsland) throws IOException, InterruptedException {
+        LinePositions.LinePositionsView islandPositions = indexIsland.getSnapshot();
+        if (islandPositions.isEmpty()) {
+            return null;
+        }
+        FilteredLines filteredLinesOfIsland = null;
+        LinePositions.LinePositionsView displayedLinePositions = islandPositions;
+        if (filteredLinesOfFile != null) {
+            filteredLinesOfIsland = filterCoordinator.filterIsland(filteredLinesOfFile, fileAccessOfIsland, islandPositions);
+            if (filteredLinesOfIsland == null) {
+                return null;
+            }
+            displayedLinePositions = islandPositions.filteredPositions(filteredLinesOfIsland);
+            if (displayedLinePositions.isEmpty()) {
+                return null;
+            }
+        }
+        long startPositionInBytes = indexIsland.getStartPositionInBytes();
+        long endPositionInBytes = islandPositions.getBytePositionOfEndOfLastLine();
+        boolean containsEndOfFile = endPositionInBytes >= fileAccessOfIsland.getSizeInBytes();
+
+        int numberOfFirstLine;
+        if (overlappingIsland != null && overlappingIsland.tailScanner == null && overlappingIsland.filteredLinesOfFile == filteredLinesOfFile && Math.max(startPositionInBytes, overlappingIsland.startPositionInBytes) < Math.min(endPositionInBytes, overlappingIsland.endPositionInBytes)) {
+            long positionInBothIslands = Math.max(startPositionInBytes, overlappingIsland.startPositionInBytes);
+            int numberOfDisplayedLinesBefore = countDisplayedLinesBefore(islandPositions, filteredLinesOfIsland, positionInBothIslands);
+            numberOfFirstLine = overlappingIsland.numberOfFirstLine + overlappingIsland.countDisplayedLinesBefore(positionInBothIslands) - numberOfDisplayedLinesBefore;
+        } else {
+            LinePositions.LinePositionsView scannedLinePositions = linePositions.getSnapshot();
+            int lineIndexOfFirstLine = estimateLineIndexOfFirstLine(scannedLinePositions, indexIsland);
+            if (filteredLinesOfFile == null) {
+                numberOfFirstLine = lineIndexOfFirstLine + 1;
+            } else {
+                // as many of the lines in between pass the filter as of the lines filtered so far, which are about the scanned ones, and of the island
+                double shareOfFilteredLines = (filteredLinesOfFile.getNumberOfLines() + displayedLinePositions.getNumberOfContainedLines()) / (double) (scannedLinePositions.getNumberOfContainedLines() + islandPositions.getNumberOfContainedLines());
+                numberOfFirstLine = filteredLinesOfFile.getNumberOfLines() + (int) ((lineIndexOfFirstLine - scannedLinePositions.getNumberOfContainedLines()) * shareOfFilteredLines) + 1;
+            }
+        }
+        return new Island(displayedLinePositions, numberOfFirstLine, true, null, islandPositions, filteredLinesOfIsland, filteredLinesOfFile, startPositionInBytes, endPositionInBytes, containsEndOfFile);
+    }
+
+    // supposed to be called while holding islandLock. A position requested later replaces the one the island scanner thread is busy with
+    private void stopIslandScanner() {
+        if (islandScannerThread_toBeAccessedLocked != null) {
+            if (islandScannerThread_toBeAccessedLocked.isAlive()) {
+                islandScannerThread_toBeAccessedLocked.interrupt();
+            }
+            islandScannerThread_toBeAccessedLocked = null;
+        }
+    }
+
+    // Displays the given line of the island, or its last page, if the line index is -1. The island is not displayed, if the scan reached the line
+    // meanwhile. Then the line is displayed as a scanned one. Nothing changes, if the filter was replaced meanwhile, which already moved elsewhere
+    private void showIsland(Island newIsland, int lineIndexInIsland) {
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            if (newIsland.filteredLinesOfFile != filterCoordinator.getFilteredLines()) {
+                return;
+            }
+            if (lineIndexInIsland < 0) {
+                lineIndexInIsland = Math.max(0, newIsland.linePositions.getNumberOfContainedLines() - currentViewerSettings_toBeAccessedSynchronized.getDisplayedLines());
+            } else {
+                currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedColumnIndex(0);
+            }
+            long positionOfLineInBytes = newIsland.linePositions.getCharacterPositionInBytes(lineIndexInIsland, 0);
+            LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+            if (positionOfLineInBytes < linePositionsSnapshot.getBytePositionOfEndOfLastLine()) {
+                island = null; // the scan got there meanwhile
+                currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(filterCoordinator.getDisplayedLineIndex(linePositionsSnapshot.findLineIndex(positionOfLineInBytes)));
+            } else {
+                island = newIsland;
+                currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(lineIndexInIsland);
+            }
+        }
+        updateRequester.run();
+    }
+
+    // The first displayed line stays the same, unless the scan reached it meanwhile. Then it is displayed as a scanned one. Nothing changes, if another
+    // position was displayed meanwhile
+    private void showExtendedIsland(Island islandToExtend, Island extendedIsland) {
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            if (island != islandToExtend) {
+                return;
+            }
+            int lineIndexInIsland = Math.min(currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex(), islandToExtend.linePositions.getNumberOfContainedLines() - 1);
+            long positionOfLineInBytes = islandToExtend.linePositions.getCharacterPositionInBytes(lineIndexInIsland, 0);
+            LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+            if (positionOfLineInBytes < linePositionsSnapshot.getBytePositionOfEndOfLastLine()) {
+                island = null;
+                currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(filterCoordinator.getDisplayedLineIndex(linePositionsSnapshot.findLineIndex(positionOfLineInBytes)));
+            } else {
+                island = extendedIsland;
+                currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(extendedIsland.findDisplayedLineIndex(positionOfLineInBytes));
+            }
+        }
+        updateRequester.run();
+    }
+
+    // supposed to be called by tail scanner thread. While the tail is displayed, the lines scanned before it are added above the displayed ones
+    void showMoreOfTail() {
+        Island currentIsland = island;
+        if (currentIsland == null || currentIsland.tailScanner == null) {
+            return;
+        }
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            if (island != currentIsland) {
+                return;
+            }
+            LinePositions.LinePositionsView tailLinePositions = currentIsland.tailScanner.getSnapshot();
+            int numberOfAddedLines = tailLinePositions.getNumberOfContainedLines() - currentIsland.linePositions.getNumberOfContainedLines();
+            island = Island.ofTail(currentIsland.tailScanner, tailLinePositions);
+            currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex() + numberOfAddedLines);
+        }
+        updateRequester.run();
+    }
+
+    // from the average length of the scanned lines, or of those in the island, if none were scanned yet
+    private static int estimateLineIndexOfFirstLine(LinePositions.LinePositionsView scannedLinePositions, IndexIsland indexIsland) {
+        LinePositions.LinePositionsView islandPositions = indexIsland.getSnapshot();
+        int numberOfScannedLines = scannedLinePositions.getNumberOfContainedLines();
+        long numberOfScannedBytes = scannedLinePositions.getBytePositionOfEndOfLastLine();
+        double averageLengthOfLineInBytes;
+        if (numberOfScannedLines > 0 && numberOfScannedBytes > 0) {
+            averageLengthOfLineInBytes = numberOfScannedBytes / (double) numberOfScannedLines;
+        } else {
+            averageLengthOfLineInBytes = (islandPositions.getBytePositionOfEndOfLastLine() - indexIsland.getStartPositionInBytes()) / (double) islandPositions.getNumberOfContainedLines();
+        }
+        double estimatedLineIndex = numberOfScannedLines + (indexIsland.getStartPositionInBytes() - numberOfScannedBytes) / Math.max(1.0, averageLengthOfLineInBytes);
+        return (int) Math.max(numberOfScannedLines, Math.min(estimatedLineIndex, (double) (Integer.MAX_VALUE - islandPositions.getNumberOfContainedLines())));
+    }
+
+    // the number of lines of an island beginning before the given position, which are displayed
+    private static int countDisplayedLinesBefore(LinePositions.LinePositionsView islandPositions, FilteredLines filteredLinesOfIsland, long positionInBytes) {
+        int lineIndex = islandPositions.findLineIndex(positionInBytes);
+        int numberOfLinesBefore = islandPositions.getCharacterPositionInBytes(lineIndex, 0) < positionInBytes ? lineIndex + 1 : lineIndex;
+        return filteredLinesOfIsland == null ? numberOfLinesBefore : filteredLinesOfIsland.countLinesBefore(numberOfLinesBefore);
+    }
+
+    // supposed to be called by scanner thread. Once the scan reached the first displayed line of an island, the same line is displayed as a scanned one
+    void leaveIslandIfScanReachedIt() {
+        Island currentIsland = island;
+        if (currentIsland == null || linePositions.getBytePositionOfEndOfLastLine() <= currentIsland.getStartPositionInBytes()) {
+            return;
+        }
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            if (island != currentIsland) {
+                return;
+            }
+            LinePositions.LinePositionsView islandPositions = currentIsland.linePositions;
+            int lineIndexInIsland = Math.min(currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex(), islandPositions.getNumberOfContainedLines() - 1);
+            long positionOfLineInBytes = islandPositions.getCharacterPositionInBytes(lineIndexInIsland, 0);
+            LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+            if (positionOfLineInBytes >= linePositionsSnapshot.getBytePositionOfEndOfLastLine()) {
+                return;
+            }
+            island = null;
+            currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(filterCoordinator.getDisplayedLineIndex(linePositionsSnapshot.findLineIndex(positionOfLineInBytes)));
+        }
+        updateRequester.run();
+    }
+
+    // the lines around a position the scan did not reach yet, or the lines of the tail, which are displayed instead of the scanned ones
+    static class Island {
+        private final LinePositions.LinePositionsView linePositions; // not empty. Only the lines which passed the filter, if lines are filtered
+        private final int numberOfFirstLine; // estimated, or relative to the end of the file, in which case the last line is -1
+        private final boolean numbersEstimated;
+        private final TailScanner tailScanner; // null unless the lines are those of the tail, which are replaced when the tail grows
+
+        // the following are only used for islands around a position
+        private final LinePositions.LinePositionsView allLinePositions; // all lines of the island, including those which did not pass the filter
+        private final FilteredLines filteredLinesOfIsland; // null unless lines are filtered
+        private final FilteredLines filteredLinesOfFile; // null unless lines are filtered. Identifies the filter
+        private final long startPositionInBytes;
+        private final long endPositionInBytes;
+        private final boolean containsEndOfFile;
+
+        private Island(LinePositions.LinePositionsView linePositions, int numberOfFirstLine, boolean numbersEstimated, TailScanner tailScanner, LinePositions.LinePositionsView allLinePositions, FilteredLines filteredLinesOfIsland, FilteredLines filteredLinesOfFile, long startPositionInBytes, long endPositionInBytes, boolean containsEndOfFile) {
+            this.linePositions = linePositions;
+            this.numberOfFirstLine = numberOfFirstLine;
+            this.numbersEstimated = numbersEstimated;
+            this.tailScanner = tailScanner;
+            this.allLinePositions = allLinePositions;
+            this.filteredLinesOfIsland = filteredLinesOfIsland;
+            this.filteredLinesOfFile = filteredLinesOfFile;
+            this.startPositionInBytes = startPositionInBytes;
+            this.endPositionInBytes = endPositionInBytes;
+            this.containsEndOfFile = containsEndOfFile;
+        }
+
+        private static Island ofTail(TailScanner tailScanner, LinePositions.LinePositionsView tailLinePositions) {
+            return new Island(tailLinePositions, -tailLinePositions.getNumberOfContainedLines(), false, tailScanner, null, null, null, -1, -1, true);
+        }
+
+        LinePositions.LinePositionsView getLinePositions() {
+            return linePositions;
+        }
+
+        int getNumberOfFirstLine() {
+            return numberOfFirstLine;
+        }
+
+        boolean areNumbersEstimated() {
+            return numbersEstimated;
+        }
+
+        private long getStartPositionInBytes() {
+            return linePositions.getCharacterPositionInBytes(0, 0);
+        }
+
+        // only for islands around a position, as the tail is replaced when it grows
+        private boolean containsPosition(long positionInBytes, boolean lastPage) {
+            if (tailScanner != null) {
+                return false;
+            }
+            return lastPage ? containsEndOfFile : positionInBytes >= startPositionInBytes && (positionInBytes < endPositionInBytes || containsEndOfFile);
+        }
+
+        // the index of the displayed line containing the given position, or of the next displayed line, if it did not pass the filter
+        private int findDisplayedLineIndex(long positionInBytes) {
+            return getDisplayedLineIndex(allLinePositions.findLineIndex(positionInBytes));
+        }
+
+        // the index of the given line of the island among the displayed ones, or of the next displayed line, if it did not pass the filter
+        private int getDisplayedLineIndex(int lineIndexInIsland) {
+            int displayedLineIndex = filteredLinesOfIsland == null ? lineIndexInIsland : filteredLinesOfIsland.countLinesBefore(lineIndexInIsland);
+            return Math.min(displayedLineIndex, linePositions.getNumberOfContainedLines() - 1);
+        }
+
+        private int countDisplayedLinesBefore(long positionInBytes) {
+            return IslandCoordinator.countDisplayedLinesBefore(allLinePositions, filteredLinesOfIsland, positionInBytes);
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.sab_engineering.tools.sab_viewer.controller;
+
+import com.sab_engineering.tools.sab_viewer.io.FileAccess;
+import com.sab_engineering.tools.sab_viewer.io.IoConstants;
+import com.sab_engineering.tools.sab_viewer.io.LinePositions;
+import com.sab_engineering.tools.sab_viewer.io.MatchIndex;
+import com.sab_engineering.tools.sab_viewer.io.ParallelSearcher;
+import com.sab_engineering.tools.sab_viewer.io.RegexSearcher;
+import com.sab_engineering.tools.sab_viewer.io.ScanSearcher;
+import com.sab_engineering.tools.sab_viewer.io.Searcher;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.Charset;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Searches the terms the user enters, for ViewerController. A new search term is searched in the whole file, and all matches are kept. Moving to the
+// next or previous match of the same term only looks it up, unless the search is not yet there. Then the match is searched from the current position
+// on, which mostly finds it long before the search of all matches. While the file is scanned, literal terms are searched in the bytes the scanner reads
+class SearchCoordinator {
+    private static final long MINIMAL_TIME_BETWEEN_SEARCH_STATE_UPDATES_IN_MS = 200;
+
+    private final Charset charset;
+    private final LinePositions linePositions; // only changed by scannerThread. This uses its snapshots
+    private final Supplier<FileAccess> fileAccessSupplier; // the file is opened by scannerThread, and replaced when a followed file is replaced
+    private final MatchListener matchListener;
+    private final Consumer<SearchState> searchStateConsumer;
+    private final Consumer<MessageInfo> messageConsumer;
+    private final BiFunction<IOException, String, UncheckedIOException> exceptionReporter;
+
+    private final Semaphore searchLock;
+    private Thread searcherThread_toBeAccessedLocked;
+    private FindAllSearch findAllSearch_toBeAccessedLocked; // all matches of the last search term, which are used for find next and previous
+    private Thread cursorSearcherThread_toBeAccessedLocked; // finds the next or previous match, while findAllSearch has not reached it yet
+    private boolean scanEnded_toBeAccessedLocked; // later searches do not use the scan
+    private boolean closed_toBeAccessedLocked; // no threads are started any more, once the viewer is closed
+    private volatile boolean scanFeedsSearches; // false while ParallelScanner is used or when following the file, as then bytes are not passed to a ScanSearcher
+    private volatile FindAllSearch scanFedSearch; // the search whose matches are found by the scanner, if any
+
+    // matchListener moves to the match, which is in the given line of the file
+    SearchCoordinator(Charset charset, boolean followFile, LinePositions linePositions, Supplier<FileAccess> fileAccessSupplier, MatchListener matchListener, Consumer<SearchState> searchStateConsumer, Consumer<MessageInfo> messageConsumer, BiFunction<IOException, String, UncheckedIOException> exceptionReporter) {
+        this.charset = charset;
+        this.linePositions = linePositions;
+        this.fileAccessSupplier = fileAccessSupplier;
+        this.matchListener = matchListener;
+        this.searchStateConsumer = searchStateConsumer;
+        this.messageConsumer = messageConsumer;
+        this.exceptionReporter = exceptionReporter;
+
+        searchLock = new Semaphore(1); // used by scannerThread at the end of the scan
+        searcherThread_toBeAccessedLocked = null;
+        findAllSearch_toBeAccessedLocked = null;
+        cursorSearcherThread_toBeAccessedLocked = null;
+        scanEnded_toBeAccessedLocked = false;
+        closed_toBeAccessedLocked = false;
+        scanFeedsSearches = !followFile;
+        scanFedSearch = null;
+    }
+
+    // the threads are joined by awaitThreadsAndClose
+    void interruptThreads() throws InterruptedException {
+        searchLock.acquire();
+        try {
+            closed_toBeAccessedLocked = true;
+            if (searcherThread_toBeAccessedLocked != null) {
+                searcherThread_toBeAccessedLocked.interrupt();
+            }
+            if (cursorSearcherThread_toBeAccessedLocked != null) {
+                cursorSearcherThread_toBeAccessedLocked.interrupt();
+            }
+        } finally {
+            searchLock.release();
+        }
+    }
+
+    // the matches that did not fit into the heap can be removed, as soon as nobody accesses them any more
+    void awaitThreadsAndClose() throws InterruptedException, IOException {
+        Thread searcherThread;
+        Thread cursorSearcherThread;
+        FindAllSearch findAllSearch;
+        searchLock.acquire();
+        try {
+            searcherThread = searcherThread_toBeAccessedLocked;
+            cursorSearcherThread = cursorSearcherThread_toBeAccessedLocked;
+            findAllSearch = findAllSearch_toBeAccessedLocked;
+        } finally {
+            searchLock.release();
+        }
+        if (searcherThread != null) {
+            searcherThread.join();
+        }
+        if (cursorSearcherThread != null) {
+            cursorSearcherThread.join();
+        }
+        if (findAllSearch != null) {
+            findAllSearch.matchIndex.close();
+        }
+    }
+
+    // supposed to be called by scannerThread, before it scans without passing the bytes to searchScannedBytes
+    void scanDoesNotFeedSearches() {
+        scanFeedsSearches = false; // a search started meanwhile gets its matches after the scan
+    }
+
+    // supposed to be called by the scanner in scannerThread
+    void searchScannedBytes(long positionInBytes, ByteBuffer bytes) {
+        FindAllSearch findAllSearch = scanFedSearch;
+        if (findAllSearch != null) {
+            findAllSearch.scanSearcher.searchScannedBytes(positionInBytes, bytes);
+        }
+    }
+
+    // The bytes of the tail were not passed to the search fed by the scan, so they are searched now. A search started meanwhile gets its matches
+    // after the scan, as the scanner does not feed searches any more
+    void searchTailForScanFedSearch(long startOfTailInBytes) throws IOException, InterruptedException {
+        FindAllSearch findAllSearch;
+        searchLock.acquire();
+        try {
+            scanFeedsSearches = false;
+            findAllSearch = scanFedSearch;
+        } finally {
+            searchLock.release();
+        }
+        if (findAllSearch == null) {
+            return;
+        }
+        try {
+            findAllSearch.scanSearcher.searchBytesAfterScan(fileAccessSupplier.get(), startOfTailInBytes);
+        } catch (ClosedByInterruptException interruptedException) {
+            throw interruptedException; // scannerThread should end
+        } catch (IOException ioException) {
+            scanFedSearch = null;
+            exceptionReporter.apply(ioException, "search");
+        }
+    }
+
+    // Starts to search all matches of the term without moving to one, e.g. right after opening the file. While the file is scanned, the matches are
+    // found in the bytes the scanner reads
+    void registerSearchTerm(String literalSearchTerm, ViewerSettings viewerSettings) {
+        try {
+            searchLock.acquire();
+            try {
+                if (closed_toBeAccessedLocked) {
+                    return;
+                }
+                findAllMatches(literalSearchTerm, null, viewerSettings);
+            } finally {
+                searchLock.release();
+            }
+        } catch (IOException ioException) {
+            throw exceptionReporter.apply(ioException, "search");
+        } catch (InterruptedException e) {
+            // stop waiting for searchLock
+        }
+    }
+
+    // Moves to the next or previous match, relative to the given position in the file. When the search of all matches is not yet there, the next match
+    // is searched forward from the position, and the previous one backward. Regular expressions can not be searched backward, so the previous match of
+    // one is only known when the search of all matches passed the current position.
+    void moveToMatch(String searchTerm, Pattern pattern, boolean forward, ViewerSettings viewerSettingsInFile) {
+        if (searchTerm.length() == 0) {
+            messageConsumer.accept(new MessageInfo("Unable to search file", "Search term is empty", JOptionPane.WARNING_MESSAGE));
+            return;
+        }
+
+        try {
+            searchLock.acquire();
+
+            try {
+                if (closed_toBeAccessedLocked) {
+                    return;
+                }
+                FindAllSearch findAllSearch = findAllMatches(searchTerm, pattern, viewerSettingsInFile);
+
+                if (cursorSearcherThread_toBeAccessedLocked != null) {
+                    if (cursorSearcherThread_toBeAccessedLocked.isAlive()) {
+                        cursorSearcherThread_toBeAccessedLocked.interrupt();
+                    }
+                    cursorSearcherThread_toBeAccessedLocked = null;
+                }
+                FileAccess fileAccessOfSearch = findAllSearch.scanSearcher != null ? fileAccessSupplier.get() : findAllSearch.fileAccess; // the scan may have opened the file since
+                boolean searchFromCursor;
+                synchronized (findAllSearch) {
+                    findAllSearch.requestMove(viewerSettingsInFile.getFirstDisplayedLineIndex(), viewerSettingsInFile.getFirstDisplayedColumnIndex(), forward);
+                    moveToRequestedMatch(findAllSearch);
+                    searchFromCursor = findAllSearch.moveRequested && (forward || pattern == null) && fileAccessOfSearch != null;
+                    if (searchFromCursor) {
+                        findAllSearch.moveRequested = false;
+                    }
+                }
+                if (searchFromCursor) {
+                    LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+                    if (forward) {
+                        cursorSearcherThread_toBeAccessedLocked = new Thread(() -> searchNextMatch(findAllSearch, fileAccessOfSearch, viewerSettingsInFile, linePositionsSnapshot), "Cursor Searcher");
+                    } else {
+                        cursorSearcherThread_toBeAccessedLocked = new Thread(() -> searchPreviousMatch(searchTerm, fileAccessOfSearch, viewerSettingsInFile, linePositionsSnapshot), "Cursor Searcher");
+                    }
+                    cursorSearcherThread_toBeAccessedLocked.start();
+                }
+            } finally {
+                searchLock.release();
+            }
+        } catch (IOException ioException) {
+            throw exceptionReporter.apply(ioException, "search");
+        } catch (InterruptedException e) {
+            // stop waiting for searchLock
+        }
+    }
+
+    // supposed to be called while holding searchLock. Returns the search of all matches of the term, which is started unless it is still valid
+    private FindAllSearch findAllMatches(String searchTerm, Pattern pattern, ViewerSettings viewerSettings) throws IOException {
+        FindAllSearch findAllSearch = findAllSearch_toBeAccessedLocked;
+        FileAccess fileAccess = fileAccessSupplier.get();
+        if (findAllSearch != null && findAllSearch.isStillValid(searchTerm, pattern != null, fileAccess, linePositions.getNumberOfContainedLines())) {
+            return findAllSearch;
+        }
+        if (searcherThread_toBeAccessedLocked != null) {
+            if (searcherThread_toBeAccessedLocked.isAlive()) {
+                searcherThread_toBeAccessedLocked.interrupt();
+            }
+            searcherThread_toBeAccessedLocked = null;
+        }
+        if (findAllSearch != null) {
+            scanFedSearch = null;
+            findAllSearch.matchIndex.close(); // the interrupted search may still add matches, which are ignored
+        }
+
+        MatchIndex matchIndex = new MatchIndex(IoConstants.MATCH_INDEX_HEAP_BUDGET_IN_BYTES);
+        if (pattern == null && !scanEnded_toBeAccessedLocked && scanFeedsSearches && ScanSearcher.supportsSearchTerm(charset, searchTerm)) {
+            findAllSearch = new FindAllSearch(searchTerm, null, new ScanSearcher(charset, searchTerm), fileAccess, 0, matchIndex);
+            scanFedSearch = findAllSearch;
+            final FindAllSearch findAllSearchToRun = findAllSearch;
+            searcherThread_toBeAccessedLocked = new Thread(() -> searchMatchesBeforeScan(findAllSearchToRun), "Searcher");
+        } else {
+            LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+            findAllSearch = new FindAllSearch(searchTerm, pattern, null, fileAccess, linePositionsSnapshot.getNumberOfContainedLines(), matchIndex);
+            final FindAllSearch findAllSearchToRun = findAllSearch;
+            searcherThread_toBeAccessedLocked = new Thread(() -> searchAllMatches(findAllSearchToRun, viewerSettings, linePositionsSnapshot), "Searcher");
+        }
+        findAllSearch_toBeAccessedLocked = findAllSearch;
+        searcherThread_toBeAccessedLocked.start();
+        return findAllSearch;
+    }
+
+    // supposed to be run in searcher thread
+    private void searchAllMatches(FindAllSearch findAllSearch, ViewerSettings viewerSettingsAtStartOfSearch, LinePositions.LinePositionsView linePositionsToSearch) {
+        // from the beginning of the file. Column -1, as searching starts after the first displayed column
+        ViewerSettings viewerSettingsOfFirstPosition = new ViewerSettings(viewerSettingsAtStartOfSearch.getDisplayedLines(), viewerSettingsAtStartOfSearch.getDisplayedColumns(), 0, -1);
+        BiConsumer<Integer, Long> resultListener = (lineIndex, columnIndex) -> addMatch(findAllSearch, lineIndex, columnIndex);
+        try {
+            searchLines(charset, findAllSearch.searchTerm, findAllSearch.pattern, findAllSearch.fileAccess, linePositionsToSearch, viewerSettingsOfFirstPosition, resultListener, false);
+            finishSearch(findAllSearch);
+        } catch (InterruptedException|ClosedByInterruptException interruptedException) {
+            // searcherThread should end. Nothing more to do.
+        } catch (IOException ioException) {
+            if (fileAccessSupplier.get() != findAllSearch.fileAccess) {
+                return; // the file was replaced while searching it, so the line positions of the search are gone anyway
+            }
+            throw exceptionReporter.apply(ioException, "search");
+        }
+    }
+
+    // all matches after the given position, in the order of the file, or only the first one. Returns true, if there was a match
+    static boolean searchLines(Charset charset, String searchTerm, Pattern pattern, FileAccess fileAccessOfSearch, LinePositions.LinePositionsView linePositions, ViewerSettings viewerSettingsOfFirstPosition, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException, InterruptedException {
+        if (pattern != null) {
+            RegexSearcher regexSearcher = new RegexSearcher(fileAccessOfSearch, charset);
+            return regexSearcher.searchInSpecificLines(pattern, linePositions, viewerSettingsOfFirstPosition, resultListener, stopOnFirstResult);
+        } else if (ParallelSearcher.supportsSearchTerm(charset, searchTerm) && ParallelSearcher.isWorthwhile(linePositions, viewerSettingsOfFirstPosition)) {
+            ParallelSearcher parallelSearcher = new ParallelSearcher(fileAccessOfSearch, charset);
+            return parallelSearcher.searchInSpecificLines(searchTerm, linePositions, viewerSettingsOfFirstPosition, resultListener, stopOnFirstResult);
+        } else {
+            Searcher searcher = new Searcher(fileAccessOfSearch, charset);
+            return searcher.searchInSpecificLines(searchTerm, linePositions, viewerSettingsOfFirstPosition, resultListener, stopOnFirstResult);
+        }
+    }
+
+    // supposed to be run in searcher thread. The scanner searches the bytes it reads after the search started, this thread the ones before
+    private void searchMatchesBeforeScan(FindAllSearch findAllSearch) {
+        try {
+            findAllSearch.scanSearcher.awaitStartOfScannedBytes();
+            findAllSearch.scanSearcher.searchBytesBeforeScan(fileAccessSupplier.get());
+            addMatchesFoundWhileScanning(findAllSearch);
+        } catch (InterruptedException|ClosedByInterruptException interruptedException) {
+            // searcherThread should end. Nothing more to do.
+        } catch (IOException ioException) {
+            throw exceptionReporter.apply(ioException, "search");
+        }
+    }
+
+    // supposed to be called by scanner thread, when new lines are known, and by searcher thread, when it is done with the bytes before the scan
+    private void addMatchesFoundWhileScanning(FindAllSearch findAllSearch) throws IOException {
+        boolean allMatchesAdded = findAllSearch.scanSearcher.convertMatches(fileAccessSupplier.get(), linePositions.getSnapshot(), (lineIndex, columnIndex) -> addMatch(findAllSearch, lineIndex, columnIndex));
+        if (allMatchesAdded) {
+            finishSearch(findAllSearch);
+        }
+    }
+
+    // supposed to be called by scanner thread, when new lines are known. Like addMatchesFoundWhileScanning, but the scanner thread must not stop because
+    // of the search
+    void addMatchesFoundWhileScanningToScanFedSearch() {
+        FindAllSearch findAllSearch = scanFedSearch;
+        if (findAllSearch == null) {
+            return;
+        }
+        try {
+            addMatchesFoundWhileScanning(findAllSearch);
+        } catch (ClosedByInterruptException interruptedException) {
+            Thread.currentThread().interrupt(); // scannerThread should end. It notices when reading the next bytes
+        } catch (IOException ioException) {
+            scanFedSearch = null;
+            exceptionReporter.apply(ioException, "search");
+        }
+    }
+
+    // supposed to be called by scanner thread. The scanner does not search any more. The matches of a search fed by it are complete, once the bytes
+    // before the scan are searched as well
+    void endScan() throws InterruptedException {
+        FindAllSearch findAllSearch;
+        searchLock.acquire();
+        try {
+            scanEnded_toBeAccessedLocked = true;
+            findAllSearch = scanFedSearch;
+        } finally {
+            searchLock.release();
+        }
+        if (findAllSearch != null) {
+            findAllSearch.scanSearcher.endScan(linePositions.getBytePositionOfEndOfLastLine());
+            addMatchesFoundWhileScanningToScanFedSearch();
+        }
+    }
+
+    private void addMatch(FindAllSearch findAllSearch, int lineIndex, long columnIndex) {
+        findAllSearch.matchIndex.add(lineIndex, columnIndex);
+        synchronized (findAllSearch) {
+            moveToRequestedMatch(findAllSearch);
+        }
+        publishSearchState(findAllSearch, false);
+    }
+
+    private void finishSearch(FindAllSearch findAllSearch) {
+        synchronized (findAllSearch) {
+            findAllSearch.finished = true;
+            moveToRequestedMatch(findAllSearch);
+        }
+        publishSearchState(findAllSearch, true);
+    }
+
+    // Supposed to be run in cursor searcher thread. Lines scanned after the snapshot was taken are left to the search of all matches, which then moves
+    // to its first match after the position, or tells that there is none
+    private void searchNextMatch(FindAllSearch findAllSearch, FileAccess fileAccessOfSearch, ViewerSettings viewerSettingsAtStartOfSearch, LinePositions.LinePositionsView linePositionsToSearch) {
+        try {
+            boolean foundMatch = searchLines(charset, findAllSearch.searchTerm, findAllSearch.pattern, fileAccessOfSearch, linePositionsToSearch, viewerSettingsAtStartOfSearch, (lineIndex, columnIndex) -> matchListener.moveToMatch(lineIndex, columnIndex, true), true);
+            if (!foundMatch) {
+                synchronized (findAllSearch) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return; // another move was requested meanwhile
+                    }
+                    findAllSearch.requestMove(viewerSettingsAtStartOfSearch.getFirstDisplayedLineIndex(), viewerSettingsAtStartOfSearch.getFirstDisplayedColumnIndex(), true);
+                    moveToRequestedMatch(findAllSearch);
+                }
+            }
+        } catch (InterruptedException|ClosedByInterruptException interruptedException) {
+            // cursorSearcherThread should end. Nothing more to do.
+        } catch (IOException ioException) {
+            if (fileAccessSupplier.get() != fileAccessOfSearch) {
+                return; // the file was replaced while searching it, so the line positions of the search are gone anyway
+            }
+            throw exceptionReporter.apply(ioException, "search");
+        }
+    }
+
+    // supposed to be run in cursor searcher thread
+    private void searchPreviousMatch(String literalSearchTerm, FileAccess fileAccessOfSearch, ViewerSettings viewerSettingsAtStartOfSearch, LinePositions.LinePositionsView linePositionsToSearch) {
+        try {
+            Searcher searcher = new Searcher(fileAccessOfSearch, charset);
+            boolean foundTerm = searcher.searchBackwardInSpecificLines(literalSearchTerm, linePositionsToSearch, viewerSettingsAtStartOfSearch, (lineIndex, columnIndex) -> matchListener.moveToMatch(lineIndex, columnIndex, false));
+            if (!foundTerm) {
+                messageConsumer.accept(new MessageInfo("File search done", "Could not locate term between beginning of file and current position", JOptionPane.INFORMATION_MESSAGE));
+            }
+        } catch (ClosedByInterruptException interruptedException) {
+            // cursorSearcherThread should end. Nothing more to do.
+        } catch (IOException ioException) {
+            if (fileAccessSupplier.get() != fileAccessOfSearch) {
+                return; // the file was replaced while searching it, so the line positions of the search are gone anyway
+            }
+            throw exceptionReporter.apply(ioException, "search");
+        }
+    }
+
+    // supposed to be called while synchronized on findAllSearch. Matches before the requested position are known, once there is a later one
+    private void moveToRequestedMatch(FindAllSearch findAllSearch) {
+        if (!findAllSearch.moveRequested) {
+            return;
+        }
+        int lineIndex = findAllSearch.requestedLineIndex;
+        long columnIndex = findAllSearch.requestedColumnIndex;
+        MatchIndex matchIndex = findAllSearch.matchIndex;
+        long matchToMoveTo;
+        if (findAllSearch.requestedForward) {
+            matchToMoveTo = matchIndex.findFirstMatchAfter(lineIndex, columnIndex);
+        } else if (findAllSearch.finished || matchIndex.findFirstMatchAfter(lineIndex, columnIndex - 1) >= 0) {
+            matchToMoveTo = matchIndex.findLastMatchBefore(lineIndex, columnIndex);
+        } else {
+            return;
+        }
+
+        if (matchToMoveTo >= 0) {
+            findAllSearch.moveRequested = false;
+            matchListener.moveToMatch(matchIndex.getLineIndex(matchToMoveTo), matchIndex.getColumnIndex(matchToMoveTo), findAllSearch.requestedForward);
+        } else if (findAllSearch.finished) {
+            findAllSearch.moveRequested = false;
+            String range = findAllSearch.requestedForward ? "current position and end of file" : "beginning of file and current position";
+            messageConsumer.accept(new MessageInfo("File search done", "Could not locate term between " + range, JOptionPane.INFORMATION_MESSAGE));
+        }
+    }
+
+    private void publishSearchState(FindAllSearch findAllSearch, boolean finished) {
+        long currentTimeInMillis = System.currentTimeMillis();
+        if (finished || currentTimeInMillis - findAllSearch.lastPublishedSearchStateInMillis >= MINIMAL_TIME_BETWEEN_SEARCH_STATE_UPDATES_IN_MS) {
+            findAllSearch.lastPublishedSearchStateInMillis = currentTimeInMillis;
+            searchStateConsumer.accept(new SearchState(findAllSearch.searchTerm, findAllSearch.matchIndex.size(), finished));
+        }
+    }
+
+    // moves to a match. With a filter, a match in a line that is not displayed moves to the nearest displayed line in the direction of the search
+    interface MatchListener {
+        void moveToMatch(int lineIndexInFile, long columnIndex, boolean forward);
+    }
+
+    // a search of all matches of a term. The move to a match is requested by the UI and done by whichever thread knows the match first
+    private static class FindAllSearch {
+        private final String searchTerm;
+        private final Pattern pattern; // null when searchTerm is literal
+        private final ScanSearcher scanSearcher; // null unless the matches are found while the file is scanned
+        private final FileAccess fileAccess;
+        private final int numberOfLinesToSearch;
+        private final MatchIndex matchIndex;
+
+        private long lastPublishedSearchStateInMillis; // only accessed by searcherThread
+
+        // the following are accessed while synchronized on this
+        private boolean finished;
+        private boolean moveRequested;
+        private int requestedLineIndex;
+        private long requestedColumnIndex;
+        private boolean requestedForward;
+
+        private FindAllSearch(String searchTerm, Pattern pattern, ScanSearcher scanSearcher, FileAccess fileAccess, int numberOfLinesToSearch, MatchIndex matchIndex) {
+            this.searchTerm = searchTerm;
+            this.pattern = pattern;
+            this.scanSearcher = scanSearcher;
+            this.fileAccess = fileAccess;
+            this.numberOfLinesToSearch = numberOfLinesToSearch;
+            this.matchIndex = matchIndex;
+            this.lastPublishedSearchStateInMillis = 0;
+            this.finished = false;
+            this.moveRequested = false;
+        }
+
+        private void requestMove(int lineIndex, long columnIndex, boolean forward) {
+            moveRequested = true;
+            requestedLineIndex = lineIndex;
+            requestedColumnIndex = columnIndex;
+            requestedForward = forward;
+        }
+
+        // a finished search misses the lines scanned after it started, unless it was fed by the scan. Then the file may have been opened after it started
+        private synchronized boolean isStillValid(String searchTerm, boolean isRegularExpression, FileAccess fileAccess, int numberOfScannedLines) {
+            if (!this.searchTerm.equals(searchTerm) || (this.pattern != null) != isRegularExpression) {
+                return false;
+            }
+            if (scanSearcher != null) {
+                return true;
+            }
+            return this.fileAccess == fileAccess && (!finished || numberOfLinesToSearch == numberOfScannedLines);
+        }
+    }
+}
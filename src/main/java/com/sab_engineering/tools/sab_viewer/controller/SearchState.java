@@ -0,0 +1,25 @@
+package com.sab_engineering.tools.sab_viewer.controller;
+
+public class SearchState {
+    private final String literalSearchTerm;
+    private final long numberOfMatches;
+    private final boolean finished;
+
+    public SearchState(String literalSearchTerm, long numberOfMatches, boolean finished) {
+        this.literalSearchTerm = literalSearchTerm;
+        this.numberOfMatches = numberOfMatches;
+        this.finished = finished;
+    }
+
+    public String getLiteralSearchTerm() {
+        return literalSearchTerm;
+    }
+
+    public long getNumberOfMatches() {
+        return numberOfMatches;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
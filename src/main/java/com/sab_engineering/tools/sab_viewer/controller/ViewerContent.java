@@ -2,17 +2,26 @@ package com.sab_engineering.tools.sab_viewer.controller;
 
 import com.sab_engineering.tools.sab_viewer.io.LinePreview;
 
+import java.util.BitSet;
 import java.util.List;
 
+// The displayed lines, and how they differ from the previously published content: the previous lines moved up by numberOfScrolledLines
+// (down if negative), then the lines in changedLines are different. A consumer that only applies these changes keeps up with the viewer
 public class ViewerContent {
     private final List<LinePreview> lines;
-    private final int firstDisplayedLine;
+    private final int firstDisplayedLine; // negative while the lines of the tail are displayed, which are numbered relative to the end of the file
+    private final boolean firstDisplayedLineEstimated; // the lines around a position the scan did not reach yet are displayed with estimated numbers
     private final long firstDisplayedColumn;
+    private final int numberOfScrolledLines;
+    private final BitSet changedLines;
 
-    public ViewerContent(List<LinePreview> lines, int firstDisplayedLine, long firstDisplayedColumn) {
+    public ViewerContent(List<LinePreview> lines, int firstDisplayedLine, boolean firstDisplayedLineEstimated, long firstDisplayedColumn, int numberOfScrolledLines, BitSet changedLines) {
         this.lines = lines;
         this.firstDisplayedLine = firstDisplayedLine;
+        this.firstDisplayedLineEstimated = firstDisplayedLineEstimated;
         this.firstDisplayedColumn = firstDisplayedColumn;
+        this.numberOfScrolledLines = numberOfScrolledLines;
+        this.changedLines = changedLines;
     }
 
     public List<LinePreview> getLines() {
@@ -23,7 +32,20 @@ public class ViewerContent {
         return firstDisplayedLine;
     }
 
+    public boolean isFirstDisplayedLineEstimated() {
+        return firstDisplayedLineEstimated;
+    }
+
     public long getFirstDisplayedColumn() {
         return firstDisplayedColumn;
     }
+
+    public int getNumberOfScrolledLines() {
+        return numberOfScrolledLines;
+    }
+
+    // indices relative to the first displayed line. Lines that are no longer displayed are included, as they have to be cleared
+    public BitSet getChangedLines() {
+        return changedLines;
+    }
 }
@@ -1,55 +1,90 @@
 package com.sab_engineering.tools.sab_viewer.controller;
 
+import com.sab_engineering.tools.sab_viewer.io.FileAccess;
+import com.sab_engineering.tools.sab_viewer.io.FileFollower;
+import com.sab_engineering.tools.sab_viewer.io.FilteredLines;
+import com.sab_engineering.tools.sab_viewer.io.IndexIsland;
+import com.sab_engineering.tools.sab_viewer.io.FileReplacedException;
 import com.sab_engineering.tools.sab_viewer.io.IoConstants;
+import com.sab_engineering.tools.sab_viewer.io.LineIndexFile;
 import com.sab_engineering.tools.sab_viewer.io.LinePositionBatch;
 import com.sab_engineering.tools.sab_viewer.io.LinePositions;
 import com.sab_engineering.tools.sab_viewer.io.LinePreview;
 import com.sab_engineering.tools.sab_viewer.io.MutableLinePositionBatch;
+import com.sab_engineering.tools.sab_viewer.io.ParallelScanner;
 import com.sab_engineering.tools.sab_viewer.io.Reader;
+import com.sab_engineering.tools.sab_viewer.io.SampledLineCache;
+import com.sab_engineering.tools.sab_viewer.io.SampledLinePositionBatch;
 import com.sab_engineering.tools.sab_viewer.io.Scanner;
-import com.sab_engineering.tools.sab_viewer.io.Searcher;
+import com.sab_engineering.tools.sab_viewer.io.TailScanner;
 
 import javax.swing.*;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 public class ViewerController implements ViewerUiListener {
+    private static final int NUMBER_OF_PAGES_TO_PREFETCH = 3;
+    private static final long MINIMAL_TIME_BETWEEN_UPDATES_IN_MS = 16; // about one frame of the display. Requests arriving in between are served at once
+
     private final Charset charset;
     private final String fileName;
+    private final boolean followFile;
+    private volatile FileAccess fileAccess; // opened by scannerThread before any line positions are published. Replaced when a followed file is replaced
 
     private final ViewerSettings currentViewerSettings_toBeAccessedSynchronized;
 
     private final int largeLinesJump = 500; // TODO: Should be modifiable by user in settings
     private final int largeColumnsJump = 500;
 
-    private final LinePositions linePositions_toBeAccessedSynchronized;
+    private final LinePositions linePositions; // only changed by scannerThread. Other threads use its snapshots
+    private final SampledLineCache sampledLineCache; // null unless finished batches are sampled, see IoConstants.SPARSE_LINE_INDEX_ENABLED
 
     private final Consumer<ViewerContent> contentConsumer;
     private final Consumer<ScannerState> stateConsumer;
     private final Consumer<MessageInfo> messageConsumer;
 
     private long stateConsumer_lastUpdatedAtTimeStampInMillis;
+    private volatile boolean endOfFileReached; // only used when following the file, to keep showing the end while it grows
 
     private final Thread scannerThread;
 
     private Reader reader;
     private final Semaphore readerSignal; // <= this semaphore is used in 'reverse'. The reader waits/blocks on 'acquire' waiting for somebody to call 'release'. This avoids busy waits (in our code)
+    private long timeOfLastUpdateInMillis; // only accessed by readerThread
+    private List<LinePreview> lastPublishedLinePreviews; // only accessed by readerThread
+    private ViewerSettings lastPublishedViewerSettings; // only accessed by readerThread
     private final Thread readerThread;
+    private int firstDisplayedLineIndexOfLastUpdate; // only accessed by readerThread, to know in which direction the user scrolls
+
+    private final AtomicReference<PrefetchRequest> prefetchRequest; // only the latest request matters, older ones are replaced
+    private final Semaphore prefetchSignal; // used like readerSignal
+    private final Thread prefetcherThread;
+
+    private final SearchCoordinator searchCoordinator;
+
+    private final FilterCoordinator filterCoordinator; // while it filters, displayed line indices are indices of the filtered lines
 
-    private final Semaphore searchLock;
-    private Thread searcherThread_toBeAccessedLocked;
+    private final IslandCoordinator islandCoordinator; // while it displays an island, displayed line indices are indices of the lines in the island
 
-    public ViewerController(final String fileName, Charset charset, final int initiallyDisplayedLines, final int initiallyDisplayedColumns, final Consumer<ViewerContent> contentConsumer, final Consumer<ScannerState> stateConsumer, final Consumer<MessageInfo> messageConsumer) {
-        linePositions_toBeAccessedSynchronized = new LinePositions();
+    public ViewerController(final String fileName, Charset charset, final boolean followFile, final int initiallyDisplayedLines, final int initiallyDisplayedColumns, final Consumer<ViewerContent> contentConsumer, final Consumer<ScannerState> stateConsumer, final Consumer<SearchState> searchStateConsumer, final Consumer<FilterState> filterStateConsumer, final Consumer<MessageInfo> messageConsumer) {
+        linePositions = new LinePositions();
+        sampledLineCache = IoConstants.SPARSE_LINE_INDEX_ENABLED && SampledLinePositionBatch.supportsCharset(charset) ? new SampledLineCache(IoConstants.SAMPLED_LINE_CACHE_SIZE_IN_BYTES) : null;
 
         this.fileName = fileName;
         this.charset = charset;
+        this.followFile = followFile;
+        this.endOfFileReached = false;
 
         currentViewerSettings_toBeAccessedSynchronized = new ViewerSettings(initiallyDisplayedLines, initiallyDisplayedColumns, 0, 0);
 
@@ -59,34 +94,63 @@ public class ViewerController implements ViewerUiListener {
 
         stateConsumer_lastUpdatedAtTimeStampInMillis = System.currentTimeMillis();
 
+        searchCoordinator = new SearchCoordinator(charset, followFile, linePositions, () -> fileAccess, this::moveToPositionInFile, searchStateConsumer, messageConsumer, this::displayAndCreateException);
+
+        filterCoordinator = new FilterCoordinator(charset, linePositions, () -> fileAccess, () -> endOfFileReached && !followFile, this::requestUpdateIfFilteredLineIsDisplayed, this::keepShowingEndOfFile, filterStateConsumer, this::displayAndCreateException);
+
+        islandCoordinator = new IslandCoordinator(charset, linePositions, currentViewerSettings_toBeAccessedSynchronized, filterCoordinator, () -> fileAccess, this::requestUpdate, messageConsumer, this::displayAndCreateException);
+
         scannerThread = new Thread(this::scanFile, "Scanner");
         scannerThread.start();
 
+        prefetchRequest = new AtomicReference<>(null);
+        prefetchSignal = new Semaphore(1);
+        prefetchSignal.acquireUninterruptibly();
+        prefetcherThread = new Thread(this::prefetch, "Prefetcher");
+        prefetcherThread.setDaemon(true);
+        prefetcherThread.start();
+
+        firstDisplayedLineIndexOfLastUpdate = -1;
+        lastPublishedLinePreviews = null;
+        lastPublishedViewerSettings = null;
         readerSignal = new Semaphore(1);
         readerSignal.acquireUninterruptibly();
         readerThread = new Thread(this::readFile, "Reader");
         readerThread.start();
-
-        searchLock = new Semaphore(1);
-        searcherThread_toBeAccessedLocked = null;
     }
 
     @Override
     public void interruptBackgroundThreads() {
         scannerThread.interrupt();
         readerThread.interrupt();
+        prefetcherThread.interrupt();
         try {
-            searchLock.acquire();
-            try {
-                if (searcherThread_toBeAccessedLocked != null) {
-                    searcherThread_toBeAccessedLocked.interrupt();
-                }
-            } finally {
-                searchLock.release();
-            }
+            islandCoordinator.interruptThread();
+            filterCoordinator.interruptThread();
+            searchCoordinator.interruptThreads();
         } catch (InterruptedException e) {
             // don't care
         }
+
+        // the file and the temporary file of line positions that did not fit into the heap can be closed, as soon as nobody accesses them any more
+        Thread cleanupThread = new Thread(() -> {
+            try {
+                scannerThread.join();
+                readerThread.join();
+                prefetcherThread.join();
+                filterCoordinator.awaitThread();
+                islandCoordinator.awaitThread();
+                searchCoordinator.awaitThreadsAndClose();
+                linePositions.close();
+                if (fileAccess != null) {
+                    fileAccess.close();
+                }
+            } catch (InterruptedException | IOException exception) {
+                // the temporary file is removed when the application ends
+            }
+        }, "Cleanup");
+        cleanupThread.setDaemon(true);
+        cleanupThread.start();
     }
 
     @Override
@@ -108,19 +172,40 @@ public class ViewerController implements ViewerUiListener {
     // this method is supposed to be executed in scannerThread
     private void scanFile() {
         try {
-            Scanner scanner = new Scanner(fileName, charset, this::processFinishedPositions, this::processPositionPreview);
-            boolean stoppedBecauseOom = scanner.scanFile();
+            if (followFile) {
+                followFile();
+                return;
+            }
 
-            System.gc();
+            openFile();
 
-            Thread.sleep(50); // wait a bit to give gc some time to run, then publish final statistics
+            // a sparse index needs every batch decoded, to sample it
+            LineIndexFile lineIndexFile = new LineIndexFile(fileName, charset, fileAccess);
+            long positionToStartScanningInBytes = lineIndexFile.load(sampledLineCache == null ? linePositions::addFinishedEncodedBatch : null, this::processFinishedPositions);
+            if (positionToStartScanningInBytes == 0) {
+                linePositions.clear();
+            } else {
+                requestUpdate(); // the encoded batches were not published one by one
+            }
 
-            Runtime runtime = Runtime.getRuntime();
-            long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-            long totalMemory = runtime.totalMemory();
-            long maxMemory = runtime.maxMemory();
-            int linesScanned = linePositions_toBeAccessedSynchronized.getNumberOfContainedLines();
-            stateConsumer.accept(new ScannerState(linesScanned, linePositions_toBeAccessedSynchronized.getBytePositionOfEndOfLastLine(), true, stoppedBecauseOom, usedMemory, totalMemory, maxMemory));
+            boolean stoppedBecauseOom = false;
+            if (positionToStartScanningInBytes < lineIndexFile.getSizeOfContentInBytes()) {
+                stoppedBecauseOom = scanFrom(positionToStartScanningInBytes, lineIndexFile.getSizeOfContentInBytes());
+            }
+            searchCoordinator.endScan();
+
+            List<LinePositionBatch> linePositionBatches = linePositions.getFinishedBatches();
+            publishFinalState(stoppedBecauseOom);
+
+            // saving a sparse index would scan all sampled lines again, and it would be as large as any other
+            if (!stoppedBecauseOom && positionToStartScanningInBytes < lineIndexFile.getSizeOfContentInBytes() && sampledLineCache == null) {
+                try {
+                    lineIndexFile.save(linePositionBatches);
+                } catch (IOException ioException) {
+                    // the index is only an optimization for the next time the file is opened
+                    System.out.println("Unable to save index: " + ioException);
+                }
+            }
         } catch (InterruptedException|ClosedByInterruptException interruptedException) {
             // scannerThread should end. Nothing more to do.
         } catch (IOException ioException) {
@@ -128,12 +213,161 @@ public class ViewerController implements ViewerUiListener {
         }
     }
 
+    private boolean scanFrom(long positionToStartScanningInBytes, long fileSizeInBytes) throws IOException, InterruptedException {
+        // a file whose size is not known yet, e.g. a gzip file which was not decompressed before, can only be scanned from the beginning
+        if (fileAccess.isSizeKnown() && TailScanner.supportsCharset(charset) && TailScanner.isWorthwhile(fileSizeInBytes - positionToStartScanningInBytes)) {
+            return scanFromBothEnds(positionToStartScanningInBytes, fileSizeInBytes);
+        } else if (fileAccess.isSizeKnown() && ParallelScanner.supportsCharset(charset) && ParallelScanner.isWorthwhile(fileSizeInBytes - positionToStartScanningInBytes)) {
+            searchCoordinator.scanDoesNotFeedSearches();
+            ParallelScanner parallelScanner = new ParallelScanner(fileAccess, charset, positionToStartScanningInBytes, null, this::processFinishedPositions, this::processPositionPreview);
+            return parallelScanner.scanFile();
+        } else {
+            Scanner scanner = new Scanner(fileAccess, charset, positionToStartScanningInBytes, Long.MAX_VALUE, this::processFinishedPositions, this::processPositionPreview, searchCoordinator::searchScannedBytes);
+            return scanner.scanFile();
+        }
+    }
+
+    // The end of the file is scanned backwards in another thread, while this thread scans forwards. Once the scans met, the lines of the tail are
+    // appended to the scanned ones
+    private boolean scanFromBothEnds(long positionToStartScanningInBytes, long fileSizeInBytes) throws IOException, InterruptedException {
+        boolean scanInParallel = ParallelScanner.isWorthwhile(fileSizeInBytes - positionToStartScanningInBytes);
+        if (scanInParallel) {
+            searchCoordinator.scanDoesNotFeedSearches();
+        }
+        TailScanner tailScannerOfFile = new TailScanner(fileAccess, charset, positionToStartScanningInBytes, fileSizeInBytes);
+        Thread tailScannerThread = new Thread(() -> scanTail(tailScannerOfFile), "Tail Scanner");
+        islandCoordinator.setTailScanner(tailScannerOfFile);
+        tailScannerThread.start();
+        try {
+            boolean stoppedBecauseOom;
+            try {
+                if (scanInParallel) {
+                    stoppedBecauseOom = new ParallelScanner(fileAccess, charset, positionToStartScanningInBytes, tailScannerOfFile::limitForwardScan, this::processFinishedPositions, this::processPositionPreview).scanFile();
+                } else {
+                    stoppedBecauseOom = new Scanner(fileAccess, charset, positionToStartScanningInBytes, tailScannerOfFile::limitForwardScan, this::processFinishedPositions, this::processPositionPreview, searchCoordinator::searchScannedBytes).scanFile();
+                }
+                if (!stoppedBecauseOom) {
+                    tailScannerThread.join(); // the tail scanner notices that the scans met, when it tries to claim the next block
+                }
+            } finally {
+                awaitEndOfTailScan(tailScannerThread);
+            }
+            if (stoppedBecauseOom || !tailScannerOfFile.isFinished()) {
+                return true; // the lines after the end of the forward scan are not reachable any more
+            }
+
+            LinePositionBatch unfinishedLinePositionBatch = null;
+            if (!tailScannerOfFile.getSnapshot().isEmpty() && linePositions.getNumberOfFinishedBatches() > 0 && linePositions.getNumberOfContainedLines() % IoConstants.NUMBER_OF_LINES_PER_BATCH != 0) {
+                unfinishedLinePositionBatch = linePositions.removeLastFinishedBatch();
+            }
+            tailScannerOfFile.appendTo(unfinishedLinePositionBatch, this::processFinishedPositions);
+            if (!scanInParallel) {
+                searchCoordinator.searchTailForScanFedSearch(tailScannerOfFile.getStartPositionInBytes());
+            }
+            return false;
+        } finally {
+            islandCoordinator.setTailScanner(null);
+        }
+    }
+
+    // supposed to be run in tail scanner thread
+    private void scanTail(TailScanner tailScannerToRun) {
+        try {
+            tailScannerToRun.scan(islandCoordinator::showMoreOfTail);
+        } catch (InterruptedException|ClosedByInterruptException interruptedException) {
+            // tailScannerThread should end. Nothing more to do.
+        } catch (IOException ioException) {
+            throw displayAndCreateException(ioException, "scan");
+        }
+    }
+
+    // the file may only be closed, after the tail scanner stopped using it. So this thread waits, even if it is interrupted meanwhile
+    private static void awaitEndOfTailScan(Thread tailScannerThread) {
+        boolean interrupted = false;
+        while (tailScannerThread.isAlive()) {
+            tailScannerThread.interrupt();
+            try {
+                tailScannerThread.join();
+            } catch (InterruptedException interruptedException) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // like 'tail -f': keeps scanning while the file grows. Starts from scratch whenever the file is truncated or replaced (e.g. by log rotation)
+    private void followFile() throws IOException, InterruptedException {
+        boolean stoppedBecauseOom = false;
+        while (!stoppedBecauseOom) {
+            try (FileFollower fileFollower = new FileFollower(fileName, () -> publishFinalState(false))) {
+                openFile(); // after the follower, which notices if the file is replaced in between
+                long fileSizeInBytes = fileAccess.getSizeInBytes();
+                long positionToStartFollowingInBytes = 0;
+                if (ParallelScanner.supportsCharset(charset) && ParallelScanner.isWorthwhile(fileSizeInBytes)) {
+                    // scan the bulk of the file in parallel, then follow it starting at the last batch, which keeps the batches aligned
+                    stoppedBecauseOom = new ParallelScanner(fileAccess, charset, this::processFinishedPositions, this::processPositionPreview).scanFile();
+                    if (!stoppedBecauseOom && linePositions.getNumberOfFinishedBatches() > 0) {
+                        positionToStartFollowingInBytes = linePositions.removeLastFinishedBatch().getStartPositionInBytes(0);
+                    }
+                }
+                if (!stoppedBecauseOom) {
+                    Scanner scanner = new Scanner(fileAccess, charset, positionToStartFollowingInBytes, fileFollower, this::processFinishedPositions, this::processPositionPreview);
+                    stoppedBecauseOom = scanner.scanFile();
+                }
+            } catch (FileReplacedException fileReplacedException) {
+                linePositions.clear();
+                endOfFileReached = false;
+                synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+                    currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(0);
+                }
+                filterCoordinator.filterLinesAgain(replaceFilter -> displayFilteredLines(replaceFilter, false)); // the filtered lines are those of the replaced file
+                requestUpdate();
+            }
+        }
+        publishFinalState(true);
+    }
+
+    private void openFile() throws IOException {
+        FileAccess previousFileAccess = fileAccess;
+        fileAccess = FileAccess.open(fileName, followFile);
+        if (previousFileAccess != null) {
+            previousFileAccess.close(); // reader and searcher may still use it. They ignore the resulting failures, as the file was replaced anyway
+        }
+    }
+
+    private void publishFinalState(boolean stoppedBecauseOom) {
+        endOfFileReached = true;
+        filterCoordinator.linesScanned();
+
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+        long totalMemory = runtime.totalMemory();
+        long maxMemory = runtime.maxMemory();
+        LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+        int linesScanned = linePositionsSnapshot.getNumberOfContainedLines();
+        long bytesScanned = linePositionsSnapshot.getBytePositionOfEndOfLastLine();
+        stateConsumer.accept(new ScannerState(linesScanned, bytesScanned, true, stoppedBecauseOom, usedMemory, totalMemory, maxMemory));
+        stateConsumer_lastUpdatedAtTimeStampInMillis = System.currentTimeMillis();
+        if (stoppedBecauseOom) {
+            String message = "Memory ran out after " + linesScanned + " lines. The lines after them are not shown. Open the file with more memory (-Xmx) to see all lines";
+            messageConsumer.accept(new MessageInfo("Unable to scan whole file", message, JOptionPane.WARNING_MESSAGE));
+        }
+    }
+
     // this method is supposed to be executed in readerThread
     private void readFile() {
         try {
             do {
                 readerSignal.acquire();
+                long timeToWaitInMillis = timeOfLastUpdateInMillis + MINIMAL_TIME_BETWEEN_UPDATES_IN_MS - System.currentTimeMillis();
+                if (timeToWaitInMillis > 0) {
+                    Thread.sleep(timeToWaitInMillis); // e.g. key repeat: collect further requests, only the latest settings are displayed anyway
+                }
+                readerSignal.drainPermits(); // all pending requests are served by this update
                 update();
+                timeOfLastUpdateInMillis = System.currentTimeMillis();
             } while (true);
         } catch (ClosedByInterruptException | InterruptedException interruptedException) {
             // readerThread should end. Nothing more to do.
@@ -146,77 +380,185 @@ public class ViewerController implements ViewerUiListener {
 
     private void update() throws ClosedByInterruptException {
         ViewerSettings viewerSettingsAtStartOfUpdate;
+        IslandCoordinator.Island islandAtStartOfUpdate;
         synchronized (currentViewerSettings_toBeAccessedSynchronized) {
             viewerSettingsAtStartOfUpdate = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
+            islandAtStartOfUpdate = islandCoordinator.getIsland(); // the displayed position is one in the island
         }
 
-        int oneAfterLastLineIndex;
-        LinePositions.LinePositionsView relevantLinePositions;
-        synchronized (linePositions_toBeAccessedSynchronized) {
-            if (linePositions_toBeAccessedSynchronized.isEmpty()) {
-                return;
-            }
-            int linesScanned = linePositions_toBeAccessedSynchronized.getNumberOfContainedLines();
-            if (viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex() >= linesScanned) {
-                viewerSettingsAtStartOfUpdate.setFirstDisplayedLineIndex(linesScanned - 1);
+        LinePositions.LinePositionsView linePositionsSnapshot = islandAtStartOfUpdate != null ? islandAtStartOfUpdate.getLinePositions() : getFilteredLinePositions();
+        if (linePositionsSnapshot.isEmpty()) {
+            if (filterCoordinator.getFilteredLines() != null && isCurrent(viewerSettingsAtStartOfUpdate)) {
+                publishContent(Collections.emptyList(), viewerSettingsAtStartOfUpdate, null); // no lines passed the filter yet
             }
-            oneAfterLastLineIndex = Math.min(linesScanned, viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex() + viewerSettingsAtStartOfUpdate.getDisplayedLines());
-            relevantLinePositions = linePositions_toBeAccessedSynchronized.subPositions(viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex(), oneAfterLastLineIndex);
+            return;
+        }
+        int linesScanned = linePositionsSnapshot.getNumberOfContainedLines();
+        if (viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex() >= linesScanned) {
+            viewerSettingsAtStartOfUpdate.setFirstDisplayedLineIndex(linesScanned - 1);
         }
+        int oneAfterLastLineIndex = Math.min(linesScanned, viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex() + viewerSettingsAtStartOfUpdate.getDisplayedLines());
+        LinePositions.LinePositionsView relevantLinePositions = linePositionsSnapshot.subPositions(viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex(), oneAfterLastLineIndex);
 
         final List<LinePreview> linePreviews;
+        FileAccess fileAccessAtStartOfUpdate = fileAccess;
         try {
-            if (reader == null) {
-                reader = new Reader(fileName, charset);
+            if (reader == null || reader.getFileAccess() != fileAccessAtStartOfUpdate) {
+                reader = new Reader(fileAccessAtStartOfUpdate, charset);
+            }
+            linePreviews = reader.readSpecificLines(relevantLinePositions, viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex(), oneAfterLastLineIndex, viewerSettingsAtStartOfUpdate, () -> !isCurrent(viewerSettingsAtStartOfUpdate));
+            if (linePreviews == null) {
+                return; // the settings changed while reading, which requested another update
             }
-            linePreviews = reader.readSpecificLines(relevantLinePositions, viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex(), oneAfterLastLineIndex, viewerSettingsAtStartOfUpdate);
         } catch(ClosedByInterruptException cbie) {
             throw cbie;
         } catch (IOException ioException) {
+            if (fileAccess != fileAccessAtStartOfUpdate) {
+                return; // the file was replaced while reading it. Another update is requested for the new one
+            }
             throw displayAndCreateException(ioException, "read");
         }
 
-        ViewerSettings viewerSettingsAtEndOfUpdate;
+        requestPrefetch(linePositionsSnapshot, viewerSettingsAtStartOfUpdate, oneAfterLastLineIndex);
+
+        if (isCurrent(viewerSettingsAtStartOfUpdate)) {
+            publishContent(linePreviews, viewerSettingsAtStartOfUpdate, islandAtStartOfUpdate);
+        }
+    }
+
+    // lines which were read again, but did not change, are the same objects, as they come from the cache of the reader. Lines of an island are numbered
+    // from the estimated number of its first line, those of the tail relative to the end of the file
+    private void publishContent(List<LinePreview> linePreviews, ViewerSettings viewerSettings, IslandCoordinator.Island islandOfContent) {
+        int numberOfScrolledLines = 0;
+        BitSet changedLines = new BitSet();
+        if (lastPublishedLinePreviews != null && lastPublishedViewerSettings.getFirstDisplayedColumnIndex() == viewerSettings.getFirstDisplayedColumnIndex() && lastPublishedViewerSettings.getDisplayedColumns() == viewerSettings.getDisplayedColumns()) {
+            numberOfScrolledLines = viewerSettings.getFirstDisplayedLineIndex() - lastPublishedViewerSettings.getFirstDisplayedLineIndex();
+            int numberOfLines = Math.max(linePreviews.size(), lastPublishedLinePreviews.size());
+            for (int lineIndex = 0; lineIndex < numberOfLines; lineIndex++) {
+                int previousLineIndex = lineIndex + numberOfScrolledLines;
+                if (lineIndex >= linePreviews.size() || previousLineIndex < 0 || previousLineIndex >= lastPublishedLinePreviews.size() || linePreviews.get(lineIndex) != lastPublishedLinePreviews.get(previousLineIndex)) {
+                    changedLines.set(lineIndex);
+                }
+            }
+        } else {
+            changedLines.set(0, Math.max(linePreviews.size(), lastPublishedLinePreviews == null ? 0 : lastPublishedLinePreviews.size()));
+        }
+        lastPublishedLinePreviews = linePreviews;
+        lastPublishedViewerSettings = viewerSettings;
+
+        contentConsumer.accept(
+                new ViewerContent(
+                        linePreviews,
+                        (islandOfContent == null ? 1 : islandOfContent.getNumberOfFirstLine()) + viewerSettings.getFirstDisplayedLineIndex(),
+                        islandOfContent != null && islandOfContent.areNumbersEstimated(),
+                        viewerSettings.getFirstDisplayedColumnIndex() + 1,
+                        numberOfScrolledLines,
+                        changedLines
+                )
+        );
+    }
+
+    private boolean isCurrent(ViewerSettings viewerSettings) {
         synchronized (currentViewerSettings_toBeAccessedSynchronized) {
-            viewerSettingsAtEndOfUpdate = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
+            return Objects.equals(viewerSettings, currentViewerSettings_toBeAccessedSynchronized);
+        }
+    }
+
+    // reads the next pages in the direction the user scrolls, so they are already decoded when they are displayed
+    private void requestPrefetch(LinePositions.LinePositionsView linePositionsSnapshot, ViewerSettings displayedViewerSettings, int oneAfterLastDisplayedLineIndex) {
+        int firstDisplayedLineIndex = displayedViewerSettings.getFirstDisplayedLineIndex();
+        int scrollDirection = Integer.compare(firstDisplayedLineIndex, firstDisplayedLineIndexOfLastUpdate);
+        firstDisplayedLineIndexOfLastUpdate = firstDisplayedLineIndex;
+        if (scrollDirection == 0) {
+            return;
         }
 
-        if (Objects.equals(viewerSettingsAtStartOfUpdate, viewerSettingsAtEndOfUpdate)) {
-            contentConsumer.accept(
-                    new ViewerContent(
-                            linePreviews,
-                            viewerSettingsAtStartOfUpdate.getFirstDisplayedLineIndex() + 1,
-                            viewerSettingsAtStartOfUpdate.getFirstDisplayedColumnIndex() + 1
-                    )
-            );
+        int numberOfLinesToPrefetch = NUMBER_OF_PAGES_TO_PREFETCH * displayedViewerSettings.getDisplayedLines();
+        int linesScanned = linePositionsSnapshot.getNumberOfContainedLines();
+        int indexOfFirstLineToPrefetch;
+        int oneAfterLastLineIndexToPrefetch;
+        if (scrollDirection > 0) {
+            indexOfFirstLineToPrefetch = oneAfterLastDisplayedLineIndex;
+            oneAfterLastLineIndexToPrefetch = (int) Math.min(linesScanned, (long) oneAfterLastDisplayedLineIndex + numberOfLinesToPrefetch);
+        } else {
+            indexOfFirstLineToPrefetch = Math.max(0, firstDisplayedLineIndex - numberOfLinesToPrefetch);
+            oneAfterLastLineIndexToPrefetch = Math.min(linesScanned, firstDisplayedLineIndex);
+        }
+        if (indexOfFirstLineToPrefetch >= oneAfterLastLineIndexToPrefetch) {
+            return;
+        }
+        LinePositions.LinePositionsView linePositionsToPrefetch = linePositionsSnapshot.subPositions(indexOfFirstLineToPrefetch, oneAfterLastLineIndexToPrefetch);
+
+        prefetchRequest.set(new PrefetchRequest(reader, linePositionsToPrefetch, indexOfFirstLineToPrefetch, oneAfterLastLineIndexToPrefetch, displayedViewerSettings));
+        prefetchSignal.release();
+    }
+
+    // this method is supposed to be executed in prefetcherThread
+    private void prefetch() {
+        try {
+            do {
+                prefetchSignal.acquire();
+                prefetchSignal.drainPermits();
+                PrefetchRequest request = prefetchRequest.getAndSet(null);
+                if (request == null) {
+                    continue;
+                }
+                try {
+                    request.reader.prefetchLines(request.linePositions, request.indexOfFirstLine, request.oneAfterLastLineIndex, request.viewerSettings, () -> prefetchRequest.get() != null);
+                } catch (ClosedByInterruptException closedByInterruptException) {
+                    throw closedByInterruptException;
+                } catch (IOException | RuntimeException exception) {
+                    // prefetching is only an optimization. The reader thread reports the problem, if the lines are displayed
+                }
+            } while (true);
+        } catch (ClosedByInterruptException | InterruptedException interruptedException) {
+            // prefetcherThread should end. Nothing more to do.
         }
     }
 
     private void processFinishedPositions(final LinePositionBatch positionBatch) {
-        int numberOfLines;
-        long bytesScanned;
-        synchronized (linePositions_toBeAccessedSynchronized) {
-            linePositions_toBeAccessedSynchronized.addFinishedBatch(positionBatch);
-            numberOfLines = linePositions_toBeAccessedSynchronized.getNumberOfContainedLines();
-            bytesScanned = linePositions_toBeAccessedSynchronized.getBytePositionOfEndOfLastLine();
-        }
-        requestUpdateIfPositionsAreInRange(numberOfLines - positionBatch.getNumberOfContainedLines(), numberOfLines - 1, null);
+        int previousNumberOfLines = linePositions.getNumberOfContainedLines();
+        linePositions.addFinishedBatch(sampledLineCache == null ? positionBatch : SampledLinePositionBatch.sample(positionBatch, fileAccess, charset, sampledLineCache));
+        int numberOfLines = linePositions.getNumberOfContainedLines();
+        long bytesScanned = linePositions.getBytePositionOfEndOfLastLine();
+        islandCoordinator.leaveIslandIfScanReachedIt();
+        if (filterCoordinator.getFilteredLines() == null && islandCoordinator.getIsland() == null) {
+            keepShowingEndOfFile(previousNumberOfLines, numberOfLines);
+            requestUpdateIfPositionsAreInRange(numberOfLines - positionBatch.getNumberOfContainedLines(), numberOfLines - 1, 0);
+        }
+        filterCoordinator.linesScanned();
         publishState(numberOfLines, bytesScanned);
+        searchCoordinator.addMatchesFoundWhileScanningToScanFedSearch();
     }
 
     private void processPositionPreview(final MutableLinePositionBatch positionBatch) {
-        int numberOfLines;
-        long bytesScanned;
-        synchronized (linePositions_toBeAccessedSynchronized) {
-            linePositions_toBeAccessedSynchronized.updateLastBatchPreview(positionBatch);
-            numberOfLines = linePositions_toBeAccessedSynchronized.getNumberOfContainedLines();
-            bytesScanned = linePositions_toBeAccessedSynchronized.getBytePositionOfEndOfLastLine();
-        }
-        requestUpdateIfPositionsAreInRange(numberOfLines - 1, numberOfLines - 1, positionBatch.getCharacterPositionsInBytes(positionBatch.getNumberOfContainedLines() - 1));
+        int previousNumberOfLines = linePositions.getNumberOfContainedLines();
+        linePositions.updateLastBatchPreview(positionBatch);
+        int numberOfLines = linePositions.getNumberOfContainedLines();
+        long bytesScanned = linePositions.getBytePositionOfEndOfLastLine();
+        islandCoordinator.leaveIslandIfScanReachedIt();
+        if (filterCoordinator.getFilteredLines() == null && islandCoordinator.getIsland() == null) {
+            keepShowingEndOfFile(previousNumberOfLines, numberOfLines);
+            requestUpdateIfPositionsAreInRange(numberOfLines - 1, numberOfLines - 1, positionBatch.getNumberOfCharacterPositions(positionBatch.getNumberOfContainedLines() - 1));
+        }
+        filterCoordinator.linesScanned();
         publishState(numberOfLines, bytesScanned);
     }
 
-    private void requestUpdateIfPositionsAreInRange(int indexOfFirstLineInBatch, int indexOfLastLineInBatch, long[] characterPositionsInBytes) {
+    // when following a file and the last line was visible, move down with the new lines. With a filter, the numbers are those of the filtered lines
+    private void keepShowingEndOfFile(int previousNumberOfLines, int numberOfLines) {
+        if (!followFile || !endOfFileReached || numberOfLines <= previousNumberOfLines) {
+            return;
+        }
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            int displayedLines = currentViewerSettings_toBeAccessedSynchronized.getDisplayedLines();
+            if (currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex() + displayedLines >= previousNumberOfLines) {
+                currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(Math.max(0, numberOfLines - displayedLines));
+            }
+        }
+    }
+
+    private void requestUpdateIfPositionsAreInRange(int indexOfFirstLineInBatch, int indexOfLastLineInBatch, int numberOfCharacterPositions) {
         ViewerSettings viewerSettingsAtStartOfUpdate;
         synchronized (currentViewerSettings_toBeAccessedSynchronized) {
             viewerSettingsAtStartOfUpdate = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
@@ -229,8 +571,8 @@ public class ViewerController implements ViewerUiListener {
                 || isInRangeInclusive(indexOfFirstLineInBatch, firstDisplayedLineIndex, lastDisplayedLineIndex)
                 || isInRangeInclusive(indexOfLastLineInBatch, firstDisplayedLineIndex, lastDisplayedLineIndex)
         ) {
-            if (characterPositionsInBytes != null) {
-                long lastUpdatedCharacterIndex = characterPositionsInBytes.length * (long) IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
+            if (numberOfCharacterPositions > 0) {
+                long lastUpdatedCharacterIndex = numberOfCharacterPositions * (long) IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
                 long firstUpdatedCharacterIndex = lastUpdatedCharacterIndex - IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
                 long firstDisplayedColumnIndex = viewerSettingsAtStartOfUpdate.getFirstDisplayedColumnIndex();
                 long lastDisplayedColumnIndex = firstDisplayedColumnIndex + (viewerSettingsAtStartOfUpdate.getDisplayedColumns() - 1);
@@ -263,19 +605,27 @@ public class ViewerController implements ViewerUiListener {
         }
     }
 
+    // Scrolling past the first or last line of an island extends it in the background, until the scan reaches it
     private void moveVertical(final int lineOffset) {
-        int linesScanned;
-        synchronized (linePositions_toBeAccessedSynchronized) {
-            linesScanned = linePositions_toBeAccessedSynchronized.getNumberOfContainedLines();
-        }
         boolean changed = false;
+        IslandCoordinator.Island islandToExtend = null;
+        boolean extendUpwards = lineOffset < 0;
         synchronized (currentViewerSettings_toBeAccessedSynchronized) {
-            int newFirstLineIndex = Math.max(Math.min(currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex() + lineOffset, linesScanned - 1), 0);
+            IslandCoordinator.Island currentIsland = islandCoordinator.getIsland();
+            int linesScanned = getDisplayedLinePositions().getNumberOfContainedLines();
+            int requestedFirstLineIndex = currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex() + lineOffset;
+            if (currentIsland != null && (extendUpwards ? requestedFirstLineIndex < 0 : lineOffset > 0 && requestedFirstLineIndex + currentViewerSettings_toBeAccessedSynchronized.getDisplayedLines() > linesScanned)) {
+                islandToExtend = currentIsland;
+            }
+            int newFirstLineIndex = Math.max(Math.min(requestedFirstLineIndex, linesScanned - 1), 0);
             if (newFirstLineIndex != currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex()) {
                 currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(newFirstLineIndex);
                 changed = true;
             }
         }
+        if (islandToExtend != null) {
+            islandCoordinator.extendIsland(islandToExtend, extendUpwards);
+        }
         if (changed) {
             requestUpdate();
         }
@@ -296,10 +646,7 @@ public class ViewerController implements ViewerUiListener {
     }
 
     private void moveToVerticalPosition(final int firstDisplayedLineIndex) {
-        int linesScanned;
-        synchronized (linePositions_toBeAccessedSynchronized) {
-            linesScanned = linePositions_toBeAccessedSynchronized.getNumberOfContainedLines();
-        }
+        int linesScanned = getDisplayedLinePositions().getNumberOfContainedLines();
         int newFirstLineIndex = Math.max(Math.min(firstDisplayedLineIndex, linesScanned - 1), 0);
         boolean changed = false;
         synchronized (currentViewerSettings_toBeAccessedSynchronized) {
@@ -327,19 +674,19 @@ public class ViewerController implements ViewerUiListener {
         }
     }
 
+    // the position is one of the scanned lines, or of the filtered ones, so an island is left
     private void moveToPosition(final int firstDisplayedLineIndex, final long firstDisplayedColumnIndex) {
-        int linesScanned;
-        synchronized (linePositions_toBeAccessedSynchronized) {
-            linesScanned = linePositions_toBeAccessedSynchronized.getNumberOfContainedLines();
-        }
+        int linesScanned = getFilteredLinePositions().getNumberOfContainedLines();
         int newFirstLineIndex = Math.max(Math.min(firstDisplayedLineIndex, linesScanned - 1), 0);
         long newColumnIndex = Math.max(firstDisplayedColumnIndex, 0);
         boolean changed = false;
         synchronized (currentViewerSettings_toBeAccessedSynchronized) {
             if (
-                    newFirstLineIndex != currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex()
+                    islandCoordinator.getIsland() != null
+                    || newFirstLineIndex != currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex()
                     || newColumnIndex != currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedColumnIndex()
             ) {
+                islandCoordinator.leaveIsland();
                 currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(newFirstLineIndex);
                 currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedColumnIndex(newColumnIndex);
                 changed = true;
@@ -350,6 +697,22 @@ public class ViewerController implements ViewerUiListener {
         }
     }
 
+    // positions of matches are positions in the file. With a filter, a match in a line that is not displayed moves to the nearest displayed line in the
+    // direction of the search
+    private void moveToPositionInFile(final int lineIndexInFile, final long columnIndex, final boolean forward) {
+        FilteredLines filteredLines = filterCoordinator.getFilteredLines();
+        if (filteredLines == null) {
+            moveToPosition(lineIndexInFile, columnIndex);
+            return;
+        }
+        int filteredLineIndex = filteredLines.countLinesBefore(lineIndexInFile);
+        if (filteredLineIndex < filteredLines.getNumberOfLines() && filteredLines.getLineIndex(filteredLineIndex) == lineIndexInFile) {
+            moveToPosition(filteredLineIndex, columnIndex);
+        } else {
+            moveToPosition(forward ? filteredLineIndex : filteredLineIndex - 1, 0);
+        }
+    }
+
     private UncheckedIOException displayAndCreateException(IOException exception, String verb)  {
         String message = "Unable to " + verb + " file '" + fileName + "': " + exception.getClass().getSimpleName();
         messageConsumer.accept(new MessageInfo("Unable to " + verb + " file", message, JOptionPane.ERROR_MESSAGE));
@@ -424,10 +787,9 @@ public class ViewerController implements ViewerUiListener {
             viewerSettings = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
         }
         long lengthOfCurrentLineInCharacters = -1;
-        synchronized (linePositions_toBeAccessedSynchronized) {
-            if (viewerSettings.getFirstDisplayedLineIndex() < linePositions_toBeAccessedSynchronized.getNumberOfContainedLines()) {
-                lengthOfCurrentLineInCharacters = linePositions_toBeAccessedSynchronized.getLengthInCharacters(viewerSettings.getFirstDisplayedLineIndex());
-            }
+        LinePositions.LinePositionsView linePositionsSnapshot = getDisplayedLinePositions();
+        if (viewerSettings.getFirstDisplayedLineIndex() < linePositionsSnapshot.getNumberOfContainedLines()) {
+            lengthOfCurrentLineInCharacters = linePositionsSnapshot.getLengthInCharacters(viewerSettings.getFirstDisplayedLineIndex());
         }
         if (lengthOfCurrentLineInCharacters != -1) {
             moveToHorizontalPosition(lengthOfCurrentLineInCharacters - viewerSettings.getDisplayedColumns());
@@ -436,22 +798,60 @@ public class ViewerController implements ViewerUiListener {
 
     @Override
     public void onGoToFirstLine() {
-        moveToVerticalPosition(0);
+        ViewerSettings viewerSettings;
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            viewerSettings = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
+        }
+        moveToPosition(0, viewerSettings.getFirstDisplayedColumnIndex());
     }
 
+    // before the scan reached the end of the file, the last lines are displayed in an island
     @Override
     public void onGoToLastLine() {
-        ViewerSettings viewerSettings;
-        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
-            viewerSettings = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
+        moveToPositionInBytes(Long.MAX_VALUE, true);
+    }
+
+    @Override
+    public void onGoToPositionInBytes(long positionInBytes) {
+        moveToPositionInBytes(positionInBytes, false);
+    }
+
+    @Override
+    public void onGoToPercentageOfFile(double percentage) {
+        FileAccess fileAccessOfFile = fileAccess;
+        if (fileAccessOfFile == null) {
+            return; // the file is not open yet
+        }
+        try {
+            long fileSizeInBytes = fileAccessOfFile.getSizeInBytes();
+            moveToPositionInBytes((long) (fileSizeInBytes * Math.max(0.0, Math.min(100.0, percentage)) / 100.0), false);
+        } catch (ClosedByInterruptException closedByInterruptException) {
+            // the viewer is closed
+        } catch (IOException ioException) {
+            throw displayAndCreateException(ioException, "read");
         }
+    }
 
-        int line;
-        synchronized (linePositions_toBeAccessedSynchronized) {
-            line = Math.max(0, linePositions_toBeAccessedSynchronized.getNumberOfContainedLines() - viewerSettings.getDisplayedLines());
+    // Moves to the line containing the given position, or to the last page. When the scan did not reach it yet, the lines of the tail are displayed, if
+    // they contain it. Otherwise the lines around it are scanned in the background as an island, which is displayed until the scan reaches it
+    private void moveToPositionInBytes(long positionInBytes, boolean showLastPage) {
+        LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+        FileAccess fileAccessOfIsland = fileAccess;
+        boolean scanReachedPosition = positionInBytes < linePositionsSnapshot.getBytePositionOfEndOfLastLine() || endOfFileReached;
+        if (scanReachedPosition || fileAccessOfIsland == null || !fileAccessOfIsland.isSizeKnown() || !IndexIsland.supportsCharset(charset)) {
+            ViewerSettings viewerSettings;
+            synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+                viewerSettings = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
+            }
+            if (showLastPage) {
+                moveToPosition(Math.max(0, getFilteredLinePositions().getNumberOfContainedLines() - viewerSettings.getDisplayedLines()), viewerSettings.getFirstDisplayedColumnIndex());
+            } else if (!linePositionsSnapshot.isEmpty()) {
+                moveToPositionInFile(linePositionsSnapshot.findLineIndex(positionInBytes), 0, true);
+            }
+            return;
         }
 
-        moveToVerticalPosition(line);
+        islandCoordinator.showPositionInBytes(fileAccessOfIsland, positionInBytes, showLastPage);
     }
 
     @Override
@@ -480,54 +880,151 @@ public class ViewerController implements ViewerUiListener {
     }
 
     @Override
-    public void moveToLocationOfSearchTerm(String literalSearchTerm) {
+    public void registerSearchTerm(String literalSearchTerm) {
         if (literalSearchTerm.length() == 0) {
-            messageConsumer.accept(new MessageInfo("Unable to search file", "Search term is empty", JOptionPane.WARNING_MESSAGE));
             return;
         }
+        ViewerSettings viewerSettings;
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            viewerSettings = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
+        }
+        searchCoordinator.registerSearchTerm(literalSearchTerm, viewerSettings);
+    }
 
-        try {
-            searchLock.acquire();
+    @Override
+    public void moveToLocationOfSearchTerm(String literalSearchTerm) {
+        moveToMatch(literalSearchTerm, null, true);
+    }
 
-            try {
-                if (searcherThread_toBeAccessedLocked != null) {
-                    if (searcherThread_toBeAccessedLocked.isAlive()) {
-                        searcherThread_toBeAccessedLocked.interrupt();
-                    }
-                    searcherThread_toBeAccessedLocked = null;
-                }
-                ViewerSettings viewerSettingsAtStartOfSearch;
-                synchronized (currentViewerSettings_toBeAccessedSynchronized) {
-                    viewerSettingsAtStartOfSearch = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
-                }
+    @Override
+    public void moveToPreviousLocationOfSearchTerm(String literalSearchTerm) {
+        moveToMatch(literalSearchTerm, null, false);
+    }
 
-                LinePositions.LinePositionsView linePositions;
-                synchronized (linePositions_toBeAccessedSynchronized) {
-                    linePositions = linePositions_toBeAccessedSynchronized.asView();
-                }
+    @Override
+    public void moveToLocationOfRegularExpression(String regularExpression) {
+        moveToMatchOfRegularExpression(regularExpression, true);
+    }
 
-                searcherThread_toBeAccessedLocked = new Thread(() -> searchForTerm(literalSearchTerm, viewerSettingsAtStartOfSearch, linePositions), "Searcher");
-                searcherThread_toBeAccessedLocked.start();
-            } finally {
-                searchLock.release();
-            }
-        } catch (InterruptedException e) {
-            // stop waiting for searchLock
+    @Override
+    public void moveToPreviousLocationOfRegularExpression(String regularExpression) {
+        moveToMatchOfRegularExpression(regularExpression, false);
+    }
+
+    private void moveToMatchOfRegularExpression(String regularExpression, boolean forward) {
+        Pattern pattern = compileRegularExpression(regularExpression);
+        if (pattern != null) {
+            moveToMatch(regularExpression, pattern, forward);
         }
     }
 
-    // supposed to be run in searcher thread
-    private void searchForTerm(String literalSearchTerm, ViewerSettings viewerSettingsAtStartOfSearch, LinePositions.LinePositionsView linePositions) {
+    // null, after the user was told why the expression is invalid
+    private Pattern compileRegularExpression(String regularExpression) {
         try {
-            Searcher searcher = new Searcher(fileName, charset);
-            boolean foundTerm = searcher.searchInSpecificLines(literalSearchTerm, linePositions, viewerSettingsAtStartOfSearch, this::moveToPosition, true);
-            if (!foundTerm) {
-                messageConsumer.accept(new MessageInfo("File search done", "Could not locate term between current position and end of file", JOptionPane.INFORMATION_MESSAGE));
+            return Pattern.compile(regularExpression);
+        } catch (PatternSyntaxException patternSyntaxException) {
+            messageConsumer.accept(new MessageInfo("Unable to search file", "Invalid regular expression: " + patternSyntaxException.getMessage(), JOptionPane.WARNING_MESSAGE));
+            return null;
+        }
+    }
+
+    // the next or previous match after the first displayed position
+    private void moveToMatch(String searchTerm, Pattern pattern, boolean forward) {
+        ViewerSettings viewerSettings;
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            viewerSettings = new ViewerSettings(currentViewerSettings_toBeAccessedSynchronized);
+        }
+        viewerSettings.setFirstDisplayedLineIndex(getLineIndexInFile(viewerSettings.getFirstDisplayedLineIndex()));
+        searchCoordinator.moveToMatch(searchTerm, pattern, forward, viewerSettings);
+    }
+
+    @Override
+    public void showOnlyLinesContaining(String literalSearchTerm) {
+        if (literalSearchTerm.length() == 0) {
+            messageConsumer.accept(new MessageInfo("Unable to filter file", "Search term is empty", JOptionPane.WARNING_MESSAGE));
+            return;
+        }
+        filterLines(literalSearchTerm, null);
+    }
+
+    @Override
+    public void showOnlyLinesMatching(String regularExpression) {
+        Pattern pattern = compileRegularExpression(regularExpression);
+        if (pattern != null) {
+            filterLines(regularExpression, pattern);
+        }
+    }
+
+    @Override
+    public void showAllLines() {
+        filterLines(null, null);
+    }
+
+    // Replaces the filter, or removes it when searchTerm is null. The lines passing a new filter are found in the background, and are displayed from the
+    // first one on while they are found. Without a filter, the first line of the filtered ones that was displayed stays the first displayed line
+    private void filterLines(String searchTerm, Pattern pattern) {
+        filterCoordinator.filterLines(searchTerm, pattern, replaceFilter -> displayFilteredLines(replaceFilter, searchTerm == null));
+        requestUpdate();
+    }
+
+    // supposed to be called by filterCoordinator, with the replacement of the filter
+    private void displayFilteredLines(Runnable replaceFilter, boolean filterRemoved) {
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            int firstDisplayedLineIndex = filterRemoved ? getLineIndexInFile(currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex()) : 0;
+            islandCoordinator.leaveIsland();
+            replaceFilter.run();
+            currentViewerSettings_toBeAccessedSynchronized.setFirstDisplayedLineIndex(firstDisplayedLineIndex);
+        }
+    }
+
+    // supposed to be called by filter thread
+    private void requestUpdateIfFilteredLineIsDisplayed(int filteredLineIndex) {
+        synchronized (currentViewerSettings_toBeAccessedSynchronized) {
+            if (filteredLineIndex >= currentViewerSettings_toBeAccessedSynchronized.getFirstDisplayedLineIndex() + currentViewerSettings_toBeAccessedSynchronized.getDisplayedLines()) {
+                return;
             }
-        } catch (ClosedByInterruptException interruptedException) {
-            // searcherThread should end. Nothing more to do.
-        } catch (IOException ioException) {
-            throw displayAndCreateException(ioException, "search");
+        }
+        requestUpdate(); // the new line is displayed
+    }
+
+    // the lines of an island, all scanned lines, or those of them which passed the filter
+    private LinePositions.LinePositionsView getDisplayedLinePositions() {
+        IslandCoordinator.Island currentIsland = islandCoordinator.getIsland();
+        return currentIsland != null ? currentIsland.getLinePositions() : getFilteredLinePositions();
+    }
+
+    // all scanned lines, or those of them which passed the filter
+    private LinePositions.LinePositionsView getFilteredLinePositions() {
+        LinePositions.LinePositionsView linePositionsSnapshot = linePositions.getSnapshot();
+        FilteredLines filteredLines = filterCoordinator.getFilteredLines();
+        return filteredLines == null ? linePositionsSnapshot : linePositionsSnapshot.filteredPositions(filteredLines);
+    }
+
+    // the line of the file, which is displayed with the given index, or the nearest one. The lines of an island come after the scanned ones
+    private int getLineIndexInFile(int displayedLineIndex) {
+        if (islandCoordinator.getIsland() != null) {
+            return Math.max(0, linePositions.getNumberOfContainedLines() - 1);
+        }
+        LinePositions.LinePositionsView displayedLinePositions = getFilteredLinePositions();
+        if (displayedLinePositions.isEmpty()) {
+            return 0;
+        }
+        return displayedLinePositions.getLineIndexInFile(Math.max(0, Math.min(displayedLineIndex, displayedLinePositions.getNumberOfContainedLines() - 1)));
+    }
+
+    private static class PrefetchRequest {
+        private final Reader reader;
+        private final LinePositions.LinePositionsView linePositions;
+        private final int indexOfFirstLine;
+        private final int oneAfterLastLineIndex;
+        private final ViewerSettings viewerSettings;
+
+        private PrefetchRequest(Reader reader, LinePositions.LinePositionsView linePositions, int indexOfFirstLine, int oneAfterLastLineIndex, ViewerSettings viewerSettings) {
+            this.reader = reader;
+            this.linePositions = linePositions;
+            this.indexOfFirstLine = indexOfFirstLine;
+            this.oneAfterLastLineIndex = oneAfterLastLineIndex;
+            this.viewerSettings = viewerSettings;
         }
     }
 }
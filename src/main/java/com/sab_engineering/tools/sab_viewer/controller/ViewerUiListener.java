@@ -30,10 +30,21 @@ public interface ViewerUiListener {
     void onLargeJumpLeft();
     void onLargeJumpRight();
     void onGoTo(final int line, final long column);
+    void onGoToPositionInBytes(final long positionInBytes);
+    void onGoToPercentageOfFile(final double percentage);
 
     void resize(final int displayedLines, final int displayedColumns);
 
+    void registerSearchTerm(String literalSearchTerm);
     void moveToLocationOfSearchTerm(String literalSearchTerm);
+    void moveToPreviousLocationOfSearchTerm(String literalSearchTerm);
+    void moveToLocationOfRegularExpression(String regularExpression);
+    void moveToPreviousLocationOfRegularExpression(String regularExpression);
+
+    // Filter
+    void showOnlyLinesContaining(String literalSearchTerm);
+    void showOnlyLinesMatching(String regularExpression);
+    void showAllLines();
 
     void interruptBackgroundThreads();
 }
@@ -2,10 +2,11 @@ package com.sab_engineering.tools.sab_viewer.gui;
 
 import com.sab_engineering.tools.sab_viewer.controller.MessageInfo;
 import com.sab_engineering.tools.sab_viewer.controller.ScannerState;
+import com.sab_engineering.tools.sab_viewer.controller.FilterState;
+import com.sab_engineering.tools.sab_viewer.controller.SearchState;
 import com.sab_engineering.tools.sab_viewer.controller.ViewerContent;
 import com.sab_engineering.tools.sab_viewer.controller.ViewerController;
 import com.sab_engineering.tools.sab_viewer.controller.ViewerUiListener;
-import com.sab_engineering.tools.sab_viewer.io.LinePreview;
 
 import javax.swing.*;
 import java.awt.*;
@@ -18,7 +19,6 @@ import java.awt.event.WindowEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
-import java.util.Collection;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -48,22 +48,29 @@ public class GuiSwing {
     private long uiListenerStartTimeStamp;
 
     private String directoryFromSelection;
+    private File openedFile;
+    private boolean followFile;
 
     private JFrame frame;
-    private JTextArea textArea;
+    private TextView textView;
     private final int widthPer10Chars;
     private final int heightPerLine;
     private int numberOfLinesToDisplay;
     private int numberOfColumnsToDisplay;
     private JLabel currentPosition;
+    private JLabel searchStatus;
+    private JLabel filterStatus;
     private JLabel memoryStatus;
     private JLabel scannerStatus;
 
     private String lastSearchTerm;
+    private boolean lastSearchTermIsRegularExpression;
 
     public GuiSwing(final Optional<String> maybeFilePath) {
         uiListener = Optional.empty();
         directoryFromSelection = null;
+        openedFile = null;
+        followFile = false;
 
         prepareGui();
         frame.setVisible(true);
@@ -71,15 +78,16 @@ public class GuiSwing {
         frame.validate();
         frame.repaint();
         frame.pack();
+        textView.requestFocusInWindow();
 
-        FontMetrics fontMetrics = textArea.getGraphics().getFontMetrics(textArea.getFont());
+        FontMetrics fontMetrics = textView.getFontMetrics(textView.getFont());
         widthPer10Chars = fontMetrics.stringWidth("10   chars");
         heightPerLine = fontMetrics.getHeight();
 
         // put size computation and starting of scanner to the end of GUI Queue
         SwingUtilities.invokeLater(
                 () -> {
-                    computeSizeOfVisibleArea(textArea.getSize());
+                    computeSizeOfVisibleArea(textView.getSize());
 
                     addResizeListener();
 
@@ -88,6 +96,7 @@ public class GuiSwing {
         );
 
         lastSearchTerm = null;
+        lastSearchTermIsRegularExpression = false;
     }
 
     public void openFile(final String filePath) {
@@ -96,33 +105,28 @@ public class GuiSwing {
 
     public void openFile(final File fileToOpen) {
         directoryFromSelection = fileToOpen.getAbsoluteFile().getParentFile().getPath();
+        openedFile = fileToOpen;
 
         Optional<ViewerUiListener> oldUiListener = uiListener;
         uiListenerStartTimeStamp = System.currentTimeMillis();
-        uiListener = Optional.of(new ViewerController(fileToOpen.getPath(), StandardCharsets.UTF_8, numberOfLinesToDisplay, numberOfColumnsToDisplay, this::updateLines, this::updateState, this::showMessageDialog));
+        uiListener = Optional.of(new ViewerController(fileToOpen.getPath(), StandardCharsets.UTF_8, followFile, numberOfLinesToDisplay, numberOfColumnsToDisplay, this::updateLines, this::updateState, this::updateSearchState, this::updateFilterState, this::showMessageDialog));
+        searchStatus.setText("");
+        filterStatus.setText("");
+        if (lastSearchTerm != null && !lastSearchTermIsRegularExpression) {
+            uiListener.get().registerSearchTerm(lastSearchTerm); // most likely searched again, so it is searched while the file is scanned
+        }
 
         oldUiListener.ifPresent(ViewerUiListener::interruptBackgroundThreads);
     }
 
-    private void setLines(final Collection<LinePreview> lines) {
-        boolean lineAppended = false;
-        final StringBuilder text = new StringBuilder();
-        for (LinePreview linePreview : lines) {
-            if (lineAppended) {
-                text.append("\n");
-            }
-            text.append(linePreview.getVisibleContent());
-            lineAppended = true;
-        }
-        textArea.setText(text.toString());
-    }
-
     // supposed to be called from other thread
     public void updateLines(final ViewerContent content) {
         SwingUtilities.invokeLater(
                 () -> {
-                    this.setLines(content.getLines());
-                    this.currentPosition.setText(" " + content.getFirstDisplayedLine() + ":" + content.getFirstDisplayedColumn());
+                    this.textView.setContent(content);
+                    String estimatedIndicator = content.isFirstDisplayedLineEstimated() ? "~" : "";
+                    String endOfFileIndicator = content.getFirstDisplayedLine() < 0 ? "end" : ""; // e.g. "end-1" for the last line
+                    this.currentPosition.setText(" " + estimatedIndicator + endOfFileIndicator + content.getFirstDisplayedLine() + ":" + content.getFirstDisplayedColumn());
                 }
         );
     }
@@ -156,6 +160,26 @@ public class GuiSwing {
 
     }
 
+    // supposed to be called from other thread
+    private void updateSearchState(SearchState searchState) {
+        SwingUtilities.invokeLater(
+                () -> {
+                    String runningIndicator = searchState.isFinished() ? "" : "+";
+                    this.searchStatus.setText("  Matches of '" + searchState.getLiteralSearchTerm() + "': " + String.format("%,d", searchState.getNumberOfMatches()) + runningIndicator);
+                }
+        );
+    }
+
+    // supposed to be called from other thread
+    private void updateFilterState(FilterState filterState) {
+        SwingUtilities.invokeLater(
+                () -> {
+                    String runningIndicator = filterState.isFinished() ? "" : "+";
+                    this.filterStatus.setText("  Lines with '" + filterState.getSearchTerm() + "': " + String.format("%,d", filterState.getNumberOfLines()) + runningIndicator);
+                }
+        );
+    }
+
     private void closeApplication() {
         uiListener.ifPresent(ViewerUiListener::interruptBackgroundThreads);
     }
@@ -171,20 +195,26 @@ public class GuiSwing {
             }
         });
 
-        textArea = new JTextArea();
-        textArea.setEditable(false);
-        textArea.setFont(Font.decode(Font.MONOSPACED));
-        textArea.setPreferredSize(new Dimension(1000, 800));
+        textView = new TextView(Font.decode(Font.MONOSPACED));
+        textView.setPreferredSize(new Dimension(1000, 800));
 
-        prepareActionMapOfTextArea(textArea);
-        prepareInputMapOfTextArea(textArea);
+        prepareActionMapOfTextView(textView);
+        prepareInputMapOfTextView(textView);
 
         JMenuBar menuBar = prepareMainMenu();
 
         JPanel statusBar = new JPanel(new BorderLayout());
+        JPanel positionAndSearchStatus = new JPanel(new BorderLayout());
         currentPosition = new JLabel(" 1:1");
         currentPosition.setHorizontalAlignment(SwingConstants.LEFT);
-        statusBar.add(currentPosition, BorderLayout.WEST);
+        positionAndSearchStatus.add(currentPosition, BorderLayout.WEST);
+        searchStatus = new JLabel();
+        searchStatus.setHorizontalAlignment(SwingConstants.LEFT);
+        positionAndSearchStatus.add(searchStatus, BorderLayout.CENTER);
+        filterStatus = new JLabel();
+        filterStatus.setHorizontalAlignment(SwingConstants.LEFT);
+        positionAndSearchStatus.add(filterStatus, BorderLayout.EAST);
+        statusBar.add(positionAndSearchStatus, BorderLayout.WEST);
         memoryStatus = new JLabel();
         memoryStatus.setHorizontalAlignment(SwingConstants.CENTER);
         statusBar.add(memoryStatus, BorderLayout.CENTER);
@@ -193,7 +223,7 @@ public class GuiSwing {
         statusBar.add(scannerStatus, BorderLayout.EAST);
 
         frame.getContentPane().add(BorderLayout.NORTH, menuBar);
-        frame.getContentPane().add(BorderLayout.CENTER, textArea);
+        frame.getContentPane().add(BorderLayout.CENTER, textView);
         frame.getContentPane().add(BorderLayout.SOUTH, statusBar);
     }
 
@@ -209,6 +239,10 @@ public class GuiSwing {
         openMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, InputEvent.CTRL_DOWN_MASK));
         fileMenu.add(openMenuItem);
 
+        final JCheckBoxMenuItem followFileMenuItem = new JCheckBoxMenuItem("Follow File");
+        followFileMenuItem.addActionListener(actionEvent -> onFollowFile(followFileMenuItem.isSelected()));
+        fileMenu.add(followFileMenuItem);
+
         final JMenuItem fileStatisticsMenuItem = new JMenuItem("File Statistics...");
         // TODO
         fileMenu.add(fileStatisticsMenuItem);
@@ -230,11 +264,37 @@ public class GuiSwing {
         findMenuItem.addActionListener(actionEvent -> onFind());
         searchMenu.add(findMenuItem);
 
+        final JMenuItem findRegularExpressionMenuItem = new JMenuItem("Find regular expression...");
+        findRegularExpressionMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_R, InputEvent.CTRL_DOWN_MASK));
+        findRegularExpressionMenuItem.addActionListener(actionEvent -> onFindRegularExpression());
+        searchMenu.add(findRegularExpressionMenuItem);
+
         final JMenuItem findNextMenuItem = new JMenuItem("Find next");
         findNextMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
         findNextMenuItem.addActionListener(actionEvent -> onFindNext());
         searchMenu.add(findNextMenuItem);
 
+        final JMenuItem findPreviousMenuItem = new JMenuItem("Find previous");
+        findPreviousMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_B, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+        findPreviousMenuItem.addActionListener(actionEvent -> onFindPrevious());
+        searchMenu.add(findPreviousMenuItem);
+
+        final JMenuItem filterMenuItem = new JMenuItem("Show only lines containing...");
+        filterMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L, InputEvent.CTRL_DOWN_MASK));
+        filterMenuItem.addActionListener(actionEvent -> onFilter());
+        searchMenu.addSeparator();
+        searchMenu.add(filterMenuItem);
+
+        final JMenuItem filterRegularExpressionMenuItem = new JMenuItem("Show only lines matching regular expression...");
+        filterRegularExpressionMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+        filterRegularExpressionMenuItem.addActionListener(actionEvent -> onFilterRegularExpression());
+        searchMenu.add(filterRegularExpressionMenuItem);
+
+        final JMenuItem showAllLinesMenuItem = new JMenuItem("Show all lines");
+        showAllLinesMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_A, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+        showAllLinesMenuItem.addActionListener(actionEvent -> onShowAllLines());
+        searchMenu.add(showAllLinesMenuItem);
+
         // Navigate
         final JMenu navigateMenu = new JMenu("Navigate");
         menuBar.add(navigateMenu);
@@ -244,6 +304,11 @@ public class GuiSwing {
         goToMenuItem.addActionListener(actionEvent -> onGoToPosition());
         navigateMenu.add(goToMenuItem);
 
+        final JMenuItem goToOffsetMenuItem = new JMenuItem("Go To Offset...");
+        goToOffsetMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_G, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+        goToOffsetMenuItem.addActionListener(actionEvent -> onGoToOffset());
+        navigateMenu.add(goToOffsetMenuItem);
+
         navigateMenu.add(createMenuItem("Page Up", KeyStroke.getKeyStroke(KeyEvent.VK_UP, InputEvent.ALT_DOWN_MASK), ViewerUiListener::onGoOnePageUp));
         navigateMenu.add(createMenuItem("Page Down", KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, InputEvent.ALT_DOWN_MASK), ViewerUiListener::onGoOnePageDown));
         navigateMenu.add(createMenuItem("Page Left", KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, InputEvent.ALT_DOWN_MASK), ViewerUiListener::onGoOnePageLeft));
@@ -292,6 +357,13 @@ public class GuiSwing {
         }
     }
 
+    private void onFollowFile(boolean follow) {
+        followFile = follow;
+        if (openedFile != null) {
+            openFile(openedFile);
+        }
+    }
+
     private void onFind() {
         lastSearchTerm = (String)JOptionPane.showInputDialog(
                 frame,
@@ -302,6 +374,23 @@ public class GuiSwing {
                 null,
                 ""
         );
+        lastSearchTermIsRegularExpression = false;
+        if (lastSearchTerm != null) {
+            handleFind(lastSearchTerm);
+        }
+    }
+
+    private void onFindRegularExpression() {
+        lastSearchTerm = (String)JOptionPane.showInputDialog(
+                frame,
+                "Enter Regular Expression",
+                "Find Regular Expression",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                null,
+                ""
+        );
+        lastSearchTermIsRegularExpression = true;
         if (lastSearchTerm != null) {
             handleFind(lastSearchTerm);
         }
@@ -313,6 +402,51 @@ public class GuiSwing {
         }
     }
 
+    private void onFindPrevious() {
+        if (lastSearchTerm != null) {
+            if (lastSearchTermIsRegularExpression) {
+                uiListener.ifPresent(viewerUiListener -> viewerUiListener.moveToPreviousLocationOfRegularExpression(lastSearchTerm));
+            } else {
+                uiListener.ifPresent(viewerUiListener -> viewerUiListener.moveToPreviousLocationOfSearchTerm(lastSearchTerm));
+            }
+        }
+    }
+
+    private void onFilter() {
+        String searchTerm = (String)JOptionPane.showInputDialog(
+                frame,
+                "Enter Search Term",
+                "Show Only Lines Containing",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                null,
+                ""
+        );
+        if (searchTerm != null) {
+            uiListener.ifPresent(viewerUiListener -> viewerUiListener.showOnlyLinesContaining(searchTerm));
+        }
+    }
+
+    private void onFilterRegularExpression() {
+        String regularExpression = (String)JOptionPane.showInputDialog(
+                frame,
+                "Enter Regular Expression",
+                "Show Only Lines Matching",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                null,
+                ""
+        );
+        if (regularExpression != null) {
+            uiListener.ifPresent(viewerUiListener -> viewerUiListener.showOnlyLinesMatching(regularExpression));
+        }
+    }
+
+    private void onShowAllLines() {
+        filterStatus.setText("");
+        uiListener.ifPresent(ViewerUiListener::showAllLines);
+    }
+
     private void onGoToPosition() {
         String result = (String)JOptionPane.showInputDialog(
                 frame,
@@ -329,7 +463,7 @@ public class GuiSwing {
     }
 
     private void addResizeListener() {
-        textArea.addComponentListener(new ComponentAdapter() {
+        textView.addComponentListener(new ComponentAdapter() {
             @Override
             public void componentResized(ComponentEvent e) {
                 Dimension newSize = e.getComponent().getSize();
@@ -348,54 +482,54 @@ public class GuiSwing {
         numberOfColumnsToDisplay = Math.max(0,(int) Math.floor((10.0 * newSize.getWidth()) / widthPer10Chars));
     }
 
-    private void prepareInputMapOfTextArea(final JTextArea textArea) {
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), AMK_GO_ONE_LINE_UP);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), AMK_GO_ONE_LINE_DOWN);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, 0), AMK_GO_ONE_COLUMN_LEFT);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, 0), AMK_GO_ONE_COLUMN_RIGHT);
-
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_UP, 0), AMK_GO_ONE_PAGE_UP);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, InputEvent.ALT_DOWN_MASK), AMK_GO_ONE_PAGE_UP);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_DOWN, 0), AMK_GO_ONE_PAGE_DOWN);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, InputEvent.ALT_DOWN_MASK), AMK_GO_ONE_PAGE_DOWN);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, InputEvent.ALT_DOWN_MASK), AMK_GO_ONE_PAGE_LEFT);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, InputEvent.ALT_DOWN_MASK), AMK_GO_ONE_PAGE_RIGHT);
-
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, InputEvent.CTRL_DOWN_MASK), AMK_LARGE_JUMP_UP);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, InputEvent.CTRL_DOWN_MASK), AMK_LARGE_JUMP_DOWN);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, InputEvent.CTRL_DOWN_MASK), AMK_LARGE_JUMP_LEFT);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, InputEvent.CTRL_DOWN_MASK), AMK_LARGE_JUMP_RIGHT);
-
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_HOME, InputEvent.CTRL_DOWN_MASK), AMK_GO_TO_FIST_LINE);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_END, InputEvent.CTRL_DOWN_MASK), AMK_GO_TO_LAST_LINE);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_HOME, 0), AMK_GO_TO_LINE_BEGIN);
-        textArea.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_END, 0), AMK_GO_TO_LINE_END);
+    private void prepareInputMapOfTextView(final TextView textView) {
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), AMK_GO_ONE_LINE_UP);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), AMK_GO_ONE_LINE_DOWN);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, 0), AMK_GO_ONE_COLUMN_LEFT);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, 0), AMK_GO_ONE_COLUMN_RIGHT);
+
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_UP, 0), AMK_GO_ONE_PAGE_UP);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, InputEvent.ALT_DOWN_MASK), AMK_GO_ONE_PAGE_UP);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_DOWN, 0), AMK_GO_ONE_PAGE_DOWN);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, InputEvent.ALT_DOWN_MASK), AMK_GO_ONE_PAGE_DOWN);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, InputEvent.ALT_DOWN_MASK), AMK_GO_ONE_PAGE_LEFT);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, InputEvent.ALT_DOWN_MASK), AMK_GO_ONE_PAGE_RIGHT);
+
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, InputEvent.CTRL_DOWN_MASK), AMK_LARGE_JUMP_UP);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, InputEvent.CTRL_DOWN_MASK), AMK_LARGE_JUMP_DOWN);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, InputEvent.CTRL_DOWN_MASK), AMK_LARGE_JUMP_LEFT);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, InputEvent.CTRL_DOWN_MASK), AMK_LARGE_JUMP_RIGHT);
+
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_HOME, InputEvent.CTRL_DOWN_MASK), AMK_GO_TO_FIST_LINE);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_END, InputEvent.CTRL_DOWN_MASK), AMK_GO_TO_LAST_LINE);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_HOME, 0), AMK_GO_TO_LINE_BEGIN);
+        textView.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_END, 0), AMK_GO_TO_LINE_END);
     }
 
-    private void prepareActionMapOfTextArea(final JTextArea textArea) {
-        addToActionMap(textArea, AMK_GO_ONE_LINE_UP, ViewerUiListener::onGoOneLineUp);
-        addToActionMap(textArea, AMK_GO_ONE_LINE_DOWN, ViewerUiListener::onGoOneLineDown);
-        addToActionMap(textArea, AMK_GO_ONE_COLUMN_LEFT, ViewerUiListener::onGoOneColumnLeft);
-        addToActionMap(textArea, AMK_GO_ONE_COLUMN_RIGHT, ViewerUiListener::onGoOneColumnRight);
-
-        addToActionMap(textArea, AMK_GO_ONE_PAGE_UP, ViewerUiListener::onGoOnePageUp);
-        addToActionMap(textArea, AMK_GO_ONE_PAGE_DOWN, ViewerUiListener::onGoOnePageDown);
-        addToActionMap(textArea, AMK_GO_ONE_PAGE_LEFT, ViewerUiListener::onGoOnePageLeft);
-        addToActionMap(textArea, AMK_GO_ONE_PAGE_RIGHT, ViewerUiListener::onGoOnePageRight);
-
-        addToActionMap(textArea, AMK_LARGE_JUMP_UP, ViewerUiListener::onLargeJumpUp);
-        addToActionMap(textArea, AMK_LARGE_JUMP_DOWN, ViewerUiListener::onLargeJumpDown);
-        addToActionMap(textArea, AMK_LARGE_JUMP_LEFT, ViewerUiListener::onLargeJumpLeft);
-        addToActionMap(textArea, AMK_LARGE_JUMP_RIGHT, ViewerUiListener::onLargeJumpRight);
-
-        addToActionMap(textArea, AMK_GO_TO_FIST_LINE, ViewerUiListener::onGoToFirstLine);
-        addToActionMap(textArea, AMK_GO_TO_LAST_LINE, ViewerUiListener::onGoToLastLine);
-        addToActionMap(textArea, AMK_GO_TO_LINE_BEGIN, ViewerUiListener::onGoToLineBegin);
-        addToActionMap(textArea, AMK_GO_TO_LINE_END, ViewerUiListener::onGoToLineEnd);
+    private void prepareActionMapOfTextView(final TextView textView) {
+        addToActionMap(textView, AMK_GO_ONE_LINE_UP, ViewerUiListener::onGoOneLineUp);
+        addToActionMap(textView, AMK_GO_ONE_LINE_DOWN, ViewerUiListener::onGoOneLineDown);
+        addToActionMap(textView, AMK_GO_ONE_COLUMN_LEFT, ViewerUiListener::onGoOneColumnLeft);
+        addToActionMap(textView, AMK_GO_ONE_COLUMN_RIGHT, ViewerUiListener::onGoOneColumnRight);
+
+        addToActionMap(textView, AMK_GO_ONE_PAGE_UP, ViewerUiListener::onGoOnePageUp);
+        addToActionMap(textView, AMK_GO_ONE_PAGE_DOWN, ViewerUiListener::onGoOnePageDown);
+        addToActionMap(textView, AMK_GO_ONE_PAGE_LEFT, ViewerUiListener::onGoOnePageLeft);
+        addToActionMap(textView, AMK_GO_ONE_PAGE_RIGHT, ViewerUiListener::onGoOnePageRight);
+
+        addToActionMap(textView, AMK_LARGE_JUMP_UP, ViewerUiListener::onLargeJumpUp);
+        addToActionMap(textView, AMK_LARGE_JUMP_DOWN, ViewerUiListener::onLargeJumpDown);
+        addToActionMap(textView, AMK_LARGE_JUMP_LEFT, ViewerUiListener::onLargeJumpLeft);
+        addToActionMap(textView, AMK_LARGE_JUMP_RIGHT, ViewerUiListener::onLargeJumpRight);
+
+        addToActionMap(textView, AMK_GO_TO_FIST_LINE, ViewerUiListener::onGoToFirstLine);
+        addToActionMap(textView, AMK_GO_TO_LAST_LINE, ViewerUiListener::onGoToLastLine);
+        addToActionMap(textView, AMK_GO_TO_LINE_BEGIN, ViewerUiListener::onGoToLineBegin);
+        addToActionMap(textView, AMK_GO_TO_LINE_END, ViewerUiListener::onGoToLineEnd);
     }
 
-    private void addToActionMap(JTextArea textArea, String actionMapKey, Consumer<ViewerUiListener> action) {
-        textArea.getActionMap().put(actionMapKey, new ActionStub() {
+    private void addToActionMap(TextView textView, String actionMapKey, Consumer<ViewerUiListener> action) {
+        textView.getActionMap().put(actionMapKey, new ActionStub() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 uiListener.ifPresent(action);
@@ -404,7 +538,40 @@ public class GuiSwing {
     }
 
     private void handleFind(String result) {
-        uiListener.ifPresent(viewerUiListener -> viewerUiListener.moveToLocationOfSearchTerm(result));
+        if (lastSearchTermIsRegularExpression) {
+            uiListener.ifPresent(viewerUiListener -> viewerUiListener.moveToLocationOfRegularExpression(result));
+        } else {
+            uiListener.ifPresent(viewerUiListener -> viewerUiListener.moveToLocationOfSearchTerm(result));
+        }
+    }
+
+    private void onGoToOffset() {
+        String result = (String)JOptionPane.showInputDialog(
+                frame,
+                "Enter Byte Offset or Percentage (e.g. 50%)",
+                "GoTo Offset",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                null,
+                "50%"
+        );
+        if (result != null) {
+            handleGoToOffset(result.trim());
+        }
+    }
+
+    private void handleGoToOffset(String result) {
+        if (!uiListener.isPresent()) {
+            return;
+        }
+        if (result.matches("^\\d+(\\.\\d+)?%$")) {
+            uiListener.get().onGoToPercentageOfFile(Double.parseDouble(result.substring(0, result.length() - 1)));
+            return;
+        } else if (result.matches("^\\d{1,18}$")) {
+            uiListener.get().onGoToPositionInBytes(Long.parseLong(result));
+            return;
+        }
+        showMessageDialog(new MessageInfo("Invalid GoTo offset", "The GoTo offset '" + result + "' cannot be parsed", JOptionPane.ERROR_MESSAGE));
     }
 
     private void handleGoTo(String result) {
@@ -0,0 +1,127 @@
+package com.sab_engineering.tools.sab_viewer.gui;
+
+import com.sab_engineering.tools.sab_viewer.controller.ViewerContent;
+import com.sab_engineering.tools.sab_viewer.io.LinePreview;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+// Paints the displayed lines with a monospaced font. All lines are kept in an image, which is copied to the screen when painting. For an update only
+// the changed lines are drawn into the image. When scrolling, the lines which are still displayed are moved within the image instead of drawing them again.
+class TextView extends JComponent {
+    private static final long serialVersionUID = 1L;
+
+    private final int heightPerLine;
+    private final int ascent;
+
+    private List<LinePreview> lines;
+    private BufferedImage linesImage; // null, when it has to be drawn completely, e.g. after resizing
+
+    TextView(Font font) {
+        setFont(font);
+        setOpaque(true);
+        setFocusable(true);
+        setBackground(UIManager.getColor("TextArea.background"));
+        setForeground(UIManager.getColor("TextArea.foreground"));
+
+        FontMetrics fontMetrics = getFontMetrics(font);
+        heightPerLine = fontMetrics.getHeight();
+        ascent = fontMetrics.getAscent();
+
+        lines = Collections.emptyList();
+        linesImage = null;
+    }
+
+    // supposed to be called in the event dispatch thread
+    void setContent(ViewerContent content) {
+        lines = content.getLines();
+        if (!isLinesImageUpToDate()) {
+            linesImage = null;
+            repaint();
+            return;
+        }
+
+        int width = linesImage.getWidth();
+        int numberOfDisplayedLines = getNumberOfDisplayedLines();
+        int numberOfScrolledLines = content.getNumberOfScrolledLines();
+        BitSet changedLines = content.getChangedLines();
+        Graphics2D graphics = linesImage.createGraphics();
+        try {
+            // the lines scrolled into view were not in the image before, even if they were part of the previous content
+            int indexOfFirstMovedLine = 0;
+            int oneAfterLastMovedLineIndex = 0;
+            if (numberOfScrolledLines == 0) {
+                oneAfterLastMovedLineIndex = numberOfDisplayedLines;
+            } else if (Math.abs(numberOfScrolledLines) < numberOfDisplayedLines) {
+                int numberOfMovedLines = numberOfDisplayedLines - Math.abs(numberOfScrolledLines);
+                graphics.copyArea(0, Math.max(0, numberOfScrolledLines) * heightPerLine, width, numberOfMovedLines * heightPerLine, 0, -numberOfScrolledLines * heightPerLine);
+                indexOfFirstMovedLine = Math.max(0, -numberOfScrolledLines);
+                oneAfterLastMovedLineIndex = indexOfFirstMovedLine + numberOfMovedLines;
+            }
+
+            for (int lineIndex = 0; lineIndex < numberOfDisplayedLines; lineIndex++) {
+                if (changedLines.get(lineIndex) || lineIndex < indexOfFirstMovedLine || lineIndex >= oneAfterLastMovedLineIndex) {
+                    drawLine(graphics, lineIndex, width);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        if (numberOfScrolledLines != 0) {
+            repaint();
+        } else if (!changedLines.isEmpty()) {
+            int firstChangedLineIndex = changedLines.nextSetBit(0);
+            int lastChangedLineIndex = changedLines.length() - 1;
+            repaint(0, firstChangedLineIndex * heightPerLine, width, (lastChangedLineIndex - firstChangedLineIndex + 1) * heightPerLine);
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        if (!isLinesImageUpToDate()) {
+            int numberOfDisplayedLines = getNumberOfDisplayedLines();
+            linesImage = getGraphicsConfiguration() != null
+                    ? getGraphicsConfiguration().createCompatibleImage(getWidth(), numberOfDisplayedLines * heightPerLine)
+                    : new BufferedImage(getWidth(), numberOfDisplayedLines * heightPerLine, BufferedImage.TYPE_INT_RGB);
+            Graphics2D imageGraphics = linesImage.createGraphics();
+            try {
+                for (int lineIndex = 0; lineIndex < numberOfDisplayedLines; lineIndex++) {
+                    drawLine(imageGraphics, lineIndex, getWidth());
+                }
+            } finally {
+                imageGraphics.dispose();
+            }
+        }
+        graphics.drawImage(linesImage, 0, 0, null);
+    }
+
+    // the last line may be only partially visible. It is completely contained in the image, so it can be moved like the others
+    private int getNumberOfDisplayedLines() {
+        return (getHeight() + heightPerLine - 1) / heightPerLine;
+    }
+
+    private boolean isLinesImageUpToDate() {
+        return linesImage != null && linesImage.getWidth() == getWidth() && linesImage.getHeight() == getNumberOfDisplayedLines() * heightPerLine;
+    }
+
+    private void drawLine(Graphics2D graphics, int lineIndex, int width) {
+        int top = lineIndex * heightPerLine;
+        graphics.setColor(getBackground());
+        graphics.fillRect(0, top, width, heightPerLine);
+        if (lineIndex < lines.size()) {
+            LinePreview linePreview = lines.get(lineIndex);
+            graphics.setColor(getForeground());
+            graphics.setFont(getFont());
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.drawChars(linePreview.getCharacters(), linePreview.getOffset(), linePreview.getLength(), 0, top + ascent);
+        }
+    }
+}
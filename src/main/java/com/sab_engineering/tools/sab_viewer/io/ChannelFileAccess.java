@@ -0,0 +1,29 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+// Reads the file with positional reads, which do not interfere with each other when done by several threads
+class ChannelFileAccess extends FileAccess {
+
+    ChannelFileAccess(Path filePath, FileChannel fileChannel) {
+        super(filePath, fileChannel);
+    }
+
+    @Override
+    public long getSizeInBytes() throws IOException {
+        return getSizeOfChannelInBytes();
+    }
+
+    @Override
+    public ByteBuffer read(long positionInBytes, int numberOfBytes, ByteBuffer buffer) throws IOException {
+        return readFromChannel(positionInBytes, numberOfBytes, buffer);
+    }
+
+    @Override
+    public int readInto(long positionInBytes, ByteBuffer destination) throws IOException {
+        return readFromChannel(positionInBytes, destination);
+    }
+}
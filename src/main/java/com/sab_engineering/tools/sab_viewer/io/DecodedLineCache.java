@@ -0,0 +1,132 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Keeps the visible part of recently read lines, so scrolling back over them does not read and decode them again. The least recently used lines
+// are dropped, when the cache exceeds its size. An entry is only used while its line still starts at the same byte and has the same length in bytes,
+// as the last line may still grow while scanning. The characters of a line are part of a slab shared with other lines (see Reader), which is kept
+// as a whole as long as one of its lines is cached. So each slab is counted once as long as it is referenced by an entry.
+public class DecodedLineCache {
+    private final long maximalSizeInBytes;
+
+    private final LinkedHashMap<Key, Entry> entries; // in access order, so the first one is the least recently used one
+    private final IdentityHashMap<char[], Integer> numberOfEntriesPerSlab;
+    private long sizeInBytes;
+
+    public DecodedLineCache(long maximalSizeInBytes) {
+        this.maximalSizeInBytes = maximalSizeInBytes;
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true);
+        this.numberOfEntriesPerSlab = new IdentityHashMap<>();
+        this.sizeInBytes = 0;
+    }
+
+    // returns null if the line is not cached
+    public synchronized LinePreview get(int lineIndex, long firstColumnIndex, int numberOfColumns, long startPositionInBytes, long lengthInBytes) {
+        Key key = new Key(lineIndex, firstColumnIndex, numberOfColumns);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.startPositionInBytes != startPositionInBytes || entry.lengthInBytes != lengthInBytes) {
+            remove(key);
+            return null;
+        }
+        return entry.linePreview;
+    }
+
+    public synchronized void put(int lineIndex, long firstColumnIndex, int numberOfColumns, long startPositionInBytes, long lengthInBytes, LinePreview linePreview) {
+        Key key = new Key(lineIndex, firstColumnIndex, numberOfColumns);
+        remove(key);
+        Entry entry = new Entry(startPositionInBytes, lengthInBytes, linePreview);
+        entries.put(key, entry);
+        added(entry);
+
+        Iterator<Map.Entry<Key, Entry>> leastRecentlyUsedEntries = entries.entrySet().iterator();
+        while (sizeInBytes > maximalSizeInBytes && leastRecentlyUsedEntries.hasNext()) {
+            removed(leastRecentlyUsedEntries.next().getValue());
+            leastRecentlyUsedEntries.remove();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removedEntry = entries.remove(key);
+        if (removedEntry != null) {
+            removed(removedEntry);
+        }
+    }
+
+    private void added(Entry entry) {
+        sizeInBytes += Entry.ESTIMATED_SIZE_IN_BYTES;
+        char[] slab = entry.linePreview.getCharacters();
+        Integer numberOfEntries = numberOfEntriesPerSlab.get(slab);
+        if (numberOfEntries == null) {
+            numberOfEntriesPerSlab.put(slab, 1);
+            sizeInBytes += getEstimatedSizeInBytes(slab);
+        } else {
+            numberOfEntriesPerSlab.put(slab, numberOfEntries + 1);
+        }
+    }
+
+    private void removed(Entry entry) {
+        sizeInBytes -= Entry.ESTIMATED_SIZE_IN_BYTES;
+        char[] slab = entry.linePreview.getCharacters();
+        int numberOfEntries = numberOfEntriesPerSlab.get(slab);
+        if (numberOfEntries == 1) {
+            numberOfEntriesPerSlab.remove(slab);
+            sizeInBytes -= getEstimatedSizeInBytes(slab);
+        } else {
+            numberOfEntriesPerSlab.put(slab, numberOfEntries - 1);
+        }
+    }
+
+    private static long getEstimatedSizeInBytes(char[] slab) {
+        return 48 + 2L * slab.length; // array and entry of numberOfEntriesPerSlab, plus its characters
+    }
+
+    private static class Key {
+        private final int lineIndex;
+        private final long firstColumnIndex;
+        private final int numberOfColumns;
+
+        private Key(int lineIndex, long firstColumnIndex, int numberOfColumns) {
+            this.lineIndex = lineIndex;
+            this.firstColumnIndex = firstColumnIndex;
+            this.numberOfColumns = numberOfColumns;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key that = (Key) o;
+            return lineIndex == that.lineIndex && firstColumnIndex == that.firstColumnIndex && numberOfColumns == that.numberOfColumns;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lineIndex, firstColumnIndex, numberOfColumns);
+        }
+    }
+
+    private static class Entry {
+        private static final long ESTIMATED_SIZE_IN_BYTES = 160; // key, entry, map entry and line preview. The characters are part of the slab
+
+        private final long startPositionInBytes;
+        private final long lengthInBytes;
+        private final LinePreview linePreview;
+
+        private Entry(long startPositionInBytes, long lengthInBytes, LinePreview linePreview) {
+            this.startPositionInBytes = startPositionInBytes;
+            this.lengthInBytes = lengthInBytes;
+            this.linePreview = linePreview;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Access to the bytes of an opened file, which is shared by Scanner, Reader and Searcher. It is safe to use from several threads at once.
+// Regular files are memory mapped (see MappedFileAccess), so bytes which are already in the page cache are neither copied nor fetched by a system call.
+// Special files, files that are followed while they grow and files that can not be mapped are read through a channel (see ChannelFileAccess).
+// Gzip files are decompressed, unless they are followed (see GzipFileAccess). Then all positions refer to the decompressed content.
+// Like reading from a channel, reading throws ClosedByInterruptException when the reading thread is interrupted. That is how the threads are stopped.
+public abstract class FileAccess implements Closeable {
+    private final Path filePath;
+    private volatile FileChannel fileChannel;
+    private volatile boolean closed;
+
+    protected FileAccess(Path filePath, FileChannel fileChannel) {
+        this.filePath = filePath;
+        this.fileChannel = fileChannel;
+        this.closed = false;
+    }
+
+    public static FileAccess open(String fileName, boolean fileMayChange) throws IOException {
+        Path filePath = Paths.get(fileName);
+        FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ);
+        if (IoConstants.DECOMPRESSION_ENABLED && !fileMayChange && Files.isRegularFile(filePath) && GzipFileAccess.isGzipFile(fileChannel)) {
+            try {
+                return new GzipFileAccess(filePath, fileChannel);
+            } catch (IOException ioException) {
+                System.out.println("Unable to decompress file, reading it instead: " + ioException);
+            }
+        }
+        // a mapped file must not be truncated, as accessing the missing part of the mapping would crash. And mappings do not grow with the file
+        if (IoConstants.MEMORY_MAPPING_ENABLED && !fileMayChange && Files.isRegularFile(filePath) && fileChannel.size() > 0) {
+            try {
+                return new MappedFileAccess(filePath, fileChannel);
+            } catch (IOException ioException) {
+                System.out.println("Unable to map file, reading it instead: " + ioException);
+            }
+        }
+        return new ChannelFileAccess(filePath, fileChannel);
+    }
+
+    public abstract long getSizeInBytes() throws IOException;
+
+    // false while the size is not known yet, e.g. before a compressed file was decompressed once. Until then getSizeInBytes returns the size known
+    // so far, and reading far ahead takes as long as scanning up to there. So the file should only be scanned from the beginning
+    public boolean isSizeKnown() {
+        return true;
+    }
+
+    // Returns the bytes starting at positionInBytes between position and limit of the returned buffer. These are numberOfBytes many, unless the end
+    // of the file is reached before. Either they are read into the given buffer (a new one is allocated if it is null or too small), or a read only view
+    // of them is returned without copying anything. The returned buffer starts at index 0 and has the default byte order.
+    public abstract ByteBuffer read(long positionInBytes, int numberOfBytes, ByteBuffer buffer) throws IOException;
+
+    // Like reading from a channel: the bytes starting at positionInBytes are put into the remaining part of the destination. Returns -1 at end of file
+    public abstract int readInto(long positionInBytes, ByteBuffer destination) throws IOException;
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        fileChannel.close();
+    }
+
+    protected static void checkInterrupted() throws ClosedByInterruptException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ClosedByInterruptException();
+        }
+    }
+
+    protected FileChannel getFileChannel() throws IOException {
+        checkInterrupted();
+        return fileChannel;
+    }
+
+    protected long getSizeOfChannelInBytes() throws IOException {
+        while (true) {
+            FileChannel currentFileChannel = getFileChannel();
+            try {
+                return currentFileChannel.size();
+            } catch (ClosedByInterruptException closedByInterruptException) {
+                throw closedByInterruptException;
+            } catch (ClosedChannelException closedChannelException) {
+                reopen(currentFileChannel, closedChannelException);
+            }
+        }
+    }
+
+    protected int readFromChannel(long positionInBytes, ByteBuffer destination) throws IOException {
+        while (true) {
+            FileChannel currentFileChannel = getFileChannel();
+            try {
+                return currentFileChannel.read(destination, positionInBytes);
+            } catch (ClosedByInterruptException closedByInterruptException) {
+                throw closedByInterruptException;
+            } catch (ClosedChannelException closedChannelException) {
+                reopen(currentFileChannel, closedChannelException);
+            }
+        }
+    }
+
+    protected ByteBuffer readFromChannel(long positionInBytes, int numberOfBytes, ByteBuffer buffer) throws IOException {
+        if (buffer == null || buffer.capacity() < numberOfBytes) {
+            buffer = ByteBuffer.allocate(numberOfBytes);
+        }
+        buffer.clear();
+        buffer.limit(numberOfBytes);
+        while (buffer.hasRemaining()) {
+            if (readFromChannel(positionInBytes + buffer.position(), buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // An interrupted thread closes the channel for all other threads as well, while it reads. So it is opened again, unless the file was closed on purpose
+    private synchronized void reopen(FileChannel closedFileChannel, ClosedChannelException closedChannelException) throws IOException {
+        if (closed) {
+            throw closedChannelException;
+        }
+        if (fileChannel == closedFileChannel) {
+            fileChannel = FileChannel.open(filePath, StandardOpenOption.READ);
+        }
+    }
+}
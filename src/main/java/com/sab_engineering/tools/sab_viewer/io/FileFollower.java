@@ -0,0 +1,80 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+// Waits for a file to grow, like 'tail -f' does. A WatchService on the parent directory wakes us up as soon as the file is written,
+// so waiting costs next to no CPU. As not all platforms deliver those events promptly, the file is checked periodically as well.
+public class FileFollower implements Closeable {
+    private static final long MAXIMAL_TIME_BETWEEN_CHECKS_IN_MS = 250;
+
+    private final Path path;
+    private final Object fileKey; // identifies the file independent of its name (e.g. inode). May be null, depending on platform
+    private final Runnable endOfFileListener;
+
+    private WatchService watchService;
+
+    public FileFollower(String fileName, Runnable endOfFileListener) throws IOException {
+        this.path = Paths.get(fileName).toAbsolutePath();
+        this.fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        this.endOfFileListener = endOfFileListener;
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException exception) {
+            // fall back to periodic checks only
+            if (watchService != null) {
+                watchService.close();
+            }
+            watchService = null;
+        }
+    }
+
+    // returns as soon as the file is larger than the given size. When the file was truncated or replaced (e.g. by log rotation) FileReplacedException is thrown
+    public void awaitGrowth(long knownSizeInBytes) throws IOException, InterruptedException {
+        endOfFileListener.run();
+
+        while (true) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (!Objects.equals(fileKey, attributes.fileKey()) || attributes.size() < knownSizeInBytes) {
+                    throw new FileReplacedException(path.toString());
+                }
+                if (attributes.size() > knownSizeInBytes) {
+                    return;
+                }
+            } catch (NoSuchFileException noSuchFileException) {
+                // during log rotation the file may be missing for a moment. Wait for the new one
+            }
+
+            if (watchService != null) {
+                WatchKey watchKey = watchService.poll(MAXIMAL_TIME_BETWEEN_CHECKS_IN_MS, TimeUnit.MILLISECONDS);
+                if (watchKey != null) {
+                    watchKey.pollEvents(); // we don't care which file changed, we just check ours again
+                    watchKey.reset();
+                }
+            } else {
+                Thread.sleep(MAXIMAL_TIME_BETWEEN_CHECKS_IN_MS);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.IOException;
+
+// thrown while following a file, when it was truncated or replaced by a different file and needs to be scanned from the beginning
+public class FileReplacedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public FileReplacedException(String fileName) {
+        super("File '" + fileName + "' was truncated or replaced");
+    }
+}
@@ -0,0 +1,65 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.util.Arrays;
+
+// The indices of the lines which pass a filter, in ascending order, so the position of a line in it is the index of the line in the filtered view.
+// Only the filtering thread adds lines. Other threads use the lines added so far without locking: the indices are kept in chunks, which are never
+// copied or moved, and the number of lines is only increased after the index of the new line was written
+public class FilteredLines {
+    private static final int NUMBER_OF_LINES_PER_CHUNK = 64 * 1024;
+
+    private volatile int[][] chunks;
+    private volatile int numberOfLines;
+    private int lastLineIndex; // only accessed by the filtering thread
+
+    public FilteredLines() {
+        this.chunks = new int[16][];
+        this.numberOfLines = 0;
+        this.lastLineIndex = -1;
+    }
+
+    // lines have to be added in ascending order. Adding the last line again, e.g. for a further match in it, is ignored
+    public void add(int lineIndex) {
+        if (lineIndex <= lastLineIndex) {
+            return;
+        }
+        int chunkIndex = numberOfLines / NUMBER_OF_LINES_PER_CHUNK;
+        int[][] currentChunks = chunks;
+        if (chunkIndex == currentChunks.length) {
+            currentChunks = Arrays.copyOf(currentChunks, currentChunks.length * 2);
+            chunks = currentChunks;
+        }
+        if (currentChunks[chunkIndex] == null) {
+            currentChunks[chunkIndex] = new int[NUMBER_OF_LINES_PER_CHUNK];
+        }
+        currentChunks[chunkIndex][numberOfLines % NUMBER_OF_LINES_PER_CHUNK] = lineIndex;
+        lastLineIndex = lineIndex;
+        numberOfLines = numberOfLines + 1;
+    }
+
+    public int getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    public int getLineIndex(int filteredLineIndex) {
+        if (filteredLineIndex < 0 || filteredLineIndex >= numberOfLines) {
+            throw new IndexOutOfBoundsException("Filtered line index " + filteredLineIndex + " is not between 0 and " + numberOfLines);
+        }
+        return chunks[filteredLineIndex / NUMBER_OF_LINES_PER_CHUNK][filteredLineIndex % NUMBER_OF_LINES_PER_CHUNK];
+    }
+
+    // the number of filtered lines before the given line of the file, which is the filtered line index of the line, if it passed the filter
+    public int countLinesBefore(int lineIndex) {
+        int lowerBound = 0;
+        int upperBound = numberOfLines;
+        while (lowerBound < upperBound) {
+            int middle = (lowerBound + upperBound) >>> 1;
+            if (getLineIndex(middle) < lineIndex) {
+                lowerBound = middle + 1;
+            } else {
+                upperBound = middle;
+            }
+        }
+        return lowerBound;
+    }
+}
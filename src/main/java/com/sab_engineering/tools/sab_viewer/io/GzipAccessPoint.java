@@ -0,0 +1,146 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+// A position in a gzip file from where it can be decompressed: the beginning of a deflate block, down to the bit, and the up to 32KB of content before
+// it, which the block may refer to. The content is kept compressed, as about 1% of the decompressed file would stay in the heap otherwise.
+class GzipAccessPoint {
+    private final long positionInBytes; // in the decompressed content
+    private final long compressedPositionInBits; // in the file
+    private final int lengthOfHistoryInBytes;
+    private final byte[] compressedHistory;
+
+    GzipAccessPoint(long positionInBytes, long compressedPositionInBits, int lengthOfHistoryInBytes, byte[] compressedHistory) {
+        this.positionInBytes = positionInBytes;
+        this.compressedPositionInBits = compressedPositionInBits;
+        this.lengthOfHistoryInBytes = lengthOfHistoryInBytes;
+        this.compressedHistory = compressedHistory;
+    }
+
+    static GzipAccessPoint of(long positionInBytes, long compressedPositionInBits, byte[] history, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(history, offset, length);
+            deflater.finish();
+            ByteArrayOutputStream compressedHistory = new ByteArrayOutputStream(length / 4 + 64);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int numberOfBytes = deflater.deflate(buffer);
+                compressedHistory.write(buffer, 0, numberOfBytes);
+            }
+            return new GzipAccessPoint(positionInBytes, compressedPositionInBits, length, compressedHistory.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    long getPositionInBytes() {
+        return positionInBytes;
+    }
+
+    long getCompressedPositionInBits() {
+        return compressedPositionInBits;
+    }
+
+    int getLengthOfHistoryInBytes() {
+        return lengthOfHistoryInBytes;
+    }
+
+    byte[] getCompressedHistory() {
+        return compressedHistory;
+    }
+
+    byte[] getHistory() throws ZipException {
+        byte[] history = new byte[lengthOfHistoryInBytes];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressedHistory);
+            int lengthInBytes = 0;
+            while (lengthInBytes < lengthOfHistoryInBytes) {
+                int numberOfBytes = inflater.inflate(history, lengthInBytes, lengthOfHistoryInBytes - lengthInBytes);
+                if (numberOfBytes == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new ZipException("History of access point at byte " + positionInBytes + " is incomplete");
+                }
+                lengthInBytes += numberOfBytes;
+            }
+        } catch (DataFormatException dataFormatException) {
+            throw new ZipException("History of access point at byte " + positionInBytes + " is corrupt: " + dataFormatException.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return history;
+    }
+
+    // Inflater can only start at the beginning of a byte. So when the block begins at another bit, empty blocks are passed to it first, which end at
+    // the same bit of their last byte. The remaining bits of that byte have to be taken from the file. An empty block with fixed codes takes 10 bits,
+    // the empty block with dynamic codes below takes 93 bits. Up to three of the former and one of the latter reach each bit.
+    static byte[] createEmptyBlocksEndingAtBit(int bitIndex) {
+        BitWriter bitWriter = new BitWriter();
+        int numberOfFixedBlocks = bitIndex / 2;
+        if (bitIndex % 2 != 0) {
+            writeEmptyDynamicBlock(bitWriter);
+            numberOfFixedBlocks = ((bitIndex - 5) & 7) / 2;
+        }
+        for (int blockIndex = 0; blockIndex < numberOfFixedBlocks; blockIndex++) {
+            bitWriter.writeBits(0, 1); // not the last block
+            bitWriter.writeBits(1, 2); // fixed codes
+            bitWriter.writeCode(0, 7); // end of block
+        }
+        return bitWriter.getBytes();
+    }
+
+    // the only literal/length code is the end of block, which has 1 bit, and there are no distance codes
+    private static void writeEmptyDynamicBlock(BitWriter bitWriter) {
+        bitWriter.writeBits(0, 1); // not the last block
+        bitWriter.writeBits(2, 2); // dynamic codes
+        bitWriter.writeBits(0, 5); // 257 literal/length codes
+        bitWriter.writeBits(0, 5); // 1 distance code
+        bitWriter.writeBits(14, 4); // 18 code length codes, up to the one for length 1
+        for (int codeLengthCodeIndex = 0; codeLengthCodeIndex < 18; codeLengthCodeIndex++) {
+            int codeLength = GzipDecoder.CODE_LENGTH_CODE_ORDER[codeLengthCodeIndex];
+            bitWriter.writeBits(codeLength == 1 ? 1 : (codeLength == 0 || codeLength == 18) ? 2 : 0, 3);
+        }
+        // codes of the code lengths: 1 -> 0, 0 -> 10, 18 -> 11
+        bitWriter.writeCode(3, 2);
+        bitWriter.writeBits(138 - 11, 7); // 138 zero lengths
+        bitWriter.writeCode(3, 2);
+        bitWriter.writeBits(118 - 11, 7); // 118 zero lengths, so none of the literals has a code
+        bitWriter.writeCode(0, 1); // end of block has length 1
+        bitWriter.writeCode(2, 2); // the distance code has length 0
+        bitWriter.writeCode(0, 1); // end of block
+    }
+
+    private static class BitWriter {
+        private final byte[] bytes = new byte[32];
+        private int lengthInBits = 0;
+
+        // the lowest bit first, like all numbers in deflate blocks
+        private void writeBits(int value, int numberOfBits) {
+            for (int bitIndex = 0; bitIndex < numberOfBits; bitIndex++) {
+                writeBit((value >>> bitIndex) & 1);
+            }
+        }
+
+        // the highest bit first, like all huffman codes
+        private void writeCode(int code, int lengthOfCode) {
+            for (int bitIndex = lengthOfCode - 1; bitIndex >= 0; bitIndex--) {
+                writeBit((code >>> bitIndex) & 1);
+            }
+        }
+
+        private void writeBit(int bit) {
+            bytes[lengthInBits / 8] |= (byte) (bit << (lengthInBits % 8));
+            lengthInBits++;
+        }
+
+        private byte[] getBytes() {
+            byte[] writtenBytes = new byte[(lengthInBits + 7) / 8];
+            System.arraycopy(bytes, 0, writtenBytes, 0, writtenBytes.length);
+            return writtenBytes;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.ZipException;
+
+// Decompresses a gzip file from the beginning, in the first pass through it. Unlike java.util.zip.Inflater it knows at which bit each deflate block
+// begins, so it can record the access points of GzipFileAccess on the way. Afterwards the file is decompressed by Inflater, starting at these.
+// A gzip file consists of members: a header, deflate blocks and a trailer with checksum and size, which is not verified. A truncated file ends at its
+// last complete symbol, e.g. while it is still being compressed.
+// Not safe to use from several threads at once.
+class GzipDecoder {
+    static final int NUMBER_OF_BYTES_OF_HISTORY = 32 * 1024; // the maximal distance of a match
+    static final int[] CODE_LENGTH_CODE_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+    private static final int NUMBER_OF_BYTES_TO_DECODE_AT_ONCE = 256 * 1024;
+    private static final int NUMBER_OF_BYTES_OF_INPUT_TO_BUFFER = 64 * 1024;
+    private static final int MAXIMAL_LENGTH_OF_MATCH = 258;
+    private static final int MAXIMAL_LENGTH_OF_BLOCK_HEADER_IN_BYTES = 1024; // code lengths of dynamic blocks take less than 600 bytes
+    private static final int MINIMAL_NUMBER_OF_BYTES_OF_INPUT_PER_SYMBOL = 8; // up to 48 bits for a match
+
+    private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+    private static final int[] LENGTH_EXTRA_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+    private static final int[] DISTANCE_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+    private static final int[] DISTANCE_EXTRA_BITS = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+
+    private static final int[] FIXED_LITERAL_LENGTH_TABLE;
+    private static final int[] FIXED_DISTANCE_TABLE;
+
+    static {
+        byte[] fixedLiteralLengthCodeLengths = new byte[288];
+        for (int symbol = 0; symbol < 288; symbol++) {
+            fixedLiteralLengthCodeLengths[symbol] = (byte) (symbol < 144 ? 8 : symbol < 256 ? 9 : symbol < 280 ? 7 : 8);
+        }
+        byte[] fixedDistanceCodeLengths = new byte[30];
+        Arrays.fill(fixedDistanceCodeLengths, (byte) 5);
+        try {
+            FIXED_LITERAL_LENGTH_TABLE = buildDecodingTable(fixedLiteralLengthCodeLengths, 0, fixedLiteralLengthCodeLengths.length);
+            FIXED_DISTANCE_TABLE = buildDecodingTable(fixedDistanceCodeLengths, 0, fixedDistanceCodeLengths.length);
+        } catch (ZipException zipException) {
+            throw new IllegalStateException(zipException);
+        }
+    }
+
+    private static final int STATE_BLOCK_HEADER = 0;
+    private static final int STATE_STORED_BLOCK = 1;
+    private static final int STATE_HUFFMAN_BLOCK = 2;
+    private static final int STATE_END_OF_MEMBER = 3;
+    private static final int STATE_END = 4;
+
+    private final GzipFileAccess fileAccess;
+    private final Consumer<GzipAccessPoint> accessPointListener;
+
+    private final byte[] input;
+    private long positionOfInputInBytes; // in the file, of input[0]
+    private int inputIndex;
+    private int endOfInput;
+    private boolean endOfFileReached;
+    private long bits; // the next bits of the input, starting at the lowest one
+    private int numberOfBits;
+
+    private final byte[] window; // the history and the content decoded after it
+    private long positionOfWindowInBytes; // in the decompressed content, of window[0]
+    private int endOfWindow;
+
+    private int state;
+    private boolean lastBlock;
+    private int remainingBytesOfStoredBlock;
+    private int[] literalLengthTable;
+    private int[] distanceTable;
+    private long positionOfNextAccessPointInBytes;
+
+    GzipDecoder(GzipFileAccess fileAccess, long startOfDeflateDataInBytes, Consumer<GzipAccessPoint> accessPointListener) {
+        this.fileAccess = fileAccess;
+        this.accessPointListener = accessPointListener;
+
+        this.input = new byte[NUMBER_OF_BYTES_OF_INPUT_TO_BUFFER];
+        this.window = new byte[NUMBER_OF_BYTES_OF_HISTORY + NUMBER_OF_BYTES_TO_DECODE_AT_ONCE + MAXIMAL_LENGTH_OF_MATCH];
+        this.positionOfWindowInBytes = 0;
+        this.endOfWindow = 0;
+        this.positionOfNextAccessPointInBytes = 0;
+
+        startMember(startOfDeflateDataInBytes);
+    }
+
+    // the position after the last decoded byte
+    long getPositionInBytes() {
+        return positionOfWindowInBytes + endOfWindow;
+    }
+
+    boolean isFinished() {
+        return state == STATE_END;
+    }
+
+    // copies the decoded bytes starting at the given position, which must be before getPositionInBytes(). Returns 0 if they are not kept any more
+    int copyDecodedBytes(long positionInBytes, ByteBuffer destination) {
+        if (positionInBytes < positionOfWindowInBytes) {
+            return 0;
+        }
+        int indexInWindow = (int) (positionInBytes - positionOfWindowInBytes);
+        int numberOfBytes = Math.min(endOfWindow - indexInWindow, destination.remaining());
+        destination.put(window, indexInWindow, numberOfBytes);
+        return numberOfBytes;
+    }
+
+    // Decodes up to NUMBER_OF_BYTES_TO_DECODE_AT_ONCE bytes, and keeps them with the history before them. When an exception is thrown, e.g. as the
+    // thread was interrupted, the state is the same as after decoding the last symbol before. So this can be called again
+    void decodeNextBytes() throws IOException {
+        if (endOfWindow + NUMBER_OF_BYTES_TO_DECODE_AT_ONCE + MAXIMAL_LENGTH_OF_MATCH > window.length) {
+            int numberOfBytesToDrop = endOfWindow - NUMBER_OF_BYTES_OF_HISTORY;
+            System.arraycopy(window, numberOfBytesToDrop, window, 0, NUMBER_OF_BYTES_OF_HISTORY);
+            positionOfWindowInBytes += numberOfBytesToDrop;
+            endOfWindow = NUMBER_OF_BYTES_OF_HISTORY;
+        }
+        int endOfBytesToDecode = endOfWindow + NUMBER_OF_BYTES_TO_DECODE_AT_ONCE;
+        try {
+            while (endOfWindow < endOfBytesToDecode && state != STATE_END) {
+                switch (state) {
+                    case STATE_BLOCK_HEADER:
+                        decodeBlockHeader();
+                        break;
+                    case STATE_STORED_BLOCK:
+                        decodeStoredBlock(endOfBytesToDecode);
+                        break;
+                    case STATE_HUFFMAN_BLOCK:
+                        bufferInput(MINIMAL_NUMBER_OF_BYTES_OF_INPUT_PER_SYMBOL);
+                        decodeHuffmanBlock(endOfBytesToDecode);
+                        break;
+                    default:
+                        decodeEndOfMember();
+                        break;
+                }
+            }
+        } catch (EOFException eofException) {
+            state = STATE_END; // the file is truncated
+        }
+    }
+
+    private void startMember(long startOfDeflateDataInBytes) {
+        positionOfInputInBytes = startOfDeflateDataInBytes;
+        inputIndex = 0;
+        endOfInput = 0;
+        endOfFileReached = false;
+        bits = 0;
+        numberOfBits = 0;
+        state = STATE_BLOCK_HEADER;
+    }
+
+    private void decodeBlockHeader() throws IOException {
+        bufferInput(MAXIMAL_LENGTH_OF_BLOCK_HEADER_IN_BYTES); // the header is decoded at once, so an interrupted read does not leave it half decoded
+
+        long positionInBytes = getPositionInBytes();
+        if (positionInBytes >= positionOfNextAccessPointInBytes) {
+            int lengthOfHistoryInBytes = Math.min(NUMBER_OF_BYTES_OF_HISTORY, endOfWindow);
+            long positionInBits = (positionOfInputInBytes + inputIndex) * 8 - numberOfBits;
+            accessPointListener.accept(GzipAccessPoint.of(positionInBytes, positionInBits, window, endOfWindow - lengthOfHistoryInBytes, lengthOfHistoryInBytes));
+            positionOfNextAccessPointInBytes = positionInBytes + IoConstants.NUMBER_OF_BYTES_BETWEEN_GZIP_ACCESS_POINTS;
+        }
+
+        lastBlock = readBits(1) == 1;
+        int blockType = readBits(2);
+        if (blockType == 0) {
+            dropBits(numberOfBits % 8);
+            int length = readBits(16);
+            int complementOfLength = readBits(16);
+            if (length != (~complementOfLength & 0xFFFF)) {
+                throw new ZipException("Invalid length of stored block at byte " + (positionOfInputInBytes + inputIndex - numberOfBits / 8) + " of file");
+            }
+            remainingBytesOfStoredBlock = length;
+            state = STATE_STORED_BLOCK;
+        } else if (blockType == 1) {
+            literalLengthTable = FIXED_LITERAL_LENGTH_TABLE;
+            distanceTable = FIXED_DISTANCE_TABLE;
+            state = STATE_HUFFMAN_BLOCK;
+        } else if (blockType == 2) {
+            decodeCodeTables();
+            state = STATE_HUFFMAN_BLOCK;
+        } else {
+            throw new ZipException("Invalid block type at byte " + (positionOfInputInBytes + inputIndex) + " of file");
+        }
+    }
+
+    private void decodeCodeTables() throws IOException {
+        int numberOfLiteralLengthCodes = readBits(5) + 257;
+        int numberOfDistanceCodes = readBits(5) + 1;
+        int numberOfCodeLengthCodes = readBits(4) + 4;
+
+        byte[] codeLengthCodeLengths = new byte[CODE_LENGTH_CODE_ORDER.length];
+        for (int codeLengthCodeIndex = 0; codeLengthCodeIndex < numberOfCodeLengthCodes; codeLengthCodeIndex++) {
+            codeLengthCodeLengths[CODE_LENGTH_CODE_ORDER[codeLengthCodeIndex]] = (byte) readBits(3);
+        }
+        int[] codeLengthTable = buildDecodingTable(codeLengthCodeLengths, 0, codeLengthCodeLengths.length);
+
+        // the lengths of both codes form one sequence, which repetitions may cross
+        byte[] codeLengths = new byte[numberOfLiteralLengthCodes + numberOfDistanceCodes];
+        int codeIndex = 0;
+        while (codeIndex < codeLengths.length) {
+            int symbol = readSymbol(codeLengthTable);
+            int lengthToRepeat = 0;
+            int numberOfRepetitions;
+            if (symbol < 16) {
+                codeLengths[codeIndex++] = (byte) symbol;
+                continue;
+            } else if (symbol == 16) {
+                if (codeIndex == 0) {
+                    throw new ZipException("Repetition of missing code length at byte " + (positionOfInputInBytes + inputIndex) + " of file");
+                }
+                lengthToRepeat = codeLengths[codeIndex - 1];
+                numberOfRepetitions = 3 + readBits(2);
+            } else if (symbol == 17) {
+                numberOfRepetitions = 3 + readBits(3);
+            } else {
+                numberOfRepetitions = 11 + readBits(7);
+            }
+            if (codeIndex + numberOfRepetitions > codeLengths.length) {
+                throw new ZipException("Too many code lengths at byte " + (positionOfInputInBytes + inputIndex) + " of file");
+            }
+            for (int repetition = 0; repetition < numberOfRepetitions; repetition++) {
+                codeLengths[codeIndex++] = (byte) lengthToRepeat;
+            }
+        }
+        if (codeLengths[256] == 0) {
+            throw new ZipException("Missing end of block code at byte " + (positionOfInputInBytes + inputIndex) + " of file");
+        }
+
+        literalLengthTable = buildDecodingTable(codeLengths, 0, numberOfLiteralLengthCodes);
+        distanceTable = buildDecodingTable(codeLengths, numberOfLiteralLengthCodes, numberOfDistanceCodes);
+    }
+
+    private void decodeStoredBlock(int endOfBytesToDecode) throws IOException {
+        while (remainingBytesOfStoredBlock > 0 && numberOfBits >= 8 && endOfWindow < endOfBytesToDecode) {
+            window[endOfWindow++] = (byte) bits;
+            dropBits(8);
+            remainingBytesOfStoredBlock--;
+        }
+        while (remainingBytesOfStoredBlock > 0 && endOfWindow < endOfBytesToDecode) {
+            if (inputIndex == endOfInput) {
+                bufferInput(1);
+                if (inputIndex == endOfInput) {
+                    throw new EOFException();
+                }
+            }
+            int numberOfBytes = Math.min(Math.min(remainingBytesOfStoredBlock, endOfBytesToDecode - endOfWindow), endOfInput - inputIndex);
+            System.arraycopy(input, inputIndex, window, endOfWindow, numberOfBytes);
+            inputIndex += numberOfBytes;
+            endOfWindow += numberOfBytes;
+            remainingBytesOfStoredBlock -= numberOfBytes;
+        }
+        if (remainingBytesOfStoredBlock == 0) {
+            state = lastBlock ? STATE_END_OF_MEMBER : STATE_BLOCK_HEADER;
+        }
+    }
+
+    // the hot loop of the first pass, which keeps the state in local variables. It stops when the buffered input may not suffice for the next symbol,
+    // as reading input may be interrupted
+    private void decodeHuffmanBlock(int endOfBytesToDecode) throws IOException {
+        final byte[] input = this.input;
+        final byte[] window = this.window;
+        final int[] literalLengthTable = this.literalLengthTable;
+        final int literalLengthMask = literalLengthTable.length - 1;
+        final int[] distanceTable = this.distanceTable;
+        final int distanceMask = distanceTable.length - 1;
+        final int endOfInputToDecode = endOfFileReached ? endOfInput : endOfInput - MINIMAL_NUMBER_OF_BYTES_OF_INPUT_PER_SYMBOL;
+
+        long bits = this.bits;
+        int numberOfBits = this.numberOfBits;
+        int inputIndex = this.inputIndex;
+        int endOfWindow = this.endOfWindow;
+        try {
+            while (endOfWindow < endOfBytesToDecode && (inputIndex <= endOfInputToDecode || endOfFileReached)) {
+                while (numberOfBits <= 56 && inputIndex < endOfInput) {
+                    bits |= (long) (input[inputIndex++] & 0xFF) << numberOfBits;
+                    numberOfBits += 8;
+                }
+
+                int entry = literalLengthTable[(int) bits & literalLengthMask];
+                int lengthOfCode = entry & 0xF;
+                if (lengthOfCode == 0 || lengthOfCode > numberOfBits) {
+                    throw invalidOrTruncated(lengthOfCode, inputIndex, numberOfBits);
+                }
+                bits >>>= lengthOfCode;
+                numberOfBits -= lengthOfCode;
+                int symbol = entry >>> 4;
+
+                if (symbol < 256) {
+                    window[endOfWindow++] = (byte) symbol;
+                    continue;
+                }
+                if (symbol == 256) {
+                    state = lastBlock ? STATE_END_OF_MEMBER : STATE_BLOCK_HEADER;
+                    return;
+                }
+
+                int lengthIndex = symbol - 257;
+                if (lengthIndex >= LENGTH_BASE.length) {
+                    throw new ZipException("Invalid length symbol at byte " + (positionOfInputInBytes + inputIndex) + " of file");
+                }
+                int extraBits = LENGTH_EXTRA_BITS[lengthIndex];
+                if (extraBits > numberOfBits) {
+                    throw new EOFException();
+                }
+                int length = LENGTH_BASE[lengthIndex] + (int) (bits & ((1 << extraBits) - 1));
+                bits >>>= extraBits;
+                numberOfBits -= extraBits;
+
+                entry = distanceTable[(int) bits & distanceMask];
+                lengthOfCode = entry & 0xF;
+                if (lengthOfCode == 0 || lengthOfCode > numberOfBits) {
+                    throw invalidOrTruncated(lengthOfCode, inputIndex, numberOfBits);
+                }
+                bits >>>= lengthOfCode;
+                numberOfBits -= lengthOfCode;
+                int distanceIndex = entry >>> 4;
+                if (distanceIndex >= DISTANCE_BASE.length) {
+                    throw new ZipException("Invalid distance symbol at byte " + (positionOfInputInBytes + inputIndex) + " of file");
+                }
+                extraBits = DISTANCE_EXTRA_BITS[distanceIndex];
+                if (extraBits > numberOfBits) {
+                    throw new EOFException();
+                }
+                int distance = DISTANCE_BASE[distanceIndex] + (int) (bits & ((1 << extraBits) - 1));
+                bits >>>= extraBits;
+                numberOfBits -= extraBits;
+
+                if (distance > endOfWindow) {
+                    throw new ZipException("Distance " + distance + " beyond decoded bytes at byte " + (positionOfInputInBytes + inputIndex) + " of file");
+                }
+                int startOfCopy = endOfWindow - distance;
+                if (distance >= length) {
+                    System.arraycopy(window, startOfCopy, window, endOfWindow, length);
+                    endOfWindow += length;
+                } else {
+                    // the copy overlaps the bytes it produces, e.g. distance 1 repeats the last byte
+                    for (int copyIndex = 0; copyIndex < length; copyIndex++) {
+                        window[endOfWindow++] = window[startOfCopy + copyIndex];
+                    }
+                }
+            }
+        } finally {
+            this.bits = bits;
+            this.numberOfBits = numberOfBits;
+            this.inputIndex = inputIndex;
+            this.endOfWindow = endOfWindow;
+        }
+    }
+
+    // bits which are no code can not be told from a code, whose bits are cut off at the end of the file
+    private IOException invalidOrTruncated(int lengthOfCode, int inputIndex, int numberOfBits) {
+        if (endOfFileReached && inputIndex == endOfInput && (lengthOfCode > numberOfBits || lengthOfCode == 0)) {
+            return new EOFException();
+        }
+        return new ZipException("Invalid code at byte " + (positionOfInputInBytes + inputIndex - numberOfBits / 8) + " of file");
+    }
+
+    // the trailer of the member may be followed by another one. Anything else is ignored, e.g. zeros some tools pad the file with
+    private void decodeEndOfMember() throws IOException {
+        dropBits(numberOfBits % 8);
+        long endOfDeflateDataInBytes = positionOfInputInBytes + inputIndex - numberOfBits / 8;
+        long startOfDeflateDataInBytes = fileAccess.findStartOfDeflateData(endOfDeflateDataInBytes + GzipFileAccess.NUMBER_OF_BYTES_OF_TRAILER);
+        if (startOfDeflateDataInBytes < 0) {
+            state = STATE_END;
+        } else {
+            startMember(startOfDeflateDataInBytes);
+        }
+    }
+
+    // makes sure that the given number of bytes is buffered, unless the end of the file is reached. Reading may be interrupted, but that does not
+    // change what was buffered before
+    private void bufferInput(int numberOfBytes) throws IOException {
+        while (endOfInput - inputIndex < numberOfBytes && !endOfFileReached) {
+            if (inputIndex > 0) {
+                System.arraycopy(input, inputIndex, input, 0, endOfInput - inputIndex);
+                positionOfInputInBytes += inputIndex;
+                endOfInput -= inputIndex;
+                inputIndex = 0;
+            }
+            ByteBuffer destination = ByteBuffer.wrap(input, endOfInput, input.length - endOfInput);
+            int bytesRead = fileAccess.readCompressedBytes(positionOfInputInBytes + endOfInput, destination);
+            if (bytesRead < 0) {
+                endOfFileReached = true;
+            } else {
+                endOfInput += bytesRead;
+            }
+        }
+    }
+
+    // only used for block headers, which are buffered completely
+    private int readBits(int numberOfBitsToRead) throws EOFException {
+        while (numberOfBits < numberOfBitsToRead) {
+            if (inputIndex == endOfInput) {
+                throw new EOFException();
+            }
+            bits |= (long) (input[inputIndex++] & 0xFF) << numberOfBits;
+            numberOfBits += 8;
+        }
+        int value = (int) (bits & ((1L << numberOfBitsToRead) - 1));
+        dropBits(numberOfBitsToRead);
+        return value;
+    }
+
+    private int readSymbol(int[] table) throws IOException {
+        while (numberOfBits <= 56 && inputIndex < endOfInput) {
+            bits |= (long) (input[inputIndex++] & 0xFF) << numberOfBits;
+            numberOfBits += 8;
+        }
+        int entry = table[(int) bits & (table.length - 1)];
+        int lengthOfCode = entry & 0xF;
+        if (lengthOfCode == 0 || lengthOfCode > numberOfBits) {
+            throw invalidOrTruncated(lengthOfCode, inputIndex, numberOfBits);
+        }
+        dropBits(lengthOfCode);
+        return entry >>> 4;
+    }
+
+    private void dropBits(int numberOfBitsToDrop) {
+        bits >>>= numberOfBitsToDrop;
+        numberOfBits -= numberOfBitsToDrop;
+    }
+
+    // Returns a table, which is indexed by the next bits of the input, as many as the longest code has. The codes are stored with their first bit as
+    // lowest one, as they are read this way. The entries are the symbol shifted by 4 bits and the length of its code, or 0 for bits which are no code
+    static int[] buildDecodingTable(byte[] codeLengths, int offset, int numberOfSymbols) throws ZipException {
+        int[] numberOfCodesPerLength = new int[16];
+        int maximalLengthOfCode = 0;
+        for (int symbol = 0; symbol < numberOfSymbols; symbol++) {
+            int lengthOfCode = codeLengths[offset + symbol];
+            numberOfCodesPerLength[lengthOfCode]++;
+            maximalLengthOfCode = Math.max(maximalLengthOfCode, lengthOfCode);
+        }
+
+        int[] nextCodePerLength = new int[16];
+        int code = 0;
+        int numberOfUnusedCodes = 1;
+        for (int lengthOfCode = 1; lengthOfCode < 16; lengthOfCode++) {
+            code = (code + (lengthOfCode == 1 ? 0 : numberOfCodesPerLength[lengthOfCode - 1])) << 1;
+            nextCodePerLength[lengthOfCode] = code;
+            numberOfUnusedCodes = (numberOfUnusedCodes << 1) - numberOfCodesPerLength[lengthOfCode];
+            if (numberOfUnusedCodes < 0) {
+                throw new ZipException("Too many codes of length " + lengthOfCode);
+            }
+        }
+
+        int[] table = new int[1 << maximalLengthOfCode];
+        for (int symbol = 0; symbol < numberOfSymbols; symbol++) {
+            int lengthOfCode = codeLengths[offset + symbol];
+            if (lengthOfCode == 0) {
+                continue;
+            }
+            int reversedCode = Integer.reverse(nextCodePerLength[lengthOfCode]++) >>> (32 - lengthOfCode);
+            int entry = symbol << 4 | lengthOfCode;
+            for (int index = reversedCode; index < table.length; index += 1 << lengthOfCode) {
+                table[index] = entry;
+            }
+        }
+        return table;
+    }
+}
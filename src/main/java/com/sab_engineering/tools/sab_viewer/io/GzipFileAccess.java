@@ -0,0 +1,422 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+// Access to the decompressed content of a gzip file, e.g. an archived log. All positions refer to the decompressed content, so Scanner, Reader and
+// Searcher work on it like on any other file.
+// The first pass through the file is done by GzipDecoder, which records an access point every IoConstants.NUMBER_OF_BYTES_BETWEEN_GZIP_ACCESS_POINTS
+// (like zran.c of zlib). Any other read is decompressed by Inflater, starting at the access point before it. Inflations that ended where the next read
+// starts are reused, so reading on does not start again at the access point.
+// The size is only known after the first pass. Until then, getSizeInBytes returns the number of bytes decompressed so far, and reading further
+// decompresses everything in between. The access points are persisted with the LineIndexFile, so they are known right away when the file is opened again.
+class GzipFileAccess extends FileAccess {
+    static final int NUMBER_OF_BYTES_OF_TRAILER = 8; // checksum and size of a member
+
+    private static final int NUMBER_OF_BYTES_TO_READ_FOR_HEADER = 64 * 1024; // the header has a file name and a comment of any length, but not that long
+    private static final int NUMBER_OF_BYTES_OF_INPUT_PER_INFLATION = 64 * 1024;
+    private static final int MAXIMAL_NUMBER_OF_IDLE_INFLATIONS = 4; // reader, searcher and filter may read at different positions at once
+
+    private static final int FLAG_HEADER_CRC = 0x02;
+    private static final int FLAG_EXTRA_FIELD = 0x04;
+    private static final int FLAG_FILE_NAME = 0x08;
+    private static final int FLAG_COMMENT = 0x10;
+
+    private final Object decoderLock = new Object();
+    private GzipDecoder decoder_toBeAccessedSynchronized; // null after the first pass
+
+    private final List<GzipAccessPoint> accessPoints_toBeAccessedSynchronized; // in ascending order
+    private final List<Inflation> idleInflations_toBeAccessedSynchronized; // the least recently used one first
+
+    private volatile long sizeInBytes; // known so far
+    private volatile boolean sizeKnown;
+
+    GzipFileAccess(Path filePath, FileChannel fileChannel) throws IOException {
+        super(filePath, fileChannel);
+        this.accessPoints_toBeAccessedSynchronized = new ArrayList<>();
+        this.idleInflations_toBeAccessedSynchronized = new ArrayList<>();
+        this.sizeInBytes = 0;
+        this.sizeKnown = false;
+
+        long startOfDeflateDataInBytes = findStartOfDeflateData(0);
+        if (startOfDeflateDataInBytes < 0) {
+            throw new ZipException("Not in gzip format");
+        }
+        this.decoder_toBeAccessedSynchronized = new GzipDecoder(this, startOfDeflateDataInBytes, this::addAccessPoint);
+    }
+
+    static boolean isGzipFile(FileChannel fileChannel) throws IOException {
+        ByteBuffer magicNumber = ByteBuffer.allocate(3);
+        while (magicNumber.hasRemaining() && fileChannel.read(magicNumber, magicNumber.position()) > 0) {
+            // read until buffer is full
+        }
+        return !magicNumber.hasRemaining() && isGzipHeader(magicNumber, 0);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public boolean isSizeKnown() {
+        return sizeKnown;
+    }
+
+    @Override
+    public ByteBuffer read(long positionInBytes, int numberOfBytes, ByteBuffer buffer) throws IOException {
+        if (buffer == null || buffer.capacity() < numberOfBytes) {
+            buffer = ByteBuffer.allocate(numberOfBytes);
+        }
+        buffer.clear();
+        buffer.limit(numberOfBytes);
+        while (buffer.hasRemaining()) {
+            if (readInto(positionInBytes + buffer.position(), buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public int readInto(long positionInBytes, ByteBuffer destination) throws IOException {
+        checkInterrupted();
+        if (!destination.hasRemaining()) {
+            return 0;
+        }
+        if (!sizeKnown) {
+            int numberOfBytes = readDuringFirstPass(positionInBytes, destination);
+            if (numberOfBytes != 0) {
+                return numberOfBytes;
+            }
+        }
+        if (positionInBytes >= sizeInBytes) {
+            return -1;
+        }
+
+        Inflation inflation = takeInflation(positionInBytes);
+        boolean completed = false;
+        try {
+            int numberOfBytes = inflation.read(positionInBytes, destination, sizeInBytes);
+            completed = true;
+            return numberOfBytes;
+        } finally {
+            if (completed) {
+                returnInflation(inflation);
+            } else {
+                inflation.end(); // it may have stopped anywhere
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (idleInflations_toBeAccessedSynchronized) {
+            for (Inflation inflation : idleInflations_toBeAccessedSynchronized) {
+                inflation.end();
+            }
+            idleInflations_toBeAccessedSynchronized.clear();
+        }
+        super.close();
+    }
+
+    List<GzipAccessPoint> getAccessPoints() {
+        synchronized (accessPoints_toBeAccessedSynchronized) {
+            return new ArrayList<>(accessPoints_toBeAccessedSynchronized);
+        }
+    }
+
+    // replaces the first pass, e.g. by the access points of a LineIndexFile
+    void setAccessPoints(List<GzipAccessPoint> accessPoints, long sizeInBytes) {
+        synchronized (decoderLock) {
+            synchronized (accessPoints_toBeAccessedSynchronized) {
+                accessPoints_toBeAccessedSynchronized.clear();
+                accessPoints_toBeAccessedSynchronized.addAll(accessPoints);
+            }
+            decoder_toBeAccessedSynchronized = null;
+            this.sizeInBytes = sizeInBytes;
+            this.sizeKnown = true;
+        }
+    }
+
+    // the size of the content first, which is known when the access points are complete
+    void writeAccessPoints(DataOutputStream outputStream) throws IOException {
+        List<GzipAccessPoint> accessPoints = getAccessPoints();
+        outputStream.writeLong(sizeInBytes);
+        outputStream.writeInt(accessPoints.size());
+        for (GzipAccessPoint accessPoint : accessPoints) {
+            outputStream.writeLong(accessPoint.getPositionInBytes());
+            outputStream.writeLong(accessPoint.getCompressedPositionInBits());
+            outputStream.writeInt(accessPoint.getLengthOfHistoryInBytes());
+            outputStream.writeInt(accessPoint.getCompressedHistory().length);
+            outputStream.write(accessPoint.getCompressedHistory());
+        }
+    }
+
+    void readAccessPoints(ByteBuffer inputBuffer) {
+        long storedSizeInBytes = inputBuffer.getLong();
+        int numberOfAccessPoints = inputBuffer.getInt();
+        if (storedSizeInBytes < 0 || numberOfAccessPoints <= 0) {
+            throw new IllegalArgumentException("Invalid access points: " + numberOfAccessPoints + " for " + storedSizeInBytes + " bytes");
+        }
+        List<GzipAccessPoint> accessPoints = new ArrayList<>(numberOfAccessPoints);
+        for (int accessPointIndex = 0; accessPointIndex < numberOfAccessPoints; accessPointIndex++) {
+            long positionInBytes = inputBuffer.getLong();
+            long compressedPositionInBits = inputBuffer.getLong();
+            int lengthOfHistoryInBytes = inputBuffer.getInt();
+            byte[] compressedHistory = new byte[inputBuffer.getInt()];
+            inputBuffer.get(compressedHistory);
+            if ((accessPointIndex == 0 && positionInBytes != 0) || (accessPointIndex > 0 && positionInBytes <= accessPoints.get(accessPointIndex - 1).getPositionInBytes())
+                    || lengthOfHistoryInBytes < 0 || lengthOfHistoryInBytes > GzipDecoder.NUMBER_OF_BYTES_OF_HISTORY) {
+                throw new IllegalArgumentException("Invalid access point at byte " + positionInBytes);
+            }
+            accessPoints.add(new GzipAccessPoint(positionInBytes, compressedPositionInBits, lengthOfHistoryInBytes, compressedHistory));
+        }
+        setAccessPoints(accessPoints, storedSizeInBytes);
+    }
+
+    int readCompressedBytes(long positionInBytes, ByteBuffer destination) throws IOException {
+        return readFromChannel(positionInBytes, destination);
+    }
+
+    // returns -1 if there is no member at the given position
+    long findStartOfDeflateData(long positionOfMemberInBytes) throws IOException {
+        ByteBuffer header = readFromChannel(positionOfMemberInBytes, NUMBER_OF_BYTES_TO_READ_FOR_HEADER, null);
+        if (header.remaining() < 10 || !isGzipHeader(header, 0)) {
+            return -1;
+        }
+        int flags = header.get(3) & 0xFF;
+        try {
+            header.position(10); // after magic number, compression method, flags, modification time, extra flags and operating system
+            if ((flags & FLAG_EXTRA_FIELD) != 0) {
+                int lengthOfExtraField = (header.get() & 0xFF) | (header.get() & 0xFF) << 8;
+                header.position(header.position() + lengthOfExtraField);
+            }
+            if ((flags & FLAG_FILE_NAME) != 0) {
+                skipZeroTerminatedString(header);
+            }
+            if ((flags & FLAG_COMMENT) != 0) {
+                skipZeroTerminatedString(header);
+            }
+            if ((flags & FLAG_HEADER_CRC) != 0) {
+                header.position(header.position() + 2);
+            }
+        } catch (RuntimeException runtimeException) {
+            throw new ZipException("Header of gzip member at byte " + positionOfMemberInBytes + " of file is too long or truncated");
+        }
+        return positionOfMemberInBytes + header.position();
+    }
+
+    private static boolean isGzipHeader(ByteBuffer bytes, int index) {
+        return bytes.get(index) == (byte) 0x1F && bytes.get(index + 1) == (byte) 0x8B && bytes.get(index + 2) == 8; // 8 is deflate
+    }
+
+    private static void skipZeroTerminatedString(ByteBuffer bytes) {
+        while (bytes.get() != 0) {
+            // skip the characters
+        }
+    }
+
+    // Decompresses up to the given position, unless the first pass is done. Returns 0, if the bytes there were decompressed before and need to be
+    // decompressed again
+    private int readDuringFirstPass(long positionInBytes, ByteBuffer destination) throws IOException {
+        synchronized (decoderLock) {
+            GzipDecoder decoder = decoder_toBeAccessedSynchronized;
+            if (decoder == null) {
+                return 0;
+            }
+            while (positionInBytes >= decoder.getPositionInBytes() && !decoder.isFinished()) {
+                checkInterrupted();
+                decoder.decodeNextBytes();
+                sizeInBytes = decoder.getPositionInBytes();
+            }
+
+            int numberOfBytes = positionInBytes < decoder.getPositionInBytes() ? decoder.copyDecodedBytes(positionInBytes, destination) : -1;
+            if (decoder.isFinished()) {
+                decoder_toBeAccessedSynchronized = null;
+                sizeKnown = true;
+                System.out.println("Decompression finished with " + getAccessPoints().size() + " access points");
+            }
+            return numberOfBytes;
+        }
+    }
+
+    private void addAccessPoint(GzipAccessPoint accessPoint) {
+        synchronized (accessPoints_toBeAccessedSynchronized) {
+            accessPoints_toBeAccessedSynchronized.add(accessPoint);
+        }
+    }
+
+    private GzipAccessPoint findAccessPoint(long positionInBytes) {
+        synchronized (accessPoints_toBeAccessedSynchronized) {
+            int lowIndex = 0;
+            int highIndex = accessPoints_toBeAccessedSynchronized.size() - 1;
+            while (lowIndex < highIndex) {
+                int middleIndex = (lowIndex + highIndex + 1) >>> 1;
+                if (accessPoints_toBeAccessedSynchronized.get(middleIndex).getPositionInBytes() <= positionInBytes) {
+                    lowIndex = middleIndex;
+                } else {
+                    highIndex = middleIndex - 1;
+                }
+            }
+            return accessPoints_toBeAccessedSynchronized.get(lowIndex);
+        }
+    }
+
+    // an idle inflation that stopped between the access point and the position is continued, otherwise the least recently used one starts again
+    private Inflation takeInflation(long positionInBytes) throws IOException {
+        GzipAccessPoint accessPoint = findAccessPoint(positionInBytes);
+        Inflation inflation = null;
+        synchronized (idleInflations_toBeAccessedSynchronized) {
+            for (Inflation idleInflation : idleInflations_toBeAccessedSynchronized) {
+                long positionOfIdleInflationInBytes = idleInflation.positionInBytes;
+                if (positionOfIdleInflationInBytes <= positionInBytes && positionOfIdleInflationInBytes >= accessPoint.getPositionInBytes()
+                        && (inflation == null || positionOfIdleInflationInBytes > inflation.positionInBytes)) {
+                    inflation = idleInflation;
+                }
+            }
+            if (inflation != null) {
+                idleInflations_toBeAccessedSynchronized.remove(inflation);
+                return inflation;
+            }
+            if (idleInflations_toBeAccessedSynchronized.size() >= MAXIMAL_NUMBER_OF_IDLE_INFLATIONS) {
+                inflation = idleInflations_toBeAccessedSynchronized.remove(0);
+            }
+        }
+        if (inflation == null) {
+            inflation = new Inflation();
+        }
+        try {
+            inflation.start(accessPoint);
+        } catch (IOException | RuntimeException exception) {
+            inflation.end();
+            throw exception;
+        }
+        return inflation;
+    }
+
+    private void returnInflation(Inflation inflation) {
+        synchronized (idleInflations_toBeAccessedSynchronized) {
+            idleInflations_toBeAccessedSynchronized.add(inflation);
+            if (idleInflations_toBeAccessedSynchronized.size() > MAXIMAL_NUMBER_OF_IDLE_INFLATIONS) {
+                Iterator<Inflation> leastRecentlyUsedInflations = idleInflations_toBeAccessedSynchronized.iterator();
+                leastRecentlyUsedInflations.next().end();
+                leastRecentlyUsedInflations.remove();
+            }
+        }
+    }
+
+    // Decompresses from an access point on, with the faster Inflater. Only used by one thread at once
+    private class Inflation {
+        private final Inflater inflater;
+        private final byte[] input;
+        private byte[] bytesToSkip;
+
+        private long positionInBytes; // in the decompressed content, of the next inflated byte
+        private long positionOfInputInBytes; // in the file, of the next byte passed to the inflater
+
+        private Inflation() {
+            this.inflater = new Inflater(true);
+            this.input = new byte[NUMBER_OF_BYTES_OF_INPUT_PER_INFLATION];
+            this.bytesToSkip = null;
+        }
+
+        private void start(GzipAccessPoint accessPoint) throws IOException {
+            inflater.reset();
+            if (accessPoint.getLengthOfHistoryInBytes() > 0) {
+                inflater.setDictionary(accessPoint.getHistory());
+            }
+            positionInBytes = accessPoint.getPositionInBytes();
+
+            long startOfBlockInBytes = accessPoint.getCompressedPositionInBits() / 8;
+            int bitIndex = (int) (accessPoint.getCompressedPositionInBits() % 8);
+            if (bitIndex == 0) {
+                positionOfInputInBytes = startOfBlockInBytes;
+                return;
+            }
+            byte[] emptyBlocks = GzipAccessPoint.createEmptyBlocksEndingAtBit(bitIndex);
+            ByteBuffer firstByteOfBlock = readFromChannel(startOfBlockInBytes, 1, null);
+            if (!firstByteOfBlock.hasRemaining()) {
+                throw new ZipException("Access point at byte " + startOfBlockInBytes + " is beyond the end of the file");
+            }
+            emptyBlocks[emptyBlocks.length - 1] |= (byte) (firstByteOfBlock.get(0) & (0xFF << bitIndex));
+            inflater.setInput(emptyBlocks);
+            positionOfInputInBytes = startOfBlockInBytes + 1;
+        }
+
+        // reads at most until the given end, as a truncated file may be inflated a bit further than GzipDecoder went
+        private int read(long positionOfReadInBytes, ByteBuffer destination, long endOfContentInBytes) throws IOException {
+            if (bytesToSkip == null && positionInBytes < positionOfReadInBytes) {
+                bytesToSkip = new byte[NUMBER_OF_BYTES_OF_INPUT_PER_INFLATION];
+            }
+            while (positionInBytes < positionOfReadInBytes) {
+                checkInterrupted();
+                if (inflate(bytesToSkip, 0, (int) Math.min(bytesToSkip.length, positionOfReadInBytes - positionInBytes)) < 0) {
+                    return -1;
+                }
+            }
+
+            int numberOfBytes = (int) Math.min(destination.remaining(), endOfContentInBytes - positionOfReadInBytes);
+            if (destination.hasArray()) {
+                numberOfBytes = inflate(destination.array(), destination.arrayOffset() + destination.position(), numberOfBytes);
+                if (numberOfBytes > 0) {
+                    destination.position(destination.position() + numberOfBytes);
+                }
+            } else {
+                byte[] inflatedBytes = new byte[numberOfBytes];
+                numberOfBytes = inflate(inflatedBytes, 0, numberOfBytes);
+                if (numberOfBytes > 0) {
+                    destination.put(inflatedBytes, 0, numberOfBytes);
+                }
+            }
+            return numberOfBytes;
+        }
+
+        // returns -1 at the end of the content
+        private int inflate(byte[] output, int offset, int length) throws IOException {
+            while (true) {
+                int numberOfBytes;
+                try {
+                    numberOfBytes = inflater.inflate(output, offset, length);
+                } catch (DataFormatException dataFormatException) {
+                    throw new ZipException("Unable to decompress after byte " + positionInBytes + ": " + dataFormatException.getMessage());
+                }
+                if (numberOfBytes > 0) {
+                    positionInBytes += numberOfBytes;
+                    return numberOfBytes;
+                }
+                if (inflater.finished()) {
+                    long startOfDeflateDataInBytes = findStartOfDeflateData(positionOfInputInBytes - inflater.getRemaining() + NUMBER_OF_BYTES_OF_TRAILER);
+                    if (startOfDeflateDataInBytes < 0) {
+                        return -1;
+                    }
+                    inflater.reset();
+                    positionOfInputInBytes = startOfDeflateDataInBytes;
+                } else if (inflater.needsInput()) {
+                    int bytesRead = readFromChannel(positionOfInputInBytes, ByteBuffer.wrap(input));
+                    if (bytesRead < 0) {
+                        return -1; // the file is truncated
+                    }
+                    inflater.setInput(input, 0, bytesRead);
+                    positionOfInputInBytes += bytesRead;
+                } else {
+                    throw new ZipException("Unable to decompress after byte " + positionInBytes + ", as a dictionary is missing");
+                }
+            }
+        }
+
+        private void end() {
+            inflater.end();
+        }
+    }
+}
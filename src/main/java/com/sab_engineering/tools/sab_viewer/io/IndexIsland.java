@@ -0,0 +1,95 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// The lines around a position, which the scan did not reach yet. They are scanned on their own, starting at the first line beginning a bit before the
+// position, so they can be displayed right away, while their line numbers are unknown. Like ParallelScanner, this only works for charsets in which the
+// beginning of a line is found without decoding what is before it. When no line begins shortly before the position, the island starts within a line,
+// at the beginning of a character, and columns of its first line are relative to that.
+public class IndexIsland {
+    private static final int MAXIMAL_NUMBER_OF_CONTINUATION_BYTES = 3;
+
+    private final FileAccess fileAccess;
+    private final Charset charset;
+    private final long targetPositionInBytes;
+    private final int numberOfBytesBeforeTarget;
+    private final int numberOfBytesAfterTarget;
+    private final LinePositions linePositions;
+
+    private long startPositionInBytes;
+    private int lineIndexOfTarget;
+
+    public IndexIsland(FileAccess fileAccess, Charset charset, long targetPositionInBytes) {
+        this(fileAccess, charset, targetPositionInBytes, IoConstants.NUMBER_OF_BYTES_PER_INDEX_ISLAND_BEFORE_TARGET, IoConstants.NUMBER_OF_BYTES_PER_INDEX_ISLAND_AFTER_TARGET);
+    }
+
+    // e.g. to extend an island upwards, mostly before its first line
+    public IndexIsland(FileAccess fileAccess, Charset charset, long targetPositionInBytes, int numberOfBytesBeforeTarget, int numberOfBytesAfterTarget) {
+        this.fileAccess = fileAccess;
+        this.charset = charset;
+        this.targetPositionInBytes = targetPositionInBytes;
+        this.numberOfBytesBeforeTarget = numberOfBytesBeforeTarget;
+        this.numberOfBytesAfterTarget = numberOfBytesAfterTarget;
+        this.linePositions = new LinePositions();
+        this.startPositionInBytes = -1;
+        this.lineIndexOfTarget = 0;
+    }
+
+    public static boolean supportsCharset(Charset charset) {
+        return ParallelScanner.supportsCharset(charset);
+    }
+
+    // returns true, if the island is incomplete, as memory ran out
+    public boolean scan() throws IOException, InterruptedException {
+        long startTimestamp = System.currentTimeMillis();
+
+        long fileSizeInBytes = fileAccess.getSizeInBytes();
+        long targetPositionInFileInBytes = Math.max(0, Math.min(targetPositionInBytes, fileSizeInBytes));
+        long nominalStartPositionInBytes = Math.max(0, targetPositionInFileInBytes - numberOfBytesBeforeTarget);
+        startPositionInBytes = ParallelScanner.findBeginningOfLine(fileAccess, nominalStartPositionInBytes);
+        if (startPositionInBytes > targetPositionInFileInBytes || (startPositionInBytes == fileSizeInBytes && nominalStartPositionInBytes < fileSizeInBytes)) {
+            startPositionInBytes = findBeginningOfCharacter(nominalStartPositionInBytes);
+        }
+        long endPositionInBytes = ParallelScanner.findBeginningOfLine(fileAccess, targetPositionInFileInBytes + numberOfBytesAfterTarget);
+
+        Scanner scanner = new Scanner(fileAccess, charset, startPositionInBytes, endPositionInBytes, linePositions::addFinishedBatch,
+                positionBatchPreview -> {
+                    // the island is only displayed when it is complete. Its last batch is published as finished one
+                }
+        );
+        boolean stoppedBecauseOom = scanner.scanFile();
+        lineIndexOfTarget = linePositions.getSnapshot().findLineIndex(targetPositionInFileInBytes);
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Index island of " + linePositions.getNumberOfContainedLines() + " lines finished in less than " + timePassedInMs + "ms");
+        return stoppedBecauseOom;
+    }
+
+    public LinePositions.LinePositionsView getSnapshot() {
+        return linePositions.getSnapshot();
+    }
+
+    public long getStartPositionInBytes() {
+        return startPositionInBytes;
+    }
+
+    public int getLineIndexOfTarget() {
+        return lineIndexOfTarget;
+    }
+
+    // in UTF-8, the bytes following the first one of a character are 10xxxxxx. In the other supported charsets, every byte is a character
+    private long findBeginningOfCharacter(long positionInBytes) throws IOException {
+        if (!StandardCharsets.UTF_8.equals(charset)) {
+            return positionInBytes;
+        }
+        ByteBuffer bytes = fileAccess.read(positionInBytes, MAXIMAL_NUMBER_OF_CONTINUATION_BYTES, null);
+        int numberOfContinuationBytes = 0;
+        while (numberOfContinuationBytes < bytes.remaining() && (bytes.get(bytes.position() + numberOfContinuationBytes) & 0xC0) == 0x80) {
+            numberOfContinuationBytes++;
+        }
+        return positionInBytes + numberOfContinuationBytes;
+    }
+}
@@ -2,10 +2,44 @@ package com.sab_engineering.tools.sab_viewer.io;
 
 public class IoConstants {
     public static final int NUMBER_OF_BYTES_TO_BUFFER_DURING_READ = 1024 * 1024;
-    public static final int NUMBER_OF_BYTES_TO_DECODE_OPPORTUNISTICALLY = 64; // three times this must be much less than NUMBER_OF_BYTES_TO_READ_IN_SCANNER
+    public static final int NUMBER_OF_BYTES_TO_DECODE_OPPORTUNISTICALLY = 64; // four times this (e.g. UTF-32 has four bytes per character) must be much less than NUMBER_OF_BYTES_TO_READ_IN_SCANNER
 
     public static final int NUMBER_OF_CHARACTERS_PER_BYTE_POSITION = 32 * 1024;
 
     public static final int NUMBER_OF_LINES_PER_BATCH = 10240;
     public static final int NUMBER_OF_LINES_TO_PREVIEW_BATCH = NUMBER_OF_LINES_PER_BATCH * 4; // until we reach this number each new line is published to controller. After this only new full batches
+
+    public static final long DECODED_LINE_CACHE_SIZE_IN_BYTES = 32 * 1024 * 1024; // see DecodedLineCache
+
+    public static final long MATCH_INDEX_HEAP_BUDGET_IN_BYTES = 32 * 1024 * 1024; // see MatchIndex
+
+    public static final long MINIMAL_NUMBER_OF_BYTES_TO_PERSIST_INDEX = 16 * 1024 * 1024; // smaller files are scanned fast enough
+    public static final boolean INDEX_PERSISTENCE_ENABLED = !Boolean.getBoolean("sab_viewer.disableIndexPersistence"); // see LineIndexFile
+    // the least recently used indices are deleted beyond this. Can be set in MB with -Dsab_viewer.indexDirectorySizeInMB=...
+    public static final long MAXIMAL_SIZE_OF_INDEX_DIRECTORY_IN_BYTES = Long.getLong("sab_viewer.indexDirectorySizeInMB", 1024) * 1024 * 1024;
+
+    // finished line positions exceeding this are moved to a temporary file. Can be set in MB with -Dsab_viewer.lineIndexHeapBudgetInMB=...
+    public static final long LINE_INDEX_HEAP_BUDGET_IN_BYTES = Long.getLong("sab_viewer.lineIndexHeapBudgetInMB", Runtime.getRuntime().maxMemory() / (4 * 1024 * 1024)) * 1024 * 1024;
+
+    // keeps only the beginning of every n-th line, the others are scanned again when accessed (see SampledLinePositionBatch). For files with billions
+    // of short lines, whose index would not even fit into the budget above. Enabled with -Dsab_viewer.sparseLineIndex=true
+    public static final boolean SPARSE_LINE_INDEX_ENABLED = Boolean.getBoolean("sab_viewer.sparseLineIndex");
+    public static final int NUMBER_OF_LINES_PER_SAMPLE = 256; // has to divide NUMBER_OF_LINES_PER_BATCH
+    public static final long SAMPLED_LINE_CACHE_SIZE_IN_BYTES = 8 * 1024 * 1024; // see SampledLineCache
+
+    public static final int NUMBER_OF_BYTES_PER_MAPPED_WINDOW = 1024 * 1024 * 1024;
+    public static final boolean MEMORY_MAPPING_ENABLED = !Boolean.getBoolean("sab_viewer.disableMemoryMapping"); // e.g. for 32 bit JVMs, which lack the address space
+
+    public static final boolean DECOMPRESSION_ENABLED = !Boolean.getBoolean("sab_viewer.disableDecompression"); // e.g. to view the compressed bytes of a gzip file
+    public static final long NUMBER_OF_BYTES_BETWEEN_GZIP_ACCESS_POINTS = 4 * 1024 * 1024; // see GzipFileAccess. Each one keeps up to 32KB compressed
+
+    public static final long MINIMAL_NUMBER_OF_BYTES_PER_PARALLEL_SCAN_RANGE = 64 * 1024 * 1024; // smaller files are scanned by a single thread
+    public static final long MINIMAL_NUMBER_OF_BYTES_PER_PARALLEL_SEARCH_RANGE = 64 * 1024 * 1024; // less is searched by a single thread
+
+    public static final int NUMBER_OF_BYTES_PER_INDEX_ISLAND_BEFORE_TARGET = 256 * 1024; // see IndexIsland
+    public static final int NUMBER_OF_BYTES_PER_INDEX_ISLAND_AFTER_TARGET = 1024 * 1024;
+
+    public static final long MINIMAL_NUMBER_OF_BYTES_FOR_TAIL_SCAN = 32 * 1024 * 1024; // smaller files are scanned fast enough from the beginning
+    public static final long NUMBER_OF_BYTES_OF_FIRST_TAIL_BLOCK = 1024 * 1024; // see TailScanner. The following blocks double in size up to the maximum
+    public static final long MAXIMAL_NUMBER_OF_BYTES_PER_TAIL_BLOCK = 64 * 1024 * 1024;
 }
@@ -0,0 +1,406 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Persists the line positions of a file, so they don't need to be scanned again, when the same file is opened later.
+// The index is stored in the users home directory and is keyed by path, size, modification time and a hash of the head and tail of the file.
+// For a gzip file, the line positions refer to its decompressed content, and the access points of GzipFileAccess are stored as well.
+// The modification time of an index is updated whenever it is loaded. After saving, the least recently used indices beyond
+// MAXIMAL_SIZE_OF_INDEX_DIRECTORY_IN_BYTES are deleted, as well as those of files which do not exist any more. Nothing is loaded or saved when
+// persistence is disabled with -Dsab_viewer.disableIndexPersistence=true.
+public class LineIndexFile {
+    private static final long MAGIC_NUMBER = 0x5341425F49445821L; // "SAB_IDX!"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int NUMBER_OF_BYTES_TO_HASH = 64 * 1024; // at the beginning and at the end of the file
+    private static final long NUMBER_OF_BYTES_TO_MAP_AT_ONCE = 256 * 1024 * 1024;
+
+    private final String fileName;
+    private final Charset charset;
+    private final GzipFileAccess gzipFileAccess; // null if the file is not decompressed
+    private final Path indexPath;
+
+    private final long fileSizeInBytes;
+    private final long lastModifiedTime;
+
+    public LineIndexFile(String fileName, Charset charset, FileAccess fileAccess) throws IOException {
+        this.fileName = fileName;
+        this.charset = charset;
+        this.gzipFileAccess = fileAccess instanceof GzipFileAccess ? (GzipFileAccess) fileAccess : null;
+
+        Path filePath = Paths.get(fileName).toAbsolutePath();
+        this.indexPath = Paths.get(System.getProperty("user.home"), ".sab-viewer", "index", filePath.getFileName() + "-" + Integer.toHexString(filePath.toString().hashCode()) + ".idx");
+
+        this.fileSizeInBytes = Files.size(filePath);
+        this.lastModifiedTime = Files.getLastModifiedTime(filePath).toMillis();
+    }
+
+    // the size of the decompressed content of a gzip file is Long.MAX_VALUE, until it was decompressed once or its access points were loaded
+    public long getSizeOfContentInBytes() {
+        if (gzipFileAccess == null) {
+            return fileSizeInBytes;
+        }
+        return gzipFileAccess.isSizeKnown() ? gzipFileAccess.getSizeInBytes() : Long.MAX_VALUE;
+    }
+
+    // publishes the stored line positions and returns the position in bytes, from where the file still needs to be scanned.
+    // When 0 is returned, batches that may already have been published (when the index turned out to be damaged) have to be discarded.
+    // Unless encodedPositionsListener is null, all batches but the last two are published encoded, as part of the mapped index, which stays
+    // mapped as long as they are referenced. The last two are decoded, so the last finished batch is always published by positionsListener
+    public long load(Consumer<ByteBuffer> encodedPositionsListener, Consumer<LinePositionBatch> positionsListener) {
+        if (!IoConstants.INDEX_PERSISTENCE_ENABLED || (gzipFileAccess == null && fileSizeInBytes < IoConstants.MINIMAL_NUMBER_OF_BYTES_TO_PERSIST_INDEX) || !Files.isRegularFile(indexPath)) {
+            return 0;
+        }
+
+        long startTimestamp = System.currentTimeMillis();
+        LinePositionBatch lastLinePositionBatch = null;
+        long startPositionOfLastBatchInBytes;
+        boolean fileWasAppended;
+        try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long indexSizeInBytes = indexChannel.size();
+            MappedByteBuffer indexBuffer = mapIndex(indexChannel, 0, indexSizeInBytes, 0);
+            long positionOfIndexBufferInBytes = 0;
+
+            if (indexBuffer.getLong() != MAGIC_NUMBER || indexBuffer.getInt() != FORMAT_VERSION) {
+                return 0;
+            }
+            String storedPath = readString(indexBuffer);
+            String storedCharset = readString(indexBuffer);
+            long storedFileSizeInBytes = indexBuffer.getLong();
+            long storedLastModifiedTime = indexBuffer.getLong();
+            long storedHeadHash = indexBuffer.getLong();
+            long storedTailHash = indexBuffer.getLong();
+            boolean storedDecompressed = indexBuffer.get() != 0;
+
+            if (!storedPath.equals(Paths.get(fileName).toAbsolutePath().toString()) || !storedCharset.equals(charset.name()) || storedFileSizeInBytes > fileSizeInBytes) {
+                return 0;
+            }
+            if (storedDecompressed != (gzipFileAccess != null) || (gzipFileAccess != null && storedFileSizeInBytes != fileSizeInBytes)) {
+                return 0; // appending to a gzip file is rare, its access points would need to be checked
+            }
+            if (storedFileSizeInBytes == fileSizeInBytes && storedLastModifiedTime != lastModifiedTime) {
+                return 0; // the file was modified in place
+            }
+            if (storedHeadHash != hashFileContent(0, Math.min(NUMBER_OF_BYTES_TO_HASH, storedFileSizeInBytes)) || storedTailHash != hashTailOfFile(storedFileSizeInBytes)) {
+                return 0;
+            }
+            fileWasAppended = storedFileSizeInBytes != fileSizeInBytes;
+
+            if (gzipFileAccess != null) {
+                gzipFileAccess.readAccessPoints(indexBuffer);
+            }
+            int numberOfBatches = indexBuffer.getInt();
+            if (numberOfBatches == 0) {
+                return 0;
+            }
+
+            // decoded batches are published right away, so they don't need to be held here and can be moved out of the heap by the listener.
+            // The last one is held back, as it may need to be rescanned. Encoded batches are only checked to be full, as later ones depend on it
+            for (int batchIndex = 0; batchIndex < numberOfBatches; batchIndex++) {
+                // the length of a batch may be split by the end of the mapped part as well as the batch itself
+                if (indexBuffer.remaining() < Integer.BYTES) {
+                    positionOfIndexBufferInBytes += indexBuffer.position();
+                    indexBuffer = mapIndex(indexChannel, positionOfIndexBufferInBytes, indexSizeInBytes, Integer.BYTES);
+                }
+                int encodedBatchLengthInBytes = indexBuffer.getInt();
+                if (indexBuffer.remaining() < encodedBatchLengthInBytes) {
+                    positionOfIndexBufferInBytes += indexBuffer.position();
+                    indexBuffer = mapIndex(indexChannel, positionOfIndexBufferInBytes, indexSizeInBytes, encodedBatchLengthInBytes);
+                }
+                if (encodedPositionsListener != null && batchIndex + 2 < numberOfBatches) {
+                    ByteBuffer encodedBatch = indexBuffer.slice();
+                    encodedBatch.limit(encodedBatchLengthInBytes);
+                    long numberOfContainedLines = readVariableLength(encodedBatch.duplicate());
+                    if (numberOfContainedLines != IoConstants.NUMBER_OF_LINES_PER_BATCH) {
+                        throw new IllegalArgumentException("Invalid number of lines in batch: " + numberOfContainedLines);
+                    }
+                    indexBuffer.position(indexBuffer.position() + encodedBatchLengthInBytes);
+                    encodedPositionsListener.accept(encodedBatch);
+                    continue;
+                }
+                if (lastLinePositionBatch != null) {
+                    positionsListener.accept(lastLinePositionBatch);
+                }
+                lastLinePositionBatch = decodeBatch(indexBuffer);
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException exception) {
+            System.out.println("Unable to load index " + indexPath + ": " + exception);
+            return 0;
+        }
+
+        try {
+            Files.setLastModifiedTime(indexPath, FileTime.fromMillis(System.currentTimeMillis())); // the time of last access is not reliable
+        } catch (IOException ioException) {
+            System.out.println("Unable to update modification time of index " + indexPath + ": " + ioException);
+        }
+
+        // when the file was appended to, the last line may have been incomplete. Rescan the last batch, which keeps the batches aligned.
+        if (fileWasAppended) {
+            startPositionOfLastBatchInBytes = lastLinePositionBatch.getStartPositionInBytes(0);
+        } else {
+            startPositionOfLastBatchInBytes = getSizeOfContentInBytes();
+            positionsListener.accept(lastLinePositionBatch);
+        }
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Loading index finished in less than " + timePassedInMs + "ms");
+
+        return startPositionOfLastBatchInBytes;
+    }
+
+    // maps the index from the given position on, at least the given number of bytes, unless the index ends before
+    private static MappedByteBuffer mapIndex(FileChannel indexChannel, long positionInBytes, long indexSizeInBytes, int minimalNumberOfBytes) throws IOException {
+        return indexChannel.map(FileChannel.MapMode.READ_ONLY, positionInBytes, Math.min(indexSizeInBytes - positionInBytes, Math.max(minimalNumberOfBytes, NUMBER_OF_BYTES_TO_MAP_AT_ONCE)));
+    }
+
+    // the file must not have been changed since this instance was created. Otherwise nothing is stored
+    public void save(List<LinePositionBatch> linePositionBatches) throws IOException {
+        Path filePath = Paths.get(fileName).toAbsolutePath();
+        long sizeOfContentInBytes = getSizeOfContentInBytes();
+        if (!IoConstants.INDEX_PERSISTENCE_ENABLED || sizeOfContentInBytes < IoConstants.MINIMAL_NUMBER_OF_BYTES_TO_PERSIST_INDEX || sizeOfContentInBytes == Long.MAX_VALUE || linePositionBatches.isEmpty()) {
+            return;
+        }
+        if (Files.size(filePath) != fileSizeInBytes || Files.getLastModifiedTime(filePath).toMillis() != lastModifiedTime) {
+            return;
+        }
+
+        long startTimestamp = System.currentTimeMillis();
+        Files.createDirectories(indexPath.getParent());
+        Path temporaryIndexPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream indexStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryIndexPath), IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ))) {
+            indexStream.writeLong(MAGIC_NUMBER);
+            indexStream.writeInt(FORMAT_VERSION);
+            writeString(indexStream, filePath.toString());
+            writeString(indexStream, charset.name());
+            indexStream.writeLong(fileSizeInBytes);
+            indexStream.writeLong(lastModifiedTime);
+            indexStream.writeLong(hashFileContent(0, Math.min(NUMBER_OF_BYTES_TO_HASH, fileSizeInBytes)));
+            indexStream.writeLong(hashTailOfFile(fileSizeInBytes));
+            indexStream.writeBoolean(gzipFileAccess != null);
+            if (gzipFileAccess != null) {
+                gzipFileAccess.writeAccessPoints(indexStream);
+            }
+            indexStream.writeInt(linePositionBatches.size());
+
+            ByteArrayOutputStream encodedBatch = new ByteArrayOutputStream();
+            for (LinePositionBatch linePositionBatch : linePositionBatches) {
+                encodedBatch.reset();
+                encodeBatch(linePositionBatch, encodedBatch);
+                indexStream.writeInt(encodedBatch.size());
+                encodedBatch.writeTo(indexStream);
+            }
+        }
+        try {
+            Files.move(temporaryIndexPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException atomicMoveNotSupportedException) {
+            Files.move(temporaryIndexPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        deleteIndicesNotWorthKeeping();
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Saving index finished in less than " + timePassedInMs + "ms");
+    }
+
+    // Indices of files which do not exist any more, or of another format version, would never be loaded again. Of the remaining ones, the most
+    // recently used are kept as long as their total size is within the limit. The index just saved is always kept
+    private void deleteIndicesNotWorthKeeping() throws IOException {
+        List<Path> indexPaths = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(indexPath.getParent(), "*.idx")) {
+            for (Path otherIndexPath : directoryStream) {
+                indexPaths.add(otherIndexPath);
+            }
+        }
+
+        Map<Path, Long> lastModifiedTimes = new HashMap<>();
+        List<Path> indexPathsWorthKeeping = new ArrayList<>();
+        for (Path otherIndexPath : indexPaths) {
+            if (otherIndexPath.equals(indexPath)) {
+                continue;
+            }
+            try {
+                String storedPath = readStoredPath(otherIndexPath);
+                if (storedPath == null || !Files.exists(Paths.get(storedPath))) {
+                    Files.deleteIfExists(otherIndexPath);
+                } else {
+                    lastModifiedTimes.put(otherIndexPath, Files.getLastModifiedTime(otherIndexPath).toMillis());
+                    indexPathsWorthKeeping.add(otherIndexPath);
+                }
+            } catch (IOException | BufferUnderflowException | InvalidPathException exception) {
+                System.out.println("Unable to check index " + otherIndexPath + ": " + exception);
+            }
+        }
+
+        indexPathsWorthKeeping.sort(Comparator.comparing(lastModifiedTimes::get, Comparator.reverseOrder()));
+        long sizeOfKeptIndicesInBytes = Files.size(indexPath);
+        for (Path otherIndexPath : indexPathsWorthKeeping) {
+            try {
+                sizeOfKeptIndicesInBytes += Files.size(otherIndexPath);
+                if (sizeOfKeptIndicesInBytes > IoConstants.MAXIMAL_SIZE_OF_INDEX_DIRECTORY_IN_BYTES) {
+                    Files.deleteIfExists(otherIndexPath);
+                }
+            } catch (IOException ioException) {
+                System.out.println("Unable to delete index " + otherIndexPath + ": " + ioException);
+            }
+        }
+    }
+
+    // returns null if the file is not an index of the current format version
+    private static String readStoredPath(Path indexPath) throws IOException {
+        try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES);
+            while (header.hasRemaining() && indexChannel.read(header) >= 0) {
+                // read until buffer is full
+            }
+            header.flip();
+            if (header.remaining() < header.capacity() || header.getLong() != MAGIC_NUMBER || header.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int lengthOfStoredPathInBytes = header.getInt();
+            if (lengthOfStoredPathInBytes < 0 || lengthOfStoredPathInBytes > indexChannel.size()) {
+                return null;
+            }
+            ByteBuffer encodedStoredPath = ByteBuffer.allocate(lengthOfStoredPathInBytes);
+            while (encodedStoredPath.hasRemaining() && indexChannel.read(encodedStoredPath) >= 0) {
+                // read until buffer is full
+            }
+            return encodedStoredPath.hasRemaining() ? null : new String(encodedStoredPath.array(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Every line is stored as variable length numbers: distance from end of previous line, length in bytes, difference of length in bytes and characters,
+    // number of character positions and distances between the character positions. For short ASCII lines this takes about 5 bytes.
+    static void encodeBatch(LinePositionBatch linePositionBatch, ByteArrayOutputStream encodedBatch) {
+        int numberOfContainedLines = linePositionBatch.getNumberOfContainedLines();
+        writeVariableLength(encodedBatch, numberOfContainedLines);
+        long endOfPreviousLineInBytes = 0;
+        for (int lineIndex = 0; lineIndex < numberOfContainedLines; lineIndex++) {
+            long startOfLineInBytes = linePositionBatch.getStartPositionInBytes(lineIndex);
+            long lengthInBytes = linePositionBatch.getLengthInBytes(lineIndex);
+            long lengthInCharacters = linePositionBatch.getLengthInCharacters(lineIndex);
+            int numberOfCharacterPositions = linePositionBatch.getNumberOfCharacterPositions(lineIndex);
+
+            writeVariableLength(encodedBatch, startOfLineInBytes - endOfPreviousLineInBytes);
+            writeVariableLength(encodedBatch, lengthInBytes);
+            writeVariableLength(encodedBatch, zigZag(lengthInBytes - lengthInCharacters));
+            writeVariableLength(encodedBatch, numberOfCharacterPositions);
+            for (int i = 1; i < numberOfCharacterPositions; i++) {
+                writeVariableLength(encodedBatch, linePositionBatch.getCharacterPositionInBytes(lineIndex, i) - linePositionBatch.getCharacterPositionInBytes(lineIndex, i - 1));
+            }
+            endOfPreviousLineInBytes = startOfLineInBytes + lengthInBytes;
+        }
+    }
+
+    static LinePositionBatch decodeBatch(ByteBuffer encodedBatch) {
+        int numberOfContainedLines = (int) readVariableLength(encodedBatch);
+        if (numberOfContainedLines <= 0 || numberOfContainedLines > IoConstants.NUMBER_OF_LINES_PER_BATCH) {
+            throw new IllegalArgumentException("Invalid number of lines in batch: " + numberOfContainedLines);
+        }
+        MutableLinePositionBatch linePositionBatch = new MutableLinePositionBatch();
+        long endOfPreviousLineInBytes = 0;
+        for (int lineIndex = 0; lineIndex < numberOfContainedLines; lineIndex++) {
+            long startOfLineInBytes = endOfPreviousLineInBytes + readVariableLength(encodedBatch);
+            long lengthInBytes = readVariableLength(encodedBatch);
+            long lengthInCharacters = lengthInBytes - unZigZag(readVariableLength(encodedBatch));
+            int numberOfCharacterPositions = (int) readVariableLength(encodedBatch);
+            if (numberOfCharacterPositions <= 0) {
+                throw new IllegalArgumentException("Invalid number of character positions: " + numberOfCharacterPositions);
+            }
+            long[] characterPositionsOfLineInBytes = new long[numberOfCharacterPositions];
+            characterPositionsOfLineInBytes[0] = startOfLineInBytes;
+            for (int i = 1; i < numberOfCharacterPositions; i++) {
+                characterPositionsOfLineInBytes[i] = characterPositionsOfLineInBytes[i - 1] + readVariableLength(encodedBatch);
+            }
+            linePositionBatch.setCharacterPositionsInBytes(lineIndex, characterPositionsOfLineInBytes);
+            linePositionBatch.setLengthInBytes(lineIndex, lengthInBytes);
+            linePositionBatch.setLengthInCharacters(lineIndex, lengthInCharacters);
+            endOfPreviousLineInBytes = startOfLineInBytes + lengthInBytes;
+        }
+        linePositionBatch.setNumberOfContainedLines(numberOfContainedLines);
+        return new PackedLinePositionBatch(linePositionBatch);
+    }
+
+    private long hashTailOfFile(long assumedFileSizeInBytes) throws IOException {
+        long startOfTailInBytes = Math.max(0, assumedFileSizeInBytes - NUMBER_OF_BYTES_TO_HASH);
+        return hashFileContent(startOfTailInBytes, assumedFileSizeInBytes - startOfTailInBytes);
+    }
+
+    private long hashFileContent(long positionInBytes, long numberOfBytes) throws IOException {
+        CRC32 crc32 = new CRC32();
+        try (SeekableByteChannel seekableByteChannel = Files.newByteChannel(Paths.get(fileName), StandardOpenOption.READ)) {
+            seekableByteChannel.position(positionInBytes);
+            ByteBuffer contentBuffer = ByteBuffer.allocate((int) numberOfBytes);
+            while (contentBuffer.hasRemaining() && seekableByteChannel.read(contentBuffer) > 0) {
+                // read until buffer is full
+            }
+            crc32.update(contentBuffer.array(), 0, contentBuffer.position());
+        }
+        return (crc32.getValue() << 32) | numberOfBytes;
+    }
+
+    private static void writeString(DataOutputStream outputStream, String value) throws IOException {
+        byte[] encodedValue = value.getBytes(StandardCharsets.UTF_8);
+        outputStream.writeInt(encodedValue.length);
+        outputStream.write(encodedValue);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] encodedValue = new byte[buffer.getInt()];
+        buffer.get(encodedValue);
+        return new String(encodedValue, StandardCharsets.UTF_8);
+    }
+
+    static void writeVariableLength(ByteArrayOutputStream outputStream, long value) {
+        while ((value & ~0x7FL) != 0) {
+            outputStream.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        outputStream.write((int) value);
+    }
+
+    static long readVariableLength(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte currentByte;
+        do {
+            currentByte = buffer.get();
+            value |= (long) (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while ((currentByte & 0x80) != 0);
+        return value;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -1,37 +1,36 @@
 package com.sab_engineering.tools.sab_viewer.io;
 
-public class LinePositionBatch {
-    protected final long[][] characterPositionsInBytes; // position in bytes of every n characters; for n see IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION
-    protected final long[] lengthInBytes;
-    protected final long[] lengthInCharacters;
+public abstract class LinePositionBatch {
     protected int numberOfContainedLines; // when "full" this should be equal to IoConstants.NUMBER_OF_LINES_PER_BATCH
 
-    protected LinePositionBatch(long[][] characterPositionsInBytes, long[] lengthInBytes, long[] lengthInCharacters, int numberOfContainedLines) {
-        this.characterPositionsInBytes = characterPositionsInBytes;
-        this.lengthInBytes = lengthInBytes;
-        this.lengthInCharacters = lengthInCharacters;
+    protected LinePositionBatch(int numberOfContainedLines) {
         this.numberOfContainedLines = numberOfContainedLines;
     }
 
-    public LinePositionBatch(LinePositionBatch other) {
-        this.characterPositionsInBytes = other.characterPositionsInBytes;
-        this.lengthInBytes = other.lengthInBytes;
-        this.lengthInCharacters = other.lengthInCharacters;
-        this.numberOfContainedLines = other.numberOfContainedLines;
-    }
-
+    // position in bytes of every n characters; for n see IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION. Element 0 is the beginning of the line
     public long[] getCharacterPositionsInBytes(int lineIndex) {
-        return characterPositionsInBytes[lineIndex];
+        long[] characterPositionsInBytes = new long[getNumberOfCharacterPositions(lineIndex)];
+        for (int i = 0; i < characterPositionsInBytes.length; i++) {
+            characterPositionsInBytes[i] = getCharacterPositionInBytes(lineIndex, i);
+        }
+        return characterPositionsInBytes;
     }
 
-    public long getLengthInBytes(int lineIndex) {
-        return lengthInBytes[lineIndex];
-    }
+    public abstract int getNumberOfCharacterPositions(int lineIndex);
+
+    public abstract long getCharacterPositionInBytes(int lineIndex, int characterPositionIndex);
 
-    public long getLengthInCharacters(int lineIndex) {
-        return lengthInCharacters[lineIndex];
+    public long getStartPositionInBytes(int lineIndex) {
+        return getCharacterPositionInBytes(lineIndex, 0);
     }
 
+    public abstract long getLengthInBytes(int lineIndex);
+
+    public abstract long getLengthInCharacters(int lineIndex);
+
+    // rough number of bytes this batch occupies on the heap
+    public abstract long getEstimatedSizeInBytes();
+
     public int getNumberOfContainedLines() {
         return numberOfContainedLines;
     }
@@ -0,0 +1,174 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Holds finished batches in memory as long as they fit into the heap budget. When the budget is exceeded, the least recently used batches
+// are written to a temporary file (see LineIndexFile.encodeBatch for the format) and dropped from memory. They are read back when accessed again.
+// This way the size of the file to scan is not limited by the size of the heap. Batches of a loaded index are not decoded before they are accessed.
+// Their encoded form in the mapped index serves like the temporary file, so they are never written to it.
+public class LinePositionBatchStore implements Closeable {
+    private final long heapBudgetInBytes;
+
+    private final LinkedHashMap<Integer, LinePositionBatch> batchesInMemory; // in access order, so the first one is the least recently used one
+    private long batchesInMemorySizeInBytes;
+
+    private int numberOfBatches;
+    private long[] spilledBatchPositionInBytes; // -1 when the batch was not written to spillChannel yet
+    private int[] spilledBatchLengthInBytes;
+    private ByteBuffer[] encodedBatchesInIndex; // null unless the batch was loaded from an index
+
+    private FileChannel spillChannel;
+    private long spillChannelSizeInBytes;
+    private final ByteArrayOutputStream encodedBatch;
+
+    public LinePositionBatchStore(long heapBudgetInBytes) {
+        this.heapBudgetInBytes = heapBudgetInBytes;
+        this.batchesInMemory = new LinkedHashMap<>(16, 0.75f, true);
+        this.batchesInMemorySizeInBytes = 0;
+        this.numberOfBatches = 0;
+        this.spilledBatchPositionInBytes = new long[1024];
+        this.spilledBatchLengthInBytes = new int[1024];
+        this.encodedBatchesInIndex = new ByteBuffer[1024];
+        this.spillChannel = null;
+        this.spillChannelSizeInBytes = 0;
+        this.encodedBatch = new ByteArrayOutputStream();
+    }
+
+    public synchronized void add(LinePositionBatch linePositionBatch) {
+        addBatchIndex(null);
+        keepInMemory(numberOfBatches - 1, linePositionBatch);
+    }
+
+    // the encoded batch (see LineIndexFile.encodeBatch) between position and limit of the given buffer, which must not change any more
+    public synchronized void addEncoded(ByteBuffer encodedBatch) {
+        addBatchIndex(encodedBatch);
+    }
+
+    public synchronized LinePositionBatch get(int batchIndex) {
+        if (batchIndex < 0 || batchIndex >= numberOfBatches) {
+            throw new IndexOutOfBoundsException("Batch index " + batchIndex + " is not between 0 and " + numberOfBatches);
+        }
+        LinePositionBatch linePositionBatch = batchesInMemory.get(batchIndex);
+        if (linePositionBatch == null) {
+            if (encodedBatchesInIndex[batchIndex] != null) {
+                linePositionBatch = LineIndexFile.decodeBatch(encodedBatchesInIndex[batchIndex].duplicate());
+            } else {
+                try {
+                    linePositionBatch = readSpilledBatch(batchIndex);
+                } catch (IOException ioException) {
+                    throw new UncheckedIOException("Unable to read line positions from temporary file", ioException);
+                }
+            }
+            keepInMemory(batchIndex, linePositionBatch);
+        }
+        return linePositionBatch;
+    }
+
+    public synchronized LinePositionBatch removeLast() {
+        LinePositionBatch lastLinePositionBatch = get(numberOfBatches - 1);
+        numberOfBatches--;
+        batchesInMemory.remove(numberOfBatches);
+        batchesInMemorySizeInBytes -= lastLinePositionBatch.getEstimatedSizeInBytes();
+        encodedBatchesInIndex[numberOfBatches] = null;
+        if (spilledBatchPositionInBytes[numberOfBatches] >= 0 && spilledBatchPositionInBytes[numberOfBatches] + spilledBatchLengthInBytes[numberOfBatches] == spillChannelSizeInBytes) {
+            spillChannelSizeInBytes = spilledBatchPositionInBytes[numberOfBatches];
+        }
+        return lastLinePositionBatch;
+    }
+
+    public synchronized int size() {
+        return numberOfBatches;
+    }
+
+    public synchronized boolean isEmpty() {
+        return numberOfBatches == 0;
+    }
+
+    public synchronized void clear() {
+        batchesInMemory.clear();
+        batchesInMemorySizeInBytes = 0;
+        Arrays.fill(encodedBatchesInIndex, 0, numberOfBatches, null);
+        numberOfBatches = 0;
+        spillChannelSizeInBytes = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        clear();
+        if (spillChannel != null) {
+            spillChannel.close();
+            spillChannel = null;
+        }
+    }
+
+    private void addBatchIndex(ByteBuffer encodedBatchInIndex) {
+        if (numberOfBatches == spilledBatchPositionInBytes.length) {
+            spilledBatchPositionInBytes = Arrays.copyOf(spilledBatchPositionInBytes, numberOfBatches * 2);
+            spilledBatchLengthInBytes = Arrays.copyOf(spilledBatchLengthInBytes, numberOfBatches * 2);
+            encodedBatchesInIndex = Arrays.copyOf(encodedBatchesInIndex, numberOfBatches * 2);
+        }
+        spilledBatchPositionInBytes[numberOfBatches] = -1;
+        encodedBatchesInIndex[numberOfBatches] = encodedBatchInIndex;
+        numberOfBatches++;
+    }
+
+    private void keepInMemory(int batchIndex, LinePositionBatch linePositionBatch) {
+        batchesInMemory.put(batchIndex, linePositionBatch);
+        batchesInMemorySizeInBytes += linePositionBatch.getEstimatedSizeInBytes();
+
+        Iterator<Map.Entry<Integer, LinePositionBatch>> leastRecentlyUsedBatches = batchesInMemory.entrySet().iterator();
+        while (batchesInMemorySizeInBytes > heapBudgetInBytes && batchesInMemory.size() > 1) {
+            Map.Entry<Integer, LinePositionBatch> leastRecentlyUsedBatch = leastRecentlyUsedBatches.next();
+            if (spilledBatchPositionInBytes[leastRecentlyUsedBatch.getKey()] < 0 && encodedBatchesInIndex[leastRecentlyUsedBatch.getKey()] == null) {
+                try {
+                    spill(leastRecentlyUsedBatch.getKey(), leastRecentlyUsedBatch.getValue());
+                } catch (IOException ioException) {
+                    throw new UncheckedIOException("Unable to write line positions to temporary file", ioException);
+                }
+            }
+            batchesInMemorySizeInBytes -= leastRecentlyUsedBatch.getValue().getEstimatedSizeInBytes();
+            leastRecentlyUsedBatches.remove();
+        }
+    }
+
+    private void spill(int batchIndex, LinePositionBatch linePositionBatch) throws IOException {
+        if (spillChannel == null) {
+            Path spillPath = Files.createTempFile("sab-viewer-", ".positions");
+            spillChannel = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        encodedBatch.reset();
+        LineIndexFile.encodeBatch(linePositionBatch, encodedBatch);
+        ByteBuffer encodedBatchBuffer = ByteBuffer.wrap(encodedBatch.toByteArray());
+        long positionInBytes = spillChannelSizeInBytes;
+        while (encodedBatchBuffer.hasRemaining()) {
+            spillChannel.write(encodedBatchBuffer, positionInBytes + encodedBatchBuffer.position());
+        }
+        spilledBatchPositionInBytes[batchIndex] = positionInBytes;
+        spilledBatchLengthInBytes[batchIndex] = encodedBatchBuffer.limit();
+        spillChannelSizeInBytes += encodedBatchBuffer.limit();
+    }
+
+    private LinePositionBatch readSpilledBatch(int batchIndex) throws IOException {
+        ByteBuffer encodedBatchBuffer = ByteBuffer.allocate(spilledBatchLengthInBytes[batchIndex]);
+        long positionInBytes = spilledBatchPositionInBytes[batchIndex];
+        while (encodedBatchBuffer.hasRemaining()) {
+            if (spillChannel.read(encodedBatchBuffer, positionInBytes + encodedBatchBuffer.position()) < 0) {
+                throw new IOException("Temporary file is shorter than expected");
+            }
+        }
+        encodedBatchBuffer.flip();
+        return LineIndexFile.decodeBatch(encodedBatchBuffer);
+    }
+}
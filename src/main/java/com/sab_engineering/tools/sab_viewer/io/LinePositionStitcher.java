@@ -0,0 +1,49 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.util.function.Consumer;
+
+// Copies lines scanned separately into batches of NUMBER_OF_LINES_PER_BATCH lines, so they are aligned like those of a single scan. Full batches are
+// published as finished ones, the last one when publishUnfinishedBatch is called
+class LinePositionStitcher {
+    private final Consumer<LinePositionBatch> positionsListener;
+
+    private MutableLinePositionBatch mutableLinePositionBatch;
+
+    LinePositionStitcher(Consumer<LinePositionBatch> positionsListener) {
+        this.positionsListener = positionsListener;
+        this.mutableLinePositionBatch = null;
+    }
+
+    void addLines(LinePositionBatch linePositionBatch) {
+        for (int lineIndexInBatch = 0; lineIndexInBatch < linePositionBatch.getNumberOfContainedLines(); lineIndexInBatch++) {
+            addLine(linePositionBatch, lineIndexInBatch);
+        }
+    }
+
+    void addLine(LinePositionBatch linePositionBatch, int lineIndexInBatch) {
+        addLine(linePositionBatch.getCharacterPositionsInBytes(lineIndexInBatch), linePositionBatch.getLengthInBytes(lineIndexInBatch), linePositionBatch.getLengthInCharacters(lineIndexInBatch));
+    }
+
+    void addLine(long[] characterPositionsInBytes, long lengthInBytes, long lengthInCharacters) {
+        if (mutableLinePositionBatch == null) {
+            mutableLinePositionBatch = new MutableLinePositionBatch();
+        }
+        int lineIndex = mutableLinePositionBatch.getNumberOfContainedLines();
+
+        mutableLinePositionBatch.setCharacterPositionsInBytes(lineIndex, characterPositionsInBytes);
+        mutableLinePositionBatch.setLengthInBytes(lineIndex, lengthInBytes);
+        mutableLinePositionBatch.setLengthInCharacters(lineIndex, lengthInCharacters);
+        mutableLinePositionBatch.setNumberOfContainedLines(lineIndex + 1);
+
+        if (mutableLinePositionBatch.getNumberOfContainedLines() == IoConstants.NUMBER_OF_LINES_PER_BATCH) {
+            publishUnfinishedBatch();
+        }
+    }
+
+    void publishUnfinishedBatch() {
+        if (mutableLinePositionBatch != null && mutableLinePositionBatch.getNumberOfContainedLines() > 0) {
+            positionsListener.accept(new PackedLinePositionBatch(mutableLinePositionBatch));
+        }
+        mutableLinePositionBatch = null;
+    }
+}
@@ -1,138 +1,311 @@
 package com.sab_engineering.tools.sab_viewer.io;
 
-import java.util.ArrayList;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.List;
 
-public class LinePositions {
-    private final List<LinePositionBatch> linePositionBatches;
-    private MutableLinePositionBatch lastLinePositionBatch;
-    private MutableLinePositionBatch lastLinePositionPreviewBatchReference;
+// Positions of all lines scanned so far. It is only changed by the scanner thread. After each change, an immutable snapshot is published, which other
+// threads get with getSnapshot() without any locking. A snapshot stays consistent while the scanner goes on, as finished batches are only ever added
+// (removing and clearing only happen when scanning starts over) and the last, unfinished batch is frozen when the snapshot is taken.
+public class LinePositions implements Closeable {
+    private final long heapBudgetInBytes;
+    private LinePositionBatchStore linePositionBatches;
+    private LinePositionBatch lastFinishedLinePositionBatch;
+    private LinePositionBatch lastLinePositionBatch;
+
+    private volatile LinePositionsView snapshot;
 
     public LinePositions() {
-        linePositionBatches = new ArrayList<>(1024);
+        this(IoConstants.LINE_INDEX_HEAP_BUDGET_IN_BYTES);
+    }
+
+    public LinePositions(long heapBudgetInBytes) {
+        this.heapBudgetInBytes = heapBudgetInBytes;
+        linePositionBatches = new LinePositionBatchStore(heapBudgetInBytes);
+        lastFinishedLinePositionBatch = null;
         lastLinePositionBatch = null;
-        lastLinePositionPreviewBatchReference = null;
+        publishSnapshot();
     }
 
     public void addFinishedBatch(LinePositionBatch positionBatch) {
         linePositionBatches.add(positionBatch);
+        lastFinishedLinePositionBatch = positionBatch;
         lastLinePositionBatch = null;
-        lastLinePositionPreviewBatchReference = null;
+        publishSnapshot();
+    }
+
+    // for the batches of a loaded index, which are only decoded when they are accessed (see LinePositionBatchStore). They contain NUMBER_OF_LINES_PER_BATCH
+    // lines each and become visible with the next batch added by addFinishedBatch, which has to follow
+    public void addFinishedEncodedBatch(ByteBuffer encodedBatch) {
+        linePositionBatches.addEncoded(encodedBatch);
     }
 
     public void updateLastBatchPreview(MutableLinePositionBatch positionBatchPreview) {
-        if (positionBatchPreview != this.lastLinePositionPreviewBatchReference) {
-            lastLinePositionPreviewBatchReference = positionBatchPreview;
-            lastLinePositionBatch = new MutableLinePositionBatch(positionBatchPreview);
-        }
-        int numberOfLinesInPreview = positionBatchPreview.getNumberOfContainedLines();
-        int startToCopy = Math.min(lastLinePositionBatch.getNumberOfContainedLines(), numberOfLinesInPreview - 1); // always update/copy last line, even if it is already there
-        for (int i = startToCopy; i < numberOfLinesInPreview; i++) {
-            lastLinePositionBatch.setCharacterPositionsInBytes(i, positionBatchPreview.getCharacterPositionsInBytes(i));
-            lastLinePositionBatch.setLengthInBytes(i, positionBatchPreview.getLengthInBytes(i));
-            lastLinePositionBatch.setLengthInCharacters(i, positionBatchPreview.getLengthInCharacters(i));
-        }
-        lastLinePositionBatch.setNumberOfContainedLines(numberOfLinesInPreview);
+        lastLinePositionBatch = new FrozenLinePositionBatch(positionBatchPreview);
+        publishSnapshot();
     }
 
-    public boolean isEmpty() {
-        return linePositionBatches.isEmpty() && (lastLinePositionBatch == null || lastLinePositionBatch.getNumberOfContainedLines() == 0);
+    // for an unfinished batch whose lines do not change any more, unlike those of the preview of the scanner
+    public void updateLastBatch(LinePositionBatch unfinishedPositionBatch) {
+        lastLinePositionBatch = unfinishedPositionBatch;
+        publishSnapshot();
     }
 
-    public long[] getCharacterPositionsInBytes(int lineIndex) {
-        int index = lineIndex / IoConstants.NUMBER_OF_LINES_PER_BATCH;
+    public int getNumberOfFinishedBatches() {
+        return linePositionBatches.size();
+    }
 
-        LinePositionBatch linePositionBatch;
-        if (index == linePositionBatches.size()) {
-            linePositionBatch = lastLinePositionBatch;
-        } else {
-            linePositionBatch = linePositionBatches.get(index);
-        }
-        return linePositionBatch.getCharacterPositionsInBytes(lineIndex % IoConstants.NUMBER_OF_LINES_PER_BATCH);
+    // used to resume scanning at the start of the last batch, which keeps the batches aligned to NUMBER_OF_LINES_PER_BATCH
+    public LinePositionBatch removeLastFinishedBatch() {
+        LinePositionBatch removedLinePositionBatch = linePositionBatches.removeLast();
+        lastFinishedLinePositionBatch = linePositionBatches.isEmpty() ? null : linePositionBatches.get(linePositionBatches.size() - 1);
+        lastLinePositionBatch = null;
+        publishSnapshot();
+        return removedLinePositionBatch;
     }
 
-    public long getLengthInBytes(int lineIndex) {
-        int index = lineIndex / IoConstants.NUMBER_OF_LINES_PER_BATCH;
+    // older snapshots keep the previous batches, which are garbage collected with them. The temporary file of the previous batches is deleted at the latest
+    // when the application ends
+    public void clear() {
+        linePositionBatches = new LinePositionBatchStore(heapBudgetInBytes);
+        lastFinishedLinePositionBatch = null;
+        lastLinePositionBatch = null;
+        publishSnapshot();
+    }
 
-        LinePositionBatch linePositionBatch;
-        if (index == linePositionBatches.size()) {
-            linePositionBatch = lastLinePositionBatch;
-        } else {
-            linePositionBatch = linePositionBatches.get(index);
-        }
-        return linePositionBatch.getLengthInBytes(lineIndex % IoConstants.NUMBER_OF_LINES_PER_BATCH);
+    // batches are loaded on demand, when they were moved out of memory
+    public List<LinePositionBatch> getFinishedBatches() {
+        final LinePositionBatchStore finishedLinePositionBatches = linePositionBatches;
+        int numberOfFinishedBatches = finishedLinePositionBatches.size();
+        return new AbstractList<LinePositionBatch>() {
+            @Override
+            public LinePositionBatch get(int index) {
+                return finishedLinePositionBatches.get(index);
+            }
+
+            @Override
+            public int size() {
+                return numberOfFinishedBatches;
+            }
+        };
     }
 
-    public long getLengthInCharacters(int lineIndex) {
-        int index = lineIndex / IoConstants.NUMBER_OF_LINES_PER_BATCH;
+    @Override
+    public void close() throws IOException {
+        linePositionBatches.close();
+    }
 
-        LinePositionBatch linePositionBatch;
-        if (index == linePositionBatches.size()) {
-            linePositionBatch = lastLinePositionBatch;
-        } else {
-            linePositionBatch = linePositionBatches.get(index);
-        }
-        return linePositionBatch.getLengthInCharacters(lineIndex % IoConstants.NUMBER_OF_LINES_PER_BATCH);
+    public LinePositionsView getSnapshot() {
+        return snapshot;
     }
 
-    public long getBytePositionOfEndOfLastLine() {
-        LinePositionBatch linePositionBatch;
-        if (lastLinePositionBatch != null) {
-            linePositionBatch = lastLinePositionBatch;
-        } else if (linePositionBatches.size() > 0){
-            linePositionBatch = linePositionBatches.get(linePositionBatches.size() - 1);
-        } else {
-            return 0;
-        }
-        int lastLineIndexInBatch = linePositionBatch.getNumberOfContainedLines() -1;
-        return linePositionBatch.getCharacterPositionsInBytes(lastLineIndexInBatch)[0] + linePositionBatch.getLengthInBytes(lastLineIndexInBatch);
+    public boolean isEmpty() {
+        return snapshot.isEmpty();
     }
 
     public int getNumberOfContainedLines() {
-        if (lastLinePositionBatch != null) {
-            int linesInFinishedBatches = linePositionBatches.size() * IoConstants.NUMBER_OF_LINES_PER_BATCH;
-            return linesInFinishedBatches + lastLinePositionBatch.getNumberOfContainedLines();
-        } else if (linePositionBatches.size() > 0) {
-            int linesInFinishedBatches = (linePositionBatches.size() - 1) * IoConstants.NUMBER_OF_LINES_PER_BATCH;
-            return linesInFinishedBatches + linePositionBatches.get(linePositionBatches.size() - 1).numberOfContainedLines;
-        } else {
-            return 0;
-        }
+        return snapshot.getNumberOfContainedLines();
     }
 
-    public LinePositionsView asView() {
-        return subPositions(0, getNumberOfContainedLines());
+    public long getBytePositionOfEndOfLastLine() {
+        return snapshot.getBytePositionOfEndOfLastLine();
     }
 
-    public LinePositionsView subPositions(int fromLineIndex, int toLineIndexExclusive) {
-        return new LinePositionsView(fromLineIndex, toLineIndexExclusive, this);
+    private void publishSnapshot() {
+        int numberOfFinishedBatches = linePositionBatches.size();
+        int numberOfContainedLines = numberOfFinishedBatches * IoConstants.NUMBER_OF_LINES_PER_BATCH;
+        if (lastLinePositionBatch != null) {
+            numberOfContainedLines += lastLinePositionBatch.getNumberOfContainedLines();
+        } else if (lastFinishedLinePositionBatch != null) {
+            numberOfContainedLines += lastFinishedLinePositionBatch.getNumberOfContainedLines() - IoConstants.NUMBER_OF_LINES_PER_BATCH;
+        }
+        snapshot = new LinePositionsView(linePositionBatches, numberOfFinishedBatches, lastFinishedLinePositionBatch, lastLinePositionBatch, 0, numberOfContainedLines);
     }
 
+    // An immutable snapshot of all lines, or of some of them. Only finished batches and the last unfinished one are used, which belong to the snapshot
     public static class LinePositionsView {
+        private final LinePositionBatchStore linePositionBatches;
+        private final int numberOfFinishedBatches;
+        private final LinePositionBatch lastFinishedLinePositionBatch; // may already be removed from linePositionBatches, when scanning started over
+        private final LinePositionBatch lastLinePositionBatch;
+
+        private final FilteredLines filteredLines; // null, unless line indices are those of the filtered lines
+        private final int lastLineIndexOfReversedLines; // -1, unless the batches are in reverse order. Then line i is line lastLineIndexOfReversedLines - i of the batches
         private final int fromLineIndex;
         private final int toLineIndexExclusive;
 
-        private final LinePositions positions;
+        private LinePositionsView(LinePositionBatchStore linePositionBatches, int numberOfFinishedBatches, LinePositionBatch lastFinishedLinePositionBatch, LinePositionBatch lastLinePositionBatch, int fromLineIndex, int toLineIndexExclusive) {
+            this(linePositionBatches, numberOfFinishedBatches, lastFinishedLinePositionBatch, lastLinePositionBatch, null, -1, fromLineIndex, toLineIndexExclusive);
+        }
 
-        public LinePositionsView(int fromLineIndex, int toLineIndexExclusive, LinePositions positions) {
+        private LinePositionsView(LinePositionBatchStore linePositionBatches, int numberOfFinishedBatches, LinePositionBatch lastFinishedLinePositionBatch, LinePositionBatch lastLinePositionBatch, FilteredLines filteredLines, int lastLineIndexOfReversedLines, int fromLineIndex, int toLineIndexExclusive) {
+            this.linePositionBatches = linePositionBatches;
+            this.numberOfFinishedBatches = numberOfFinishedBatches;
+            this.lastFinishedLinePositionBatch = lastFinishedLinePositionBatch;
+            this.lastLinePositionBatch = lastLinePositionBatch;
+            this.filteredLines = filteredLines;
+            this.lastLineIndexOfReversedLines = lastLineIndexOfReversedLines;
             this.fromLineIndex = fromLineIndex;
             this.toLineIndexExclusive = toLineIndexExclusive;
-            this.positions = positions;
         }
 
-        public long[] getCharacterPositionsInBytes(int lineIndex) {
+        public LinePositionsView subPositions(int fromLineIndex, int toLineIndexExclusive) {
+            if (fromLineIndex < this.fromLineIndex || toLineIndexExclusive > this.toLineIndexExclusive) {
+                throw new IndexOutOfBoundsException("Lines " + fromLineIndex + " to " + toLineIndexExclusive + " are not between " + this.fromLineIndex + " and " + this.toLineIndexExclusive);
+            }
+            return new LinePositionsView(linePositionBatches, numberOfFinishedBatches, lastFinishedLinePositionBatch, lastLinePositionBatch, filteredLines, lastLineIndexOfReversedLines, fromLineIndex, toLineIndexExclusive);
+        }
+
+        // A view of the filtered lines of this snapshot, in which line i is the i-th filtered line. Lines filtered later, or beyond this snapshot, are not
+        // contained. Mapping a line index is a lookup in an array, so the filtered view is read as fast as the snapshot
+        public LinePositionsView filteredPositions(FilteredLines filteredLines) {
+            if (this.filteredLines != null || lastLineIndexOfReversedLines >= 0 || fromLineIndex != 0) {
+                throw new IllegalStateException("Only a snapshot of all lines can be filtered");
+            }
+            int numberOfFilteredLines = filteredLines.countLinesBefore(toLineIndexExclusive);
+            return new LinePositionsView(linePositionBatches, numberOfFinishedBatches, lastFinishedLinePositionBatch, lastLinePositionBatch, filteredLines, -1, 0, numberOfFilteredLines);
+        }
+
+        // A view of this snapshot in reverse order, for batches which were added from the last one to the first one, each with its lines in order
+        // (see TailScanner). Lines added later come before the lines of this view, so they are not contained
+        public LinePositionsView reversedPositions() {
+            if (filteredLines != null || lastLineIndexOfReversedLines >= 0 || fromLineIndex != 0) {
+                throw new IllegalStateException("Only a snapshot of all lines can be reversed");
+            }
+            return new LinePositionsView(linePositionBatches, numberOfFinishedBatches, lastFinishedLinePositionBatch, lastLinePositionBatch, null, toLineIndexExclusive - 1, 0, toLineIndexExclusive);
+        }
+
+        // the index of the last line beginning at or before the given position, which is the line containing it
+        public int findLineIndex(long positionInBytes) {
+            int low = fromLineIndex;
+            int high = toLineIndexExclusive - 1;
+            while (low < high) {
+                int middle = (int) (((long) low + high + 1) / 2);
+                if (getCharacterPositionInBytes(middle, 0) <= positionInBytes) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        // the index of the given line in the file, which differs from it in filtered views
+        public int getLineIndexInFile(int lineIndex) {
             boundsCheck(lineIndex);
-            return positions.getCharacterPositionsInBytes(lineIndex);
+            return filteredLines == null ? lineIndex : filteredLines.getLineIndex(lineIndex);
+        }
+
+        private int getLineIndexInBatches(int lineIndex) {
+            if (lastLineIndexOfReversedLines >= 0) {
+                boundsCheck(lineIndex);
+                return lastLineIndexOfReversedLines - lineIndex;
+            }
+            return getLineIndexInFile(lineIndex);
+        }
+
+        public boolean isEmpty() {
+            return toLineIndexExclusive <= fromLineIndex;
+        }
+
+        // the index of the line after the last one of this view, which is the number of contained lines for a snapshot of all lines
+        public int getNumberOfContainedLines() {
+            return toLineIndexExclusive;
+        }
+
+        public long getBytePositionOfEndOfLastLine() {
+            if (isEmpty()) {
+                return 0;
+            }
+            int lastLineIndex = toLineIndexExclusive - 1;
+            return getCharacterPositionInBytes(lastLineIndex, 0) + getLengthInBytes(lastLineIndex);
+        }
+
+        public long[] getCharacterPositionsInBytes(int lineIndex) {
+            int lineIndexInBatches = getLineIndexInBatches(lineIndex);
+            LinePositionBatch linePositionBatch = getBatch(lineIndexInBatches);
+            int lineIndexInBatch = getLineIndexInBatch(linePositionBatch, lineIndexInBatches);
+            if (!isSingleWidthLine(linePositionBatch, lineIndexInBatch)) {
+                return linePositionBatch.getCharacterPositionsInBytes(lineIndexInBatch);
+            }
+            long[] characterPositionsInBytes = new long[getNumberOfCharacterPositionsOfSingleWidthLine(linePositionBatch, lineIndexInBatch)];
+            for (int characterPositionIndex = 0; characterPositionIndex < characterPositionsInBytes.length; characterPositionIndex++) {
+                characterPositionsInBytes[characterPositionIndex] = getCharacterPositionInBytesOfSingleWidthLine(linePositionBatch, lineIndexInBatch, characterPositionIndex);
+            }
+            return characterPositionsInBytes;
+        }
+
+        public int getNumberOfCharacterPositions(int lineIndex) {
+            int lineIndexInBatches = getLineIndexInBatches(lineIndex);
+            LinePositionBatch linePositionBatch = getBatch(lineIndexInBatches);
+            int lineIndexInBatch = getLineIndexInBatch(linePositionBatch, lineIndexInBatches);
+            if (isSingleWidthLine(linePositionBatch, lineIndexInBatch)) {
+                return getNumberOfCharacterPositionsOfSingleWidthLine(linePositionBatch, lineIndexInBatch);
+            }
+            return linePositionBatch.getNumberOfCharacterPositions(lineIndexInBatch);
+        }
+
+        public long getCharacterPositionInBytes(int lineIndex, int characterPositionIndex) {
+            int lineIndexInBatches = getLineIndexInBatches(lineIndex);
+            LinePositionBatch linePositionBatch = getBatch(lineIndexInBatches);
+            int lineIndexInBatch = getLineIndexInBatch(linePositionBatch, lineIndexInBatches);
+            if (characterPositionIndex > 0 && isSingleWidthLine(linePositionBatch, lineIndexInBatch)) {
+                return getCharacterPositionInBytesOfSingleWidthLine(linePositionBatch, lineIndexInBatch, characterPositionIndex);
+            }
+            return linePositionBatch.getCharacterPositionInBytes(lineIndexInBatch, characterPositionIndex);
         }
 
         public long getLengthInBytes(int lineIndex) {
-            boundsCheck(lineIndex);
-            return positions.getLengthInBytes(lineIndex);
+            int lineIndexInBatches = getLineIndexInBatches(lineIndex);
+            LinePositionBatch linePositionBatch = getBatch(lineIndexInBatches);
+            return linePositionBatch.getLengthInBytes(getLineIndexInBatch(linePositionBatch, lineIndexInBatches));
         }
 
         public long getLengthInCharacters(int lineIndex) {
-            boundsCheck(lineIndex);
-            return positions.getLengthInCharacters(lineIndex);
+            int lineIndexInBatches = getLineIndexInBatches(lineIndex);
+            LinePositionBatch linePositionBatch = getBatch(lineIndexInBatches);
+            return linePositionBatch.getLengthInCharacters(getLineIndexInBatch(linePositionBatch, lineIndexInBatches));
+        }
+
+        // Single width lines, whose characters all have the same number of bytes, only keep the position of their first character (see Scanner.finishLine).
+        // Otherwise a line with IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION characters or more has more than one position, unless it is the last
+        // line of a preview of the scanner, which just reached that many characters. Then only the position at its end is missing, which is computed as well
+        private static boolean isSingleWidthLine(LinePositionBatch linePositionBatch, int lineIndexInBatch) {
+            return linePositionBatch.getLengthInCharacters(lineIndexInBatch) >= IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION && linePositionBatch.getNumberOfCharacterPositions(lineIndexInBatch) == 1;
+        }
+
+        private static int getNumberOfCharacterPositionsOfSingleWidthLine(LinePositionBatch linePositionBatch, int lineIndexInBatch) {
+            return (int) (linePositionBatch.getLengthInCharacters(lineIndexInBatch) / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION) + 1;
+        }
+
+        private static long getCharacterPositionInBytesOfSingleWidthLine(LinePositionBatch linePositionBatch, int lineIndexInBatch, int characterPositionIndex) {
+            long startOfLineInBytes = linePositionBatch.getStartPositionInBytes(lineIndexInBatch);
+            long lengthInBytes = linePositionBatch.getLengthInBytes(lineIndexInBatch);
+            long lengthInCharacters = linePositionBatch.getLengthInCharacters(lineIndexInBatch);
+            long characterIndex = (long) characterPositionIndex * IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
+            if (characterIndex == lengthInCharacters) {
+                return startOfLineInBytes + lengthInBytes;
+            }
+            return startOfLineInBytes + characterIndex * (lengthInBytes / lengthInCharacters);
+        }
+
+        // the lines of a batch are always in the order of the file
+        private int getLineIndexInBatch(LinePositionBatch linePositionBatch, int lineIndexInBatches) {
+            int lineIndexInBatch = lineIndexInBatches % IoConstants.NUMBER_OF_LINES_PER_BATCH;
+            return lastLineIndexOfReversedLines >= 0 ? linePositionBatch.getNumberOfContainedLines() - 1 - lineIndexInBatch : lineIndexInBatch;
+        }
+
+        private LinePositionBatch getBatch(int lineIndex) {
+            int index = lineIndex / IoConstants.NUMBER_OF_LINES_PER_BATCH;
+            if (index == numberOfFinishedBatches) {
+                return lastLinePositionBatch;
+            } else if (index == numberOfFinishedBatches - 1) {
+                return lastFinishedLinePositionBatch;
+            } else {
+                return linePositionBatches.get(index);
+            }
         }
 
         private void boundsCheck(int lineIndex) {
@@ -141,4 +314,53 @@ public class LinePositions {
             }
         }
     }
+
+    // The scanner keeps filling the batch it publishes as preview. It only writes to the line it currently scans, which is the last one of the preview,
+    // so the other lines can be used as they are. The last line is copied
+    private static class FrozenLinePositionBatch extends LinePositionBatch {
+        private final LinePositionBatch positionBatchPreview;
+        private final int lastLineIndex;
+        private final long[] characterPositionsInBytesOfLastLine;
+        private final long lengthInBytesOfLastLine;
+        private final long lengthInCharactersOfLastLine;
+
+        private FrozenLinePositionBatch(MutableLinePositionBatch positionBatchPreview) {
+            super(positionBatchPreview.getNumberOfContainedLines());
+            this.positionBatchPreview = positionBatchPreview;
+            this.lastLineIndex = numberOfContainedLines - 1;
+            this.characterPositionsInBytesOfLastLine = positionBatchPreview.getCharacterPositionsInBytes(lastLineIndex);
+            this.lengthInBytesOfLastLine = positionBatchPreview.getLengthInBytes(lastLineIndex);
+            this.lengthInCharactersOfLastLine = positionBatchPreview.getLengthInCharacters(lastLineIndex);
+        }
+
+        @Override
+        public long[] getCharacterPositionsInBytes(int lineIndex) {
+            return lineIndex == lastLineIndex ? characterPositionsInBytesOfLastLine : positionBatchPreview.getCharacterPositionsInBytes(lineIndex);
+        }
+
+        @Override
+        public int getNumberOfCharacterPositions(int lineIndex) {
+            return getCharacterPositionsInBytes(lineIndex).length;
+        }
+
+        @Override
+        public long getCharacterPositionInBytes(int lineIndex, int characterPositionIndex) {
+            return getCharacterPositionsInBytes(lineIndex)[characterPositionIndex];
+        }
+
+        @Override
+        public long getLengthInBytes(int lineIndex) {
+            return lineIndex == lastLineIndex ? lengthInBytesOfLastLine : positionBatchPreview.getLengthInBytes(lineIndex);
+        }
+
+        @Override
+        public long getLengthInCharacters(int lineIndex) {
+            return lineIndex == lastLineIndex ? lengthInCharactersOfLastLine : positionBatchPreview.getLengthInCharacters(lineIndex);
+        }
+
+        @Override
+        public long getEstimatedSizeInBytes() {
+            return positionBatchPreview.getEstimatedSizeInBytes();
+        }
+    }
 }
@@ -1,13 +1,35 @@
 package com.sab_engineering.tools.sab_viewer.io;
 
+// The visible part of a line. Its characters are a part of a larger array, which is shared by the lines read at about the same time
 public class LinePreview {
-    private final String visibleContent;
+    private final char[] characters;
+    private final int offset;
+    private final int length;
 
     public LinePreview(String visibleContent) {
-        this.visibleContent = visibleContent;
+        this(visibleContent.toCharArray(), 0, visibleContent.length());
+    }
+
+    LinePreview(char[] characters, int offset, int length) {
+        this.characters = characters;
+        this.offset = offset;
+        this.length = length;
     }
 
     public String getVisibleContent() {
-        return visibleContent;
+        return new String(characters, offset, length);
+    }
+
+    // shared with other lines, so it must not be changed. The visible content starts at getOffset()
+    public char[] getCharacters() {
+        return characters;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
     }
 }
@@ -0,0 +1,83 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+// Maps the file in windows of IoConstants.NUMBER_OF_BYTES_PER_MAPPED_WINDOW, which are mapped when they are accessed for the first time.
+// Each window overlaps the next one by IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ, so reads up to this size never span two windows and are
+// returned as views. Only larger reads across the end of a window are copied. The size of the file is assumed not to change. Accessing a part of a
+// window which is not in the file any more fails with an InternalError (after SIGBUS), which the reading threads do not expect. So every read checks
+// that the file was not truncated and fails with an IOException otherwise. A file truncated right after this check may still cause the InternalError.
+// Java can not unmap the windows explicitly. This happens when they are garbage collected after the file was closed.
+class MappedFileAccess extends FileAccess {
+    private final long sizeInBytes;
+    private final MappedByteBuffer[] windows;
+
+    MappedFileAccess(Path filePath, FileChannel fileChannel) throws IOException {
+        super(filePath, fileChannel);
+        this.sizeInBytes = fileChannel.size();
+        this.windows = new MappedByteBuffer[(int) ((sizeInBytes + IoConstants.NUMBER_OF_BYTES_PER_MAPPED_WINDOW - 1) / IoConstants.NUMBER_OF_BYTES_PER_MAPPED_WINDOW)];
+
+        getWindow(0); // if mapping does not work at all, the file has to be read through the channel
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public ByteBuffer read(long positionInBytes, int numberOfBytes, ByteBuffer buffer) throws IOException {
+        checkInterrupted();
+        int numberOfAvailableBytes = (int) Math.max(0, Math.min(numberOfBytes, sizeInBytes - positionInBytes));
+        if (numberOfAvailableBytes == 0) {
+            return ByteBuffer.allocate(0);
+        }
+
+        int windowIndex = (int) (positionInBytes / IoConstants.NUMBER_OF_BYTES_PER_MAPPED_WINDOW);
+        int positionInWindow = (int) (positionInBytes - (long) windowIndex * IoConstants.NUMBER_OF_BYTES_PER_MAPPED_WINDOW);
+        MappedByteBuffer window;
+        try {
+            window = getWindow(windowIndex);
+        } catch (IOException ioException) {
+            // e.g. there is not enough address space left for another window
+            return readFromChannel(positionInBytes, numberOfAvailableBytes, buffer);
+        }
+        if (positionInWindow + numberOfAvailableBytes > window.capacity()) {
+            return readFromChannel(positionInBytes, numberOfAvailableBytes, buffer);
+        }
+
+        long currentSizeInBytes = getSizeOfChannelInBytes();
+        if (currentSizeInBytes < positionInBytes + numberOfAvailableBytes) {
+            throw new IOException("File was truncated to " + currentSizeInBytes + " bytes while it is read");
+        }
+
+        ByteBuffer view = window.duplicate(); // the window itself is shared, so its position and limit must not be touched
+        view.position(positionInWindow);
+        view.limit(positionInWindow + numberOfAvailableBytes);
+        return view.slice();
+    }
+
+    @Override
+    public int readInto(long positionInBytes, ByteBuffer destination) throws IOException {
+        ByteBuffer bytes = read(positionInBytes, destination.remaining(), null);
+        if (!bytes.hasRemaining() && destination.hasRemaining()) {
+            return -1;
+        }
+        int numberOfBytes = bytes.remaining();
+        destination.put(bytes);
+        return numberOfBytes;
+    }
+
+    private synchronized MappedByteBuffer getWindow(int windowIndex) throws IOException {
+        if (windows[windowIndex] == null) {
+            long startOfWindowInBytes = (long) windowIndex * IoConstants.NUMBER_OF_BYTES_PER_MAPPED_WINDOW;
+            long lengthOfWindowInBytes = Math.min(IoConstants.NUMBER_OF_BYTES_PER_MAPPED_WINDOW + IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ, sizeInBytes - startOfWindowInBytes);
+            windows[windowIndex] = getFileChannel().map(FileChannel.MapMode.READ_ONLY, startOfWindowInBytes, lengthOfWindowInBytes);
+        }
+        return windows[windowIndex];
+    }
+}
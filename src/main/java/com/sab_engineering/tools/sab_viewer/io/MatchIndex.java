@@ -0,0 +1,231 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Line and column of all matches of a search, in ascending order. They are added by the searcher while other threads already look up the next or
+// previous match of a position by binary search. Matches are kept in chunks of primitive arrays. Full chunks exceeding the heap budget are written to
+// a temporary file and read back when accessed again, so a term with millions of matches does not fill the heap. The last chunk grows with its
+// matches, so an index with few matches is small, e.g. one of the indices ParallelSearcher collects the matches of each range in.
+public class MatchIndex implements Closeable {
+    private static final int NUMBER_OF_MATCHES_PER_CHUNK = 64 * 1024;
+    private static final int INITIAL_NUMBER_OF_MATCHES_PER_LAST_CHUNK = 256;
+    private static final int NUMBER_OF_BYTES_PER_SPILLED_CHUNK = NUMBER_OF_MATCHES_PER_CHUNK * (Integer.BYTES + Long.BYTES);
+
+    private final int maximalNumberOfChunksInMemory;
+
+    private Chunk[] chunksInMemory; // null when the chunk was written to spillChannel
+    private int[] firstLineIndexOfChunks;
+    private long[] firstColumnIndexOfChunks;
+    private int numberOfChunks;
+    private int numberOfSpilledChunks; // the oldest chunks are spilled first
+    private long numberOfMatches;
+
+    private Chunk lastReadSpilledChunk;
+    private int indexOfLastReadSpilledChunk;
+
+    private FileChannel spillChannel;
+    private boolean closed;
+
+    public MatchIndex(long heapBudgetInBytes) {
+        this.maximalNumberOfChunksInMemory = (int) Math.min(Integer.MAX_VALUE, Math.max(2, heapBudgetInBytes / NUMBER_OF_BYTES_PER_SPILLED_CHUNK));
+        this.chunksInMemory = new Chunk[16];
+        this.firstLineIndexOfChunks = new int[16];
+        this.firstColumnIndexOfChunks = new long[16];
+        this.numberOfChunks = 0;
+        this.numberOfSpilledChunks = 0;
+        this.numberOfMatches = 0;
+        this.lastReadSpilledChunk = null;
+        this.indexOfLastReadSpilledChunk = -1;
+        this.spillChannel = null;
+        this.closed = false;
+    }
+
+    // matches have to be added in ascending order. Matches added after closing are ignored, as the search may still be running then
+    public synchronized void add(int lineIndex, long columnIndex) {
+        if (closed) {
+            return;
+        }
+        int indexInChunk = (int) (numberOfMatches % NUMBER_OF_MATCHES_PER_CHUNK);
+        if (indexInChunk == 0) {
+            addChunk(lineIndex, columnIndex);
+        }
+        Chunk chunk = chunksInMemory[numberOfChunks - 1];
+        if (indexInChunk == chunk.lineIndices.length) {
+            chunk.grow();
+        }
+        chunk.lineIndices[indexInChunk] = lineIndex;
+        chunk.columnIndices[indexInChunk] = columnIndex;
+        numberOfMatches++;
+    }
+
+    public synchronized long size() {
+        return numberOfMatches;
+    }
+
+    // returns the index of the first match after the given position, or -1 if there is none
+    public synchronized long findFirstMatchAfter(int lineIndex, long columnIndex) {
+        long indexOfFirstMatchNotBefore = countMatchesBefore(lineIndex, columnIndex + 1);
+        return indexOfFirstMatchNotBefore < numberOfMatches ? indexOfFirstMatchNotBefore : -1;
+    }
+
+    // returns the index of the last match before the given position, or -1 if there is none
+    public synchronized long findLastMatchBefore(int lineIndex, long columnIndex) {
+        return countMatchesBefore(lineIndex, columnIndex) - 1;
+    }
+
+    public synchronized int getLineIndex(long matchIndex) {
+        return getChunk(matchIndex).lineIndices[(int) (matchIndex % NUMBER_OF_MATCHES_PER_CHUNK)];
+    }
+
+    public synchronized long getColumnIndex(long matchIndex) {
+        return getChunk(matchIndex).columnIndices[(int) (matchIndex % NUMBER_OF_MATCHES_PER_CHUNK)];
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        numberOfMatches = 0;
+        numberOfChunks = 0;
+        chunksInMemory = new Chunk[0];
+        lastReadSpilledChunk = null;
+        if (spillChannel != null) {
+            spillChannel.close();
+            spillChannel = null;
+        }
+    }
+
+    // binary search over the first match of each chunk, then within the chunk
+    private long countMatchesBefore(int lineIndex, long columnIndex) {
+        int low = 0;
+        int high = numberOfChunks;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isBefore(firstLineIndexOfChunks[middle], firstColumnIndexOfChunks[middle], lineIndex, columnIndex)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+        int chunkIndex = low - 1; // the last chunk starting before the position
+        long indexOfFirstMatchOfChunk = (long) chunkIndex * NUMBER_OF_MATCHES_PER_CHUNK;
+        Chunk chunk = getChunk(indexOfFirstMatchOfChunk);
+        int lowInChunk = 1;
+        int highInChunk = (int) Math.min(NUMBER_OF_MATCHES_PER_CHUNK, numberOfMatches - indexOfFirstMatchOfChunk);
+        while (lowInChunk < highInChunk) {
+            int middle = (lowInChunk + highInChunk) >>> 1;
+            if (isBefore(chunk.lineIndices[middle], chunk.columnIndices[middle], lineIndex, columnIndex)) {
+                lowInChunk = middle + 1;
+            } else {
+                highInChunk = middle;
+            }
+        }
+        return indexOfFirstMatchOfChunk + lowInChunk;
+    }
+
+    private static boolean isBefore(int lineIndex, long columnIndex, int otherLineIndex, long otherColumnIndex) {
+        return lineIndex < otherLineIndex || (lineIndex == otherLineIndex && columnIndex < otherColumnIndex);
+    }
+
+    private void addChunk(int lineIndexOfFirstMatch, long columnIndexOfFirstMatch) {
+        if (numberOfChunks == chunksInMemory.length) {
+            chunksInMemory = Arrays.copyOf(chunksInMemory, numberOfChunks * 2);
+            firstLineIndexOfChunks = Arrays.copyOf(firstLineIndexOfChunks, numberOfChunks * 2);
+            firstColumnIndexOfChunks = Arrays.copyOf(firstColumnIndexOfChunks, numberOfChunks * 2);
+        }
+        chunksInMemory[numberOfChunks] = new Chunk(INITIAL_NUMBER_OF_MATCHES_PER_LAST_CHUNK);
+        firstLineIndexOfChunks[numberOfChunks] = lineIndexOfFirstMatch;
+        firstColumnIndexOfChunks[numberOfChunks] = columnIndexOfFirstMatch;
+        numberOfChunks++;
+
+        if (numberOfChunks - numberOfSpilledChunks > maximalNumberOfChunksInMemory) {
+            try {
+                spill(numberOfSpilledChunks);
+            } catch (IOException ioException) {
+                throw new UncheckedIOException("Unable to write matches to temporary file", ioException);
+            }
+            chunksInMemory[numberOfSpilledChunks] = null;
+            numberOfSpilledChunks++;
+        }
+    }
+
+    private Chunk getChunk(long matchIndex) {
+        if (matchIndex < 0 || matchIndex >= numberOfMatches) {
+            throw new IndexOutOfBoundsException("Match index " + matchIndex + " is not between 0 and " + numberOfMatches);
+        }
+        int chunkIndex = (int) (matchIndex / NUMBER_OF_MATCHES_PER_CHUNK);
+        Chunk chunk = chunksInMemory[chunkIndex];
+        if (chunk == null) {
+            if (indexOfLastReadSpilledChunk != chunkIndex) {
+                try {
+                    lastReadSpilledChunk = readSpilledChunk(chunkIndex);
+                } catch (IOException ioException) {
+                    throw new UncheckedIOException("Unable to read matches from temporary file", ioException);
+                }
+                indexOfLastReadSpilledChunk = chunkIndex;
+            }
+            chunk = lastReadSpilledChunk;
+        }
+        return chunk;
+    }
+
+    // only full chunks are spilled
+    private void spill(int chunkIndex) throws IOException {
+        if (spillChannel == null) {
+            Path spillPath = Files.createTempFile("sab-viewer-", ".matches");
+            spillChannel = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        Chunk chunk = chunksInMemory[chunkIndex];
+        ByteBuffer encodedChunk = ByteBuffer.allocate(NUMBER_OF_BYTES_PER_SPILLED_CHUNK);
+        encodedChunk.asIntBuffer().put(chunk.lineIndices);
+        encodedChunk.position(NUMBER_OF_MATCHES_PER_CHUNK * Integer.BYTES);
+        encodedChunk.asLongBuffer().put(chunk.columnIndices);
+        encodedChunk.clear();
+        long positionInBytes = (long) chunkIndex * NUMBER_OF_BYTES_PER_SPILLED_CHUNK;
+        while (encodedChunk.hasRemaining()) {
+            spillChannel.write(encodedChunk, positionInBytes + encodedChunk.position());
+        }
+    }
+
+    private Chunk readSpilledChunk(int chunkIndex) throws IOException {
+        ByteBuffer encodedChunk = ByteBuffer.allocate(NUMBER_OF_BYTES_PER_SPILLED_CHUNK);
+        long positionInBytes = (long) chunkIndex * NUMBER_OF_BYTES_PER_SPILLED_CHUNK;
+        while (encodedChunk.hasRemaining()) {
+            if (spillChannel.read(encodedChunk, positionInBytes + encodedChunk.position()) < 0) {
+                throw new IOException("Temporary file is shorter than expected");
+            }
+        }
+        encodedChunk.clear();
+        Chunk chunk = new Chunk(NUMBER_OF_MATCHES_PER_CHUNK);
+        encodedChunk.asIntBuffer().get(chunk.lineIndices);
+        encodedChunk.position(NUMBER_OF_MATCHES_PER_CHUNK * Integer.BYTES);
+        encodedChunk.asLongBuffer().get(chunk.columnIndices);
+        return chunk;
+    }
+
+    private static class Chunk {
+        private int[] lineIndices;
+        private long[] columnIndices;
+
+        private Chunk(int numberOfMatches) {
+            this.lineIndices = new int[numberOfMatches];
+            this.columnIndices = new long[numberOfMatches];
+        }
+
+        private void grow() {
+            int numberOfMatches = Math.min(NUMBER_OF_MATCHES_PER_CHUNK, 2 * lineIndices.length);
+            lineIndices = Arrays.copyOf(lineIndices, numberOfMatches);
+            columnIndices = Arrays.copyOf(columnIndices, numberOfMatches);
+        }
+    }
+}
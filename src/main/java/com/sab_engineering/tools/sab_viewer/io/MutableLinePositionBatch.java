@@ -1,13 +1,57 @@
 package com.sab_engineering.tools.sab_viewer.io;
 
+// Used while scanning. It is easy to fill, but needs a lot of memory per line. Finished batches are stored as PackedLinePositionBatch.
 public class MutableLinePositionBatch extends LinePositionBatch {
+    private final long[][] characterPositionsInBytes;
+    private final long[] lengthInBytes;
+    private final long[] lengthInCharacters;
 
-    public MutableLinePositionBatch(LinePositionBatch other) {
-        super(other);
+    public MutableLinePositionBatch(MutableLinePositionBatch other) {
+        super(other.numberOfContainedLines);
+        this.characterPositionsInBytes = other.characterPositionsInBytes;
+        this.lengthInBytes = other.lengthInBytes;
+        this.lengthInCharacters = other.lengthInCharacters;
     }
 
-    public MutableLinePositionBatch(long[][] characterPositionsInBytes, long[] lengthInBytes, long[] lengthInCharacters, int numberOfContainedLines) {
-        super(characterPositionsInBytes, lengthInBytes, lengthInCharacters, numberOfContainedLines);
+    public MutableLinePositionBatch() {
+        super(0);
+        this.characterPositionsInBytes = new long[IoConstants.NUMBER_OF_LINES_PER_BATCH][];
+        this.lengthInBytes = new long[IoConstants.NUMBER_OF_LINES_PER_BATCH];
+        this.lengthInCharacters = new long[IoConstants.NUMBER_OF_LINES_PER_BATCH];
+    }
+
+    @Override
+    public long[] getCharacterPositionsInBytes(int lineIndex) {
+        return characterPositionsInBytes[lineIndex];
+    }
+
+    @Override
+    public int getNumberOfCharacterPositions(int lineIndex) {
+        return characterPositionsInBytes[lineIndex].length;
+    }
+
+    @Override
+    public long getCharacterPositionInBytes(int lineIndex, int characterPositionIndex) {
+        return characterPositionsInBytes[lineIndex][characterPositionIndex];
+    }
+
+    @Override
+    public long getLengthInBytes(int lineIndex) {
+        return lengthInBytes[lineIndex];
+    }
+
+    @Override
+    public long getLengthInCharacters(int lineIndex) {
+        return lengthInCharacters[lineIndex];
+    }
+
+    @Override
+    public long getEstimatedSizeInBytes() {
+        long estimatedSizeInBytes = 64 + characterPositionsInBytes.length * (8L + 8L + 8L);
+        for (int lineIndex = 0; lineIndex < numberOfContainedLines; lineIndex++) {
+            estimatedSizeInBytes += 16 + characterPositionsInBytes[lineIndex].length * 8L;
+        }
+        return estimatedSizeInBytes;
     }
 
     public void setCharacterPositionsInBytes(int lineIndex, long[] characterPositionsInBytes) {
@@ -0,0 +1,163 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.util.Arrays;
+
+// Immutable and compact representation of a finished batch, which needs about 9 bytes per line instead of about 50 of MutableLinePositionBatch.
+// Beginnings of lines are stored relative to the first line of the batch as int (long only if a batch spans more than 2GB).
+// The length in bytes is computed from the beginning of the next line and the length of the line terminator, which is stored as byte.
+// Lines with more than one character position (see Scanner) or with more than Integer.MAX_VALUE characters are rare, so they are kept in a small
+// side table, which also holds their length in characters as long.
+public class PackedLinePositionBatch extends LinePositionBatch {
+    private final long startOfFirstLineInBytes;
+    private final int[] relativeStartOfLineInBytes; // null if the batch spans too many bytes, then wideRelativeStartOfLineInBytes is used
+    private final long[] wideRelativeStartOfLineInBytes;
+    private final byte[] lengthOfLineTerminatorInBytes;
+    private final long endOfLastLineInBytes;
+    private final int[] lengthInCharacters; // not used for long lines
+
+    private final int[] longLineIndices; // sorted
+    private final long[] longLineLengthInCharacters;
+    private final long[][] longLineCharacterPositionsInBytes;
+
+    public PackedLinePositionBatch(LinePositionBatch other) {
+        super(other.getNumberOfContainedLines());
+        if (numberOfContainedLines == 0) {
+            throw new IllegalArgumentException("Batch must contain at least one line");
+        }
+
+        startOfFirstLineInBytes = other.getStartPositionInBytes(0);
+        int lastLineIndex = numberOfContainedLines - 1;
+        endOfLastLineInBytes = other.getStartPositionInBytes(lastLineIndex) + other.getLengthInBytes(lastLineIndex);
+
+        if (other.getStartPositionInBytes(lastLineIndex) - startOfFirstLineInBytes <= Integer.MAX_VALUE) {
+            relativeStartOfLineInBytes = new int[numberOfContainedLines];
+            wideRelativeStartOfLineInBytes = null;
+        } else {
+            relativeStartOfLineInBytes = null;
+            wideRelativeStartOfLineInBytes = new long[numberOfContainedLines];
+        }
+        lengthOfLineTerminatorInBytes = new byte[numberOfContainedLines];
+        lengthInCharacters = new int[numberOfContainedLines];
+
+        int numberOfLongLines = 0;
+        for (int lineIndex = 0; lineIndex < numberOfContainedLines; lineIndex++) {
+            if (isLongLine(other, lineIndex)) {
+                numberOfLongLines++;
+            }
+        }
+        longLineIndices = new int[numberOfLongLines];
+        longLineLengthInCharacters = new long[numberOfLongLines];
+        longLineCharacterPositionsInBytes = new long[numberOfLongLines][];
+
+        int longLineIndex = 0;
+        for (int lineIndex = 0; lineIndex < numberOfContainedLines; lineIndex++) {
+            long startOfLineInBytes = other.getStartPositionInBytes(lineIndex);
+            if (relativeStartOfLineInBytes != null) {
+                relativeStartOfLineInBytes[lineIndex] = (int) (startOfLineInBytes - startOfFirstLineInBytes);
+            } else {
+                wideRelativeStartOfLineInBytes[lineIndex] = startOfLineInBytes - startOfFirstLineInBytes;
+            }
+
+            if (lineIndex < lastLineIndex) {
+                long lengthOfLineTerminator = other.getStartPositionInBytes(lineIndex + 1) - (startOfLineInBytes + other.getLengthInBytes(lineIndex));
+                if (lengthOfLineTerminator < 0 || lengthOfLineTerminator > Byte.MAX_VALUE) {
+                    throw new IllegalArgumentException("Lines of batch are not contiguous at line " + lineIndex);
+                }
+                lengthOfLineTerminatorInBytes[lineIndex] = (byte) lengthOfLineTerminator;
+            }
+
+            if (isLongLine(other, lineIndex)) {
+                longLineIndices[longLineIndex] = lineIndex;
+                longLineLengthInCharacters[longLineIndex] = other.getLengthInCharacters(lineIndex);
+                longLineCharacterPositionsInBytes[longLineIndex] = other.getCharacterPositionsInBytes(lineIndex).clone();
+                longLineIndex++;
+            } else {
+                lengthInCharacters[lineIndex] = (int) other.getLengthInCharacters(lineIndex);
+            }
+        }
+    }
+
+    @Override
+    public long[] getCharacterPositionsInBytes(int lineIndex) {
+        int longLineIndex = findLongLine(lineIndex);
+        if (longLineIndex >= 0) {
+            return longLineCharacterPositionsInBytes[longLineIndex].clone();
+        }
+        return new long[]{getStartPositionInBytes(lineIndex)};
+    }
+
+    @Override
+    public int getNumberOfCharacterPositions(int lineIndex) {
+        int longLineIndex = findLongLine(lineIndex);
+        if (longLineIndex >= 0) {
+            return longLineCharacterPositionsInBytes[longLineIndex].length;
+        }
+        return 1;
+    }
+
+    @Override
+    public long getCharacterPositionInBytes(int lineIndex, int characterPositionIndex) {
+        if (characterPositionIndex == 0) {
+            return getStartPositionInBytes(lineIndex);
+        }
+        int longLineIndex = findLongLine(lineIndex);
+        if (longLineIndex < 0) {
+            throw new IndexOutOfBoundsException("Line " + lineIndex + " has only one character position");
+        }
+        return longLineCharacterPositionsInBytes[longLineIndex][characterPositionIndex];
+    }
+
+    @Override
+    public long getStartPositionInBytes(int lineIndex) {
+        checkLineIndex(lineIndex);
+        if (relativeStartOfLineInBytes != null) {
+            return startOfFirstLineInBytes + relativeStartOfLineInBytes[lineIndex];
+        }
+        return startOfFirstLineInBytes + wideRelativeStartOfLineInBytes[lineIndex];
+    }
+
+    @Override
+    public long getLengthInBytes(int lineIndex) {
+        if (lineIndex == numberOfContainedLines - 1) {
+            return endOfLastLineInBytes - getStartPositionInBytes(lineIndex);
+        }
+        return getStartPositionInBytes(lineIndex + 1) - getStartPositionInBytes(lineIndex) - lengthOfLineTerminatorInBytes[lineIndex];
+    }
+
+    @Override
+    public long getLengthInCharacters(int lineIndex) {
+        checkLineIndex(lineIndex);
+        int longLineIndex = findLongLine(lineIndex);
+        if (longLineIndex >= 0) {
+            return longLineLengthInCharacters[longLineIndex];
+        }
+        return lengthInCharacters[lineIndex];
+    }
+
+    @Override
+    public long getEstimatedSizeInBytes() {
+        long estimatedSizeInBytes = 128 + numberOfContainedLines * (relativeStartOfLineInBytes != null ? 4L : 8L) + numberOfContainedLines + numberOfContainedLines * 4L;
+        for (long[] characterPositionsInBytes : longLineCharacterPositionsInBytes) {
+            estimatedSizeInBytes += 4 + 8 + 16 + characterPositionsInBytes.length * 8L;
+        }
+        return estimatedSizeInBytes;
+    }
+
+    // single width lines keep one character position at any length, so their length in characters may not fit into an int either
+    private static boolean isLongLine(LinePositionBatch linePositionBatch, int lineIndex) {
+        return linePositionBatch.getNumberOfCharacterPositions(lineIndex) > 1 || linePositionBatch.getLengthInCharacters(lineIndex) > Integer.MAX_VALUE;
+    }
+
+    private int findLongLine(int lineIndex) {
+        if (longLineIndices.length == 0) {
+            return -1;
+        }
+        return Arrays.binarySearch(longLineIndices, lineIndex);
+    }
+
+    private void checkLineIndex(int lineIndex) {
+        if (lineIndex < 0 || lineIndex >= numberOfContainedLines) {
+            throw new IndexOutOfBoundsException("Line index " + lineIndex + " is not between 0 and " + numberOfContainedLines);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+
+// Splits the file into byte ranges, which are scanned in parallel. This only works for charsets in which '\n' and '\r' are always single bytes
+// which can not be part of any other character, because every range has to find the beginning of its first line without decoding what is before.
+public class ParallelScanner {
+    private static final int NUMBER_OF_BYTES_TO_READ_DURING_RESYNC = 64 * 1024;
+
+    private final FileAccess fileAccess;
+    private final Charset charset;
+
+    private final long startPositionInBytes; // has to be the beginning of a line
+
+    private final Consumer<LinePositionBatch> positionsListener;
+    private final Consumer<MutableLinePositionBatch> positionsPreviewListener;
+    private final LongUnaryOperator endPositionLimiter; // null to scan until EOF. See TailScanner.limitForwardScan
+
+    private final LinePositionStitcher linePositionStitcher;
+
+    public ParallelScanner(FileAccess fileAccess, Charset charset, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener) {
+        this(fileAccess, charset, 0, null, positionsListener, positionsPreviewListener);
+    }
+
+    // scans from the given position until EOF, or until the position returned by endPositionLimiter, which is asked before a range is scanned. Line
+    // indices in the published batches are relative to startPositionInBytes
+    public ParallelScanner(FileAccess fileAccess, Charset charset, long startPositionInBytes, LongUnaryOperator endPositionLimiter, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener) {
+        this.fileAccess = fileAccess;
+        this.charset = charset;
+        this.startPositionInBytes = startPositionInBytes;
+        this.endPositionLimiter = endPositionLimiter;
+        this.positionsListener = positionsListener;
+        this.positionsPreviewListener = positionsPreviewListener;
+
+        this.linePositionStitcher = new LinePositionStitcher(positionsListener);
+    }
+
+    public static boolean supportsCharset(Charset charset) {
+        return Scanner.supportsByteLevelScanning(charset);
+    }
+
+    public static boolean isWorthwhile(long numberOfBytesToScan) {
+        return Runtime.getRuntime().availableProcessors() > 1 && numberOfBytesToScan >= 2L * IoConstants.MINIMAL_NUMBER_OF_BYTES_PER_PARALLEL_SCAN_RANGE;
+    }
+
+    public boolean scanFile() throws IOException, InterruptedException {
+        long startTimestamp = System.currentTimeMillis();
+
+        long fileSizeInBytes = fileAccess.getSizeInBytes();
+        long bytesToScan = Math.max(0, fileSizeInBytes - startPositionInBytes);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int numberOfRanges = (int) Math.max(1, Math.min(parallelism * 4L, bytesToScan / IoConstants.MINIMAL_NUMBER_OF_BYTES_PER_PARALLEL_SCAN_RANGE));
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+        List<RangeResult> allRangeResults = new ArrayList<>(numberOfRanges); // also those of ranges whose futures are cancelled while they are scanned
+        List<Future<RangeResult>> rangeResults = new ArrayList<>(numberOfRanges);
+        try {
+            for (int rangeIndex = 0; rangeIndex < numberOfRanges; rangeIndex++) {
+                long nominalStartPositionInBytes = startPositionInBytes + bytesToScan * rangeIndex / numberOfRanges;
+                long nominalEndPositionInBytes = startPositionInBytes + bytesToScan * (rangeIndex + 1) / numberOfRanges;
+                boolean isFirstRange = rangeIndex == 0;
+                RangeResult rangeResult = new RangeResult(IoConstants.LINE_INDEX_HEAP_BUDGET_IN_BYTES / numberOfRanges);
+                allRangeResults.add(rangeResult);
+                rangeResults.add(forkJoinPool.submit(() -> scanRange(nominalStartPositionInBytes, nominalEndPositionInBytes, isFirstRange, rangeResult)));
+            }
+
+            for (Future<RangeResult> futureRangeResult : rangeResults) {
+                RangeResult rangeResult = getResult(futureRangeResult);
+                try {
+                    for (int batchIndex = 0; batchIndex < rangeResult.linePositionBatches.size(); batchIndex++) {
+                        linePositionStitcher.addLines(rangeResult.linePositionBatches.get(batchIndex));
+                    }
+                } finally {
+                    rangeResult.linePositionBatches.close();
+                }
+                if (rangeResult.stoppedBecauseOom) {
+                    // lines after this range are not reachable any more, as line numbers of later ranges are unknown
+                    linePositionStitcher.publishUnfinishedBatch();
+                    return true;
+                }
+            }
+            linePositionStitcher.publishUnfinishedBatch();
+        } finally {
+            stopRanges(forkJoinPool, rangeResults, allRangeResults);
+        }
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Parallel scan of " + numberOfRanges + " ranges finished in less than " + timePassedInMs + "ms");
+
+        return false;
+    }
+
+    // The file may be closed once scanFile returned, so this waits until no range is scanned any more, even if it is interrupted meanwhile. Then the
+    // batches of ranges which were not stitched are discarded, which also deletes their temporary files
+    private static void stopRanges(ForkJoinPool forkJoinPool, List<Future<RangeResult>> rangeResults, List<RangeResult> allRangeResults) throws IOException {
+        for (Future<RangeResult> futureRangeResult : rangeResults) {
+            futureRangeResult.cancel(true);
+        }
+        forkJoinPool.shutdownNow();
+        boolean interrupted = false;
+        while (!forkJoinPool.isTerminated()) {
+            try {
+                forkJoinPool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException interruptedException) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        for (RangeResult rangeResult : allRangeResults) {
+            rangeResult.linePositionBatches.close();
+        }
+    }
+
+    // supposed to be run in the fork join pool
+    private RangeResult scanRange(long nominalStartPositionInBytes, long nominalEndPositionInBytes, boolean isFirstRange, RangeResult rangeResult) throws IOException, InterruptedException {
+        long startPositionInBytes = isFirstRange ? nominalStartPositionInBytes : findBeginningOfLine(fileAccess, nominalStartPositionInBytes);
+        long endPositionInBytes = findBeginningOfLine(fileAccess, nominalEndPositionInBytes);
+        if (endPositionLimiter != null) {
+            endPositionInBytes = Math.min(endPositionInBytes, endPositionLimiter.applyAsLong(endPositionInBytes));
+        }
+
+        if (startPositionInBytes >= endPositionInBytes) {
+            return rangeResult; // the range is completely covered by a line starting in an earlier range
+        }
+
+        Scanner scanner;
+        if (isFirstRange) {
+            // the first range starts at the first line to scan. Its batches are aligned with the final ones and can be published right away, except for the last one, which is continued by the next range
+            scanner = new Scanner(fileAccess, charset, startPositionInBytes, endPositionInBytes,
+                    positionBatch -> {
+                        if (positionBatch.getNumberOfContainedLines() == IoConstants.NUMBER_OF_LINES_PER_BATCH) {
+                            positionsListener.accept(positionBatch);
+                        } else {
+                            rangeResult.linePositionBatches.add(positionBatch);
+                        }
+                    },
+                    positionsPreviewListener
+            );
+        } else {
+            scanner = new Scanner(fileAccess, charset, startPositionInBytes, endPositionInBytes,
+                    rangeResult.linePositionBatches::add,
+                    positionBatchPreview -> {
+                        // the preview is only relevant, when the line numbers are known
+                    }
+            );
+        }
+        rangeResult.stoppedBecauseOom = scanner.scanFile();
+        return rangeResult;
+    }
+
+    // returns the position of the first line beginning at or after the given position. Also used by IndexIsland
+    static long findBeginningOfLine(FileAccess fileAccess, long nominalPositionInBytes) throws IOException {
+        if (nominalPositionInBytes <= 0) {
+            return 0;
+        }
+        long fileSizeInBytes = fileAccess.getSizeInBytes();
+        if (nominalPositionInBytes >= fileSizeInBytes) {
+            return fileSizeInBytes;
+        }
+
+        ByteBuffer resyncBuffer = ByteBuffer.allocate(NUMBER_OF_BYTES_TO_READ_DURING_RESYNC);
+        long positionOfBufferInBytes = nominalPositionInBytes - 1; // the byte before the nominal position may already end a line
+        boolean carriageReturnFound = false;
+        while (positionOfBufferInBytes < fileSizeInBytes) {
+            ByteBuffer bytes = fileAccess.read(positionOfBufferInBytes, NUMBER_OF_BYTES_TO_READ_DURING_RESYNC, resyncBuffer);
+            int bytesRead = bytes.remaining();
+            if (bytesRead == 0) {
+                break;
+            }
+            for (int i = 0; i < bytesRead; i++) {
+                byte currentByte = bytes.get(i);
+                if (carriageReturnFound) {
+                    // windows line ending is a single line break
+                    return currentByte == '\n' ? positionOfBufferInBytes + i + 1 : positionOfBufferInBytes + i;
+                }
+                if (currentByte == '\n') {
+                    return positionOfBufferInBytes + i + 1;
+                }
+                if (currentByte == '\r') {
+                    carriageReturnFound = true;
+                }
+            }
+            positionOfBufferInBytes += bytesRead;
+        }
+        return fileSizeInBytes;
+    }
+
+    private static RangeResult getResult(Future<RangeResult> futureRangeResult) throws IOException, InterruptedException {
+        try {
+            return futureRangeResult.get();
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Unexpected exception while scanning", cause);
+        }
+    }
+
+    private static class RangeResult {
+        private final LinePositionBatchStore linePositionBatches; // batches of later ranges have to wait for the earlier ranges, so they may need to be moved out of the heap
+        private boolean stoppedBecauseOom = false;
+
+        private RangeResult(long heapBudgetInBytes) {
+            linePositionBatches = new LinePositionBatchStore(heapBudgetInBytes);
+        }
+    }
+}
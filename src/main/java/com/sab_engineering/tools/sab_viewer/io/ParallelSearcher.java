@@ -0,0 +1,158 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import com.sab_engineering.tools.sab_viewer.controller.ViewerSettings;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+// Splits the scanned lines after the position to search from into ranges of about the same size in bytes, which are searched in parallel. This only
+// works for terms which Searcher searches at byte level, as every range starts at the beginning of a line. Matches of later ranges are published after
+// all earlier ranges are done, so they are in the same order as for a single Searcher. Until then, they are collected in a MatchIndex per range, which
+// moves them to a temporary file beyond its share of the heap budget. When only the first match is needed, later ranges are cancelled as soon as an
+// earlier one found one. All searches share one pool of threads.
+public class ParallelSearcher {
+    private static final ForkJoinPool FORK_JOIN_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final FileAccess fileAccess;
+    private final Charset charset;
+
+    public ParallelSearcher(FileAccess fileAccess, Charset charset) {
+        this.fileAccess = fileAccess;
+        this.charset = charset;
+    }
+
+    public static boolean supportsSearchTerm(Charset charset, String literalSearchTerm) {
+        return Searcher.encodeForByteLevelSearch(charset, literalSearchTerm) != null;
+    }
+
+    public static boolean isWorthwhile(LinePositions.LinePositionsView linePositions, ViewerSettings viewerSettings) {
+        int firstLineIndex = viewerSettings.getFirstDisplayedLineIndex();
+        if (Runtime.getRuntime().availableProcessors() <= 1 || firstLineIndex >= linePositions.getNumberOfContainedLines()) {
+            return false;
+        }
+        long numberOfBytesToSearch = linePositions.getBytePositionOfEndOfLastLine() - linePositions.getCharacterPositionInBytes(firstLineIndex, 0);
+        return numberOfBytesToSearch >= 2L * IoConstants.MINIMAL_NUMBER_OF_BYTES_PER_PARALLEL_SEARCH_RANGE;
+    }
+
+    public boolean searchInSpecificLines(String literalSearchTerm, LinePositions.LinePositionsView linePositions, ViewerSettings viewerSettings, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException, InterruptedException {
+        if (!supportsSearchTerm(charset, literalSearchTerm)) {
+            throw new IllegalArgumentException("Search term is not searched at byte level, so it can not be searched in ranges");
+        }
+        long startTimestamp = System.currentTimeMillis();
+
+        int firstLineIndex = viewerSettings.getFirstDisplayedLineIndex();
+        long startPositionInBytes = linePositions.getCharacterPositionInBytes(firstLineIndex, 0);
+        long bytesToSearch = linePositions.getBytePositionOfEndOfLastLine() - startPositionInBytes;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int numberOfRanges = (int) Math.max(1, Math.min(parallelism * 4L, bytesToSearch / IoConstants.MINIMAL_NUMBER_OF_BYTES_PER_PARALLEL_SEARCH_RANGE));
+
+        // the first range starts at the position to search from, the others at the beginning of the line containing their nominal start
+        List<Integer> firstLineIndicesOfRanges = new ArrayList<>(numberOfRanges + 1);
+        firstLineIndicesOfRanges.add(firstLineIndex);
+        for (int rangeIndex = 1; rangeIndex < numberOfRanges; rangeIndex++) {
+            long nominalStartPositionInBytes = startPositionInBytes + bytesToSearch * rangeIndex / numberOfRanges;
+            int firstLineIndexOfRange = Searcher.findLineIndex(linePositions, nominalStartPositionInBytes, firstLineIndex);
+            if (firstLineIndexOfRange > firstLineIndicesOfRanges.get(firstLineIndicesOfRanges.size() - 1)) {
+                firstLineIndicesOfRanges.add(firstLineIndexOfRange);
+            }
+        }
+
+        int numberOfSearchedRanges = firstLineIndicesOfRanges.size();
+        AtomicInteger indexOfFirstRangeWithMatch = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        boolean foundTerm = false;
+        List<MatchIndex> allMatchesOfRanges = new ArrayList<>(numberOfSearchedRanges); // also those of ranges which are still searched when stopping
+        List<Future<MatchIndex>> rangeResults = new ArrayList<>(numberOfSearchedRanges);
+        try {
+            for (int rangeIndex = 0; rangeIndex < numberOfSearchedRanges; rangeIndex++) {
+                int firstLineIndexOfRange = firstLineIndicesOfRanges.get(rangeIndex);
+                long firstColumnIndexOfRange = rangeIndex == 0 ? viewerSettings.getFirstDisplayedColumnIndex() + 1 : 0;
+                long endOfMatchesInBytes = rangeIndex + 1 < numberOfSearchedRanges ? linePositions.getCharacterPositionInBytes(firstLineIndicesOfRanges.get(rangeIndex + 1), 0) : Long.MAX_VALUE;
+                int currentRangeIndex = rangeIndex;
+                MatchIndex matchesOfRange = new MatchIndex(IoConstants.MATCH_INDEX_HEAP_BUDGET_IN_BYTES / numberOfSearchedRanges);
+                allMatchesOfRanges.add(matchesOfRange);
+                rangeResults.add(FORK_JOIN_POOL.submit(() -> {
+                    Searcher searcher = new Searcher(fileAccess, charset);
+                    searcher.searchFrom(literalSearchTerm, linePositions, firstLineIndexOfRange, firstColumnIndexOfRange, endOfMatchesInBytes,
+                            () -> stopped.get() || (stopOnFirstResult && indexOfFirstRangeWithMatch.get() < currentRangeIndex),
+                            (lineIndex, columnIndex) -> {
+                                matchesOfRange.add(lineIndex, columnIndex);
+                                indexOfFirstRangeWithMatch.accumulateAndGet(currentRangeIndex, Math::min);
+                            },
+                            stopOnFirstResult
+                    );
+                    return matchesOfRange;
+                }));
+            }
+
+            for (Future<MatchIndex> futureRangeResult : rangeResults) {
+                MatchIndex matchesOfRange = getResult(futureRangeResult);
+                for (long matchIndex = 0; matchIndex < matchesOfRange.size(); matchIndex++) {
+                    foundTerm = true;
+                    resultListener.accept(matchesOfRange.getLineIndex(matchIndex), matchesOfRange.getColumnIndex(matchIndex));
+                }
+                matchesOfRange.close();
+                if (foundTerm && stopOnFirstResult) {
+                    break;
+                }
+            }
+        } finally {
+            stopRanges(stopped, rangeResults, allMatchesOfRanges);
+        }
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Parallel search of " + firstLineIndicesOfRanges.size() + " ranges finished in less than " + timePassedInMs + "ms");
+
+        return foundTerm;
+    }
+
+    // The file may be closed once the search returned, and the pool is shared with other searches. So the ranges are asked to stop, which they check
+    // after each block of bytes, and this waits until they did, even if it is interrupted meanwhile. Then the matches which were not published are
+    // discarded, which also deletes their temporary files
+    private static void stopRanges(AtomicBoolean stopped, List<Future<MatchIndex>> rangeResults, List<MatchIndex> allMatchesOfRanges) throws IOException {
+        stopped.set(true);
+        boolean interrupted = false;
+        for (Future<MatchIndex> futureRangeResult : rangeResults) {
+            while (true) {
+                try {
+                    futureRangeResult.get();
+                    break;
+                } catch (InterruptedException interruptedException) {
+                    interrupted = true;
+                } catch (ExecutionException executionException) {
+                    break; // the matches of this range are discarded anyway
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        for (MatchIndex matchesOfRange : allMatchesOfRanges) {
+            matchesOfRange.close();
+        }
+    }
+
+    private static MatchIndex getResult(Future<MatchIndex> futureRangeResult) throws IOException, InterruptedException {
+        try {
+            return futureRangeResult.get();
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Unexpected exception while searching", cause);
+        }
+    }
+}
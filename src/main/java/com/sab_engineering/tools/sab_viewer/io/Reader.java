@@ -2,73 +2,244 @@ package com.sab_engineering.tools.sab_viewer.io;
 
 import com.sab_engineering.tools.sab_viewer.controller.ViewerSettings;
 
-import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SeekableByteChannel;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
-public class Reader implements Closeable {
-    private final Charset charset;
-    private final SeekableByteChannel seekableByteChannel;
+// Reads the visible part of lines. It is used by the reader thread and the prefetch thread at the same time, which share the cache of decoded lines.
+// Each of them has its own LineDecoder, which is reused, so scrolling produces hardly any garbage besides the lines themselves.
+public class Reader {
+    private static final LinePreview EMPTY_LINE = new LinePreview("");
+    private static final int MAXIMAL_NUMBER_OF_BYTES_TO_SKIP_IN_MERGED_READ = 16 * 1024; // reading a few pages more is cheaper than another read
+    private static final int NUMBER_OF_CHARACTERS_PER_SLAB = 64 * 1024;
 
-    public Reader(String fileName, Charset charset) throws IOException {
-        this.charset = charset;
-        seekableByteChannel = Files.newByteChannel(Paths.get(fileName), StandardOpenOption.READ);
+    private final FileAccess fileAccess;
+
+    private final DecodedLineCache decodedLineCache;
+    private final LineDecoder readerLineDecoder; // only used by readSpecificLines, which is called by the reader thread
+    private final LineDecoder prefetchLineDecoder; // only used by prefetchLines, which is called by the prefetch thread
+
+    public Reader(FileAccess fileAccess, Charset charset) {
+        this.fileAccess = fileAccess;
+        this.decodedLineCache = new DecodedLineCache(IoConstants.DECODED_LINE_CACHE_SIZE_IN_BYTES);
+        this.readerLineDecoder = new LineDecoder(charset);
+        this.prefetchLineDecoder = new LineDecoder(charset);
+    }
+
+    public FileAccess getFileAccess() {
+        return fileAccess;
     }
 
-    public List<LinePreview> readSpecificLines(LinePositions.LinePositionsView linePositions, int indexOfFirstLineToRead, int oneAfterLastLineIndex, ViewerSettings viewerSettings) throws IOException {
+    // returns null if reading was given up, because isSuperseded returned true
+    public List<LinePreview> readSpecificLines(LinePositions.LinePositionsView linePositions, int indexOfFirstLineToRead, int oneAfterLastLineIndex, ViewerSettings viewerSettings, BooleanSupplier isSuperseded) throws IOException {
         long startTimestamp = System.currentTimeMillis();
-        long offsetFromBeginningOfLineInCharacters = viewerSettings.getFirstDisplayedColumnIndex();
-        int numberOfVisibleCharactersPerLine = viewerSettings.getDisplayedColumns();
 
-        if (offsetFromBeginningOfLineInCharacters < 0) {
-            throw new IllegalStateException("Negative offsets are not supported: " + offsetFromBeginningOfLineInCharacters);
+        List<LinePreview> resultingLines = readLines(linePositions, indexOfFirstLineToRead, oneAfterLastLineIndex, viewerSettings, readerLineDecoder, isSuperseded);
+        if (resultingLines == null) {
+            System.out.println("Reader gave up after less than " + (1 + System.currentTimeMillis() - startTimestamp) + "ms");
+            return null;
+        }
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Reader finished in less than " + timePassedInMs + "ms");
+
+        return resultingLines;
+    }
+
+    // reads the given lines into the cache, so they can be displayed right away when they are scrolled into view
+    public void prefetchLines(LinePositions.LinePositionsView linePositions, int indexOfFirstLineToRead, int oneAfterLastLineIndex, ViewerSettings viewerSettings, BooleanSupplier isSuperseded) throws IOException {
+        long startTimestamp = System.currentTimeMillis();
+
+        if (readLines(linePositions, indexOfFirstLineToRead, oneAfterLastLineIndex, viewerSettings, prefetchLineDecoder, isSuperseded) == null) {
+            return;
+        }
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Prefetch of " + (oneAfterLastLineIndex - indexOfFirstLineToRead) + " lines finished in less than " + timePassedInMs + "ms");
+    }
+
+    // Lines which are neither empty nor cached are read in as few reads as possible: as the lines follow each other in the file, the ranges of bytes to
+    // read are merged as long as the gaps between them are small. Horizontally scrolled views of long lines have large gaps, so only the visible
+    // parts of these lines are read. Before each read, isSuperseded is asked whether the lines are still needed. If not, null is returned.
+    private List<LinePreview> readLines(LinePositions.LinePositionsView linePositions, int indexOfFirstLineToRead, int oneAfterLastLineIndex, ViewerSettings viewerSettings, LineDecoder lineDecoder, BooleanSupplier isSuperseded) throws IOException {
+        if (viewerSettings.getFirstDisplayedColumnIndex() < 0) {
+            throw new IllegalStateException("Negative offsets are not supported: " + viewerSettings.getFirstDisplayedColumnIndex());
         }
 
         List<LinePreview> resultingLines = new ArrayList<>(oneAfterLastLineIndex - indexOfFirstLineToRead);
+        lineDecoder.clearLineRanges();
         for (int lineIndex = indexOfFirstLineToRead; lineIndex < oneAfterLastLineIndex; lineIndex++) {
-            if (offsetFromBeginningOfLineInCharacters >= linePositions.getLengthInCharacters(lineIndex)) {
-                resultingLines.add(new LinePreview(""));
+            LinePreview linePreview = null;
+            if (viewerSettings.getFirstDisplayedColumnIndex() >= linePositions.getLengthInCharacters(lineIndex)) {
+                linePreview = EMPTY_LINE;
             } else {
-                int charactersToRead = (int) Math.min(numberOfVisibleCharactersPerLine, linePositions.getLengthInCharacters(lineIndex) - offsetFromBeginningOfLineInCharacters);
-                int characterMultipleToStartReading = (int) (offsetFromBeginningOfLineInCharacters / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
-                int characterMultipleToStopReading = 1 + (int) ((offsetFromBeginningOfLineInCharacters + charactersToRead) / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
-
-                long positionToStartReadingInBytes = linePositions.getCharacterPositionsInBytes(lineIndex)[characterMultipleToStartReading];
-                long positionToStopReadingInBytes;
-                if (characterMultipleToStopReading < linePositions.getCharacterPositionsInBytes(lineIndex).length) {
-                    positionToStopReadingInBytes = linePositions.getCharacterPositionsInBytes(lineIndex)[characterMultipleToStopReading];
-                } else {
-                    positionToStopReadingInBytes = linePositions.getCharacterPositionsInBytes(lineIndex)[0] + linePositions.getLengthInBytes(lineIndex);
+                LineRange lineRange = lineDecoder.addLineRange(linePositions, lineIndex, viewerSettings);
+                linePreview = decodedLineCache.get(lineIndex, viewerSettings.getFirstDisplayedColumnIndex(), viewerSettings.getDisplayedColumns(), lineRange.startOfLineInBytes, lineRange.lengthOfLineInBytes);
+                if (linePreview != null) {
+                    lineDecoder.removeLastLineRange();
                 }
-                int bytesToRead = (int) (positionToStopReadingInBytes - positionToStartReadingInBytes);
+            }
+            resultingLines.add(linePreview); // null until it is read below
+        }
 
-                seekableByteChannel.position(positionToStartReadingInBytes);
-                ByteBuffer lineBuffer = ByteBuffer.allocate(bytesToRead);
-                int bytesRead = seekableByteChannel.read(lineBuffer);
-                if (bytesRead != bytesToRead) {
-                    throw new IllegalStateException("File content changed unexpectedly while reading it");
+        int indexOfFirstRangeOfRead = 0;
+        while (indexOfFirstRangeOfRead < lineDecoder.numberOfLineRanges) {
+            if (isSuperseded.getAsBoolean()) {
+                return null;
+            }
+            LineRange firstRangeOfRead = lineDecoder.lineRanges.get(indexOfFirstRangeOfRead);
+            int oneAfterLastRangeIndexOfRead = indexOfFirstRangeOfRead + 1;
+            long positionToStopReadingInBytes = firstRangeOfRead.positionToStopReadingInBytes;
+            while (oneAfterLastRangeIndexOfRead < lineDecoder.numberOfLineRanges) {
+                LineRange nextRange = lineDecoder.lineRanges.get(oneAfterLastRangeIndexOfRead);
+                if (nextRange.positionToStartReadingInBytes - positionToStopReadingInBytes > MAXIMAL_NUMBER_OF_BYTES_TO_SKIP_IN_MERGED_READ
+                        || nextRange.positionToStopReadingInBytes - firstRangeOfRead.positionToStartReadingInBytes > IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ) {
+                    break;
                 }
-                int numberOfCharactersToDiscardAtStartOfString = (int) (offsetFromBeginningOfLineInCharacters % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
-                String charactersRead = new String(lineBuffer.array(), charset).substring(numberOfCharactersToDiscardAtStartOfString, numberOfCharactersToDiscardAtStartOfString + charactersToRead);
-                resultingLines.add(new LinePreview(charactersRead));
+                positionToStopReadingInBytes = nextRange.positionToStopReadingInBytes;
+                oneAfterLastRangeIndexOfRead++;
             }
-        }
 
-        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
-        System.out.println("Reader finished in less than " + timePassedInMs + "ms");
+            int bytesToRead = (int) (positionToStopReadingInBytes - firstRangeOfRead.positionToStartReadingInBytes);
+            ByteBuffer bytesRead = fileAccess.read(firstRangeOfRead.positionToStartReadingInBytes, bytesToRead, lineDecoder.readBuffer);
+            if (bytesRead.remaining() != bytesToRead) {
+                throw new IllegalStateException("File content changed unexpectedly while reading it");
+            }
+
+            for (int rangeIndex = indexOfFirstRangeOfRead; rangeIndex < oneAfterLastRangeIndexOfRead; rangeIndex++) {
+                LineRange lineRange = lineDecoder.lineRanges.get(rangeIndex);
+                bytesRead.limit((int) (lineRange.positionToStopReadingInBytes - firstRangeOfRead.positionToStartReadingInBytes));
+                bytesRead.position((int) (lineRange.positionToStartReadingInBytes - firstRangeOfRead.positionToStartReadingInBytes));
+                LinePreview linePreview = lineDecoder.decode(bytesRead, lineRange);
+                decodedLineCache.put(lineRange.lineIndex, viewerSettings.getFirstDisplayedColumnIndex(), viewerSettings.getDisplayedColumns(), lineRange.startOfLineInBytes, lineRange.lengthOfLineInBytes, linePreview);
+                resultingLines.set(lineRange.lineIndex - indexOfFirstLineToRead, linePreview);
+            }
+
+            indexOfFirstRangeOfRead = oneAfterLastRangeIndexOfRead;
+        }
 
         return resultingLines;
     }
 
-    @Override
-    public void close() throws IOException {
-        seekableByteChannel.close();
+    // Everything needed to read and decode lines, which is reused from one call to the next. Decoding stops right after the last visible character.
+    // The visible characters are copied into a slab, which is shared by all lines decoded until it is full. A slab is garbage collected as soon as none
+    // of its lines is displayed or cached any more.
+    private static class LineDecoder {
+        private final CharsetDecoder charsetDecoder;
+        private final int numberOfBytesPerCharacterOfSingleWidthLines; // see Scanner.getNumberOfBytesPerCharacterOfSingleWidthLines
+        private final ByteBuffer readBuffer;
+        private CharBuffer decodedCharacters;
+
+        private char[] slab;
+        private int usedCharactersOfSlab;
+
+        private final List<LineRange> lineRanges; // the first numberOfLineRanges ones are in use, the others are kept for later use
+        private int numberOfLineRanges;
+
+        private LineDecoder(Charset charset) {
+            this.charsetDecoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.numberOfBytesPerCharacterOfSingleWidthLines = Scanner.getNumberOfBytesPerCharacterOfSingleWidthLines(charset);
+            this.readBuffer = ByteBuffer.allocateDirect(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ); // channels read into direct buffers without copying
+            this.decodedCharacters = CharBuffer.allocate(IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION + 1024);
+            this.slab = new char[NUMBER_OF_CHARACTERS_PER_SLAB];
+            this.usedCharactersOfSlab = 0;
+            this.lineRanges = new ArrayList<>();
+            this.numberOfLineRanges = 0;
+        }
+
+        private void clearLineRanges() {
+            numberOfLineRanges = 0;
+        }
+
+        private LineRange addLineRange(LinePositions.LinePositionsView linePositions, int lineIndex, ViewerSettings viewerSettings) {
+            if (numberOfLineRanges == lineRanges.size()) {
+                lineRanges.add(new LineRange());
+            }
+            LineRange lineRange = lineRanges.get(numberOfLineRanges);
+            numberOfLineRanges++;
+            lineRange.set(linePositions, lineIndex, viewerSettings, numberOfBytesPerCharacterOfSingleWidthLines);
+            return lineRange;
+        }
+
+        private void removeLastLineRange() {
+            numberOfLineRanges--;
+        }
+
+        // decodes the bytes between position and limit of the given buffer
+        private LinePreview decode(ByteBuffer bytes, LineRange lineRange) {
+            // one more character than needed, so a surrogate pair at the end is decoded completely, like it would be when decoding the whole line
+            int numberOfCharactersToDecode = lineRange.numberOfCharactersToDiscard + lineRange.numberOfCharactersToKeep + 1;
+            if (decodedCharacters.capacity() < numberOfCharactersToDecode) {
+                decodedCharacters = CharBuffer.allocate(numberOfCharactersToDecode);
+            }
+            decodedCharacters.clear();
+            decodedCharacters.limit(numberOfCharactersToDecode);
+
+            charsetDecoder.reset();
+            if (charsetDecoder.decode(bytes, decodedCharacters, true).isUnderflow()) {
+                charsetDecoder.flush(decodedCharacters);
+            }
+            if (decodedCharacters.position() < lineRange.numberOfCharactersToDiscard + lineRange.numberOfCharactersToKeep) {
+                throw new IllegalStateException("File content changed unexpectedly while reading it");
+            }
+
+            if (usedCharactersOfSlab + lineRange.numberOfCharactersToKeep > slab.length) {
+                slab = new char[Math.max(NUMBER_OF_CHARACTERS_PER_SLAB, lineRange.numberOfCharactersToKeep)];
+                usedCharactersOfSlab = 0;
+            }
+            System.arraycopy(decodedCharacters.array(), lineRange.numberOfCharactersToDiscard, slab, usedCharactersOfSlab, lineRange.numberOfCharactersToKeep);
+            LinePreview linePreview = new LinePreview(slab, usedCharactersOfSlab, lineRange.numberOfCharactersToKeep);
+            usedCharactersOfSlab += lineRange.numberOfCharactersToKeep;
+            return linePreview;
+        }
+    }
+
+    // the bytes of the visible part of a line, which start at a known character position, and the characters to take from them after decoding.
+    // In single width lines, in which every character has the same number of bytes, the position of every character is known, so exactly the bytes
+    // of the visible characters are read
+    private static class LineRange {
+        private int lineIndex;
+        private long startOfLineInBytes;
+        private long lengthOfLineInBytes;
+        private long positionToStartReadingInBytes;
+        private long positionToStopReadingInBytes;
+        private int numberOfCharactersToDiscard;
+        private int numberOfCharactersToKeep;
+
+        private void set(LinePositions.LinePositionsView linePositions, int lineIndex, ViewerSettings viewerSettings, int numberOfBytesPerCharacterOfSingleWidthLines) {
+            long offsetFromBeginningOfLineInCharacters = viewerSettings.getFirstDisplayedColumnIndex();
+            long lengthOfLineInCharacters = linePositions.getLengthInCharacters(lineIndex);
+
+            this.lineIndex = lineIndex;
+            this.startOfLineInBytes = linePositions.getCharacterPositionInBytes(lineIndex, 0);
+            this.lengthOfLineInBytes = linePositions.getLengthInBytes(lineIndex);
+            this.numberOfCharactersToKeep = (int) Math.min(viewerSettings.getDisplayedColumns(), lengthOfLineInCharacters - offsetFromBeginningOfLineInCharacters);
+
+            if (lengthOfLineInBytes == numberOfBytesPerCharacterOfSingleWidthLines * lengthOfLineInCharacters) {
+                this.numberOfCharactersToDiscard = 0;
+                this.positionToStartReadingInBytes = startOfLineInBytes + offsetFromBeginningOfLineInCharacters * numberOfBytesPerCharacterOfSingleWidthLines;
+                this.positionToStopReadingInBytes = positionToStartReadingInBytes + (long) numberOfCharactersToKeep * numberOfBytesPerCharacterOfSingleWidthLines;
+                return;
+            }
+
+            this.numberOfCharactersToDiscard = (int) (offsetFromBeginningOfLineInCharacters % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
+
+            int characterMultipleToStartReading = (int) (offsetFromBeginningOfLineInCharacters / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
+            int characterMultipleToStopReading = 1 + (int) ((offsetFromBeginningOfLineInCharacters + numberOfCharactersToKeep) / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
+            this.positionToStartReadingInBytes = linePositions.getCharacterPositionInBytes(lineIndex, characterMultipleToStartReading);
+            if (characterMultipleToStopReading < linePositions.getNumberOfCharacterPositions(lineIndex)) {
+                this.positionToStopReadingInBytes = linePositions.getCharacterPositionInBytes(lineIndex, characterMultipleToStopReading);
+            } else {
+                this.positionToStopReadingInBytes = startOfLineInBytes + lengthOfLineInBytes;
+            }
+        }
     }
 }
@@ -0,0 +1,246 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import com.sab_engineering.tools.sab_viewer.controller.ViewerSettings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Searches a regular expression within lines. A line is never decoded as a whole, but in windows of up to three character positions of its
+// LinePositionBatch. Only matches starting in the middle one belong to a window. The others are context for look-behind and look-ahead, and for
+// matches continuing after the middle one, so in very long lines a match longer than NUMBER_OF_CHARACTERS_PER_BYTE_POSITION may be cut short.
+// When every match starts with a literal prefix of the expression, Searcher finds the prefix at byte level, and the expression is only matched
+// where it occurs. Lines without the prefix are not decoded at all. Otherwise every line is decoded, and the windows are cut out of batches of
+// consecutive lines, which are read at once.
+public class RegexSearcher {
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+    private static final int MAXIMAL_NUMBER_OF_BYTES_PER_CHARACTER = 8; // read after the window, to decode the character following it
+
+    private final FileAccess fileAccess;
+    private final Charset charset;
+    private final CharsetDecoder charsetDecoder;
+
+    private final ByteBuffer readBuffer;
+    private final CharBuffer window;
+
+    // the bytes read last, from which windows are cut as long as they are within them. Batches are only read up to endOfBatchesInBytes, which is
+    // negative while only single windows are read
+    private ByteBuffer batch;
+    private long startOfBatchInBytes;
+    private long endOfBatchInBytes;
+    private long endOfBatchesInBytes;
+
+    // the line and character position the window was decoded for. Positions in the window are relative to firstColumnIndexOfWindow
+    private int lineIndexOfWindow;
+    private int characterPositionIndexOfWindow;
+    private long firstColumnIndexOfWindow;
+    private int startOfOwnedPartOfWindow;
+    private int endOfOwnedPartOfWindow;
+    private int endOfLineContentInWindow; // the character after it is only decoded for look-ahead
+    private boolean windowContainsEndOfLine;
+
+    public RegexSearcher(FileAccess fileAccess, Charset charset) {
+        this.fileAccess = fileAccess;
+        this.charset = charset;
+        this.charsetDecoder = charset.newDecoder();
+        this.charsetDecoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.charsetDecoder.onMalformedInput(CodingErrorAction.REPLACE);
+
+        this.readBuffer = ByteBuffer.allocate(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ);
+        this.window = CharBuffer.allocate(3 * IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION + MAXIMAL_NUMBER_OF_BYTES_PER_CHARACTER);
+        this.lineIndexOfWindow = -1;
+    }
+
+    // Like Searcher.searchInSpecificLines, matches do not overlap, as with Matcher.find
+    public boolean searchInSpecificLines(Pattern pattern, LinePositions.LinePositionsView linePositions, ViewerSettings viewerSettings, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException {
+        long startTimestamp = System.currentTimeMillis();
+        int currentLine = viewerSettings.getFirstDisplayedLineIndex();
+        long currentColumnIndexInLine = viewerSettings.getFirstDisplayedColumnIndex() + 1;
+
+        Matcher matcher = pattern.matcher("");
+        matcher.useTransparentBounds(true); // look-behind and look-ahead see the context of the window
+        matcher.useAnchoringBounds(false); // '^' and '$' only match at the beginning and end of the line, not at those of the window
+        lineIndexOfWindow = -1;
+        batch = null;
+        endOfBatchesInBytes = -1;
+
+        boolean foundMatch;
+        byte[] encodedPrefix = Searcher.encodeForByteLevelSearch(charset, extractLiteralPrefix(pattern));
+        if (encodedPrefix != null) {
+            foundMatch = searchOccurrencesOfPrefix(encodedPrefix, matcher, linePositions, currentLine, currentColumnIndexInLine, resultListener, stopOnFirstResult);
+        } else {
+            foundMatch = searchLines(matcher, linePositions, currentLine, currentColumnIndexInLine, resultListener, stopOnFirstResult);
+        }
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Regular expression search finished in less than " + timePassedInMs + "ms");
+        return foundMatch;
+    }
+
+    // The literal every match starts with, or an empty string if there is none. Alternatives, case insensitive matching and anything else than plain
+    // or escaped characters end the prefix. A character followed by a quantifier, which allows it to be missing, is not part of it
+    static String extractLiteralPrefix(Pattern pattern) {
+        String regularExpression = pattern.pattern();
+        int flags = pattern.flags();
+        if ((flags & (Pattern.CASE_INSENSITIVE | Pattern.CANON_EQ)) != 0) {
+            return "";
+        }
+        if ((flags & Pattern.LITERAL) != 0) {
+            return regularExpression;
+        }
+        if ((flags & Pattern.COMMENTS) != 0 || regularExpression.indexOf('|') >= 0) {
+            return "";
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        int index = 0;
+        while (index < regularExpression.length()) {
+            int codePoint = regularExpression.codePointAt(index);
+            int lengthInExpression = Character.charCount(codePoint);
+            if (codePoint == '\\') {
+                if (index + 1 >= regularExpression.length()) {
+                    break;
+                }
+                codePoint = regularExpression.codePointAt(index + 1);
+                if (Character.isLetterOrDigit(codePoint)) {
+                    break; // character classes, boundaries, back references, quotes and escape sequences
+                }
+                lengthInExpression += Character.charCount(codePoint);
+            } else if (METACHARACTERS.indexOf(codePoint) >= 0) {
+                break;
+            }
+            index += lengthInExpression;
+
+            char nextCharacter = index < regularExpression.length() ? regularExpression.charAt(index) : '\0';
+            if (nextCharacter == '?' || nextCharacter == '*' || nextCharacter == '{') {
+                break;
+            }
+            prefix.appendCodePoint(codePoint);
+            if (nextCharacter == '+') {
+                break;
+            }
+        }
+        return prefix.toString();
+    }
+
+    // every occurrence of the prefix after the end of the previous match is a candidate, at which the expression has to match
+    private boolean searchOccurrencesOfPrefix(byte[] encodedPrefix, Matcher matcher, LinePositions.LinePositionsView linePositions, int currentLine, long currentColumnIndexInLine, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException {
+        long[] endOfPreviousMatch = new long[]{-1, -1}; // line and column
+        BiPredicate<Integer, Long> isMatch = (lineIndex, columnIndex) -> {
+            if (lineIndex == endOfPreviousMatch[0] && columnIndex < endOfPreviousMatch[1]) {
+                return false;
+            }
+            try {
+                decodeWindow(linePositions, lineIndex, (int) (columnIndex / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION), matcher);
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+            matcher.region((int) (columnIndex - firstColumnIndexOfWindow), endOfLineContentInWindow);
+            if (!matcher.lookingAt()) {
+                return false;
+            }
+            endOfPreviousMatch[0] = lineIndex;
+            endOfPreviousMatch[1] = firstColumnIndexOfWindow + matcher.end();
+            return true;
+        };
+
+        Searcher searcher = new Searcher(fileAccess, charset);
+        try {
+            return searcher.searchCandidates(encodedPrefix, linePositions, currentLine, currentColumnIndexInLine, isMatch, resultListener, stopOnFirstResult);
+        } catch (UncheckedIOException uncheckedIOException) {
+            throw uncheckedIOException.getCause();
+        }
+    }
+
+    private boolean searchLines(Matcher matcher, LinePositions.LinePositionsView linePositions, int currentLine, long currentColumnIndexInLine, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException {
+        boolean foundMatch = false;
+        int lastLineIndex = linePositions.getNumberOfContainedLines() - 1;
+        if (lastLineIndex >= 0) {
+            endOfBatchesInBytes = linePositions.getCharacterPositionInBytes(lastLineIndex, 0) + linePositions.getLengthInBytes(lastLineIndex);
+        }
+        for (int lineIndex = currentLine; lineIndex < linePositions.getNumberOfContainedLines(); lineIndex++) {
+            long endOfPreviousMatch = lineIndex == currentLine ? currentColumnIndexInLine : 0;
+            if (endOfPreviousMatch > linePositions.getLengthInCharacters(lineIndex)) {
+                continue;
+            }
+            int characterPositionIndex = (int) (endOfPreviousMatch / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
+            while (true) {
+                decodeWindow(linePositions, lineIndex, characterPositionIndex, matcher);
+                int startOfRegion = (int) Math.max(startOfOwnedPartOfWindow, endOfPreviousMatch - firstColumnIndexOfWindow);
+                if (startOfRegion <= endOfLineContentInWindow) {
+                    matcher.region(startOfRegion, endOfLineContentInWindow);
+                    while (matcher.find() && matcher.start() < endOfOwnedPartOfWindow) {
+                        foundMatch = true;
+                        resultListener.accept(lineIndex, firstColumnIndexOfWindow + matcher.start());
+                        if (stopOnFirstResult) {
+                            return true;
+                        }
+                        endOfPreviousMatch = firstColumnIndexOfWindow + matcher.end();
+                    }
+                }
+                if (windowContainsEndOfLine) {
+                    break;
+                }
+                characterPositionIndex++;
+            }
+        }
+        return foundMatch;
+    }
+
+    // decodes the character positions before and after the given one as well, and the first character after them
+    private void decodeWindow(LinePositions.LinePositionsView linePositions, int lineIndex, int characterPositionIndex, Matcher matcher) throws IOException {
+        if (lineIndex == lineIndexOfWindow && characterPositionIndex == characterPositionIndexOfWindow) {
+            return;
+        }
+        long lengthInCharacters = linePositions.getLengthInCharacters(lineIndex);
+        int numberOfCharacterPositions = linePositions.getNumberOfCharacterPositions(lineIndex);
+        int firstCharacterPositionIndex = Math.max(0, characterPositionIndex - 1);
+        long firstColumnIndex = firstCharacterPositionIndex * (long) IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
+        long endOfLineContentColumnIndex = Math.min(lengthInCharacters, (characterPositionIndex + 2) * (long) IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
+        boolean containsEndOfLine = endOfLineContentColumnIndex == lengthInCharacters;
+
+        long startInBytes = linePositions.getCharacterPositionInBytes(lineIndex, firstCharacterPositionIndex);
+        long endInBytes = linePositions.getCharacterPositionInBytes(lineIndex, 0) + linePositions.getLengthInBytes(lineIndex);
+        if (characterPositionIndex + 2 < numberOfCharacterPositions) {
+            endInBytes = Math.min(endInBytes, linePositions.getCharacterPositionInBytes(lineIndex, characterPositionIndex + 2) + MAXIMAL_NUMBER_OF_BYTES_PER_CHARACTER);
+        }
+        ByteBuffer bytes = readWindow(startInBytes, endInBytes);
+
+        window.clear();
+        charsetDecoder.reset();
+        charsetDecoder.decode(bytes, window, true); // overflows at the look-ahead, when the window is full
+        window.flip();
+        int numberOfCharactersInWindow = (int) (endOfLineContentColumnIndex - firstColumnIndex) + (containsEndOfLine ? 0 : 1);
+        window.limit(Math.min(window.limit(), numberOfCharactersInWindow));
+        matcher.reset(window);
+
+        lineIndexOfWindow = lineIndex;
+        characterPositionIndexOfWindow = characterPositionIndex;
+        firstColumnIndexOfWindow = firstColumnIndex;
+        endOfLineContentInWindow = (int) Math.min(window.limit(), endOfLineContentColumnIndex - firstColumnIndex);
+        startOfOwnedPartOfWindow = (int) Math.min(endOfLineContentInWindow, characterPositionIndex * (long) IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION - firstColumnIndex);
+        endOfOwnedPartOfWindow = containsEndOfLine ? Integer.MAX_VALUE : (int) ((characterPositionIndex + 1) * (long) IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION - firstColumnIndex);
+        windowContainsEndOfLine = containsEndOfLine;
+    }
+
+    // the bytes of a window, which are cut out of the current batch if they are within it. Otherwise a new batch starting at the window is read
+    private ByteBuffer readWindow(long startInBytes, long endInBytes) throws IOException {
+        if (batch == null || startInBytes < startOfBatchInBytes || endInBytes > endOfBatchInBytes) {
+            long endOfReadInBytes = Math.max(endInBytes, Math.min(endOfBatchesInBytes, startInBytes + IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ));
+            batch = fileAccess.read(startInBytes, (int) (endOfReadInBytes - startInBytes), readBuffer);
+            startOfBatchInBytes = startInBytes;
+            endOfBatchInBytes = startInBytes + batch.limit();
+        }
+        batch.limit((int) (Math.min(endInBytes, endOfBatchInBytes) - startOfBatchInBytes));
+        batch.position((int) (startInBytes - startOfBatchInBytes));
+        return batch;
+    }
+}
@@ -0,0 +1,71 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Keeps the lines of recently scanned intervals of all SampledLinePositionBatch of a file, so reading a page again and again, or the lines next to it,
+// does not scan them again. The least recently used intervals are dropped, when the cache exceeds its size.
+public class SampledLineCache {
+    private final long maximalSizeInBytes;
+
+    private final LinkedHashMap<Key, LinePositionBatch> entries; // in access order, so the first one is the least recently used one
+    private long sizeInBytes;
+
+    public SampledLineCache(long maximalSizeInBytes) {
+        this.maximalSizeInBytes = maximalSizeInBytes;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true);
+        this.sizeInBytes = 0;
+    }
+
+    // returns null if the interval is not cached
+    public synchronized LinePositionBatch get(SampledLinePositionBatch sampledLinePositionBatch, int intervalIndex) {
+        return entries.get(new Key(sampledLinePositionBatch, intervalIndex));
+    }
+
+    public synchronized void put(SampledLinePositionBatch sampledLinePositionBatch, int intervalIndex, LinePositionBatch linesOfInterval) {
+        LinePositionBatch replacedLinesOfInterval = entries.put(new Key(sampledLinePositionBatch, intervalIndex), linesOfInterval);
+        if (replacedLinesOfInterval != null) {
+            sizeInBytes -= getEstimatedSizeInBytes(replacedLinesOfInterval);
+        }
+        sizeInBytes += getEstimatedSizeInBytes(linesOfInterval);
+
+        Iterator<Map.Entry<Key, LinePositionBatch>> leastRecentlyUsedEntries = entries.entrySet().iterator();
+        while (sizeInBytes > maximalSizeInBytes && leastRecentlyUsedEntries.hasNext()) {
+            sizeInBytes -= getEstimatedSizeInBytes(leastRecentlyUsedEntries.next().getValue());
+            leastRecentlyUsedEntries.remove();
+        }
+    }
+
+    private static long getEstimatedSizeInBytes(LinePositionBatch linesOfInterval) {
+        return 96 + linesOfInterval.getEstimatedSizeInBytes(); // key and map entry, plus the lines
+    }
+
+    // batches are compared by identity, as the batches of a file scanned again may contain the same positions, but of other lines
+    private static class Key {
+        private final SampledLinePositionBatch sampledLinePositionBatch;
+        private final int intervalIndex;
+
+        private Key(SampledLinePositionBatch sampledLinePositionBatch, int intervalIndex) {
+            this.sampledLinePositionBatch = sampledLinePositionBatch;
+            this.intervalIndex = intervalIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key that = (Key) o;
+            return sampledLinePositionBatch == that.sampledLinePositionBatch && intervalIndex == that.intervalIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(sampledLinePositionBatch) + intervalIndex;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+
+// Sparse representation of a finished batch, which only keeps the beginning of every IoConstants.NUMBER_OF_LINES_PER_SAMPLE-th line as int.
+// The lines of the interval up to the next sample are scanned again when one of them is accessed, which reads a few KB for short lines, and are kept
+// in a SampledLineCache shared by all batches of the file. Intervals which span at least IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION bytes are
+// kept as they are, as scanning them again would read a lot. These are the only ones which may contain long lines with more than one character position,
+// as every character has at least one byte.
+// Like ParallelScanner, this only works for charsets in which a scan can start at the beginning of any line.
+public class SampledLinePositionBatch extends LinePositionBatch {
+    private static final int MAXIMAL_LENGTH_OF_LINE_TERMINATOR_IN_BYTES = 2; // "\r\n"
+
+    private final FileAccess fileAccess;
+    private final Charset charset;
+    private final SampledLineCache sampledLineCache;
+
+    private final long startOfFirstLineInBytes;
+    private final int[] relativeStartOfIntervalInBytes;
+    private final long endOfLastLineInBytes;
+    private final PackedLinePositionBatch[] keptIntervals; // null if no interval is kept, otherwise null for intervals which are scanned again
+
+    private SampledLinePositionBatch(LinePositionBatch other, FileAccess fileAccess, Charset charset, SampledLineCache sampledLineCache) {
+        super(other.getNumberOfContainedLines());
+        this.fileAccess = fileAccess;
+        this.charset = charset;
+        this.sampledLineCache = sampledLineCache;
+
+        startOfFirstLineInBytes = other.getStartPositionInBytes(0);
+        int lastLineIndex = numberOfContainedLines - 1;
+        endOfLastLineInBytes = other.getStartPositionInBytes(lastLineIndex) + other.getLengthInBytes(lastLineIndex);
+
+        int numberOfIntervals = (numberOfContainedLines + IoConstants.NUMBER_OF_LINES_PER_SAMPLE - 1) / IoConstants.NUMBER_OF_LINES_PER_SAMPLE;
+        relativeStartOfIntervalInBytes = new int[numberOfIntervals];
+        PackedLinePositionBatch[] intervalsToKeep = null;
+        for (int intervalIndex = 0; intervalIndex < numberOfIntervals; intervalIndex++) {
+            int firstLineIndex = intervalIndex * IoConstants.NUMBER_OF_LINES_PER_SAMPLE;
+            relativeStartOfIntervalInBytes[intervalIndex] = (int) (other.getStartPositionInBytes(firstLineIndex) - startOfFirstLineInBytes);
+            if (mustBeKept(other, intervalIndex)) {
+                if (intervalsToKeep == null) {
+                    intervalsToKeep = new PackedLinePositionBatch[numberOfIntervals];
+                }
+                intervalsToKeep[intervalIndex] = new PackedLinePositionBatch(new IntervalOfLinePositionBatch(other, firstLineIndex, getNumberOfLinesOfInterval(intervalIndex)));
+            }
+        }
+        keptIntervals = intervalsToKeep;
+    }
+
+    public static boolean supportsCharset(Charset charset) {
+        return ParallelScanner.supportsCharset(charset);
+    }
+
+    // returns the given batch, if it spans more than 2GB. Then all of its intervals would be kept anyway
+    public static LinePositionBatch sample(LinePositionBatch linePositionBatch, FileAccess fileAccess, Charset charset, SampledLineCache sampledLineCache) {
+        int lastLineIndex = linePositionBatch.getNumberOfContainedLines() - 1;
+        if (linePositionBatch.getStartPositionInBytes(lastLineIndex) - linePositionBatch.getStartPositionInBytes(0) > Integer.MAX_VALUE) {
+            return linePositionBatch;
+        }
+        return new SampledLinePositionBatch(linePositionBatch, fileAccess, charset, sampledLineCache);
+    }
+
+    @Override
+    public long[] getCharacterPositionsInBytes(int lineIndex) {
+        return getInterval(lineIndex).getCharacterPositionsInBytes(lineIndex % IoConstants.NUMBER_OF_LINES_PER_SAMPLE);
+    }
+
+    @Override
+    public int getNumberOfCharacterPositions(int lineIndex) {
+        return getInterval(lineIndex).getNumberOfCharacterPositions(lineIndex % IoConstants.NUMBER_OF_LINES_PER_SAMPLE);
+    }
+
+    @Override
+    public long getCharacterPositionInBytes(int lineIndex, int characterPositionIndex) {
+        if (characterPositionIndex == 0) {
+            return getStartPositionInBytes(lineIndex);
+        }
+        return getInterval(lineIndex).getCharacterPositionInBytes(lineIndex % IoConstants.NUMBER_OF_LINES_PER_SAMPLE, characterPositionIndex);
+    }
+
+    @Override
+    public long getStartPositionInBytes(int lineIndex) {
+        checkLineIndex(lineIndex);
+        if (lineIndex % IoConstants.NUMBER_OF_LINES_PER_SAMPLE == 0) {
+            return getStartOfIntervalInBytes(lineIndex / IoConstants.NUMBER_OF_LINES_PER_SAMPLE);
+        }
+        return getInterval(lineIndex).getStartPositionInBytes(lineIndex % IoConstants.NUMBER_OF_LINES_PER_SAMPLE);
+    }
+
+    @Override
+    public long getLengthInBytes(int lineIndex) {
+        return getInterval(lineIndex).getLengthInBytes(lineIndex % IoConstants.NUMBER_OF_LINES_PER_SAMPLE);
+    }
+
+    @Override
+    public long getLengthInCharacters(int lineIndex) {
+        return getInterval(lineIndex).getLengthInCharacters(lineIndex % IoConstants.NUMBER_OF_LINES_PER_SAMPLE);
+    }
+
+    // without the scanned intervals in the cache
+    @Override
+    public long getEstimatedSizeInBytes() {
+        long estimatedSizeInBytes = 96 + relativeStartOfIntervalInBytes.length * 4L;
+        if (keptIntervals != null) {
+            estimatedSizeInBytes += 16 + keptIntervals.length * 8L;
+            for (PackedLinePositionBatch keptInterval : keptIntervals) {
+                if (keptInterval != null) {
+                    estimatedSizeInBytes += keptInterval.getEstimatedSizeInBytes();
+                }
+            }
+        }
+        return estimatedSizeInBytes;
+    }
+
+    private static boolean mustBeKept(LinePositionBatch linePositionBatch, int intervalIndex) {
+        int firstLineIndex = intervalIndex * IoConstants.NUMBER_OF_LINES_PER_SAMPLE;
+        int lastLineIndex = Math.min(firstLineIndex + IoConstants.NUMBER_OF_LINES_PER_SAMPLE, linePositionBatch.getNumberOfContainedLines()) - 1;
+        long endOfIntervalInBytes = linePositionBatch.getStartPositionInBytes(lastLineIndex) + linePositionBatch.getLengthInBytes(lastLineIndex);
+        return endOfIntervalInBytes - linePositionBatch.getStartPositionInBytes(firstLineIndex) >= IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
+    }
+
+    private LinePositionBatch getInterval(int lineIndex) {
+        checkLineIndex(lineIndex);
+        int intervalIndex = lineIndex / IoConstants.NUMBER_OF_LINES_PER_SAMPLE;
+        if (keptIntervals != null && keptIntervals[intervalIndex] != null) {
+            return keptIntervals[intervalIndex];
+        }
+        LinePositionBatch linesOfInterval = sampledLineCache.get(this, intervalIndex);
+        if (linesOfInterval == null) {
+            linesOfInterval = scanInterval(intervalIndex);
+            sampledLineCache.put(this, intervalIndex, linesOfInterval);
+        }
+        return linesOfInterval;
+    }
+
+    // The interval ends at the beginning of the next one, so its last line break is scanned as well. The line break after the last line of the batch is
+    // not known, so up to two more bytes are scanned, and the lines they may begin are ignored. Reading a few KB is not worth being interrupted for,
+    // as it is quicker than dealing with an aborted read. So the thread is only interrupted again afterwards
+    private LinePositionBatch scanInterval(int intervalIndex) {
+        long startOfIntervalInBytes = getStartOfIntervalInBytes(intervalIndex);
+        long endOfIntervalInBytes = intervalIndex + 1 < relativeStartOfIntervalInBytes.length ? getStartOfIntervalInBytes(intervalIndex + 1) : endOfLastLineInBytes + MAXIMAL_LENGTH_OF_LINE_TERMINATOR_IN_BYTES;
+        int numberOfLinesOfInterval = getNumberOfLinesOfInterval(intervalIndex);
+
+        LinePositionBatch[] scannedLines = new LinePositionBatch[1];
+        boolean interrupted = Thread.interrupted();
+        try {
+            Scanner scanner = new Scanner(fileAccess, charset, startOfIntervalInBytes, endOfIntervalInBytes, positionBatch -> scannedLines[0] = positionBatch,
+                    positionBatchPreview -> {
+                        // the interval is only used when it is complete. It is published as finished batch
+                    }
+            );
+            scanner.scanFile();
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Unable to scan " + numberOfLinesOfInterval + " lines at byte " + startOfIntervalInBytes + " again", ioException);
+        } catch (InterruptedException interruptedException) {
+            interrupted = true; // only while memory runs out, which is not checked for less than a batch
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (scannedLines[0] == null || scannedLines[0].getNumberOfContainedLines() < numberOfLinesOfInterval) {
+            throw new UncheckedIOException(new IOException("Lines at byte " + startOfIntervalInBytes + " changed since they were scanned"));
+        }
+        if (scannedLines[0].getNumberOfContainedLines() > numberOfLinesOfInterval) {
+            return new PackedLinePositionBatch(new IntervalOfLinePositionBatch(scannedLines[0], 0, numberOfLinesOfInterval));
+        }
+        return scannedLines[0];
+    }
+
+    private long getStartOfIntervalInBytes(int intervalIndex) {
+        return startOfFirstLineInBytes + relativeStartOfIntervalInBytes[intervalIndex];
+    }
+
+    private int getNumberOfLinesOfInterval(int intervalIndex) {
+        return Math.min(IoConstants.NUMBER_OF_LINES_PER_SAMPLE, numberOfContainedLines - intervalIndex * IoConstants.NUMBER_OF_LINES_PER_SAMPLE);
+    }
+
+    private void checkLineIndex(int lineIndex) {
+        if (lineIndex < 0 || lineIndex >= numberOfContainedLines) {
+            throw new IndexOutOfBoundsException("Line index " + lineIndex + " is not between 0 and " + numberOfContainedLines);
+        }
+    }
+
+    // some consecutive lines of another batch, to pack them on their own
+    private static class IntervalOfLinePositionBatch extends LinePositionBatch {
+        private final LinePositionBatch linePositionBatch;
+        private final int firstLineIndex;
+
+        private IntervalOfLinePositionBatch(LinePositionBatch linePositionBatch, int firstLineIndex, int numberOfContainedLines) {
+            super(numberOfContainedLines);
+            this.linePositionBatch = linePositionBatch;
+            this.firstLineIndex = firstLineIndex;
+        }
+
+        @Override
+        public long[] getCharacterPositionsInBytes(int lineIndex) {
+            return linePositionBatch.getCharacterPositionsInBytes(firstLineIndex + lineIndex);
+        }
+
+        @Override
+        public int getNumberOfCharacterPositions(int lineIndex) {
+            return linePositionBatch.getNumberOfCharacterPositions(firstLineIndex + lineIndex);
+        }
+
+        @Override
+        public long getCharacterPositionInBytes(int lineIndex, int characterPositionIndex) {
+            return linePositionBatch.getCharacterPositionInBytes(firstLineIndex + lineIndex, characterPositionIndex);
+        }
+
+        @Override
+        public long getLengthInBytes(int lineIndex) {
+            return linePositionBatch.getLengthInBytes(firstLineIndex + lineIndex);
+        }
+
+        @Override
+        public long getLengthInCharacters(int lineIndex) {
+            return linePositionBatch.getLengthInCharacters(firstLineIndex + lineIndex);
+        }
+
+        @Override
+        public long getEstimatedSizeInBytes() {
+            return linePositionBatch.getEstimatedSizeInBytes();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+// Searches a literal term in the bytes Scanner reads, while they are still in the cache, so a file searched right after opening is read only once.
+// The bytes scanned before the term was registered are searched by searchBytesBeforeScan in another thread. Found positions are kept until the
+// lines containing them are scanned, and are converted to line and column in the order of the file. Like ParallelSearcher, this only works for terms
+// which Searcher searches at byte level. The term may be registered before the file is opened, so the file is passed when it is read.
+public class ScanSearcher {
+    private final Charset charset;
+    private final byte[] encodedSearchTerm;
+    private final int[] skipTable;
+
+    // only accessed by the scanner thread: the last bytes of the previous buffer, as a match may continue in the next one
+    private final ByteBuffer endOfPreviousBytes;
+    private long positionOfEndOfPreviousBytesInBytes;
+
+    // the following are accessed while synchronized on this
+    private long startOfScannedBytesInBytes; // -1 until Scanner passed the first bytes or the scan ended
+    private boolean scanEnded;
+    private boolean bytesBeforeScanSearched;
+    private long[] positionsOfMatchesBeforeScan;
+    private int numberOfMatchesBeforeScan;
+    private long[] positionsOfScannedMatches;
+    private int numberOfScannedMatches;
+    private Searcher searcher; // converts positions to line and column. Created with the first conversion
+
+    public ScanSearcher(Charset charset, String literalSearchTerm) {
+        byte[] encodedSearchTerm = Searcher.encodeForByteLevelSearch(charset, literalSearchTerm);
+        if (encodedSearchTerm == null) {
+            throw new IllegalArgumentException("Search term is not searched at byte level, so it can not be searched while scanning");
+        }
+        this.charset = charset;
+        this.encodedSearchTerm = encodedSearchTerm;
+        this.skipTable = Searcher.computeSkipTable(encodedSearchTerm);
+
+        this.endOfPreviousBytes = ByteBuffer.allocate(2 * (encodedSearchTerm.length - 1));
+        this.positionOfEndOfPreviousBytesInBytes = -1;
+
+        this.startOfScannedBytesInBytes = -1;
+        this.scanEnded = false;
+        this.bytesBeforeScanSearched = false;
+        this.positionsOfMatchesBeforeScan = new long[16];
+        this.numberOfMatchesBeforeScan = 0;
+        this.positionsOfScannedMatches = new long[16];
+        this.numberOfScannedMatches = 0;
+        this.searcher = null;
+    }
+
+    public static boolean supportsSearchTerm(Charset charset, String literalSearchTerm) {
+        return Searcher.encodeForByteLevelSearch(charset, literalSearchTerm) != null;
+    }
+
+    // called by Scanner with every buffer it reads, in the order of the file. The bytes between position and limit must not be changed
+    public void searchScannedBytes(long positionInBytes, ByteBuffer bytes) {
+        synchronized (this) {
+            if (startOfScannedBytesInBytes < 0) {
+                startOfScannedBytesInBytes = positionInBytes;
+                notifyAll();
+            }
+        }
+        int numberOfBytes = bytes.remaining();
+        int searchTermLength = encodedSearchTerm.length;
+
+        // matches starting in the previous bytes and continuing in these
+        if (positionOfEndOfPreviousBytesInBytes >= 0 && endOfPreviousBytes.position() > 0) {
+            int numberOfPreviousBytes = endOfPreviousBytes.position();
+            for (int i = 0; i < Math.min(searchTermLength - 1, numberOfBytes); i++) {
+                endOfPreviousBytes.put(bytes.get(bytes.position() + i));
+            }
+            endOfPreviousBytes.flip();
+            int startOfMatch = Searcher.findMatch(endOfPreviousBytes, 0, Math.min(numberOfPreviousBytes - 1, endOfPreviousBytes.limit() - searchTermLength), encodedSearchTerm, skipTable);
+            while (startOfMatch >= 0) {
+                addScannedMatch(positionOfEndOfPreviousBytesInBytes + startOfMatch);
+                startOfMatch = Searcher.findMatch(endOfPreviousBytes, startOfMatch + 1, Math.min(numberOfPreviousBytes - 1, endOfPreviousBytes.limit() - searchTermLength), encodedSearchTerm, skipTable);
+            }
+        }
+
+        ByteBuffer bytesToSearch = bytes.slice();
+        int lastPossibleStartOfMatch = numberOfBytes - searchTermLength;
+        int startOfMatch = Searcher.findMatch(bytesToSearch, 0, lastPossibleStartOfMatch, encodedSearchTerm, skipTable);
+        while (startOfMatch >= 0) {
+            addScannedMatch(positionInBytes + startOfMatch);
+            startOfMatch = Searcher.findMatch(bytesToSearch, startOfMatch + 1, lastPossibleStartOfMatch, encodedSearchTerm, skipTable);
+        }
+
+        int numberOfBytesToKeep = Math.min(searchTermLength - 1, numberOfBytes);
+        endOfPreviousBytes.clear();
+        for (int i = numberOfBytes - numberOfBytesToKeep; i < numberOfBytes; i++) {
+            endOfPreviousBytes.put(bytesToSearch.get(i));
+        }
+        positionOfEndOfPreviousBytesInBytes = positionInBytes + numberOfBytes - numberOfBytesToKeep;
+    }
+
+    // called when the scan is done, so the searched bytes are complete and all lines are known. Bytes up to the given position are searched by
+    // searchBytesBeforeScan, if Scanner did not pass any
+    public synchronized void endScan(long endOfScannedBytesInBytes) {
+        if (startOfScannedBytesInBytes < 0) {
+            startOfScannedBytesInBytes = endOfScannedBytesInBytes;
+        }
+        scanEnded = true;
+        notifyAll();
+    }
+
+    // waits until it is known which bytes Scanner passes to searchScannedBytes. Then the file is open
+    public synchronized void awaitStartOfScannedBytes() throws InterruptedException {
+        while (startOfScannedBytesInBytes < 0) {
+            wait();
+        }
+    }
+
+    // supposed to be run in its own thread, after awaitStartOfScannedBytes
+    public void searchBytesBeforeScan(FileAccess fileAccess) throws IOException {
+        long endOfMatchesInBytes;
+        synchronized (this) {
+            endOfMatchesInBytes = startOfScannedBytesInBytes;
+        }
+
+        int searchTermLength = encodedSearchTerm.length;
+        long endOfSearchInBytes = Math.min(fileAccess.getSizeInBytes(), endOfMatchesInBytes + searchTermLength - 1);
+        long positionToSearchFromInBytes = 0;
+        ByteBuffer readBuffer = ByteBuffer.allocate(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ);
+        while (endOfSearchInBytes - positionToSearchFromInBytes >= searchTermLength) {
+            int bytesToRead = (int) Math.min(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ, endOfSearchInBytes - positionToSearchFromInBytes);
+            ByteBuffer bytes = fileAccess.read(positionToSearchFromInBytes, bytesToRead, readBuffer);
+            int lastPossibleStartOfMatch = (int) Math.min(bytes.limit() - searchTermLength, endOfMatchesInBytes - 1 - positionToSearchFromInBytes);
+            if (lastPossibleStartOfMatch < 0) {
+                break; // the file was truncated
+            }
+            int startOfMatch = Searcher.findMatch(bytes, 0, lastPossibleStartOfMatch, encodedSearchTerm, skipTable);
+            while (startOfMatch >= 0) {
+                addMatchBeforeScan(positionToSearchFromInBytes + startOfMatch);
+                startOfMatch = Searcher.findMatch(bytes, startOfMatch + 1, lastPossibleStartOfMatch, encodedSearchTerm, skipTable);
+            }
+            positionToSearchFromInBytes += lastPossibleStartOfMatch + 1;
+        }
+
+        synchronized (this) {
+            bytesBeforeScanSearched = true;
+        }
+    }
+
+    // Searches the bytes from the given position to the end of the file, which a scan from both ends did not pass to searchScannedBytes (see
+    // TailScanner). Supposed to be called by the scanner thread after the scan, before endScan
+    public void searchBytesAfterScan(FileAccess fileAccess, long positionToSearchFromInBytes) throws IOException {
+        long endOfSearchInBytes = fileAccess.getSizeInBytes();
+        ByteBuffer readBuffer = ByteBuffer.allocate(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ);
+        while (positionToSearchFromInBytes < endOfSearchInBytes) {
+            int bytesToRead = (int) Math.min(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ, endOfSearchInBytes - positionToSearchFromInBytes);
+            ByteBuffer bytes = fileAccess.read(positionToSearchFromInBytes, bytesToRead, readBuffer);
+            if (!bytes.hasRemaining()) {
+                break; // the file was truncated
+            }
+            // like scanned bytes, so matches continuing from the scanned bytes into these are found as well
+            searchScannedBytes(positionToSearchFromInBytes, bytes);
+            positionToSearchFromInBytes += bytes.remaining();
+        }
+    }
+
+    // Converts the matches in the given lines, which were not converted yet, except those in the last line, as it may still be incomplete. The matches
+    // before the scan are converted first. Returns true when all matches were converted
+    public synchronized boolean convertMatches(FileAccess fileAccess, LinePositions.LinePositionsView linePositions, BiConsumer<Integer, Long> resultListener) throws IOException {
+        if (!bytesBeforeScanSearched) {
+            return false;
+        }
+        if (searcher == null) {
+            searcher = new Searcher(fileAccess, charset);
+        }
+        int numberOfLines = linePositions.getNumberOfContainedLines();
+        long endOfCompleteLinesInBytes = scanEnded ? Long.MAX_VALUE : (numberOfLines > 0 ? linePositions.getCharacterPositionInBytes(numberOfLines - 1, 0) : 0);
+
+        int numberOfConvertedMatches = countMatchesBefore(positionsOfMatchesBeforeScan, numberOfMatchesBeforeScan, endOfCompleteLinesInBytes);
+        searcher.convertPositionsOfMatches(positionsOfMatchesBeforeScan, 0, numberOfConvertedMatches, linePositions, resultListener);
+        positionsOfMatchesBeforeScan = Arrays.copyOfRange(positionsOfMatchesBeforeScan, numberOfConvertedMatches, Math.max(numberOfConvertedMatches + 16, numberOfMatchesBeforeScan));
+        numberOfMatchesBeforeScan -= numberOfConvertedMatches;
+        if (numberOfMatchesBeforeScan > 0) {
+            return false;
+        }
+
+        numberOfConvertedMatches = countMatchesBefore(positionsOfScannedMatches, numberOfScannedMatches, endOfCompleteLinesInBytes);
+        searcher.convertPositionsOfMatches(positionsOfScannedMatches, 0, numberOfConvertedMatches, linePositions, resultListener);
+        positionsOfScannedMatches = Arrays.copyOfRange(positionsOfScannedMatches, numberOfConvertedMatches, Math.max(numberOfConvertedMatches + 16, numberOfScannedMatches));
+        numberOfScannedMatches -= numberOfConvertedMatches;
+
+        return scanEnded && numberOfScannedMatches == 0;
+    }
+
+    private static int countMatchesBefore(long[] positionsInBytes, int numberOfPositions, long endInBytes) {
+        int index = 0;
+        while (index < numberOfPositions && positionsInBytes[index] < endInBytes) {
+            index++;
+        }
+        return index;
+    }
+
+    private synchronized void addScannedMatch(long positionInBytes) {
+        if (numberOfScannedMatches == positionsOfScannedMatches.length) {
+            positionsOfScannedMatches = Arrays.copyOf(positionsOfScannedMatches, numberOfScannedMatches * 2);
+        }
+        positionsOfScannedMatches[numberOfScannedMatches] = positionInBytes;
+        numberOfScannedMatches++;
+    }
+
+    private synchronized void addMatchBeforeScan(long positionInBytes) {
+        if (numberOfMatchesBeforeScan == positionsOfMatchesBeforeScan.length) {
+            positionsOfMatchesBeforeScan = Arrays.copyOf(positionsOfMatchesBeforeScan, numberOfMatchesBeforeScan * 2);
+        }
+        positionsOfMatchesBeforeScan[numberOfMatchesBeforeScan] = positionInBytes;
+        numberOfMatchesBeforeScan++;
+    }
+}
@@ -2,26 +2,42 @@ package com.sab_engineering.tools.sab_viewer.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.CharBuffer;
-import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
 
 public class Scanner {
-    private final String fileName;
+    private static final long ALL_BYTES_0x01 = 0x0101010101010101L;
+    private static final long ALL_BYTES_0x80 = 0x8080808080808080L;
+    private static final long ALL_BYTES_LINE_FEED = 0x0A0A0A0A0A0A0A0AL;
+    private static final long ALL_BYTES_CARRIAGE_RETURN = 0x0D0D0D0D0D0D0D0DL;
+    private static final int MINIMAL_NUMBER_OF_BYTES_TO_BUFFER = 4096; // much more than NUMBER_OF_BYTES_TO_DECODE_OPPORTUNISTICALLY * 4
+
+    private final FileAccess fileAccess;
     private final CharsetDecoder charsetDecoder;
+    private final boolean byteLevelScanning; // see supportsByteLevelScanning
+    private final boolean multiByteCharactersPossible;
+    private final int numberOfBytesPerCharacterOfSingleWidthLines; // see getNumberOfBytesPerCharacterOfSingleWidthLines
+
+    private final long startPositionInBytes; // has to be the beginning of a line
+    private long endPositionInBytes; // exclusive; has to be the beginning of a line or Long.MAX_VALUE to scan until EOF. Only lowered by endPositionLimiter
+    private final LongUnaryOperator endPositionLimiter; // null if the end is fixed. See TailScanner.limitForwardScan
+    private final FileFollower fileFollower; // null to stop at EOF
 
     private final Consumer<LinePositionBatch> positionsListener;
     private final Consumer<MutableLinePositionBatch> positionsPreviewListener;
-
-    int numberOfMemoryRetries;
+    private final BiConsumer<Long, ByteBuffer> scannedBytesListener; // null if nobody is interested. Only called during byte level scanning
 
     private final ByteBuffer readBuffer;
     private final CharBuffer opportunisticDecodeBuffer;
@@ -31,159 +47,481 @@ public class Scanner {
 
     private MutableLinePositionBatch mutableLinePositionBatch;
 
-    public Scanner(String fileName, Charset charset, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener) {
-        this.fileName = fileName;
+    // state of the current line during byte level scanning
+    private long[] characterPositionsOfCurrentLineInBytes;
+    private int numberOfCharacterPositionsOfCurrentLine;
+    private long charactersInCurrentLine;
+    private boolean lastByteWasCarriageReturn;
+
+    public Scanner(FileAccess fileAccess, Charset charset, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener) {
+        this(fileAccess, charset, 0, Long.MAX_VALUE, positionsListener, positionsPreviewListener);
+    }
+
+    // scans only the lines in the given range. Line indices in the published batches are relative to startPositionInBytes
+    public Scanner(FileAccess fileAccess, Charset charset, long startPositionInBytes, long endPositionInBytes, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener) {
+        this(fileAccess, charset, startPositionInBytes, endPositionInBytes, null, null, positionsListener, positionsPreviewListener, null);
+    }
+
+    // scans until EOF, or until the position returned by endPositionLimiter, which is asked before every read with the end of the bytes to read
+    public Scanner(FileAccess fileAccess, Charset charset, long startPositionInBytes, LongUnaryOperator endPositionLimiter, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener) {
+        this(fileAccess, charset, startPositionInBytes, Long.MAX_VALUE, endPositionLimiter, null, positionsListener, positionsPreviewListener, null);
+    }
+
+    // passes every buffer of bytes to scannedBytesListener before scanning it, e.g. to search it while it is in the cache (see ScanSearcher)
+    public Scanner(FileAccess fileAccess, Charset charset, long startPositionInBytes, long endPositionInBytes, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener, BiConsumer<Long, ByteBuffer> scannedBytesListener) {
+        this(fileAccess, charset, startPositionInBytes, endPositionInBytes, null, null, positionsListener, positionsPreviewListener, scannedBytesListener);
+    }
+
+    // like the previous one, but the end is limited by endPositionLimiter
+    public Scanner(FileAccess fileAccess, Charset charset, long startPositionInBytes, LongUnaryOperator endPositionLimiter, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener, BiConsumer<Long, ByteBuffer> scannedBytesListener) {
+        this(fileAccess, charset, startPositionInBytes, Long.MAX_VALUE, endPositionLimiter, null, positionsListener, positionsPreviewListener, scannedBytesListener);
+    }
+
+    // does not stop at EOF, but waits for the file to grow and keeps scanning the appended lines
+    public Scanner(FileAccess fileAccess, Charset charset, long startPositionInBytes, FileFollower fileFollower, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener) {
+        this(fileAccess, charset, startPositionInBytes, Long.MAX_VALUE, null, fileFollower, positionsListener, positionsPreviewListener, null);
+    }
+
+    private Scanner(FileAccess fileAccess, Charset charset, long startPositionInBytes, long endPositionInBytes, LongUnaryOperator endPositionLimiter, FileFollower fileFollower, Consumer<LinePositionBatch> positionsListener, Consumer<MutableLinePositionBatch> positionsPreviewListener, BiConsumer<Long, ByteBuffer> scannedBytesListener) {
+        this.fileAccess = fileAccess;
+        this.startPositionInBytes = startPositionInBytes;
+        this.endPositionInBytes = endPositionInBytes;
+        this.endPositionLimiter = endPositionLimiter;
+        this.fileFollower = fileFollower;
         this.charsetDecoder = charset.newDecoder();
         this.charsetDecoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
         this.charsetDecoder.onMalformedInput(CodingErrorAction.REPLACE);
         this.positionsListener = positionsListener;
         this.positionsPreviewListener = positionsPreviewListener;
+        this.scannedBytesListener = scannedBytesListener;
+        this.byteLevelScanning = supportsByteLevelScanning(charset);
+        this.multiByteCharactersPossible = StandardCharsets.UTF_8.equals(charset);
+        this.numberOfBytesPerCharacterOfSingleWidthLines = getNumberOfBytesPerCharacterOfSingleWidthLines(charset);
 
-        this.numberOfMemoryRetries = 10;
-
-        this.readBuffer = ByteBuffer.allocate(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ);
+        // small ranges, like the intervals of SampledLinePositionBatch, which are scanned again and again, don't need the whole buffer
+        this.readBuffer = ByteBuffer.allocate((int) Math.min(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ, Math.max(endPositionInBytes - startPositionInBytes, MINIMAL_NUMBER_OF_BYTES_TO_BUFFER)));
         this.opportunisticDecodeBuffer = CharBuffer.allocate(IoConstants.NUMBER_OF_BYTES_TO_DECODE_OPPORTUNISTICALLY);
-        this.fallbackDecodeBuffer = CharBuffer.allocate(1);
+        this.fallbackDecodeBuffer = CharBuffer.allocate(2); // a single character may need two chars
+        this.characterPositionsOfCurrentLineInBytes = new long[16];
 
         this.numberOfLinesRead = 0;
 
         initPositionsBatch();
     }
 
+    // true for charsets in which '\n' and '\r' are always single bytes, which can not be part of any other character (e.g. UTF-8, ISO-8859-1)
+    public static boolean supportsByteLevelScanning(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return true;
+        }
+        if (!charset.canEncode()) {
+            return false;
+        }
+        CharsetEncoder charsetEncoder = charset.newEncoder();
+        if (charsetEncoder.maxBytesPerChar() != 1.0f) {
+            return false;
+        }
+        try {
+            ByteBuffer encodedLineBreaks = charsetEncoder.encode(CharBuffer.wrap("\n\r"));
+            return encodedLineBreaks.remaining() == 2 && encodedLineBreaks.get(0) == '\n' && encodedLineBreaks.get(1) == '\r';
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    // In a line with n times as many bytes as characters, every character has n bytes, if no character of the charset has less. Then the position of
+    // a character is computed, so the position of every n-th character is not needed (see LinePositionsView). Returns 0 for charsets in which this
+    // does not work: in UTF-16 both halves of a surrogate pair are located at the beginning of the pair, and there is no such n for other charsets
+    public static int getNumberOfBytesPerCharacterOfSingleWidthLines(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return 1; // lines of ASCII characters
+        }
+        if ("UTF-32".equals(charset.name()) || "UTF-32BE".equals(charset.name()) || "UTF-32LE".equals(charset.name())) {
+            return 4; // lines without surrogate pairs
+        }
+        if (charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f) {
+            return 1; // e.g. ISO-8859-x
+        }
+        return 0;
+    }
+
+    // Finished batches are moved out of the heap beyond their budget (see LinePositionBatchStore), so the heap is only exhausted by something else, e.g.
+    // a heap that is far too small. As a last resort, the scan stops then and true is returned. The lines published so far stay usable
     public boolean scanFile() throws IOException, InterruptedException {
-        try (SeekableByteChannel seekableByteChannel = Files.newByteChannel(Paths.get(fileName), StandardOpenOption.READ)) {
-            long positionInBytes = 0;
-            long positionInBytesToStartOpportunisticEncoding = 0;
-
-            final ArrayList<Long> characterPositionEveryNCharactersInBytes = new ArrayList<>();
-            long decodeFallbackCharacterPositionsSize;
-
-            long charactersInCurrentLine = 0;
-            long decodeFallbackCharacterInCurrentLine;
-
-            char lastCharacter = '\0';
-            char decodeFallbackLastCharacter;
-
-            boolean byteChannelIsAtEOF;
-            do {
-                int bytesRead = seekableByteChannel.read(readBuffer);
-                byteChannelIsAtEOF = bytesRead == -1;
-                readBuffer.flip();
-                if (readBuffer.hasRemaining()) {
-                    do {
-                        decodeFallbackCharacterPositionsSize = characterPositionEveryNCharactersInBytes.size();
-                        decodeFallbackCharacterInCurrentLine = charactersInCurrentLine;
-                        decodeFallbackLastCharacter = lastCharacter;
-
-                        int readBufferPositionBeforeDecode = readBuffer.position();
-
-                        CharBuffer decodeBuffer;
-                        if (positionInBytes < positionInBytesToStartOpportunisticEncoding) {
-                            decodeBuffer = fallbackDecodeBuffer;
-                        } else {
-                            decodeBuffer = opportunisticDecodeBuffer;
+        try {
+            if (byteLevelScanning) {
+                scanBytes();
+            } else {
+                decodeAndScan();
+            }
+        } catch (OutOfMemoryError outOfMemoryError) {
+            System.out.println("Scan stopped, as memory ran out: " + outOfMemoryError);
+            return true;
+        }
+        publishFinishedPositionBatch();
+        return false;
+    }
+
+    private void decodeAndScan() throws IOException, InterruptedException {
+        long positionToReadInBytes = startPositionInBytes;
+        long positionInBytes = startPositionInBytes;
+        long positionInBytesToStartOpportunisticEncoding = startPositionInBytes;
+
+        final ArrayList<Long> characterPositionEveryNCharactersInBytes = new ArrayList<>();
+        long decodeFallbackCharacterPositionsSize;
+
+        long charactersInCurrentLine = 0;
+        long decodeFallbackCharacterInCurrentLine;
+
+        char lastCharacter = '\0';
+        char decodeFallbackLastCharacter;
+
+        boolean byteChannelIsAtEOF;
+        do {
+            int bytesRead = readNextBytes(positionToReadInBytes);
+            byteChannelIsAtEOF = bytesRead == -1;
+            if (bytesRead > 0) {
+                positionToReadInBytes += bytesRead;
+            }
+            boolean waitForFileToGrow = false;
+            if (byteChannelIsAtEOF && fileFollower != null) {
+                // all bytes that are available have to be processed now, but an incomplete character at the end needs to wait for the rest of its bytes
+                byteChannelIsAtEOF = false;
+                waitForFileToGrow = true;
+            }
+            readBuffer.flip();
+            boolean decodeMore = byteChannelIsAtEOF || waitForFileToGrow || bufferHasEnoughBytesToNotUnderflowDuringDecode(readBuffer);
+            while (readBuffer.hasRemaining() && decodeMore) {
+                boolean decodeWasReset = false;
+                decodeFallbackCharacterPositionsSize = characterPositionEveryNCharactersInBytes.size();
+                decodeFallbackCharacterInCurrentLine = charactersInCurrentLine;
+                decodeFallbackLastCharacter = lastCharacter;
+
+                int readBufferPositionBeforeDecode = readBuffer.position();
+
+                CharBuffer decodeBuffer;
+                if (positionInBytes < positionInBytesToStartOpportunisticEncoding) {
+                    decodeBuffer = fallbackDecodeBuffer;
+                } else {
+                    decodeBuffer = opportunisticDecodeBuffer;
+                }
+                decodeBuffer.clear();
+                int remainingCharactersBeforeMarker = IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION - (int) (charactersInCurrentLine % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
+                int maximalNumberOfCharactersToDecode = decodeBuffer == fallbackDecodeBuffer ? 1 : decodeBuffer.capacity();
+                decodeBuffer.limit(Math.min(maximalNumberOfCharactersToDecode, remainingCharactersBeforeMarker));
+
+                CoderResult decodeResult = charsetDecoder.decode(readBuffer, decodeBuffer, byteChannelIsAtEOF);
+                if (decodeResult == CoderResult.OVERFLOW && decodeBuffer.position() == 0) {
+                    // the next character is a surrogate pair, which does not fit into a single char. Both halves are located at the beginning of the pair
+                    decodeBuffer.limit(2);
+                    decodeResult = charsetDecoder.decode(readBuffer, decodeBuffer, byteChannelIsAtEOF);
+                }
+                if (decodeResult == CoderResult.OVERFLOW || (decodeResult == CoderResult.UNDERFLOW && (byteChannelIsAtEOF || waitForFileToGrow))) {
+                    decodeBuffer.flip();
+
+                    boolean containsMultiByteCharacters = decodeBuffer.limit() < readBuffer.position() - readBufferPositionBeforeDecode;
+
+                    int decodedCharacters = 0;
+                    while (decodeBuffer.hasRemaining()) {
+                        if (charactersInCurrentLine % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION == 0) {
+                            if (charactersInCurrentLine > 0) {
+                                publishLinePositionPreview(toArray(characterPositionEveryNCharactersInBytes), positionInBytes, charactersInCurrentLine);
+                            }
+                            // without multi byte characters, the position can be computed. Otherwise only the first character is decoded, unless a line break follows
+                            characterPositionEveryNCharactersInBytes.add(containsMultiByteCharacters ? positionInBytes : positionInBytes + decodedCharacters);
                         }
-                        decodeBuffer.clear();
-                        int remainingCharactersBeforeMarker = IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION - (int) (charactersInCurrentLine % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
-                        decodeBuffer.limit(Math.min(decodeBuffer.capacity(), remainingCharactersBeforeMarker));
-
-                        CoderResult decodeResult = charsetDecoder.decode(readBuffer, decodeBuffer, byteChannelIsAtEOF);
-                        if (decodeResult == CoderResult.OVERFLOW || (decodeResult == CoderResult.UNDERFLOW && byteChannelIsAtEOF)) {
-                            decodeBuffer.flip();
-
-                            boolean containsMultiByteCharacters = decodeBuffer.limit() < readBuffer.position() - readBufferPositionBeforeDecode;
-
-                            int decodedCharacters = 0;
-                            while (decodeBuffer.hasRemaining()) {
-                                if (charactersInCurrentLine % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION == 0) {
-                                    if (charactersInCurrentLine > 0) {
-                                        publishLinePositionPreview(characterPositionEveryNCharactersInBytes, positionInBytes, charactersInCurrentLine);
-                                    }
-                                    characterPositionEveryNCharactersInBytes.add(positionInBytes + decodedCharacters);
-                                }
-                                char currentCharacter = decodeBuffer.get();
-
-                                if (currentCharacter == '\n' || currentCharacter == '\r') {
-                                    if (containsMultiByteCharacters && decodeBuffer == opportunisticDecodeBuffer) {
-                                        // mark next position to try again
-                                        positionInBytesToStartOpportunisticEncoding = (positionInBytes - decodedCharacters) + readBuffer.position() - readBufferPositionBeforeDecode;
-
-                                        // perform reset
-                                        readBuffer.position(readBufferPositionBeforeDecode);
-                                        while (characterPositionEveryNCharactersInBytes.size() > decodeFallbackCharacterPositionsSize) {
-                                            characterPositionEveryNCharactersInBytes.remove(characterPositionEveryNCharactersInBytes.size() - 1);
-                                        }
-                                        charactersInCurrentLine = decodeFallbackCharacterInCurrentLine;
-                                        lastCharacter = decodeFallbackLastCharacter;
-                                        break;
-                                    }
-                                    long lineEndPositionInBytes = positionInBytes + decodedCharacters;
-
-                                    // when windows line ending is detected here, The line was already finished and published at the \r, so we just reset the counts to drop the \n
-                                    if (lastCharacter != '\r' || currentCharacter != '\n') {
-                                        Runtime runtime = Runtime.getRuntime();
-                                        if (runtime.totalMemory() * 2 > runtime.maxMemory() && runtime.freeMemory() < (250 * 1024 * 1024) && runtime.freeMemory() * 8 < runtime.totalMemory()) {
-                                            if (numberOfMemoryRetries > 0) {
-                                                numberOfMemoryRetries -= 1;
-
-                                                runtime.gc();
-
-                                                //noinspection BusyWait
-                                                Thread.sleep(250); // wait a bit to give gc some time to run, then publish final line positions
-                                            } else {
-                                                return true;
-                                            }
-                                        }
-
-                                        finishLine(characterPositionEveryNCharactersInBytes, lineEndPositionInBytes, charactersInCurrentLine);
-                                    }
-                                    characterPositionEveryNCharactersInBytes.clear();
-                                    charactersInCurrentLine = -1;
+                        char currentCharacter = decodeBuffer.get();
+
+                        if (currentCharacter == '\n' || currentCharacter == '\r') {
+                            if (containsMultiByteCharacters && decodeBuffer == opportunisticDecodeBuffer) {
+                                // mark next position to try again
+                                positionInBytesToStartOpportunisticEncoding = (positionInBytes - decodedCharacters) + readBuffer.position() - readBufferPositionBeforeDecode;
+
+                                // perform reset
+                                readBuffer.position(readBufferPositionBeforeDecode);
+                                while (characterPositionEveryNCharactersInBytes.size() > decodeFallbackCharacterPositionsSize) {
+                                    characterPositionEveryNCharactersInBytes.remove(characterPositionEveryNCharactersInBytes.size() - 1);
                                 }
-                                lastCharacter = currentCharacter;
-                                charactersInCurrentLine++;
-                                decodedCharacters++;
+                                charactersInCurrentLine = decodeFallbackCharacterInCurrentLine;
+                                lastCharacter = decodeFallbackLastCharacter;
+                                decodeWasReset = true;
+                                break;
                             }
-                            positionInBytes += (readBuffer.position() - readBufferPositionBeforeDecode);
+                            long lineEndPositionInBytes = positionInBytes + decodedCharacters;
 
-                        } else {
-                            throw new IllegalStateException("Unexpected decoder result " + decodeResult.toString());
+                            // when windows line ending is detected here, The line was already finished and published at the \r, so we just reset the counts to drop the \n
+                            if (lastCharacter != '\r' || currentCharacter != '\n') {
+                                finishLine(toArray(characterPositionEveryNCharactersInBytes), lineEndPositionInBytes, charactersInCurrentLine);
+                            }
+                            characterPositionEveryNCharactersInBytes.clear();
+                            charactersInCurrentLine = -1;
                         }
-                    } while (readBuffer.hasRemaining() && (byteChannelIsAtEOF || bufferHasEnoughBytesToNotUnderflowDuringDecode(readBuffer)));
-                    readBuffer.compact();
+                        lastCharacter = currentCharacter;
+                        charactersInCurrentLine++;
+                        decodedCharacters++;
+                    }
+                    positionInBytes += (readBuffer.position() - readBufferPositionBeforeDecode);
+
+                } else {
+                    throw new IllegalStateException("Unexpected decoder result " + decodeResult.toString());
+                }
+                decodeMore = byteChannelIsAtEOF || bufferHasEnoughBytesToNotUnderflowDuringDecode(readBuffer) || (waitForFileToGrow && (decodeResult == CoderResult.OVERFLOW || decodeWasReset));
+            }
+            readBuffer.compact();
+
+            if (waitForFileToGrow) {
+                if (characterPositionEveryNCharactersInBytes.size() > 0) {
+                    updateLinePositionPreview(toArray(characterPositionEveryNCharactersInBytes), positionInBytes, charactersInCurrentLine);
                 }
-            } while (!byteChannelIsAtEOF || readBuffer.hasRemaining());
+                publishPositionBatchPreview();
 
-            if (characterPositionEveryNCharactersInBytes.size() > 0) {
-                finishLine(characterPositionEveryNCharactersInBytes, positionInBytes, charactersInCurrentLine);
+                fileFollower.awaitGrowth(positionToReadInBytes);
             }
+        } while (!byteChannelIsAtEOF || readBuffer.position() > 0); // after compact() the position is the number of bytes not yet decoded
 
-            publishFinishedPositionBatch();
+        if (characterPositionEveryNCharactersInBytes.size() > 0) {
+            finishLine(toArray(characterPositionEveryNCharactersInBytes), positionInBytes, charactersInCurrentLine);
         }
+    }
 
-        return false;
+    // Used for charsets supported by supportsByteLevelScanning. Nothing is decoded: line breaks are searched 8 bytes at a time and characters are
+    // counted from the bytes. In single byte charsets every byte is a character. In UTF-8 every ASCII byte is a character, and multi byte sequences
+    // are checked like the decoder does it: a sequence of 4 bytes counts as 2 chars (surrogate pair) and a malformed one as a single replacement character.
+    private void scanBytes() throws IOException, InterruptedException {
+        long positionOfBufferInBytes = startPositionInBytes;
+
+        int remainingContinuationBytes = 0;
+        int lowestContinuationByte = 0x80;
+        int highestContinuationByte = 0xBF;
+        int charactersOfSequence = 0;
+        long startOfSequenceInBytes = 0;
+
+        numberOfCharacterPositionsOfCurrentLine = 0;
+        charactersInCurrentLine = 0;
+        lastByteWasCarriageReturn = false;
+
+        while (true) {
+            ByteBuffer bytes = viewNextBytes(positionOfBufferInBytes);
+            int bytesRead = bytes.remaining();
+            if (bytesRead == 0) {
+                if (fileFollower == null) {
+                    break;
+                }
+                // an incomplete character at the end waits for the rest of its bytes
+                if (numberOfCharacterPositionsOfCurrentLine > 0) {
+                    updateLinePositionPreview(copyCharacterPositionsOfCurrentLine(), remainingContinuationBytes > 0 ? startOfSequenceInBytes : positionOfBufferInBytes, charactersInCurrentLine);
+                }
+                publishPositionBatchPreview();
+
+                fileFollower.awaitGrowth(positionOfBufferInBytes);
+                continue;
+            }
+            if (scannedBytesListener != null) {
+                scannedBytesListener.accept(positionOfBufferInBytes, bytes);
+            }
+
+            int index = 0;
+            while (index < bytesRead) {
+                if (remainingContinuationBytes == 0 && (bytes.get(index) >= 0 || !multiByteCharactersPossible)) {
+                    int indexOfSpecialByte = findLineBreakOrMultiByteCharacter(bytes, index, bytesRead);
+                    addSingleByteCharacters(positionOfBufferInBytes + index, indexOfSpecialByte - index);
+                    index = indexOfSpecialByte;
+                    if (index == bytesRead) {
+                        break;
+                    }
+                }
+
+                int currentByte = bytes.get(index) & 0xFF;
+                long positionInBytes = positionOfBufferInBytes + index;
+                index++;
+
+                if (remainingContinuationBytes > 0) {
+                    if (currentByte >= lowestContinuationByte && currentByte <= highestContinuationByte) {
+                        remainingContinuationBytes--;
+                        lowestContinuationByte = 0x80;
+                        highestContinuationByte = 0xBF;
+                        if (remainingContinuationBytes == 0) {
+                            for (int i = 0; i < charactersOfSequence; i++) {
+                                addCharacter(startOfSequenceInBytes); // both halves of a surrogate pair are located at the beginning of the sequence
+                            }
+                        }
+                        continue;
+                    }
+                    // malformed: the bytes so far are replaced by a single character and the current byte is checked again
+                    addCharacter(startOfSequenceInBytes);
+                    remainingContinuationBytes = 0;
+                    lowestContinuationByte = 0x80;
+                    highestContinuationByte = 0xBF;
+                }
+
+                if (currentByte == '\n' || currentByte == '\r') {
+                    if (lastByteWasCarriageReturn && currentByte == '\n') {
+                        // windows line ending. The line was already finished at the '\r'
+                        lastByteWasCarriageReturn = false;
+                        continue;
+                    }
+                    if (charactersInCurrentLine % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION == 0) {
+                        addCharacterPosition(positionInBytes);
+                    }
+                    finishLine(copyCharacterPositionsOfCurrentLine(), positionInBytes, charactersInCurrentLine);
+                    numberOfCharacterPositionsOfCurrentLine = 0;
+                    charactersInCurrentLine = 0;
+                    lastByteWasCarriageReturn = currentByte == '\r';
+                } else if (currentByte < 0xC2 || currentByte > 0xF4) {
+                    addCharacter(positionInBytes); // ASCII after a malformed sequence or invalid first byte, which is replaced
+                } else {
+                    startOfSequenceInBytes = positionInBytes;
+                    if (currentByte <= 0xDF) {
+                        remainingContinuationBytes = 1;
+                        charactersOfSequence = 1;
+                    } else if (currentByte <= 0xEF) {
+                        remainingContinuationBytes = 2;
+                        charactersOfSequence = 1; // encoded surrogates (0xED 0xA0..0xBF) are replaced by a single character, so they count as well
+                        lowestContinuationByte = currentByte == 0xE0 ? 0xA0 : 0x80; // no overlong encodings
+                    } else {
+                        remainingContinuationBytes = 3;
+                        charactersOfSequence = 2;
+                        lowestContinuationByte = currentByte == 0xF0 ? 0x90 : 0x80; // no overlong encodings
+                        highestContinuationByte = currentByte == 0xF4 ? 0x8F : 0xBF; // nothing above U+10FFFF
+                    }
+                }
+            }
+            positionOfBufferInBytes += bytesRead;
+        }
+
+        if (remainingContinuationBytes > 0) {
+            addCharacter(startOfSequenceInBytes); // incomplete sequence at end of file
+        }
+        if (numberOfCharacterPositionsOfCurrentLine > 0) {
+            finishLine(copyCharacterPositionsOfCurrentLine(), positionOfBufferInBytes, charactersInCurrentLine);
+        }
     }
 
-    private void publishLinePositionPreview(final ArrayList<Long> currentCharacterPositionEveryNCharactersInBytes, long currentPositionInBytes, long currentLengthInCharacters) {
-        final long[] characterPositionsInBytes = currentCharacterPositionEveryNCharactersInBytes.stream().mapToLong(Long::longValue).toArray();
+    // returns the index of the first line break (or the first byte of a multi byte character) or endIndex, if there is none.
+    // A byte equal to b is a zero byte in (word ^ b), and for zero bytes (x - 0x01..) & ~x & 0x80.. has the high bit set. There may be false positives,
+    // but only in bytes after a zero byte, so the lowest bit always belongs to a byte we are looking for.
+    private int findLineBreakOrMultiByteCharacter(ByteBuffer bytes, int index, int endIndex) {
+        long highBitsToFind = multiByteCharactersPossible ? ALL_BYTES_0x80 : 0;
+        while (index + 8 <= endIndex) {
+            long word = bytes.getLong(index);
+            long lineFeeds = word ^ ALL_BYTES_LINE_FEED;
+            long carriageReturns = word ^ ALL_BYTES_CARRIAGE_RETURN;
+            long found = (word & highBitsToFind) | ((lineFeeds - ALL_BYTES_0x01) & ~lineFeeds & ALL_BYTES_0x80) | ((carriageReturns - ALL_BYTES_0x01) & ~carriageReturns & ALL_BYTES_0x80);
+            if (found != 0) {
+                return index + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+            index += 8;
+        }
+        while (index < endIndex) {
+            byte currentByte = bytes.get(index);
+            if (currentByte == '\n' || currentByte == '\r' || (currentByte < 0 && multiByteCharactersPossible)) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
 
-        int lineIndex = numberOfLinesRead % IoConstants.NUMBER_OF_LINES_PER_BATCH;
+    private void addSingleByteCharacters(long positionInBytes, int numberOfCharacters) {
+        if (numberOfCharacters == 0) {
+            return;
+        }
+        long charactersAfterwards = charactersInCurrentLine + numberOfCharacters;
+        long nextCharacterWithPosition = ((charactersInCurrentLine + IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION - 1) / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION) * IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
+        while (nextCharacterWithPosition < charactersAfterwards) {
+            long characterPositionInBytes = positionInBytes + (nextCharacterWithPosition - charactersInCurrentLine);
+            if (nextCharacterWithPosition > 0) {
+                publishLinePositionPreview(copyCharacterPositionsOfCurrentLine(), characterPositionInBytes, nextCharacterWithPosition);
+            }
+            addCharacterPosition(characterPositionInBytes);
+            nextCharacterWithPosition += IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
+        }
+        charactersInCurrentLine = charactersAfterwards;
+        lastByteWasCarriageReturn = false;
+    }
 
-        this.mutableLinePositionBatch.setCharacterPositionsInBytes(lineIndex, characterPositionsInBytes);
-        this.mutableLinePositionBatch.setLengthInBytes(lineIndex, currentPositionInBytes - characterPositionsInBytes[0]);
-        this.mutableLinePositionBatch.setLengthInCharacters(lineIndex, currentLengthInCharacters);
-        this.mutableLinePositionBatch.setNumberOfContainedLines(lineIndex + 1);
+    private void addCharacter(long positionInBytes) {
+        if (charactersInCurrentLine % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION == 0) {
+            if (charactersInCurrentLine > 0) {
+                publishLinePositionPreview(copyCharacterPositionsOfCurrentLine(), positionInBytes, charactersInCurrentLine);
+            }
+            addCharacterPosition(positionInBytes);
+        }
+        charactersInCurrentLine++;
+        lastByteWasCarriageReturn = false;
+    }
+
+    private void addCharacterPosition(long positionInBytes) {
+        if (numberOfCharacterPositionsOfCurrentLine == characterPositionsOfCurrentLineInBytes.length) {
+            characterPositionsOfCurrentLineInBytes = Arrays.copyOf(characterPositionsOfCurrentLineInBytes, numberOfCharacterPositionsOfCurrentLine * 2);
+        }
+        characterPositionsOfCurrentLineInBytes[numberOfCharacterPositionsOfCurrentLine] = positionInBytes;
+        numberOfCharacterPositionsOfCurrentLine++;
+    }
+
+    private long[] copyCharacterPositionsOfCurrentLine() {
+        return Arrays.copyOf(characterPositionsOfCurrentLineInBytes, numberOfCharacterPositionsOfCurrentLine);
+    }
+
+    private static long[] toArray(ArrayList<Long> characterPositionsInBytes) {
+        return characterPositionsInBytes.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private int readNextBytes(long positionInBytes) throws IOException {
+        limitEndPosition(positionInBytes + readBuffer.remaining());
+        long remainingBytesInRange = endPositionInBytes - positionInBytes;
+        if (remainingBytesInRange <= 0) {
+            return -1;
+        }
+        if (remainingBytesInRange < readBuffer.remaining()) {
+            int originalLimit = readBuffer.limit();
+            readBuffer.limit(readBuffer.position() + (int) remainingBytesInRange);
+            int bytesRead = fileAccess.readInto(positionInBytes, readBuffer);
+            readBuffer.limit(originalLimit);
+            return bytesRead;
+        }
+        return fileAccess.readInto(positionInBytes, readBuffer);
+    }
+
+    // used during byte level scanning, which does not need to keep bytes of incomplete characters in the buffer. So a view of the file is good enough
+    private void limitEndPosition(long endOfBytesToReadInBytes) {
+        if (endPositionLimiter != null) {
+            endPositionInBytes = Math.min(endPositionInBytes, endPositionLimiter.applyAsLong(endOfBytesToReadInBytes));
+        }
+    }
+
+    private ByteBuffer viewNextBytes(long positionInBytes) throws IOException {
+        limitEndPosition(positionInBytes + readBuffer.capacity());
+        int numberOfBytes = (int) Math.max(0, Math.min(readBuffer.capacity(), endPositionInBytes - positionInBytes));
+        ByteBuffer bytes = fileAccess.read(positionInBytes, numberOfBytes, readBuffer);
+        bytes.order(ByteOrder.LITTLE_ENDIAN); // the lowest bit found in a word has to belong to the first byte
+        return bytes;
+    }
+
+    private void publishLinePositionPreview(final long[] characterPositionsInBytes, long currentPositionInBytes, long currentLengthInCharacters) {
+        updateLinePositionPreview(characterPositionsInBytes, currentPositionInBytes, currentLengthInCharacters);
 
         if (numberOfLinesRead < IoConstants.NUMBER_OF_LINES_TO_PREVIEW_BATCH){
             publishPositionBatchPreview();
         }
     }
 
-    private void finishLine(final ArrayList<Long> characterPositionEveryNCharactersInBytes, long endPositionInBytes, long lengthInCharacters) {
-        final long[] characterPositionsInBytes = characterPositionEveryNCharactersInBytes.stream().mapToLong(Long::longValue).toArray();
+    private void updateLinePositionPreview(final long[] characterPositionsInBytes, long currentPositionInBytes, long currentLengthInCharacters) {
+        int lineIndex = numberOfLinesRead % IoConstants.NUMBER_OF_LINES_PER_BATCH;
+
+        this.mutableLinePositionBatch.setCharacterPositionsInBytes(lineIndex, characterPositionsInBytes);
+        this.mutableLinePositionBatch.setLengthInBytes(lineIndex, currentPositionInBytes - characterPositionsInBytes[0]);
+        this.mutableLinePositionBatch.setLengthInCharacters(lineIndex, currentLengthInCharacters);
+        this.mutableLinePositionBatch.setNumberOfContainedLines(lineIndex + 1);
+    }
 
+    private void finishLine(long[] characterPositionsInBytes, long endPositionInBytes, long lengthInCharacters) {
         int lineIndex = numberOfLinesRead % IoConstants.NUMBER_OF_LINES_PER_BATCH;
 
+        if (characterPositionsInBytes.length > 1 && endPositionInBytes - characterPositionsInBytes[0] == numberOfBytesPerCharacterOfSingleWidthLines * lengthInCharacters) {
+            characterPositionsInBytes = new long[]{characterPositionsInBytes[0]}; // a single width line
+        }
+
         this.mutableLinePositionBatch.setCharacterPositionsInBytes(lineIndex, characterPositionsInBytes);
         this.mutableLinePositionBatch.setLengthInBytes(lineIndex, endPositionInBytes - characterPositionsInBytes[0]);
         this.mutableLinePositionBatch.setLengthInCharacters(lineIndex, lengthInCharacters);
@@ -206,18 +544,15 @@ public class Scanner {
 
     private void publishFinishedPositionBatch() {
         if (this.mutableLinePositionBatch.getNumberOfContainedLines() > 0) {
-            positionsListener.accept(new LinePositionBatch(this.mutableLinePositionBatch));
+            positionsListener.accept(new PackedLinePositionBatch(this.mutableLinePositionBatch));
         }
     }
 
     private boolean bufferHasEnoughBytesToNotUnderflowDuringDecode(ByteBuffer readBuffer) {
-        return (readBuffer.limit() - readBuffer.position()) > (IoConstants.NUMBER_OF_BYTES_TO_DECODE_OPPORTUNISTICALLY * 3);
+        return (readBuffer.limit() - readBuffer.position()) > (IoConstants.NUMBER_OF_BYTES_TO_DECODE_OPPORTUNISTICALLY * 4);
     }
 
     private void initPositionsBatch() {
-        long[][] positionsBatch_characterPositionsInBytes = new long[IoConstants.NUMBER_OF_LINES_PER_BATCH][];
-        long[] positionsBatch_lengthInBytes = new long[IoConstants.NUMBER_OF_LINES_PER_BATCH];
-        long[] positionsBatch_lengthInCharacters = new long[IoConstants.NUMBER_OF_LINES_PER_BATCH];
-        this.mutableLinePositionBatch = new MutableLinePositionBatch(positionsBatch_characterPositionsInBytes, positionsBatch_lengthInBytes, positionsBatch_lengthInCharacters, 0);
+        this.mutableLinePositionBatch = new MutableLinePositionBatch();
     }
 }
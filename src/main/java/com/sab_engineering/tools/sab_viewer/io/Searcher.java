@@ -5,25 +5,33 @@ import com.sab_engineering.tools.sab_viewer.controller.ViewerSettings;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
 
+// Searches a literal term. For charsets supported by Scanner.supportsByteLevelScanning, the term is encoded once and searched in the bytes of the file
+// with Boyer-Moore-Horspool. As line breaks are single bytes and the encoded term starts with the first byte of a character, a match of the bytes is
+// a match of the characters. Only the positions of matches are converted to line and column. Other charsets are decoded and searched character by
+// character.
 public class Searcher {
-    private final String fileName;
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    private final FileAccess fileAccess;
+    private final Charset charset;
     private final CharsetDecoder charsetDecoder;
 
     private final ByteBuffer readBuffer;
     private final CharBuffer decodeBuffer;
 
-    public Searcher(String fileName, Charset charset) throws IOException {
-        this.fileName = fileName;
+    public Searcher(FileAccess fileAccess, Charset charset) {
+        this.fileAccess = fileAccess;
+        this.charset = charset;
         this.charsetDecoder = charset.newDecoder();
         this.charsetDecoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
         this.charsetDecoder.onMalformedInput(CodingErrorAction.REPLACE);
@@ -34,99 +42,405 @@ public class Searcher {
 
     public boolean searchInSpecificLines(String literalSearchTerm, LinePositions.LinePositionsView linePositions, ViewerSettings viewerSettings, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException {
         long startTimestamp = System.currentTimeMillis();
+        boolean foundTerm = searchFrom(literalSearchTerm, linePositions, viewerSettings.getFirstDisplayedLineIndex(), viewerSettings.getFirstDisplayedColumnIndex() + 1, Long.MAX_VALUE, () -> false, resultListener, stopOnFirstResult);
+        return endSearch(startTimestamp, foundTerm);
+    }
+
+    // Finds matches starting at the given column or after it. The byte level search only finds matches starting before endOfMatchesInBytes and stops
+    // as soon as isCancelled returns true, which is used by ParallelSearcher to search a range of lines
+    boolean searchFrom(String literalSearchTerm, LinePositions.LinePositionsView linePositions, int currentLine, long currentColumnIndexInLine, long endOfMatchesInBytes, BooleanSupplier isCancelled, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException {
+        if (literalSearchTerm.isEmpty() || currentLine >= linePositions.getNumberOfContainedLines()) {
+            return false;
+        }
+        if (currentColumnIndexInLine >= linePositions.getLengthInCharacters(currentLine)) {
+            currentLine += 1;
+            currentColumnIndexInLine = 0;
+        }
+        if (currentLine >= linePositions.getNumberOfContainedLines()) {
+            return false;
+        }
+
+        byte[] encodedSearchTerm = encodeForByteLevelSearch(charset, literalSearchTerm);
+        if (encodedSearchTerm != null) {
+            return searchBytes(encodedSearchTerm, linePositions, currentLine, currentColumnIndexInLine, endOfMatchesInBytes, isCancelled, (lineIndex, columnIndex) -> true, resultListener, stopOnFirstResult);
+        } else {
+            return searchCharacters(literalSearchTerm, linePositions, currentLine, currentColumnIndexInLine, Integer.MAX_VALUE, resultListener, stopOnFirstResult);
+        }
+    }
 
+    // Finds the last match starting before the first displayed column. The byte level search reads blocks backwards from the end of the current line
+    // and matches the term from its end. Other charsets can not be decoded backwards, so blocks of lines before the current one are searched forward.
+    public boolean searchBackwardInSpecificLines(String literalSearchTerm, LinePositions.LinePositionsView linePositions, ViewerSettings viewerSettings, BiConsumer<Integer, Long> resultListener) throws IOException {
+        long startTimestamp = System.currentTimeMillis();
         int currentLine = viewerSettings.getFirstDisplayedLineIndex();
-        long currentLineLengthInCharacters = linePositions.getLengthInCharacters(currentLine);
-        long currentColumnIndexInLine = viewerSettings.getFirstDisplayedColumnIndex() + 1;
+        long currentColumnIndexInLine = viewerSettings.getFirstDisplayedColumnIndex();
+        if (literalSearchTerm.isEmpty() || currentLine >= linePositions.getNumberOfContainedLines()) {
+            return endSearch(startTimestamp, false);
+        }
+
+        byte[] encodedSearchTerm = encodeForByteLevelSearch(charset, literalSearchTerm);
+        boolean foundTerm;
+        if (encodedSearchTerm != null) {
+            foundTerm = searchBytesBackward(encodedSearchTerm, linePositions, currentLine, currentColumnIndexInLine, resultListener);
+        } else {
+            foundTerm = searchCharactersBackward(literalSearchTerm, linePositions, currentLine, currentColumnIndexInLine, resultListener);
+        }
+        return endSearch(startTimestamp, foundTerm);
+    }
 
-        if (currentColumnIndexInLine >= currentLineLengthInCharacters) {
+    // Finds the occurrences of the encoded term at byte level like searchFrom, but only those accepted by isMatch are matches. Used by RegexSearcher,
+    // which checks the regular expression only where its literal prefix occurs
+    boolean searchCandidates(byte[] encodedSearchTerm, LinePositions.LinePositionsView linePositions, int currentLine, long currentColumnIndexInLine, BiPredicate<Integer, Long> isMatch, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException {
+        if (currentLine < linePositions.getNumberOfContainedLines() && currentColumnIndexInLine >= linePositions.getLengthInCharacters(currentLine)) {
             currentLine += 1;
             currentColumnIndexInLine = 0;
         }
+        if (currentLine >= linePositions.getNumberOfContainedLines()) {
+            return false;
+        }
+        return searchBytes(encodedSearchTerm, linePositions, currentLine, currentColumnIndexInLine, Long.MAX_VALUE, () -> false, isMatch, resultListener, stopOnFirstResult);
+    }
 
-        long[] characterPositionsInBytes = linePositions.getCharacterPositionsInBytes(currentLine);
-        long startPosition = characterPositionsInBytes[(int) (currentColumnIndexInLine / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION)];
+    // returns null if the charset does not support byte level searching, or if the term can not be encoded or contains the replacement character. Then
+    // it still may match characters, which replace malformed input
+    static byte[] encodeForByteLevelSearch(Charset charset, String literalSearchTerm) {
+        if (!Scanner.supportsByteLevelScanning(charset) || literalSearchTerm.isEmpty() || literalSearchTerm.indexOf(REPLACEMENT_CHARACTER) >= 0) {
+            return null;
+        }
+        try {
+            ByteBuffer encodedSearchTerm = charset.newEncoder().encode(CharBuffer.wrap(literalSearchTerm));
+            return Arrays.copyOf(encodedSearchTerm.array(), encodedSearchTerm.limit());
+        } catch (CharacterCodingException characterCodingException) {
+            return null;
+        }
+    }
+
+    // only the scanned lines are searched, as the position of a match has to be known
+    private boolean searchBytes(byte[] encodedSearchTerm, LinePositions.LinePositionsView linePositions, int currentLine, long currentColumnIndexInLine, long endOfMatchesInBytes, BooleanSupplier isCancelled, BiPredicate<Integer, Long> isMatch, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException {
+        int searchTermLength = encodedSearchTerm.length;
+        int[] skipTable = computeSkipTable(encodedSearchTerm);
+
+        long positionToSearchFromInBytes = linePositions.getCharacterPositionInBytes(currentLine, (int) (currentColumnIndexInLine / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION));
+        long endOfSearchInBytes = linePositions.getBytePositionOfEndOfLastLine();
+        if (endOfMatchesInBytes < endOfSearchInBytes) {
+            endOfSearchInBytes = Math.min(endOfSearchInBytes, endOfMatchesInBytes + searchTermLength - 1); // a match may continue after its start
+        }
+        MatchPosition previousMatch = new MatchPosition(currentLine);
+        boolean foundTerm = false;
+
+        while (endOfSearchInBytes - positionToSearchFromInBytes >= searchTermLength && !isCancelled.getAsBoolean()) {
+            int bytesToRead = (int) Math.min(IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ, endOfSearchInBytes - positionToSearchFromInBytes);
+            ByteBuffer bytes = fileAccess.read(positionToSearchFromInBytes, bytesToRead, readBuffer);
+            int lastPossibleStartOfMatch = bytes.limit() - searchTermLength;
+            if (lastPossibleStartOfMatch < 0) {
+                break; // the file was truncated
+            }
+
+            int startOfMatch = findMatch(bytes, 0, lastPossibleStartOfMatch, encodedSearchTerm, skipTable);
+            while (startOfMatch >= 0) {
+                long positionOfMatchInBytes = positionToSearchFromInBytes + startOfMatch;
+                int lineIndex = findLineIndex(linePositions, positionOfMatchInBytes, previousMatch.lineIndex);
+                long columnIndex = findColumnIndex(linePositions, lineIndex, positionOfMatchInBytes, previousMatch);
+                if ((lineIndex > currentLine || columnIndex >= currentColumnIndexInLine) && isMatch.test(lineIndex, columnIndex)) {
+                    foundTerm = true;
+                    resultListener.accept(lineIndex, columnIndex);
+                    if (stopOnFirstResult) {
+                        return true;
+                    }
+                }
+                startOfMatch = findMatch(bytes, startOfMatch + 1, lastPossibleStartOfMatch, encodedSearchTerm, skipTable); // matches may overlap
+            }
+            positionToSearchFromInBytes += lastPossibleStartOfMatch + 1;
+        }
+        return foundTerm;
+    }
+
+    // Boyer-Moore-Horspool: the window is shifted by the distance of the last occurrence of its last byte in the rest of the term
+    static int[] computeSkipTable(byte[] encodedSearchTerm) {
+        int searchTermLength = encodedSearchTerm.length;
+        int[] skipTable = new int[256];
+        Arrays.fill(skipTable, searchTermLength);
+        for (int i = 0; i < searchTermLength - 1; i++) {
+            skipTable[encodedSearchTerm[i] & 0xFF] = searchTermLength - 1 - i;
+        }
+        return skipTable;
+    }
+
+    // returns the index of the first match starting between startOfMatch and lastPossibleStartOfMatch, or -1 if there is none
+    static int findMatch(ByteBuffer bytes, int startOfMatch, int lastPossibleStartOfMatch, byte[] encodedSearchTerm, int[] skipTable) {
+        int searchTermLength = encodedSearchTerm.length;
+        byte lastByteOfSearchTerm = encodedSearchTerm[searchTermLength - 1];
+        while (startOfMatch <= lastPossibleStartOfMatch) {
+            byte lastByte = bytes.get(startOfMatch + searchTermLength - 1);
+            if (lastByte == lastByteOfSearchTerm && matchesAt(bytes, startOfMatch, encodedSearchTerm, 0)) {
+                return startOfMatch;
+            }
+            startOfMatch += skipTable[lastByte & 0xFF];
+        }
+        return -1;
+    }
+
+    // converts the positions of matches, which are in ascending order, to line and column
+    void convertPositionsOfMatches(long[] positionsOfMatchesInBytes, int fromIndex, int toIndex, LinePositions.LinePositionsView linePositions, BiConsumer<Integer, Long> resultListener) throws IOException {
+        MatchPosition previousMatch = new MatchPosition(0);
+        for (int i = fromIndex; i < toIndex; i++) {
+            int lineIndex = findLineIndex(linePositions, positionsOfMatchesInBytes[i], previousMatch.lineIndex);
+            resultListener.accept(lineIndex, findColumnIndex(linePositions, lineIndex, positionsOfMatchesInBytes[i], previousMatch));
+        }
+    }
+
+    // the byte at the end of the term (forward) or at its beginning (backward) was already compared
+    private static boolean matchesAt(ByteBuffer bytes, int startOfMatch, byte[] encodedSearchTerm, int firstIndexToCompare) {
+        for (int i = encodedSearchTerm.length - 2 + firstIndexToCompare; i >= firstIndexToCompare; i--) {
+            if (bytes.get(startOfMatch + i) != encodedSearchTerm[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the last line starting at or before the given position. Matches are found in ascending order, so the search starts at the line of the last match
+    static int findLineIndex(LinePositions.LinePositionsView linePositions, long positionInBytes, int lowestPossibleLineIndex) {
+        int low = lowestPossibleLineIndex;
+        int high = linePositions.getNumberOfContainedLines() - 1;
+        while (low < high) {
+            int middle = (int) (((long) low + high + 1) / 2);
+            if (linePositions.getCharacterPositionInBytes(middle, 0) <= positionInBytes) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    // decodes the line from the last known character position before the given position. If the previous match is in the same line and after that
+    // position, decoding continues from it instead, as a match always starts at the first byte of a character
+    private long findColumnIndex(LinePositions.LinePositionsView linePositions, int lineIndex, long positionInBytes, MatchPosition previousMatch) throws IOException {
+        int characterPositionIndex = linePositions.getNumberOfCharacterPositions(lineIndex) - 1;
+        while (characterPositionIndex > 0 && linePositions.getCharacterPositionInBytes(lineIndex, characterPositionIndex) > positionInBytes) {
+            characterPositionIndex--;
+        }
+        long decodedPositionInBytes = linePositions.getCharacterPositionInBytes(lineIndex, characterPositionIndex);
+        long columnIndex = characterPositionIndex * (long) IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION;
+        if (previousMatch.lineIndex == lineIndex && previousMatch.positionInBytes > decodedPositionInBytes) {
+            decodedPositionInBytes = previousMatch.positionInBytes;
+            columnIndex = previousMatch.columnIndex;
+        }
+        if (positionInBytes > decodedPositionInBytes) {
+            ByteBuffer bytesBeforeMatch = fileAccess.read(decodedPositionInBytes, (int) (positionInBytes - decodedPositionInBytes), null);
+            columnIndex += charset.decode(bytesBeforeMatch).remaining();
+        }
+        previousMatch.lineIndex = lineIndex;
+        previousMatch.positionInBytes = positionInBytes;
+        previousMatch.columnIndex = columnIndex;
+        return columnIndex;
+    }
+
+    // Knuth-Morris-Pratt, so overlapping occurrences are found as well
+    // stops at the beginning of the line endOfMatchesLineIndex, unless a match may have started before it
+    private boolean searchCharacters(String literalSearchTerm, LinePositions.LinePositionsView linePositions, int currentLine, long currentColumnIndexInLine, int endOfMatchesLineIndex, BiConsumer<Integer, Long> resultListener, boolean stopOnFirstResult) throws IOException {
+        long startPosition = linePositions.getCharacterPositionInBytes(currentLine, (int) (currentColumnIndexInLine / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION));
         int charactersToSkipAfterStartPosition = (int) (currentColumnIndexInLine % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
 
         char[] searchTermCharacters = literalSearchTerm.toCharArray();
+        int[] lengthOfLongestProperPrefixWhichIsSuffix = computeLengthsOfLongestProperPrefixWhichIsSuffix(searchTermCharacters);
         int searchTermIndex = 0;
-        int foundTerm = 0;
+        boolean foundTerm = false;
 
-        try (SeekableByteChannel seekableByteChannel = Files.newByteChannel(Paths.get(fileName), StandardOpenOption.READ)) {
-            seekableByteChannel.position(startPosition);
+        // line and column of the last characters, to know where a match started
+        int[] lineIndicesOfLastCharacters = new int[searchTermCharacters.length];
+        long[] columnIndicesOfLastCharacters = new long[searchTermCharacters.length];
+        long numberOfCharactersSearched = 0;
 
-            int lineIndex = currentLine;
-            long columnIndex = currentColumnIndexInLine;
-            char lastCharacter = '\0';
+        long positionToReadInBytes = startPosition;
 
-            int beginningOfSearchTermInFile_lineIndex = -1;
-            long beginningOfSearchTermInFile_columnIndex = -1;
+        int lineIndex = currentLine;
+        long columnIndex = currentColumnIndexInLine;
+        char lastCharacter = '\0';
 
-            boolean byteChannelIsAtEOF;
-            do {
-                int bytesRead = seekableByteChannel.read(readBuffer);
-                byteChannelIsAtEOF = bytesRead == -1;
-                readBuffer.flip();
-                if (readBuffer.hasRemaining()) {
-                    do {
-                        decodeBuffer.clear();
+        charsetDecoder.reset();
+        readBuffer.clear();
+        boolean byteChannelIsAtEOF;
+        do {
+            int bytesRead = fileAccess.readInto(positionToReadInBytes, readBuffer);
+            byteChannelIsAtEOF = bytesRead == -1;
+            if (bytesRead > 0) {
+                positionToReadInBytes += bytesRead;
+            }
+            readBuffer.flip();
+            if (readBuffer.hasRemaining()) {
+                do {
+                    decodeBuffer.clear();
 
-                        CoderResult decodeResult = charsetDecoder.decode(readBuffer, decodeBuffer, byteChannelIsAtEOF);
-                        if (decodeResult == CoderResult.OVERFLOW || (decodeResult == CoderResult.UNDERFLOW && byteChannelIsAtEOF)) {
-                            decodeBuffer.flip();
+                    CoderResult decodeResult = charsetDecoder.decode(readBuffer, decodeBuffer, byteChannelIsAtEOF);
+                    if (decodeResult.isOverflow() || decodeResult.isUnderflow()) { // underflows before the end of the file when only a few bytes were read
+                        decodeBuffer.flip();
 
-                            while (decodeBuffer.hasRemaining()) {
-                                char currentCharacter = decodeBuffer.get();
+                        while (decodeBuffer.hasRemaining()) {
+                            char currentCharacter = decodeBuffer.get();
 
-                                if (charactersToSkipAfterStartPosition > 0) {
-                                    charactersToSkipAfterStartPosition -= 1;
-                                    continue;
-                                }
+                            if (charactersToSkipAfterStartPosition > 0) {
+                                charactersToSkipAfterStartPosition -= 1;
+                                continue;
+                            }
 
-                                if (currentCharacter == '\n' || currentCharacter == '\r') {
-                                    if (lastCharacter != '\r' || currentCharacter != '\n') {
-                                        lineIndex += 1;
-                                        columnIndex = -1;
-                                    }
+                            if (currentCharacter == '\n' || currentCharacter == '\r') {
+                                if (lastCharacter != '\r' || currentCharacter != '\n') {
+                                    lineIndex += 1;
                                 }
+                                columnIndex = -1;
+                            }
+                            if (lineIndex >= endOfMatchesLineIndex && searchTermIndex == 0) {
+                                return foundTerm;
+                            }
 
-                                if (currentCharacter == searchTermCharacters[searchTermIndex]) {
-                                    if (searchTermIndex == 0) {
-                                        beginningOfSearchTermInFile_lineIndex = lineIndex;
-                                        beginningOfSearchTermInFile_columnIndex = columnIndex;
-                                    }
-                                    searchTermIndex += 1;
-
-                                    if (searchTermIndex == searchTermCharacters.length) {
-                                        foundTerm++;
-                                        searchTermIndex = 0;
+                            int indexOfCurrentCharacter = (int) (numberOfCharactersSearched % searchTermCharacters.length);
+                            lineIndicesOfLastCharacters[indexOfCurrentCharacter] = lineIndex;
+                            columnIndicesOfLastCharacters[indexOfCurrentCharacter] = columnIndex;
+                            numberOfCharactersSearched++;
 
-                                        resultListener.accept(beginningOfSearchTermInFile_lineIndex, beginningOfSearchTermInFile_columnIndex);
+                            while (searchTermIndex > 0 && currentCharacter != searchTermCharacters[searchTermIndex]) {
+                                searchTermIndex = lengthOfLongestProperPrefixWhichIsSuffix[searchTermIndex - 1];
+                            }
+                            if (currentCharacter == searchTermCharacters[searchTermIndex]) {
+                                searchTermIndex += 1;
 
-                                        if (stopOnFirstResult) {
+                                if (searchTermIndex == searchTermCharacters.length) {
+                                    foundTerm = true;
+                                    searchTermIndex = lengthOfLongestProperPrefixWhichIsSuffix[searchTermIndex - 1];
 
-                                            return endSearch(startTimestamp, true);
+                                    int indexOfFirstCharacter = (int) (numberOfCharactersSearched % searchTermCharacters.length);
+                                    resultListener.accept(lineIndicesOfLastCharacters[indexOfFirstCharacter], columnIndicesOfLastCharacters[indexOfFirstCharacter]);
 
-                                        }
+                                    if (stopOnFirstResult) {
+                                        return true;
                                     }
-                                } else {
-                                    searchTermIndex = 0;
                                 }
-
-                                columnIndex += 1;
-                                lastCharacter = currentCharacter;
                             }
 
-                        } else {
-                            throw new IllegalStateException("Unexpected decoder result " + decodeResult.toString());
+                            columnIndex += 1;
+                            lastCharacter = currentCharacter;
                         }
-                    } while (readBuffer.hasRemaining() && (byteChannelIsAtEOF || bufferHasEnoughBytesToNotUnderflowDuringDecode(readBuffer)));
-                    readBuffer.compact();
+
+                    } else {
+                        throw new IllegalStateException("Unexpected decoder result " + decodeResult.toString());
+                    }
+                } while (readBuffer.hasRemaining() && (byteChannelIsAtEOF || bufferHasEnoughBytesToNotUnderflowDuringDecode(readBuffer)));
+                readBuffer.compact();
+            }
+        } while (!byteChannelIsAtEOF || readBuffer.position() > 0);
+
+        return foundTerm;
+    }
+
+    private boolean searchBytesBackward(byte[] encodedSearchTerm, LinePositions.LinePositionsView linePositions, int currentLine, long currentColumnIndexInLine, BiConsumer<Integer, Long> resultListener) throws IOException {
+        int searchTermLength = encodedSearchTerm.length;
+        // Horspool from the other side: the window is shifted to the previous occurrence of its first byte in the rest of the term
+        int[] skipTable = new int[256];
+        Arrays.fill(skipTable, searchTermLength);
+        for (int i = searchTermLength - 1; i > 0; i--) {
+            skipTable[encodedSearchTerm[i] & 0xFF] = i;
+        }
+        byte firstByteOfSearchTerm = encodedSearchTerm[0];
+
+        long endOfDataInBytes = linePositions.getBytePositionOfEndOfLastLine();
+        long endOfMatchesInBytes = findPositionInBytes(linePositions, currentLine, currentColumnIndexInLine); // exclusive, so every match found is before the current column
+        int numberOfBytesPerBlock = Math.max(1, IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ - (searchTermLength - 1)); // a block and the end of a match continuing after it fit into readBuffer
+        MatchPosition matchPosition = new MatchPosition(-1);
+
+        while (endOfMatchesInBytes > 0) {
+            long startOfBlockInBytes = Math.max(0, endOfMatchesInBytes - numberOfBytesPerBlock);
+            long endOfBlockInBytes = Math.min(endOfDataInBytes, endOfMatchesInBytes - 1 + searchTermLength);
+            ByteBuffer bytes = fileAccess.read(startOfBlockInBytes, (int) (endOfBlockInBytes - startOfBlockInBytes), readBuffer);
+
+            int startOfMatch = (int) Math.min(endOfMatchesInBytes - 1 - startOfBlockInBytes, bytes.limit() - searchTermLength);
+            while (startOfMatch >= 0) {
+                byte firstByte = bytes.get(startOfMatch);
+                if (firstByte == firstByteOfSearchTerm && matchesAt(bytes, startOfMatch, encodedSearchTerm, 1)) {
+                    long positionOfMatchInBytes = startOfBlockInBytes + startOfMatch;
+                    int lineIndex = findLineIndex(linePositions, positionOfMatchInBytes, 0);
+                    resultListener.accept(lineIndex, findColumnIndex(linePositions, lineIndex, positionOfMatchInBytes, matchPosition));
+                    return true;
+                } else {
+                    startOfMatch -= skipTable[firstByte & 0xFF];
+                }
+            }
+            if (startOfBlockInBytes == 0) {
+                break;
+            }
+            endOfMatchesInBytes = startOfBlockInBytes + startOfMatch + 1;
+        }
+        return false;
+    }
+
+    // the position of the character in the given column, or the end of the line, if it is shorter
+    private long findPositionInBytes(LinePositions.LinePositionsView linePositions, int lineIndex, long columnIndex) throws IOException {
+        long endOfLineInBytes = linePositions.getCharacterPositionInBytes(lineIndex, 0) + linePositions.getLengthInBytes(lineIndex);
+        if (columnIndex >= linePositions.getLengthInCharacters(lineIndex)) {
+            return endOfLineInBytes;
+        }
+        long positionInBytes = linePositions.getCharacterPositionInBytes(lineIndex, (int) (columnIndex / IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION));
+        int charactersToSkip = (int) (columnIndex % IoConstants.NUMBER_OF_CHARACTERS_PER_BYTE_POSITION);
+        if (charactersToSkip == 0) {
+            return positionInBytes;
+        }
+        // no character takes more than 4 bytes. Decoding stops when the characters to skip are decoded, so the position of the buffer is that of the column
+        ByteBuffer bytes = fileAccess.read(positionInBytes, (int) Math.min(endOfLineInBytes - positionInBytes, 4L * charactersToSkip), null);
+        charsetDecoder.reset();
+        charsetDecoder.decode(bytes, CharBuffer.allocate(charactersToSkip), true);
+        return positionInBytes + bytes.position();
+    }
+
+    // searches blocks of lines forward, from the current line back to the beginning of the file. The last match of a block is the one we are looking for
+    private boolean searchCharactersBackward(String literalSearchTerm, LinePositions.LinePositionsView linePositions, int currentLine, long currentColumnIndexInLine, BiConsumer<Integer, Long> resultListener) throws IOException {
+        long[] lastMatch = new long[2];
+        int endOfMatchesLineIndex = currentLine + 1;
+        while (endOfMatchesLineIndex > 0) {
+            long endOfBlockInBytes = linePositions.getCharacterPositionInBytes(endOfMatchesLineIndex - 1, 0);
+            int firstLineIndexOfBlock = Math.min(endOfMatchesLineIndex - 1, findLineIndex(linePositions, Math.max(0, endOfBlockInBytes - IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ), 0));
+            lastMatch[0] = -1;
+            int endOfMatchesLineIndexOfBlock = endOfMatchesLineIndex;
+            searchCharacters(literalSearchTerm, linePositions, firstLineIndexOfBlock, 0, endOfMatchesLineIndexOfBlock, (lineIndex, columnIndex) -> {
+                if (lineIndex < endOfMatchesLineIndexOfBlock && (lineIndex < currentLine || columnIndex < currentColumnIndexInLine)) {
+                    lastMatch[0] = lineIndex;
+                    lastMatch[1] = columnIndex;
                 }
-            } while (!byteChannelIsAtEOF || readBuffer.hasRemaining());
+            }, false);
+            if (lastMatch[0] >= 0) {
+                resultListener.accept((int) lastMatch[0], lastMatch[1]);
+                return true;
+            }
+            endOfMatchesLineIndex = firstLineIndexOfBlock;
+        }
+        return false;
+    }
+
+    private static int[] computeLengthsOfLongestProperPrefixWhichIsSuffix(char[] searchTermCharacters) {
+        int[] lengths = new int[searchTermCharacters.length];
+        int length = 0;
+        for (int i = 1; i < searchTermCharacters.length; i++) {
+            while (length > 0 && searchTermCharacters[i] != searchTermCharacters[length]) {
+                length = lengths[length - 1];
+            }
+            if (searchTermCharacters[i] == searchTermCharacters[length]) {
+                length++;
+            }
+            lengths[i] = length;
         }
+        return lengths;
+    }
 
-        return endSearch(startTimestamp, foundTerm > 0);
+    private static class MatchPosition {
+        private int lineIndex;
+        private long positionInBytes;
+        private long columnIndex;
+
+        private MatchPosition(int lineIndex) {
+            this.lineIndex = lineIndex;
+            this.positionInBytes = -1;
+            this.columnIndex = -1;
+        }
     }
 
     private boolean endSearch(long startTimestamp, boolean foundSearchTerm) {
@@ -136,6 +450,6 @@ public class Searcher {
     }
 
     private boolean bufferHasEnoughBytesToNotUnderflowDuringDecode(ByteBuffer readBuffer) {
-        return (readBuffer.limit() - readBuffer.position()) > (IoConstants.NUMBER_OF_BYTES_TO_DECODE_OPPORTUNISTICALLY * 3);
+        return (readBuffer.limit() - readBuffer.position()) > (IoConstants.NUMBER_OF_BYTES_TO_DECODE_OPPORTUNISTICALLY * 4);
     }
 }
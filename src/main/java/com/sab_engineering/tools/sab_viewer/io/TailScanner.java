@@ -0,0 +1,197 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+// Scans the end of the file backwards in blocks, while the forward scan starts at the beginning, so the last lines are known right away. Each block ends
+// where the previous one begins. It is scanned forwards, then its lines are added in reverse order, so the lines of the tail are only ever appended.
+// Batches are filled from their last line to their first one, so the lines in a batch are in the order of the file, as PackedLinePositionBatch needs.
+// The forward scan ends where the tail begins (see limitForwardScan). Until then, the numbers of the lines of the tail are only known relative to the
+// end of the file. Like ParallelScanner, this only works for charsets in which the beginning of a line is found without decoding what is before it.
+public class TailScanner {
+    private final FileAccess fileAccess;
+    private final Charset charset;
+    private final long endPositionInBytes;
+
+    private final LinePositions reversedLinePositions; // the batch of the last lines of the file first. Only changed by the tail scanner thread
+    private MutableLinePositionBatch reversedLinePositionBatch; // the unfinished batch, filled with the last line first. Only accessed by the tail scanner thread
+    private volatile boolean finished; // false while scanning, or if the scan failed. Then the lines of the tail can not be appended
+
+    // the following are accessed while synchronized on this
+    private long startPositionInBytes; // of the first claimed block. Long.MAX_VALUE until a block is claimed
+    private long endOfForwardScanInBytes; // the forward scan read, or is about to read, the bytes before this, so they can not be claimed
+
+    public TailScanner(FileAccess fileAccess, Charset charset, long startPositionOfForwardScanInBytes, long endPositionInBytes) {
+        this.fileAccess = fileAccess;
+        this.charset = charset;
+        this.endPositionInBytes = endPositionInBytes;
+        this.reversedLinePositions = new LinePositions(IoConstants.LINE_INDEX_HEAP_BUDGET_IN_BYTES / 2);
+        this.reversedLinePositionBatch = new MutableLinePositionBatch();
+        this.finished = false;
+        this.startPositionInBytes = Long.MAX_VALUE;
+        this.endOfForwardScanInBytes = startPositionOfForwardScanInBytes;
+    }
+
+    public static boolean supportsCharset(Charset charset) {
+        return ParallelScanner.supportsCharset(charset);
+    }
+
+    public static boolean isWorthwhile(long numberOfBytesToScan) {
+        return numberOfBytesToScan >= IoConstants.MINIMAL_NUMBER_OF_BYTES_FOR_TAIL_SCAN;
+    }
+
+    // Scans blocks until the next one would overlap the forward scan. blockListener is called after the lines of each block were added. When memory
+    // runs out, the scan stops without being finished
+    public void scan(Runnable blockListener) throws IOException, InterruptedException {
+        long startTimestamp = System.currentTimeMillis();
+
+        long endOfBlockInBytes = endPositionInBytes;
+        long numberOfBytesPerBlock = IoConstants.NUMBER_OF_BYTES_OF_FIRST_TAIL_BLOCK;
+        int numberOfBlocks = 0;
+        while (endOfBlockInBytes > 0) {
+            long nominalStartOfBlockInBytes = Math.max(0, endOfBlockInBytes - numberOfBytesPerBlock);
+            long startOfBlockInBytes = ParallelScanner.findBeginningOfLine(fileAccess, nominalStartOfBlockInBytes);
+            if (startOfBlockInBytes >= endOfBlockInBytes) {
+                numberOfBytesPerBlock *= 2; // no line begins in the block
+                continue;
+            }
+            if (!claim(startOfBlockInBytes)) {
+                break; // the scans met
+            }
+            if (scanBlock(startOfBlockInBytes, endOfBlockInBytes)) {
+                System.out.println("Tail scan stopped, as memory ran out");
+                return;
+            }
+            blockListener.run();
+            numberOfBlocks++;
+            endOfBlockInBytes = startOfBlockInBytes;
+            numberOfBytesPerBlock = Math.min(numberOfBytesPerBlock * 2, IoConstants.MAXIMAL_NUMBER_OF_BYTES_PER_TAIL_BLOCK);
+        }
+
+        long timePassedInMs = 1 + System.currentTimeMillis() - startTimestamp;
+        System.out.println("Tail scan of " + numberOfBlocks + " blocks and " + reversedLinePositions.getNumberOfContainedLines() + " lines finished in less than " + timePassedInMs + "ms");
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    // Called by the forward scan before it reads the bytes up to the given position. Returns the position at which the forward scan has to end,
+    // which is the beginning of the tail, or Long.MAX_VALUE. Blocks are only claimed after the bytes the forward scan read
+    public synchronized long limitForwardScan(long endOfBytesToReadInBytes) {
+        endOfForwardScanInBytes = Math.max(endOfForwardScanInBytes, Math.min(endOfBytesToReadInBytes, startPositionInBytes));
+        return startPositionInBytes;
+    }
+
+    // where the forward scan ended, once both scans ended
+    public synchronized long getStartPositionInBytes() {
+        return Math.min(startPositionInBytes, endPositionInBytes);
+    }
+
+    // the lines scanned so far, in the order of the file
+    public LinePositions.LinePositionsView getSnapshot() {
+        return reversedLinePositions.getSnapshot().reversedPositions();
+    }
+
+    // Supposed to be called after the tail scan and the forward scan ended. The lines of the tail follow the lines of the last, unfinished batch of the
+    // forward scan, if any, so the published batches are aligned with those of the forward scan
+    public void appendTo(LinePositionBatch unfinishedLinePositionBatch, Consumer<LinePositionBatch> positionsListener) {
+        LinePositionStitcher forwardLinePositionStitcher = new LinePositionStitcher(positionsListener);
+        if (unfinishedLinePositionBatch != null) {
+            forwardLinePositionStitcher.addLines(unfinishedLinePositionBatch);
+        }
+        LinePositions.LinePositionsView tailLinePositions = getSnapshot();
+        for (int lineIndex = 0; lineIndex < tailLinePositions.getNumberOfContainedLines(); lineIndex++) {
+            forwardLinePositionStitcher.addLine(tailLinePositions.getCharacterPositionsInBytes(lineIndex), tailLinePositions.getLengthInBytes(lineIndex), tailLinePositions.getLengthInCharacters(lineIndex));
+        }
+        forwardLinePositionStitcher.publishUnfinishedBatch();
+    }
+
+    private synchronized boolean claim(long startOfBlockInBytes) {
+        if (startOfBlockInBytes < endOfForwardScanInBytes) {
+            return false;
+        }
+        startPositionInBytes = startOfBlockInBytes;
+        return true;
+    }
+
+    private boolean scanBlock(long startOfBlockInBytes, long endOfBlockInBytes) throws IOException, InterruptedException {
+        try (LinePositionBatchStore linePositionBatchesOfBlock = new LinePositionBatchStore(IoConstants.LINE_INDEX_HEAP_BUDGET_IN_BYTES / 4)) {
+            Scanner scanner = new Scanner(fileAccess, charset, startOfBlockInBytes, endOfBlockInBytes, linePositionBatchesOfBlock::add,
+                    positionBatchPreview -> {
+                        // the lines of a block are only added when it is complete, as they are added in reverse order
+                    }
+            );
+            if (scanner.scanFile()) {
+                return true;
+            }
+            for (int batchIndex = linePositionBatchesOfBlock.size() - 1; batchIndex >= 0; batchIndex--) {
+                LinePositionBatch linePositionBatch = linePositionBatchesOfBlock.get(batchIndex);
+                for (int lineIndexInBatch = linePositionBatch.getNumberOfContainedLines() - 1; lineIndexInBatch >= 0; lineIndexInBatch--) {
+                    addLineInReverseOrder(linePositionBatch, lineIndexInBatch);
+                }
+            }
+        }
+        int numberOfLinesOfUnfinishedBatch = reversedLinePositionBatch.getNumberOfContainedLines();
+        if (numberOfLinesOfUnfinishedBatch > 0) {
+            reversedLinePositions.updateLastBatch(new ReversedLinePositionBatch(reversedLinePositionBatch, numberOfLinesOfUnfinishedBatch));
+        }
+        return false;
+    }
+
+    private void addLineInReverseOrder(LinePositionBatch linePositionBatch, int lineIndexInBatch) {
+        int lineIndex = reversedLinePositionBatch.getNumberOfContainedLines();
+        reversedLinePositionBatch.setCharacterPositionsInBytes(lineIndex, linePositionBatch.getCharacterPositionsInBytes(lineIndexInBatch));
+        reversedLinePositionBatch.setLengthInBytes(lineIndex, linePositionBatch.getLengthInBytes(lineIndexInBatch));
+        reversedLinePositionBatch.setLengthInCharacters(lineIndex, linePositionBatch.getLengthInCharacters(lineIndexInBatch));
+        reversedLinePositionBatch.setNumberOfContainedLines(lineIndex + 1);
+
+        if (reversedLinePositionBatch.getNumberOfContainedLines() == IoConstants.NUMBER_OF_LINES_PER_BATCH) {
+            reversedLinePositions.addFinishedBatch(new PackedLinePositionBatch(new ReversedLinePositionBatch(reversedLinePositionBatch, IoConstants.NUMBER_OF_LINES_PER_BATCH)));
+            reversedLinePositionBatch = new MutableLinePositionBatch();
+        }
+    }
+
+    // The first lines of a batch filled in reverse order, in the order of the file. Lines which were added to the batch later are not contained,
+    // so it does not change any more
+    private static class ReversedLinePositionBatch extends LinePositionBatch {
+        private final LinePositionBatch reversedLinePositionBatch;
+
+        private ReversedLinePositionBatch(LinePositionBatch reversedLinePositionBatch, int numberOfContainedLines) {
+            super(numberOfContainedLines);
+            this.reversedLinePositionBatch = reversedLinePositionBatch;
+        }
+
+        @Override
+        public long[] getCharacterPositionsInBytes(int lineIndex) {
+            return reversedLinePositionBatch.getCharacterPositionsInBytes(numberOfContainedLines - 1 - lineIndex);
+        }
+
+        @Override
+        public int getNumberOfCharacterPositions(int lineIndex) {
+            return reversedLinePositionBatch.getNumberOfCharacterPositions(numberOfContainedLines - 1 - lineIndex);
+        }
+
+        @Override
+        public long getCharacterPositionInBytes(int lineIndex, int characterPositionIndex) {
+            return reversedLinePositionBatch.getCharacterPositionInBytes(numberOfContainedLines - 1 - lineIndex, characterPositionIndex);
+        }
+
+        @Override
+        public long getLengthInBytes(int lineIndex) {
+            return reversedLinePositionBatch.getLengthInBytes(numberOfContainedLines - 1 - lineIndex);
+        }
+
+        @Override
+        public long getLengthInCharacters(int lineIndex) {
+            return reversedLinePositionBatch.getLengthInCharacters(numberOfContainedLines - 1 - lineIndex);
+        }
+
+        @Override
+        public long getEstimatedSizeInBytes() {
+            return reversedLinePositionBatch.getEstimatedSizeInBytes();
+        }
+    }
+}
@@ -20,10 +20,17 @@ public class TextModeViewer {
         viewerController = new ViewerController(
                 fileName,
                 StandardCharsets.UTF_8,
+                false,
                 ROWS,
                 COLUMNS,
                 TextModeViewer::displayViewerContent,
                 TextModeViewer::handleScannerState,
+                searchState -> {
+                    // there is no search in text mode
+                },
+                filterState -> {
+                    // there is no filter in text mode
+                },
                 messageInfo -> System.err.println(messageInfo.getMessage())
         );
     }
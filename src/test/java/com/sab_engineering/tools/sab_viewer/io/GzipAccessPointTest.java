@@ -0,0 +1,145 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GzipAccessPointTest {
+    @Test
+    public void emptyBlocksEndAtEachBit() throws DataFormatException {
+        byte[] content = createContent(100_000);
+        byte[] compressedContent = deflate(content, null);
+        for (int bitIndex = 0; bitIndex < 8; bitIndex++) {
+            byte[] emptyBlocks = GzipAccessPoint.createEmptyBlocksEndingAtBit(bitIndex);
+            assertEquals("empty blocks for bit " + bitIndex, bitIndex == 0 ? 0 : 1, emptyBlocks.length > 0 ? 1 : 0);
+
+            // the compressed content starting at the bit, after bits which are not part of it, like those of the block before an access point
+            byte[] input = shiftToBit(compressedContent, bitIndex);
+            if (bitIndex > 0) {
+                emptyBlocks[emptyBlocks.length - 1] |= (byte) (input[0] & (0xFF << bitIndex));
+                input = concatenate(emptyBlocks, Arrays.copyOfRange(input, 1, input.length));
+            }
+
+            assertArrayEquals("content starting at bit " + bitIndex, content, inflate(input, null, content.length));
+        }
+    }
+
+    @Test
+    public void historyIsReadBack() throws ZipException {
+        byte[] content = createContent(100_000);
+        GzipAccessPoint accessPoint = GzipAccessPoint.of(123_456, 987_654, content, 1000, GzipDecoder.NUMBER_OF_BYTES_OF_HISTORY);
+
+        assertEquals(123_456, accessPoint.getPositionInBytes());
+        assertEquals(987_654, accessPoint.getCompressedPositionInBits());
+        assertTrue(accessPoint.getCompressedHistory().length < GzipDecoder.NUMBER_OF_BYTES_OF_HISTORY);
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 1000 + GzipDecoder.NUMBER_OF_BYTES_OF_HISTORY), accessPoint.getHistory());
+    }
+
+    @Test
+    public void contentReferringToHistoryIsInflated() throws DataFormatException, ZipException {
+        byte[] history = createContent(GzipDecoder.NUMBER_OF_BYTES_OF_HISTORY);
+        byte[] content = Arrays.copyOfRange(history, 5000, 25_000); // matches far back in the history
+        byte[] compressedContent = deflate(content, history);
+        GzipAccessPoint accessPoint = GzipAccessPoint.of(history.length, 0, history, 0, history.length);
+
+        for (int bitIndex = 1; bitIndex < 8; bitIndex++) {
+            byte[] emptyBlocks = GzipAccessPoint.createEmptyBlocksEndingAtBit(bitIndex);
+            byte[] input = shiftToBit(compressedContent, bitIndex);
+            emptyBlocks[emptyBlocks.length - 1] |= (byte) (input[0] & (0xFF << bitIndex));
+            input = concatenate(emptyBlocks, Arrays.copyOfRange(input, 1, input.length));
+
+            assertArrayEquals("content starting at bit " + bitIndex, content, inflate(input, accessPoint.getHistory(), content.length));
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void incompleteHistoryIsRejected() throws ZipException {
+        GzipAccessPoint accessPoint = GzipAccessPoint.of(0, 0, createContent(1000), 0, 1000);
+
+        new GzipAccessPoint(0, 0, 2000, accessPoint.getCompressedHistory()).getHistory();
+    }
+
+    // lines of words, so there are matches and literals
+    private static byte[] createContent(int numberOfBytes) {
+        String[] words = {"error", "warning", "info", "timeout", "connection", "2024-01-01", "user", "request", "ü", "€"};
+        Random random = new Random(7);
+        StringBuilder content = new StringBuilder();
+        while (content.length() < numberOfBytes) {
+            content.append(words[random.nextInt(words.length)]).append(random.nextInt(10) == 0 ? '\n' : ' ');
+            if (random.nextInt(50) == 0) {
+                content.append(random.nextLong());
+            }
+        }
+        return Arrays.copyOf(content.toString().getBytes(StandardCharsets.UTF_8), numberOfBytes);
+    }
+
+    private static byte[] deflate(byte[] content, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                compressedContent.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressedContent.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, byte[] dictionary, int lengthOfContent) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            if (dictionary != null) {
+                inflater.setDictionary(dictionary);
+            }
+            inflater.setInput(input);
+            byte[] content = new byte[lengthOfContent];
+            int lengthInBytes = 0;
+            while (lengthInBytes < lengthOfContent && !inflater.finished()) {
+                int numberOfBytes = inflater.inflate(content, lengthInBytes, lengthOfContent - lengthInBytes);
+                if (numberOfBytes == 0 && inflater.needsInput()) {
+                    break;
+                }
+                lengthInBytes += numberOfBytes;
+            }
+            return Arrays.copyOf(content, lengthInBytes);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // moves the bits up by bitIndex, and sets the bits below it in the first byte
+    private static byte[] shiftToBit(byte[] bytes, int bitIndex) {
+        byte[] shiftedBytes = new byte[bytes.length + 1];
+        shiftedBytes[0] = (byte) ((1 << bitIndex) - 1);
+        for (int i = 0; i < bytes.length; i++) {
+            int value = (bytes[i] & 0xFF) << bitIndex;
+            shiftedBytes[i] |= (byte) value;
+            shiftedBytes[i + 1] |= (byte) (value >>> 8);
+        }
+        return shiftedBytes;
+    }
+
+    private static byte[] concatenate(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,138 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GzipDecoderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void contentIsDecodedLikeByGzipInputStream() throws IOException {
+        // several access points, at which blocks begin at any bit
+        File file = temporaryFolder.newFile("content.gz");
+        writeMember(file, createContent(3 * (int) IoConstants.NUMBER_OF_BYTES_BETWEEN_GZIP_ACCESS_POINTS + 12345, 1), Deflater.DEFAULT_COMPRESSION);
+
+        assertDecodedLikeByGzipInputStream(file);
+    }
+
+    @Test
+    public void membersOfAnyKindOfBlocksAreDecodedLikeByGzipInputStream() throws IOException {
+        // stored blocks, fixed codes for small members, dynamic codes, and an empty member
+        File file = temporaryFolder.newFile("members.gz");
+        writeMember(file, createContent(5 * 1024 * 1024, 2), Deflater.NO_COMPRESSION);
+        for (int i = 0; i < 100; i++) {
+            writeMember(file, createContent(20 + i, 3 + i), Deflater.BEST_SPEED);
+        }
+        writeMember(file, new byte[0], Deflater.DEFAULT_COMPRESSION);
+        writeMember(file, createContent(6 * 1024 * 1024, 4), Deflater.BEST_COMPRESSION);
+
+        assertDecodedLikeByGzipInputStream(file);
+    }
+
+    @Test
+    public void readsBeforeEndOfFirstPassDecodeContentInBetween() throws IOException {
+        File file = temporaryFolder.newFile("jump.gz");
+        writeMember(file, createContent(2 * (int) IoConstants.NUMBER_OF_BYTES_BETWEEN_GZIP_ACCESS_POINTS, 5), Deflater.DEFAULT_COMPRESSION);
+        byte[] expectedContent = decompress(file);
+
+        try (FileAccess fileAccess = FileAccess.open(file.getPath(), false)) {
+            int positionInBytes = expectedContent.length - 1000;
+            ByteBuffer bytes = fileAccess.read(positionInBytes, 2000, null);
+
+            assertArrayEquals(Arrays.copyOfRange(expectedContent, positionInBytes, expectedContent.length), toArray(bytes));
+            assertEquals(expectedContent.length, fileAccess.getSizeInBytes());
+        }
+    }
+
+    // the first pass reads through the file. Then reads at random positions start at the access points
+    private static void assertDecodedLikeByGzipInputStream(File file) throws IOException {
+        byte[] expectedContent = decompress(file);
+        try (FileAccess fileAccess = FileAccess.open(file.getPath(), false)) {
+            assertTrue(fileAccess instanceof GzipFileAccess);
+
+            ByteArrayOutputStream content = new ByteArrayOutputStream(expectedContent.length);
+            ByteBuffer buffer = null;
+            while (true) {
+                buffer = fileAccess.read(content.size(), 100_000, buffer);
+                if (!buffer.hasRemaining()) {
+                    break;
+                }
+                content.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+            }
+            assertArrayEquals(expectedContent, content.toByteArray());
+            assertTrue(fileAccess.isSizeKnown());
+            assertEquals(expectedContent.length, fileAccess.getSizeInBytes());
+
+            Random random = new Random(11);
+            for (int i = 0; i < 20; i++) {
+                int positionInBytes = random.nextInt(expectedContent.length);
+                buffer = fileAccess.read(positionInBytes, 5000, buffer);
+                assertArrayEquals("bytes at " + positionInBytes, Arrays.copyOfRange(expectedContent, positionInBytes, Math.min(expectedContent.length, positionInBytes + 5000)), toArray(buffer));
+            }
+        }
+    }
+
+    private static byte[] decompress(File file) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int numberOfBytes;
+            while ((numberOfBytes = inputStream.read(buffer)) >= 0) {
+                content.write(buffer, 0, numberOfBytes);
+            }
+            return content.toByteArray();
+        }
+    }
+
+    // appends a member to the file
+    private static void writeMember(File file, byte[] content, int level) throws IOException {
+        try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(file, true)) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            outputStream.write(content);
+        }
+    }
+
+    // lines of words and numbers, so there are matches and literals
+    private static byte[] createContent(int numberOfBytes, long seed) {
+        String[] words = {"error", "warning", "info", "timeout", "connection", "user", "request", "ü", "€", "😀"};
+        Random random = new Random(seed);
+        StringBuilder content = new StringBuilder();
+        while (content.length() < numberOfBytes) {
+            content.append(words[random.nextInt(words.length)]).append(random.nextInt(10) == 0 ? '\n' : ' ');
+            if (random.nextInt(5) == 0) {
+                content.append(random.nextInt());
+            }
+        }
+        return Arrays.copyOf(content.toString().getBytes(StandardCharsets.UTF_8), numberOfBytes);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,103 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LineIndexFileTest {
+    private static final long[] VALUES = {0, 1, 63, 64, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, 1L << 35, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+
+    @Test
+    public void variableLengthNumbersAreReadBack() {
+        ByteArrayOutputStream encodedValues = new ByteArrayOutputStream();
+        for (long value : VALUES) {
+            LineIndexFile.writeVariableLength(encodedValues, value);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(encodedValues.toByteArray());
+        for (long value : VALUES) {
+            assertEquals(value, LineIndexFile.readVariableLength(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void variableLengthNumbersTakeSevenBitsPerByte() {
+        assertEquals(1, encodedLength(0));
+        assertEquals(1, encodedLength(127));
+        assertEquals(2, encodedLength(128));
+        assertEquals(2, encodedLength(16383));
+        assertEquals(3, encodedLength(16384));
+        assertEquals(9, encodedLength(Long.MAX_VALUE));
+        assertEquals(10, encodedLength(-1));
+    }
+
+    @Test
+    public void zigZagNumbersAreReadBack() {
+        for (long value : VALUES) {
+            assertEquals(value, LineIndexFile.unZigZag(LineIndexFile.zigZag(value)));
+            assertEquals(-value, LineIndexFile.unZigZag(LineIndexFile.zigZag(-value)));
+        }
+    }
+
+    @Test
+    public void zigZagKeepsSmallNegativeNumbersSmall() {
+        assertEquals(0, LineIndexFile.zigZag(0));
+        assertEquals(1, LineIndexFile.zigZag(-1));
+        assertEquals(2, LineIndexFile.zigZag(1));
+        assertEquals(3, LineIndexFile.zigZag(-2));
+        assertEquals(1, encodedLength(LineIndexFile.zigZag(-63)));
+        assertEquals(-1, LineIndexFile.zigZag(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void batchIsDecodedAsEncoded() {
+        MutableLinePositionBatch linePositionBatch = new MutableLinePositionBatch();
+        // an ASCII line, an empty one after a two byte line break, a line with more characters than bytes and one of several character positions
+        linePositionBatch.setCharacterPositionsInBytes(0, new long[]{1000});
+        linePositionBatch.setLengthInBytes(0, 20);
+        linePositionBatch.setLengthInCharacters(0, 20);
+        linePositionBatch.setCharacterPositionsInBytes(1, new long[]{1022});
+        linePositionBatch.setLengthInBytes(1, 0);
+        linePositionBatch.setLengthInCharacters(1, 0);
+        linePositionBatch.setCharacterPositionsInBytes(2, new long[]{1023});
+        linePositionBatch.setLengthInBytes(2, 8);
+        linePositionBatch.setLengthInCharacters(2, 12);
+        linePositionBatch.setCharacterPositionsInBytes(3, new long[]{1032, 1032 + 50_000, 1032 + 90_000, 1L << 40});
+        linePositionBatch.setLengthInBytes(3, (1L << 40) + 10 - 1032);
+        linePositionBatch.setLengthInCharacters(3, 200_000);
+        linePositionBatch.setNumberOfContainedLines(4);
+
+        ByteArrayOutputStream encodedBatch = new ByteArrayOutputStream();
+        LineIndexFile.encodeBatch(linePositionBatch, encodedBatch);
+        ByteBuffer buffer = ByteBuffer.wrap(encodedBatch.toByteArray());
+        LinePositionBatch decodedBatch = LineIndexFile.decodeBatch(buffer);
+
+        assertFalse(buffer.hasRemaining());
+        assertEquals(linePositionBatch.getNumberOfContainedLines(), decodedBatch.getNumberOfContainedLines());
+        for (int lineIndex = 0; lineIndex < linePositionBatch.getNumberOfContainedLines(); lineIndex++) {
+            assertArrayEquals(linePositionBatch.getCharacterPositionsInBytes(lineIndex), decodedBatch.getCharacterPositionsInBytes(lineIndex));
+            assertEquals(linePositionBatch.getLengthInBytes(lineIndex), decodedBatch.getLengthInBytes(lineIndex));
+            assertEquals(linePositionBatch.getLengthInCharacters(lineIndex), decodedBatch.getLengthInCharacters(lineIndex));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchWithoutLinesIsRejected() {
+        ByteArrayOutputStream encodedBatch = new ByteArrayOutputStream();
+        LineIndexFile.writeVariableLength(encodedBatch, 0);
+
+        LineIndexFile.decodeBatch(ByteBuffer.wrap(encodedBatch.toByteArray()));
+    }
+
+    private static int encodedLength(long value) {
+        ByteArrayOutputStream encodedValue = new ByteArrayOutputStream();
+        LineIndexFile.writeVariableLength(encodedValue, value);
+        return encodedValue.size();
+    }
+}
@@ -0,0 +1,90 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class MatchIndexTest {
+    private static final int NUMBER_OF_MATCHES_PER_CHUNK = 64 * 1024;
+
+    @Test
+    public void emptyIndexHasNoMatches() throws IOException {
+        try (MatchIndex matchIndex = new MatchIndex(0)) {
+            assertEquals(0, matchIndex.size());
+            assertEquals(-1, matchIndex.findFirstMatchAfter(0, -1));
+            assertEquals(-1, matchIndex.findLastMatchBefore(Integer.MAX_VALUE, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void lastChunkGrowsWithItsMatches() throws IOException {
+        try (MatchIndex matchIndex = createMatchIndex(Long.MAX_VALUE, 1000)) {
+            assertEquals(1000, matchIndex.size());
+            assertMatchesAreFound(matchIndex);
+        }
+    }
+
+    @Test
+    public void matchesOfSpilledChunksAreReadBack() throws IOException {
+        // the budget keeps two chunks in memory, so the first three are spilled
+        try (MatchIndex matchIndex = createMatchIndex(0, 5 * NUMBER_OF_MATCHES_PER_CHUNK + 1234)) {
+            assertEquals(5 * NUMBER_OF_MATCHES_PER_CHUNK + 1234, matchIndex.size());
+            assertMatchesAreFound(matchIndex);
+
+            // alternating between spilled chunks
+            for (long i = 0; i < 4 * NUMBER_OF_MATCHES_PER_CHUNK; i += NUMBER_OF_MATCHES_PER_CHUNK - 1) {
+                assertEquals(getLineIndex(i), matchIndex.getLineIndex(i));
+                assertEquals(getColumnIndex(i), matchIndex.getColumnIndex(i));
+            }
+        }
+    }
+
+    @Test
+    public void matchesAddedAfterClosingAreIgnored() throws IOException {
+        MatchIndex matchIndex = createMatchIndex(0, 3 * NUMBER_OF_MATCHES_PER_CHUNK);
+        matchIndex.close();
+        matchIndex.add(Integer.MAX_VALUE, 0);
+
+        assertEquals(0, matchIndex.size());
+    }
+
+    // three matches per line, seven columns apart
+    private static MatchIndex createMatchIndex(long heapBudgetInBytes, int numberOfMatches) {
+        MatchIndex matchIndex = new MatchIndex(heapBudgetInBytes);
+        for (int i = 0; i < numberOfMatches; i++) {
+            matchIndex.add(getLineIndex(i), getColumnIndex(i));
+        }
+        return matchIndex;
+    }
+
+    private static int getLineIndex(long matchIndex) {
+        return (int) (matchIndex / 3);
+    }
+
+    private static long getColumnIndex(long matchIndex) {
+        return (matchIndex % 3) * 7;
+    }
+
+    // each match, and the positions between it and its neighbours, with extra care at the boundaries of chunks
+    private static void assertMatchesAreFound(MatchIndex matchIndex) {
+        long numberOfMatches = matchIndex.size();
+        for (long i = 0; i < numberOfMatches; i++) {
+            boolean nearBoundaryOfChunk = i % NUMBER_OF_MATCHES_PER_CHUNK < 3 || i % NUMBER_OF_MATCHES_PER_CHUNK > NUMBER_OF_MATCHES_PER_CHUNK - 3 || i >= numberOfMatches - 3;
+            if (i % 97 != 0 && !nearBoundaryOfChunk) {
+                continue;
+            }
+            int lineIndex = getLineIndex(i);
+            long columnIndex = getColumnIndex(i);
+            assertEquals(lineIndex, matchIndex.getLineIndex(i));
+            assertEquals(columnIndex, matchIndex.getColumnIndex(i));
+
+            assertEquals(i, matchIndex.findFirstMatchAfter(lineIndex, columnIndex - 1));
+            assertEquals(i + 1 < numberOfMatches ? i + 1 : -1, matchIndex.findFirstMatchAfter(lineIndex, columnIndex));
+            assertEquals(i - 1, matchIndex.findLastMatchBefore(lineIndex, columnIndex));
+            assertEquals(i, matchIndex.findLastMatchBefore(lineIndex, columnIndex + 1));
+        }
+        assertEquals(numberOfMatches - 1, matchIndex.findLastMatchBefore(Integer.MAX_VALUE, 0));
+    }
+}
@@ -0,0 +1,83 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RegexSearcherTest {
+    @Test
+    public void prefixEndsAtMetacharacters() {
+        assertEquals("error", extractLiteralPrefix("error.*timeout"));
+        assertEquals("a", extractLiteralPrefix("a(b)"));
+        assertEquals("a", extractLiteralPrefix("a[bc]"));
+        assertEquals("ab", extractLiteralPrefix("ab$"));
+        assertEquals("", extractLiteralPrefix("^ab"));
+        assertEquals("", extractLiteralPrefix(".ab"));
+    }
+
+    @Test
+    public void prefixExcludesCharacterWhichMayBeMissing() {
+        assertEquals("a", extractLiteralPrefix("ab?"));
+        assertEquals("a", extractLiteralPrefix("ab*"));
+        assertEquals("a", extractLiteralPrefix("ab{2}"));
+        assertEquals("", extractLiteralPrefix("a?b"));
+    }
+
+    @Test
+    public void prefixIncludesFirstRepetitionOfCharacter() {
+        assertEquals("ab", extractLiteralPrefix("ab+c"));
+        assertEquals("a", extractLiteralPrefix("a+b"));
+    }
+
+    @Test
+    public void prefixIncludesEscapedMetacharacters() {
+        assertEquals("a.b", extractLiteralPrefix("a\\.b"));
+        assertEquals("\\a", extractLiteralPrefix("\\\\a"));
+    }
+
+    @Test
+    public void prefixEndsAtEscapedLettersAndDigits() {
+        assertEquals("", extractLiteralPrefix("\\d+"));
+        assertEquals("a", extractLiteralPrefix("a\\bc"));
+        assertEquals("a", extractLiteralPrefix("a\\Qb\\E"));
+        assertEquals("(a)", extractLiteralPrefix("\\(a\\)\\1"));
+    }
+
+    @Test
+    public void prefixIncludesSupplementaryCharacters() {
+        assertEquals("😀x", extractLiteralPrefix("😀x"));
+        assertEquals("a", extractLiteralPrefix("a😀?"));
+    }
+
+    @Test
+    public void noPrefixForAlternativesOrCaseInsensitiveMatching() {
+        assertEquals("", extractLiteralPrefix("ab|ac"));
+        assertEquals("", RegexSearcher.extractLiteralPrefix(Pattern.compile("ab", Pattern.CASE_INSENSITIVE)));
+        assertEquals("", RegexSearcher.extractLiteralPrefix(Pattern.compile("a b", Pattern.COMMENTS)));
+        assertEquals("a.b", RegexSearcher.extractLiteralPrefix(Pattern.compile("a.b", Pattern.LITERAL)));
+    }
+
+    @Test
+    public void everyMatchStartsWithPrefix() {
+        String text = "aab abbbc ac a.b a\\b (a)(a) 😀x error: timeout";
+        String[] regularExpressions = {"ab+c", "ab?", "a+b", "a\\.b", "\\\\b", "\\(a\\)\\(", "😀x", "error.*timeout"};
+        for (String regularExpression : regularExpressions) {
+            String prefix = extractLiteralPrefix(regularExpression);
+            Matcher matcher = Pattern.compile(regularExpression).matcher(text);
+            int numberOfMatches = 0;
+            while (matcher.find()) {
+                numberOfMatches++;
+                assertTrue(regularExpression + " matched " + matcher.group(), matcher.group().startsWith(prefix));
+            }
+            assertTrue(regularExpression + " did not match", numberOfMatches > 0);
+        }
+    }
+
+    private static String extractLiteralPrefix(String regularExpression) {
+        return RegexSearcher.extractLiteralPrefix(Pattern.compile(regularExpression));
+    }
+}
@@ -0,0 +1,107 @@
+package com.sab_engineering.tools.sab_viewer.io;
+
+import com.sab_engineering.tools.sab_viewer.controller.ViewerSettings;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SearcherTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void findMatchFindsOverlappingMatches() {
+        byte[] searchTerm = "aab".getBytes(StandardCharsets.UTF_8);
+        int[] skipTable = Searcher.computeSkipTable(searchTerm);
+        ByteBuffer bytes = ByteBuffer.wrap("aaabaabaab".getBytes(StandardCharsets.UTF_8));
+        int lastPossibleStartOfMatch = bytes.limit() - searchTerm.length;
+
+        List<Integer> startsOfMatches = new ArrayList<>();
+        for (int startOfMatch = Searcher.findMatch(bytes, 0, lastPossibleStartOfMatch, searchTerm, skipTable); startOfMatch >= 0; startOfMatch = Searcher.findMatch(bytes, startOfMatch + 1, lastPossibleStartOfMatch, searchTerm, skipTable)) {
+            startsOfMatches.add(startOfMatch);
+        }
+
+        assertEquals(Arrays.asList(1, 4, 7), startsOfMatches);
+    }
+
+    @Test
+    public void findMatchFindsMatchesOfRepeatedByte() {
+        byte[] searchTerm = "aa".getBytes(StandardCharsets.UTF_8);
+        int[] skipTable = Searcher.computeSkipTable(searchTerm);
+        ByteBuffer bytes = ByteBuffer.wrap("aaaa".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(0, Searcher.findMatch(bytes, 0, 2, searchTerm, skipTable));
+        assertEquals(1, Searcher.findMatch(bytes, 1, 2, searchTerm, skipTable));
+        assertEquals(2, Searcher.findMatch(bytes, 2, 2, searchTerm, skipTable));
+    }
+
+    @Test
+    public void termsContainingReplacementCharacterAreNotSearchedInBytes() {
+        assertNull(Searcher.encodeForByteLevelSearch(StandardCharsets.UTF_8, "a\uFFFD"));
+        assertNotNull(Searcher.encodeForByteLevelSearch(StandardCharsets.UTF_8, "aü"));
+    }
+
+    @Test
+    public void byteLevelSearchFindsOverlappingMatchesAcrossReads() throws IOException, InterruptedException {
+        String content = createContent(new char[]{'a', 'a', 'b', 'ü', '\n'}, 3 * IoConstants.NUMBER_OF_BYTES_TO_BUFFER_DURING_READ / 2);
+
+        assertEquals(findMatches(content, "aab"), search(content, "aab"));
+        assertEquals(findMatches(content, "aa"), search(content, "aa"));
+        assertEquals(findMatches(content, "üaü"), search(content, "üaü"));
+    }
+
+    @Test
+    public void characterSearchFindsOverlappingMatches() throws IOException, InterruptedException {
+        String content = createContent(new char[]{'a', '\uFFFD', '\uFFFD', '\n'}, 64 * 1024);
+
+        assertEquals(findMatches(content, "\uFFFD\uFFFDa"), search(content, "\uFFFD\uFFFDa"));
+        assertEquals(findMatches(content, "a\uFFFD\uFFFD"), search(content, "a\uFFFD\uFFFD"));
+        assertEquals(findMatches(content, "\uFFFD"), search(content, "\uFFFD"));
+    }
+
+    private static String createContent(char[] characters, int numberOfCharacters) {
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder(numberOfCharacters);
+        for (int i = 0; i < numberOfCharacters; i++) {
+            content.append(characters[random.nextInt(characters.length)]);
+        }
+        return content.toString();
+    }
+
+    // line and column of each match, overlapping ones included
+    private static List<String> findMatches(String content, String searchTerm) {
+        List<String> matches = new ArrayList<>();
+        String[] lines = content.split("\n", -1);
+        for (int lineIndex = 0; lineIndex < lines.length; lineIndex++) {
+            for (int columnIndex = lines[lineIndex].indexOf(searchTerm); columnIndex >= 0; columnIndex = lines[lineIndex].indexOf(searchTerm, columnIndex + 1)) {
+                matches.add(lineIndex + ":" + columnIndex);
+            }
+        }
+        return matches;
+    }
+
+    private List<String> search(String content, String searchTerm) throws IOException, InterruptedException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        List<String> matches = new ArrayList<>();
+        try (FileAccess fileAccess = FileAccess.open(file.getPath(), false); LinePositions linePositions = new LinePositions()) {
+            new Scanner(fileAccess, StandardCharsets.UTF_8, linePositions::addFinishedBatch, linePositions::updateLastBatchPreview).scanFile();
+            new Searcher(fileAccess, StandardCharsets.UTF_8).searchInSpecificLines(searchTerm, linePositions.getSnapshot(), new ViewerSettings(1, 1, 0, -1), (lineIndex, columnIndex) -> matches.add(lineIndex + ":" + columnIndex), false);
+        }
+        return matches;
+    }
+}